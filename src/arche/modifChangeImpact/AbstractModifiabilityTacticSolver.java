@@ -0,0 +1,352 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * This class implements the top-K search shared by the solvers of the different tactics.
+ * A solver creates the candidates of its tactic (and their bounds), and evaluates each 
+ * candidate exactly. This class ranks first the candidates that can be recalled from 
+ * previous rounds, orders the rest (by their bounds, or by the estimates of the solver, 
+ * if any), and evaluates them until none of the remaining ones can make it into the K best
+ * ones (or the deadline expires). The candidates left out by the surrogate model are only
+ * evaluated after the rest, so that the best candidates found first can discard them
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEScenarioVO;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+import edu.cmu.sei.arche.external.reasoningframework.ArchEReasoningFramework;
+
+public abstract class AbstractModifiabilityTacticSolver implements ModifiabilityTacticSolver {
+
+	protected ModuleADLWrapper myModuleView;
+	protected ArchECoreResponsibilityStructure myResponsibilityStructure;		
+	protected List<ArchEResponsibility> primaryResponsibilities;
+	protected ChangeImpactAnalyzer initialAnalyzer;
+	protected ArchEScenarioVO targetScenario;
+	protected TacticCandidateQueue rankedCandidates;
+	protected boolean partialResult;
+	protected int countEvaluatedCandidates; // Candidates analyzed in the last search
+	protected int countPrunedCandidates; // Candidates discarded (by their bounds) in the last search
+	protected int countRecalledCandidates; // Candidates ranked with their previous reductions in the last search
+	protected int countSkippedCandidates; // Candidates left out by the surrogate model (and then by their bounds) in the last search
+	protected CandidateEvaluationCache evaluationCache; // Evaluations shared with other solvers
+	protected String architectureHash;
+	protected CandidateSurrogateModel surrogateModel; // Predictions shared with other solvers
+	protected TacticSearchHistory searchHistory; // Reductions found in previous rounds
+	private TacticSearchHistory.Neighborhood neighborhood; // Created on demand in each search
+	private ArchEReasoningFramework reasoningFramework; // For logging (if any)
+
+	public AbstractModifiabilityTacticSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> scenarioResponsibilities) {
+		myModuleView = null;
+		myResponsibilityStructure = null;
+		primaryResponsibilities = scenarioResponsibilities;
+		initialAnalyzer = analyzer;
+		targetScenario = null;
+		rankedCandidates = null;
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
+		countRecalledCandidates = 0;
+		countSkippedCandidates = 0;
+		evaluationCache = CandidateEvaluationCache.getSharedCache();
+		architectureHash = null;
+		surrogateModel = CandidateSurrogateModel.getSharedModel();
+		searchHistory = TacticSearchHistory.getSharedHistory();
+		neighborhood = null;
+		reasoningFramework = null;
+	}
+
+	public void setResponsibilityStructure(ArchECoreResponsibilityStructure responsibilities) {
+		myResponsibilityStructure = responsibilities;			
+	}
+	
+	public void setModuleView(RFModuleView view) {
+		myModuleView = (ModuleADLWrapper)view;			
+	}
+
+	public void setReasoningFramework(ArchEReasoningFramework rf) {
+		reasoningFramework = rf;
+	}
+
+	public void setSearchHistory(TacticSearchHistory history) {
+		searchHistory = history;
+	}
+
+	public void setSurrogateModel(CandidateSurrogateModel model) {
+		surrogateModel = model;
+	}
+
+	protected void printLog(int level, Level type, String message) {
+		if (reasoningFramework != null)
+			reasoningFramework.printLog(level, type, message);
+	}
+
+	/**
+	 * It creates the candidates of the tactic for the scenario (in any order), 
+	 * see createCandidate(). It stops creating candidates once the deadline expires
+	 * 
+	 * @param scenario the scenario being analyzed
+	 * @param currentCost the total cost of the scenario before applying the tactic
+	 * @param deadline the deadline for the search
+	 */
+	protected abstract List<TacticCandidate> createCandidates(ArchEScenario scenario, double currentCost, 
+			TacticSearchDeadline deadline);
+
+	/**
+	 * It computes the resulting cost of a candidate, and sets the parameters and the 
+	 * context of the tactic. If the entry is not null, the resulting cost is taken 
+	 * from the previous round instead. Otherwise, the candidate must be recorded 
+	 * (see recordCandidate())
+	 * 
+	 * @return false if the candidate couldn't be analyzed
+	 */
+	protected abstract boolean evaluateCandidate(TacticCandidate candidate, TacticSearchHistory.Entry previous);
+
+	/**
+	 * It returns a quick estimate of the resulting cost of a candidate, so that the most
+	 * promising candidates are analyzed first, or null if the solver has no estimates
+	 * (the candidates are then analyzed in the order of their bounds)
+	 */
+	protected Double estimateResultingCost(TacticCandidate candidate) {
+		return (null);
+	}
+
+	/**
+	 * It creates a candidate with the bound of its cost reduction and its features 
+	 * for the surrogate model, out of the modules affected by the tactic
+	 */
+	protected TacticCandidate createCandidate(String tacticName, List targets, double currentCost, 
+			List<ArchEModuleVO> affectedModules) {
+		
+		TacticCandidate candidate = new TacticCandidate(tacticName, targets, currentCost);
+		double bound = initialAnalyzer.getCostReductionBound(affectedModules);
+		candidate.setCostReductionBound(bound);
+		candidate.setFeatures(CandidateSurrogateModel.extractFeatures(initialAnalyzer, affectedModules, bound));
+		candidate.setAffectedModules(affectedModules);
+		return (candidate);
+	}
+
+	/**
+	 * It stores the cost reduction of an analyzed candidate in the history, together
+	 * with an additional value found by the solver (or null)
+	 */
+	protected void recordCandidate(TacticCandidate candidate, Double setting) {
+		this.computeNeighborhoodHash(candidate);
+		searchHistory.record(targetScenario, candidate, setting);
+	}
+
+	// It computes the hash of the neighborhood of the candidate (once)
+	private void computeNeighborhoodHash(TacticCandidate candidate) {
+		if ((candidate.getNeighborhoodHash() != null) || (candidate.getAffectedModules() == null))
+			return;
+		
+		if (neighborhood == null)
+			neighborhood = new TacticSearchHistory.Neighborhood(myModuleView, myResponsibilityStructure, primaryResponsibilities);
+		candidate.setNeighborhoodHash(neighborhood.computeHash(candidate.getAffectedModules()));
+		return;
+	}
+
+	public boolean searchForTactics(ArchEScenario scenario, int maxCandidates) {
+		return (this.searchForTactics(scenario, maxCandidates, new TacticSearchDeadline()));
+	}
+
+	public boolean searchForTactics(ArchEScenario scenario, int maxCandidates, TacticSearchDeadline deadline) {
+		
+		targetScenario = (ArchEScenarioVO)scenario;
+		rankedCandidates = new TacticCandidateQueue(maxCandidates);
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
+		countRecalledCandidates = 0;
+		countSkippedCandidates = 0;
+		architectureHash = CandidateEvaluationCache.computeArchitectureHash(myModuleView, myResponsibilityStructure);
+		neighborhood = null;
+		double currentCost = initialAnalyzer.getTotalCost();
+
+		// The candidates are ordered according to the bounds of their cost reductions 
+		// in descending order
+		List<TacticCandidate> pendingCandidates = this.createCandidates(scenario, currentCost, deadline);
+		if (deadline.hasExpired())
+			partialResult = true; // Only the candidates created so far (if any) can be recalled
+		TacticCandidateQueue.sortByCostReductionBound(pendingCandidates);
+		// Once the surrogate model has learned enough for the tactic, the candidates 
+		// with the best predicted reductions are analyzed first
+		Set<TacticCandidate> selectedCandidates = surrogateModel.selectCandidates(pendingCandidates, maxCandidates);
+		// The candidates whose neighborhoods did not change since the previous round are 
+		// ranked first with their previous reductions (warm start), so only the rest are analyzed
+		Set<TacticCandidate> recalledCandidates = this.recallCandidates(pendingCandidates);
+		// The estimates of the solver (if any) give the order in which the candidates 
+		// are analyzed (e.g., before the deadline expires). The estimates are not bounds, 
+		// so no candidate is discarded because of them
+		TacticCandidate candidate = null;
+		Double estimatedCost = null;
+		boolean estimated = false;
+		boolean stop = partialResult;
+		for (Iterator<TacticCandidate> it = pendingCandidates.iterator(); it.hasNext() && !stop;) {
+			candidate = it.next();
+			if (deadline.hasExpired()) {
+				partialResult = true; // The rest of the candidates are not estimated
+				stop = true;
+			}
+			else if (selectedCandidates.contains(candidate) && !recalledCandidates.contains(candidate)) {
+				estimatedCost = this.estimateResultingCost(candidate);
+				if (estimatedCost != null) {
+					candidate.setEstimatedCostReduction(currentCost - estimatedCost);
+					estimated = true;
+				}
+			}
+		}
+		if (estimated && !stop)
+			TacticCandidateQueue.sortByEstimatedCostReduction(pendingCandidates);
+		
+		// The predictions are not bounds, so the candidates left out by the surrogate model 
+		// are deferred rather than discarded: they are analyzed after the selected ones, 
+		// as long as their bounds can still make it into the K best ones
+		List<TacticCandidate> deferredCandidates = new ArrayList<TacticCandidate>();
+		Iterator<TacticCandidate> itCandidates = pendingCandidates.iterator();
+		while (itCandidates.hasNext() && !stop) {
+			candidate = itCandidates.next();
+			if (recalledCandidates.contains(candidate))
+				continue; // It was already ranked
+			else if (!selectedCandidates.contains(candidate))
+				deferredCandidates.add(candidate);
+			else if (!rankedCandidates.canImprove(candidate.getCostReductionBound()))
+				countPrunedCandidates++; // It cannot make it into the K best ones
+			else
+				stop = !this.analyzeCandidate(candidate, deadline);
+		}
+		itCandidates = deferredCandidates.iterator();
+		while (itCandidates.hasNext() && !stop) {
+			candidate = itCandidates.next();
+			if (!rankedCandidates.canImprove(candidate.getCostReductionBound()))
+				countSkippedCandidates++; // Its predicted reduction was not among the best ones, which left no room for it
+			else
+				stop = !this.analyzeCandidate(candidate, deadline);
+		}
+		
+		return (rankedCandidates.size() > 0);
+	}
+
+	// It evaluates a candidate exactly and offers it to the K best ones (the surrogate 
+	// model learns from it), unless the deadline has expired
+	private boolean analyzeCandidate(TacticCandidate candidate, TacticSearchDeadline deadline) {
+		if (deadline.hasExpired()) {
+			partialResult = true; // The best candidates found so far are kept
+			return (false);
+		}
+		
+		if (this.evaluateCandidate(candidate, null)) {
+			surrogateModel.learn(candidate);
+			rankedCandidates.offer(candidate);
+		}
+		countEvaluatedCandidates++;
+		return (true);
+	}
+
+	// It ranks the candidates that can be taken from the previous round (the 
+	// neighborhoods are only computed for the candidates stored in the history)
+	private Set<TacticCandidate> recallCandidates(List<TacticCandidate> pendingCandidates) {
+		Set<TacticCandidate> recalledCandidates = new HashSet<TacticCandidate>();
+		TacticCandidate candidate = null;
+		TacticSearchHistory.Entry previous = null;
+		for (Iterator<TacticCandidate> itCandidates = pendingCandidates.iterator(); itCandidates.hasNext();) {
+			candidate = itCandidates.next();
+			if (!searchHistory.contains(targetScenario, candidate))
+				continue;
+			this.computeNeighborhoodHash(candidate);
+			previous = searchHistory.recall(targetScenario, candidate);
+			if (previous != null) {
+				this.evaluateCandidate(candidate, previous);
+				rankedCandidates.offer(candidate);
+				recalledCandidates.add(candidate);
+				countRecalledCandidates++;
+			}
+		}
+		return (recalledCandidates);
+	}
+
+	public List<TacticCandidate> getCandidates() {
+		if (rankedCandidates != null)
+			return (rankedCandidates.getRankedCandidates());
+		else
+			return (new ArrayList<TacticCandidate>());
+	}
+
+	public boolean isPartialResult() {
+		return (partialResult);
+	}
+
+	public int getCountEvaluatedCandidates() {
+		return (countEvaluatedCandidates);
+	}
+
+	public int getCountPrunedCandidates() {
+		return (countPrunedCandidates);
+	}
+
+	public int getCountRecalledCandidates() {
+		return (countRecalledCandidates);
+	}
+
+	public int getCountSkippedCandidates() {
+		return (countSkippedCandidates);
+	}
+
+}
@@ -0,0 +1,539 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * An optimizer of the allocation of responsibilities to modules, based on simulated 
+ * annealing. Each step moves a responsibility to another module, and the move is scored 
+ * by a delta evaluation of the costs of the modules: only the modules whose terms change 
+ * (the source and target modules, and the modules of the responsibilities that depend
+ * on the moved one) are recomputed, instead of running the whole analysis.
+ * <p>
+ * The cost of a module follows the formula of ChangeImpactAnalyzer (with all the 
+ * modules considered as primary), so the optimizer minimizes the total cost of the 
+ * modules for any class of change. In order to avoid trivial solutions (e.g., a single 
+ * module with all the responsibilities), the number of modules is kept, and a module 
+ * cannot have more than a given number of responsibilities. Responsibilities allocated
+ * to several modules are only considered (and moved) in their first module, and they 
+ * keep their other allocations when the proposal is applied.
+ * <p>
+ * Several independent restarts are run in parallel by a pool of threads, and the best
+ * allocation found (within the given iterations or deadline) is returned
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+
+import edu.cmu.sei.arche.ArchEException;
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+
+public class AllocationOptimizer {
+
+	public static final int DEFAULT_RESTARTS 	= 4;
+	public static final int DEFAULT_ITERATIONS 	= 20000; // For each restart
+	
+	private static final double COOLING_FACTOR = 0.9995; // For the temperature, after each move
+	private static final int SAMPLE_MOVES = 100; // To set the initial temperature
+	private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+	private List<ArchEResponsibility> responsibilities;
+	private List<ArchEModuleVO> modules;
+	private AllocationModel initialModel;
+	private int numberOfThreads;
+	private int numberOfRestarts;
+	private int maxIterations;
+	private int maxResponsibilitiesPerModule;
+	private long seed;
+	private TacticSearchDeadline deadline;
+	private volatile boolean partialResult;
+
+	public AllocationOptimizer(ModuleADLWrapper view, ArchECoreResponsibilityStructure responsibilityStructure) {
+		this.numberOfThreads = Runtime.getRuntime().availableProcessors();
+		this.numberOfRestarts = DEFAULT_RESTARTS;
+		this.maxIterations = DEFAULT_ITERATIONS;
+		this.seed = System.currentTimeMillis();
+		this.deadline = new TacticSearchDeadline();
+		this.partialResult = false;
+
+		this.modules = new ArrayList<ArchEModuleVO>(view.getModules());
+		this.responsibilities = new ArrayList<ArchEResponsibility>();
+		for (Iterator<ArchEResponsibility> it = responsibilityStructure.getResponsibilities().iterator(); it.hasNext();) {
+			ArchEResponsibility resp = it.next();
+			if (view.isAllocated(resp))
+				responsibilities.add(resp);
+		}
+		this.initialModel = this.createModel(view, responsibilityStructure);
+		
+		// By default, a module can get twice as many responsibilities as the largest module
+		int largest = 1;
+		for (int i = 0; i < modules.size(); i++) {
+			if (initialModel.countAllocated[i] > largest)
+				largest = initialModel.countAllocated[i];
+		}
+		this.maxResponsibilitiesPerModule = 2 * largest;
+	}
+
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void setNumberOfRestarts(int numberOfRestarts) {
+		this.numberOfRestarts = numberOfRestarts;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public void setMaxResponsibilitiesPerModule(int maxResponsibilitiesPerModule) {
+		this.maxResponsibilitiesPerModule = maxResponsibilitiesPerModule;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public void setDeadline(TacticSearchDeadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * It checks if the last optimization was interrupted by its deadline (the best
+	 * allocation found so far is returned in that case)
+	 */
+	public boolean isPartialResult() {
+		return (partialResult);
+	}
+
+	/**
+	 * It searches for the allocation of responsibilities with the lowest cost
+	 * 
+	 * @return the best allocation found (it may be the initial one)
+	 * @throws ArchEException
+	 */
+	public AllocationProposal optimize() throws ArchEException {
+		
+		partialResult = false;
+		AllocationModel best = initialModel;
+		if ((responsibilities.size() > 0) && (modules.size() > 1)) {
+			ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads);
+			try {
+				List<Callable<AllocationModel>> restarts = new ArrayList<Callable<AllocationModel>>();
+				for (int i = 0; i < numberOfRestarts; i++)
+					restarts.add(new RestartTask(i, new Random(seed + i)));
+				
+				List<Future<AllocationModel>> results = pool.invokeAll(restarts);
+				AllocationModel model = null;
+				for (Iterator<Future<AllocationModel>> it = results.iterator(); it.hasNext();) {
+					model = it.next().get();
+					if (model.getTotalCost() < best.getTotalCost())
+						best = model;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new ArchEException(e.getMessage(),e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+
+		return (new AllocationProposal(responsibilities, modules, initialModel.getAllocation(), 
+				ChangeImpactAnalyzer.denormalizeModuleCost(initialModel.getTotalCost()), 
+				best.getAllocation(), ChangeImpactAnalyzer.denormalizeModuleCost(best.getTotalCost())));
+	}
+
+	// It runs the simulated annealing from a copy of the initial allocation (the first restart),
+	// or from a random perturbation of it (the remaining restarts)
+	private AllocationModel anneal(int restart, Random random) {
+
+		AllocationModel current = initialModel.withAllocation(initialModel.allocation);
+		if (restart > 0) {
+			for (int i = 0; i < responsibilities.size(); i++) 
+				this.tryRandomMove(current, random, Double.MAX_VALUE);
+		}
+		// Only the allocation of the best solution is kept, and its model is created at the end
+		int[] bestAllocation = current.getAllocation();
+		double bestCost = current.getTotalCost();
+
+		// The initial temperature accepts an average uphill move with a probability of about 0.6
+		double sumUphill = 0.0;
+		int countUphill = 0;
+		double delta = 0.0;
+		int resp = 0;
+		int target = 0;
+		for (int i = 0; i < SAMPLE_MOVES; i++) {
+			resp = random.nextInt(responsibilities.size());
+			target = random.nextInt(modules.size());
+			if (this.canMove(current, resp, target)) {
+				int source = current.allocation[resp];
+				delta = current.move(resp, target);
+				current.move(resp, source);
+				if (delta > 0) {
+					sumUphill = sumUphill + delta;
+					countUphill++;
+				}
+			}
+		}
+		double temperature = 0.001;
+		if (countUphill > 0)
+			temperature = 2.0 * sumUphill / countUphill;
+
+		for (int i = 0; i < maxIterations; i++) {
+			if (this.tryRandomMove(current, random, temperature) && (current.getTotalCost() < bestCost)) {
+				System.arraycopy(current.allocation, 0, bestAllocation, 0, bestAllocation.length);
+				bestCost = current.getTotalCost();
+			}
+			temperature = temperature * COOLING_FACTOR;
+			
+			if ((i % DEADLINE_CHECK_INTERVAL == 0) && deadline.hasExpired()) {
+				partialResult = true; // The best allocation found so far is kept
+				break;
+			}
+		}
+
+		return (initialModel.withAllocation(bestAllocation));
+	}
+
+	// It moves a random responsibility to a random module, and keeps the move 
+	// according to the Metropolis criterion (it returns true if the move was kept)
+	private boolean tryRandomMove(AllocationModel model, Random random, double temperature) {
+		int resp = random.nextInt(responsibilities.size());
+		int target = random.nextInt(modules.size());
+		if (!this.canMove(model, resp, target))
+			return (false);
+		
+		int source = model.allocation[resp];
+		double delta = model.move(resp, target);
+		if ((delta <= 0) || (random.nextDouble() < Math.exp(-delta / temperature)))
+			return (true);
+		
+		model.move(resp, source); // The move is undone
+		return (false);
+	}
+
+	private boolean canMove(AllocationModel model, int resp, int target) {
+		int source = model.allocation[resp];
+		return ((source != target) && (model.countAllocated[source] > 1) 
+				&& (model.countAllocated[target] < maxResponsibilitiesPerModule));
+	}
+
+	// It creates the model for the current allocation of the view
+	private AllocationModel createModel(ModuleADLWrapper view, ArchECoreResponsibilityStructure responsibilityStructure) {
+		
+		AllocationModel model = new AllocationModel(responsibilities.size(), modules.size(), 
+				responsibilityStructure.getResponsibilities().size());
+		
+		IdentityHashMap<ArchEModuleVO,Integer> positions = new IdentityHashMap<ArchEModuleVO,Integer>();
+		for (int j = 0; j < modules.size(); j++) {
+			model.basicCosts[j] = ChangeImpactAnalyzer.normalizeModuleCost(modules.get(j).getCostOfChange());
+			positions.put(modules.get(j), j);
+		}
+
+		HashMap<String,Integer> indexes = new HashMap<String,Integer>();
+		ArchEResponsibility resp = null;
+		double cost = 0.0;
+		for (int i = 0; i < responsibilities.size(); i++) {
+			resp = responsibilities.get(i);
+			indexes.put(resp.getName(), i);
+			cost = ChangeImpactAnalyzer.DEFAULT_RESPONSIBILITY_COST;
+			try {
+				cost = resp.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE);
+			} catch (ArchEException e) {
+				// The default cost is used
+			}
+			model.respCosts[i] = ChangeImpactAnalyzer.normalizeResponsibilityCost(cost);
+			// The responsibility is kept in the first of its modules (the list is not copied)
+			model.allocation[i] = positions.get(view.getAllocatedModules(resp).get(0));
+		}
+
+		// The rippling between two responsibilities is outgoing from the parent to the child, 
+		// and incoming from the child to the parent (as in ChangeImpactAnalyzer)
+		List<List<Integer>> neighbors = new ArrayList<List<Integer>>();
+		List<List<Double>> outgoing = new ArrayList<List<Double>>();
+		List<List<Double>> incoming = new ArrayList<List<Double>>();
+		for (int i = 0; i < responsibilities.size(); i++) {
+			neighbors.add(new ArrayList<Integer>());
+			outgoing.add(new ArrayList<Double>());
+			incoming.add(new ArrayList<Double>());
+		}
+		ArchEResponsibilityDependencyRelationVO dependency = null;
+		Integer parent = null;
+		Integer child = null;
+		double probabilityOutgoing = 0.0;
+		double probabilityIncoming = 0.0;
+		List<ArchERelation> dependencies = responsibilityStructure.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+		for (Iterator<ArchERelation> itDependencies = dependencies.iterator(); itDependencies.hasNext();) {
+			dependency = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
+			parent = indexes.get(dependency.getParent().getName());
+			child = indexes.get(dependency.getChild().getName());
+			if ((parent == null) || (child == null) || parent.equals(child))
+				continue;
+			try {
+				probabilityOutgoing = dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING);
+				probabilityIncoming = dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING);
+			} catch (ArchEException e) {
+				continue;
+			}
+			neighbors.get(parent).add(child);
+			outgoing.get(parent).add(probabilityOutgoing);
+			incoming.get(parent).add(probabilityIncoming);
+			neighbors.get(child).add(parent);
+			outgoing.get(child).add(probabilityIncoming);
+			incoming.get(child).add(probabilityOutgoing);
+		}
+		for (int i = 0; i < responsibilities.size(); i++) {
+			model.neighbors[i] = new int[neighbors.get(i).size()];
+			model.outgoing[i] = new double[neighbors.get(i).size()];
+			model.incoming[i] = new double[neighbors.get(i).size()];
+			for (int k = 0; k < neighbors.get(i).size(); k++) {
+				model.neighbors[i][k] = neighbors.get(i).get(k);
+				model.outgoing[i][k] = outgoing.get(i).get(k);
+				model.incoming[i][k] = incoming.get(i).get(k);
+			}
+		}
+		
+		model.initialize();
+		return (model);
+	}
+
+	/**
+	 * This internal class keeps the terms of the costs of the modules for a given 
+	 * allocation, so that the cost of moving a responsibility is computed incrementally
+	 */
+	static class AllocationModel {
+
+		// These are shared by all the copies of the model
+		private int countResponsibilities; // In the whole responsibility structure
+		private double[] basicCosts; // Normalized, for each module
+		private double[] respCosts; // Normalized, for each responsibility
+		private int[][] neighbors; // The responsibilities depending on each responsibility
+		private double[][] outgoing; // Rippling from each responsibility to its neighbors
+		private double[][] incoming; // Rippling from the neighbors to each responsibility
+
+		// These change with the allocation
+		private int[] allocation;
+		private double[] sumAllocated;
+		private int[] countAllocated;
+		private List<HashMap<Integer,double[]>> rippling; // Rippling from other modules to each module (summed up and counted)
+		private double[] moduleCosts;
+		private double totalCost;
+
+		AllocationModel(int countAllocatedResponsibilities, int countModules, int countResponsibilities) {
+			this.countResponsibilities = countResponsibilities;
+			this.basicCosts = new double[countModules];
+			this.respCosts = new double[countAllocatedResponsibilities];
+			this.neighbors = new int[countAllocatedResponsibilities][];
+			this.outgoing = new double[countAllocatedResponsibilities][];
+			this.incoming = new double[countAllocatedResponsibilities][];
+			this.allocation = new int[countAllocatedResponsibilities];
+		}
+
+		// It computes the terms of all the modules from scratch
+		void initialize() {
+			int countModules = basicCosts.length;
+			sumAllocated = new double[countModules];
+			countAllocated = new int[countModules];
+			rippling = new ArrayList<HashMap<Integer,double[]>>(countModules);
+			for (int i = 0; i < countModules; i++)
+				rippling.add(new HashMap<Integer,double[]>());
+			moduleCosts = new double[countModules];
+			
+			for (int r = 0; r < allocation.length; r++) {
+				sumAllocated[allocation[r]] = sumAllocated[allocation[r]] + respCosts[r];
+				countAllocated[allocation[r]]++;
+				for (int k = 0; k < neighbors[r].length; k++) {
+					if (allocation[neighbors[r][k]] != allocation[r]) // Each dependency is visited twice
+						this.addRippling(allocation[neighbors[r][k]], allocation[r], incoming[r][k], 1);
+				}
+			}
+			totalCost = 0.0;
+			for (int i = 0; i < countModules; i++) {
+				moduleCosts[i] = this.computeModuleCost(i);
+				totalCost = totalCost + moduleCosts[i];
+			}
+		}
+
+		// It creates a model for another allocation (of the same responsibilities and modules)
+		AllocationModel withAllocation(int[] allocation) {
+			AllocationModel model = new AllocationModel(0, 0, countResponsibilities);
+			model.basicCosts = basicCosts;
+			model.respCosts = respCosts;
+			model.neighbors = neighbors;
+			model.outgoing = outgoing;
+			model.incoming = incoming;
+			model.allocation = allocation.clone();
+			model.initialize();
+			return (model);
+		}
+
+		int[] getAllocation() {
+			return (allocation.clone());
+		}
+
+		double getTotalCost() {
+			return (totalCost);
+		}
+
+		// The cost of module [i] only depends on the rippling from the other modules to [i]
+		private double computeModuleCost(int i) {
+			double costNeighbors = 0.0;
+			int countNeighbors = 0;
+			double[] terms = null;
+			Map.Entry<Integer,double[]> entry = null;
+			for (Iterator<Map.Entry<Integer,double[]>> it = rippling.get(i).entrySet().iterator(); it.hasNext();) {
+				entry = it.next();
+				terms = entry.getValue();
+				if (terms[0] > 0) {
+					costNeighbors = costNeighbors + (terms[0] / terms[1]) * basicCosts[entry.getKey()];
+					countNeighbors++;
+				}
+			}
+			return (ChangeImpactAnalyzer.computeModuleCost(basicCosts[i], costNeighbors, countNeighbors, 
+					sumAllocated[i], countAllocated[i], countResponsibilities));
+		}
+
+		private void addRippling(int from, int to, double value, int count) {
+			HashMap<Integer,double[]> incomingRippling = rippling.get(to);
+			double[] terms = incomingRippling.get(from);
+			if (terms == null) {
+				terms = new double[2];
+				incomingRippling.put(from, terms);
+			}
+			terms[0] = terms[0] + value;
+			terms[1] = terms[1] + count;
+			if (terms[1] == 0)
+				incomingRippling.remove(from); // To avoid rounding errors
+		}
+
+		/**
+		 * It moves a responsibility to a module, and updates the terms of the affected 
+		 * modules (only)
+		 * 
+		 * @return the change in the total cost due to the move
+		 */
+		double move(int resp, int target) {
+			int source = allocation[resp];
+			List<Integer> affected = new ArrayList<Integer>();
+			affected.add(source);
+			affected.add(target);
+			
+			int other = 0;
+			for (int k = 0; k < neighbors[resp].length; k++) {
+				other = allocation[neighbors[resp][k]];
+				if (other != source) {
+					this.addRippling(source, other, -outgoing[resp][k], -1);
+					this.addRippling(other, source, -incoming[resp][k], -1);
+				}
+				if (other != target) {
+					this.addRippling(target, other, outgoing[resp][k], 1);
+					this.addRippling(other, target, incoming[resp][k], 1);
+				}
+				if (!affected.contains(other))
+					affected.add(other);
+			}
+			allocation[resp] = target;
+			sumAllocated[source] = sumAllocated[source] - respCosts[resp];
+			countAllocated[source]--;
+			if (countAllocated[source] == 0)
+				sumAllocated[source] = 0.0;
+			sumAllocated[target] = sumAllocated[target] + respCosts[resp];
+			countAllocated[target]++;
+
+			double delta = 0.0;
+			double cost = 0.0;
+			int module = 0;
+			for (Iterator<Integer> it = affected.iterator(); it.hasNext();) {
+				module = it.next();
+				cost = this.computeModuleCost(module);
+				delta = delta + cost - moduleCosts[module];
+				moduleCosts[module] = cost;
+			}
+			totalCost = totalCost + delta;
+			return (delta);
+		}
+
+	}
+
+	/**
+	 * This internal class runs one restart of the optimization (in a separate thread)
+	 */
+	class RestartTask implements Callable<AllocationModel> {
+
+		private int restart;
+		private Random random;
+
+		public RestartTask(int restart, Random random) {
+			this.restart = restart;
+			this.random = random;
+		}
+
+		public AllocationModel call() throws Exception {
+			return (anneal(restart, random));
+		}
+
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * An allocation of responsibilities to modules proposed by the AllocationOptimizer,
+ * along with the costs of the modules before and after moving the responsibilities.
+ * <p>
+ * A proposal is not applied to the architecture unless applyTo() is invoked (e.g., on
+ * a copy of the architecture, in order to analyze the proposal for a scenario)
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+
+public class AllocationProposal {
+
+	private List<ArchEResponsibility> responsibilities;
+	private List<ArchEModuleVO> modules;
+	private int[] initialAllocation; // The module (position) of each responsibility before the optimization
+	private int[] allocation; // The module (position) of each responsibility after the optimization
+	private double initialCost; // The cost of all the modules for the initial allocation
+	private double cost; // The cost of all the modules for the proposed allocation
+	private double scenarioCost; // The total cost of a scenario for the proposed allocation (if analyzed)
+
+	public AllocationProposal(List<ArchEResponsibility> responsibilities, List<ArchEModuleVO> modules, 
+			int[] initialAllocation, double initialCost, int[] allocation, double cost) {
+		this.responsibilities = responsibilities;
+		this.modules = modules;
+		this.initialAllocation = initialAllocation;
+		this.initialCost = initialCost;
+		this.allocation = allocation;
+		this.cost = cost;
+		this.scenarioCost = ModifChangeImpactReasoningFramework.INVALID_RESPONSE;
+	}
+
+	public List<ArchEModuleVO> getModules() {
+		return (modules);
+	}
+
+	public double getInitialCost() {
+		return (initialCost);
+	}
+
+	public double getCost() {
+		return (cost);
+	}
+
+	public double getCostReduction() {
+		return (initialCost - cost);
+	}
+
+	public double getScenarioCost() {
+		return (scenarioCost);
+	}
+
+	public void setScenarioCost(double scenarioCost) {
+		this.scenarioCost = scenarioCost;
+	}
+
+	/**
+	 * It returns the module proposed for a responsibility (or null if the responsibility 
+	 * was not considered by the optimizer)
+	 */
+	public ArchEModuleVO getModule(ArchEResponsibility responsibility) {
+		int index = responsibilities.indexOf(responsibility);
+		if (index == -1)
+			return (null);
+		return (modules.get(allocation[index]));
+	}
+
+	/**
+	 * It returns the responsibilities that are allocated to a different module
+	 * in the proposal
+	 */
+	public List<ArchEResponsibility> getMovedResponsibilities() {
+		List<ArchEResponsibility> moved = new ArrayList<ArchEResponsibility>();
+		for (int i = 0; i < allocation.length; i++) {
+			if (allocation[i] != initialAllocation[i])
+				moved.add(responsibilities.get(i));
+		}
+		return (moved);
+	}
+
+	/**
+	 * It moves the responsibilities of a view to the modules of the proposal (defining the 
+	 * new modules, and removing the modules that become empty), and then updates the 
+	 * dependencies among modules according to the dependencies among responsibilities 
+	 * (as in initializeView() of the reasoning framework). Only the first module of 
+	 * a responsibility is replaced (as that is the module considered by the proposal),
+	 * so a responsibility allocated to several modules keeps its other allocations
+	 * 
+	 * @param view the view (usually a copy of the architecture's view)
+	 * @param responsibilityStructure the responsibility structure of the view
+	 */
+	public void applyTo(ModuleADLWrapper view, ArchECoreResponsibilityStructure responsibilityStructure) {
+		
+		ArchEResponsibility resp = null;
+		ArchEModuleVO module = null;
+		List<ArchEModuleVO> allocatedModules = null;
+		for (Iterator<ArchEModuleVO> itModules = modules.iterator(); itModules.hasNext();)
+			view.defineModule(itModules.next()); // Only the new modules are actually defined
+		for (int i = 0; i < allocation.length; i++) {
+			resp = responsibilities.get(i);
+			view.defineResponsibility(resp);
+			// The module replaced is the initial one (if known), or else the first module of the view
+			module = null;
+			if (initialAllocation[i] >= 0)
+				module = modules.get(initialAllocation[i]);
+			else {
+				allocatedModules = view.getModulesByResponsibility(resp);
+				if (!allocatedModules.isEmpty())
+					module = allocatedModules.get(0);
+			}
+			if (module != null)
+				view.setResponsibilityAllocation(module, resp, false);
+			view.setResponsibilityAllocation(modules.get(allocation[i]), resp, true);
+		}
+		for (Iterator<ArchEModuleVO> itModules = view.getModules().iterator(); itModules.hasNext();) {
+			module = itModules.next();
+			if (view.getCountAllocatedResponsibilities(module) == 0)
+				view.removeModule(module);
+		}
+		view.compact();
+
+		// The dependencies of all the modules are derived again 
+		// (deleting the dependencies that are no longer derived)
+		List<ArchERelation> dependencies = responsibilityStructure.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+		view.updateModuleDependencies(dependencies, view.getModules());
+		
+		return;
+	}
+
+}
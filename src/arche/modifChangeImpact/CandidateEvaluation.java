@@ -0,0 +1,93 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * The result of evaluating a (hypothetical) transformation with a what-if 
+ * analyzer: the total cost of the scenario along with some key metrics of 
+ * the analysis. These results are kept in a CandidateEvaluationCache
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+public class CandidateEvaluation {
+
+	private double totalCost;
+	private double avgModuleCoupling;
+	private double avgModuleCohesion;
+	private double avgRipplingProbability;
+
+	/**
+	 * It takes the results from an analyzer (after the evaluation has been performed)
+	 * 
+	 * @param analyzer the what-if analyzer for the transformation
+	 */
+	public CandidateEvaluation(ChangeImpactAnalyzer analyzer) {
+		this.totalCost = analyzer.getTotalCost();
+		this.avgModuleCoupling = analyzer.getAvgModuleCoupling();
+		this.avgModuleCohesion = analyzer.getAvgModuleCohesion();
+		this.avgRipplingProbability = analyzer.getAvgRipplingProbability();
+	}
+
+	public double getTotalCost() {
+		return (totalCost);
+	}
+
+	public double getAvgModuleCoupling() {
+		return (avgModuleCoupling);
+	}
+
+	public double getAvgModuleCohesion() {
+		return (avgModuleCohesion);
+	}
+
+	public double getAvgRipplingProbability() {
+		return (avgRipplingProbability);
+	}
+
+}
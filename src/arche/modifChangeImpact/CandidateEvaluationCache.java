@@ -0,0 +1,287 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A cache for the evaluations of candidates performed by the solvers, so that 
+ * the same hypothetical transformation is not analyzed again (e.g., for scenarios
+ * sharing responsibilities, or in rounds where the architecture did not change).
+ * <p>
+ * An evaluation is identified by a hash of the architecture contents, the scenario,
+ * the tactic, and the target and parameters of the tactic. The cache has a bounded
+ * size, and the least recently used evaluations are discarded first. 
+ * <p>
+ * A single cache is shared by all the solvers (and threads) of the reasoning framework
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchERefinementRelationVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+import arche.modifChangeImpact.hibernate.vo.ArchETranslationRelationVO;
+
+import edu.cmu.sei.arche.ArchEException;
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+
+public class CandidateEvaluationCache {
+
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	private static CandidateEvaluationCache sharedCache = new CandidateEvaluationCache(DEFAULT_CAPACITY);
+
+	private LinkedHashMap<String,CandidateEvaluation> evaluations;
+	private int capacity;
+	private long hits;
+	private long misses;
+
+	public CandidateEvaluationCache(int capacity) {
+		this.capacity = capacity;
+		// The map keeps the entries in access order, so the eldest entry is the least recently used
+		this.evaluations = new LinkedHashMap<String,CandidateEvaluation>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			protected boolean removeEldestEntry(Map.Entry<String,CandidateEvaluation> eldest) {
+				return (size() > CandidateEvaluationCache.this.capacity);
+			}
+		};
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	public static CandidateEvaluationCache getSharedCache() {
+		return (sharedCache);
+	}
+
+	/**
+	 * It returns the evaluation stored for a key, or null if the candidate has 
+	 * not been evaluated yet (or its evaluation was discarded)
+	 */
+	public synchronized CandidateEvaluation lookup(String key) {
+		CandidateEvaluation evaluation = evaluations.get(key);
+		if (evaluation != null)
+			hits++;
+		else
+			misses++;
+		return (evaluation);
+	}
+
+	public synchronized void store(String key, CandidateEvaluation evaluation) {
+		evaluations.put(key, evaluation);
+	}
+
+	public synchronized void clear() {
+		evaluations.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	public synchronized int size() {
+		return (evaluations.size());
+	}
+
+	public int getCapacity() {
+		return (capacity);
+	}
+
+	public synchronized long getHits() {
+		return (hits);
+	}
+
+	public synchronized long getMisses() {
+		return (misses);
+	}
+
+	public synchronized double getHitRatio() {
+		if (hits + misses == 0)
+			return (0.0);
+		return ((double)hits / (hits + misses));
+	}
+
+	/**
+	 * It creates the key for the evaluation of a candidate
+	 * 
+	 * @param architectureHash the hash of the architecture contents (see computeArchitectureHash())
+	 * @param scenario the scenario being analyzed
+	 * @param tacticName the tactic of the candidate
+	 * @param target the target of the candidate 
+	 * @param parameters the parameters that affect the evaluation (or null)
+	 * @return
+	 */
+	public static String createKey(String architectureHash, ArchEScenario scenario, 
+			String tacticName, List target, List parameters) {
+		StringBuffer key = new StringBuffer(architectureHash);
+		key.append('|').append(scenario.getFactId());
+		key.append('|').append(tacticName);
+		key.append('|').append(CandidateEvaluationCache.describe(target));
+		key.append('|').append(CandidateEvaluationCache.describe(parameters));
+		return (key.toString());
+	}
+
+	private static String describe(List items) {
+		StringBuffer description = new StringBuffer("[");
+		if (items != null) {
+			Object item = null;
+			for (Iterator it = items.iterator(); it.hasNext();) {
+				item = it.next();
+				// Two design elements are equal if they have the same name 
+				if (item instanceof ArchEModuleVO)
+					description.append(((ArchEModuleVO)item).getName());
+				else if (item instanceof ArchEResponsibility)
+					description.append(((ArchEResponsibility)item).getName());
+				else
+					description.append(item);
+				description.append(',');
+			}
+		}
+		description.append(']');
+		return (description.toString());
+	}
+
+	/**
+	 * It computes a hash of all the contents of the architecture that can affect 
+	 * the change impact analysis: modules and their costs, allocation of responsibilities 
+	 * and their costs, dependencies (with their probabilities), and translation and 
+	 * refinement relations
+	 */
+	public static String computeArchitectureHash(ModuleADLWrapper moduleView, 
+			ArchECoreResponsibilityStructure responsibilities) {
+		
+		List<String> lines = new ArrayList<String>();
+		
+		ArchEModuleVO module = null;
+		BitSet moduleDependencies = null;
+		for (int i = 0; i < moduleView.getCountModuleSlots(); i++) {
+			module = moduleView.getModule(i);
+			if (module == null) // The tombstones are skipped
+				continue;
+			lines.add("M:"+module.getName()+":"+module.getCostOfChange());
+			for (Iterator<ArchEResponsibility> itResps = moduleView.getAllocatedResponsibilities(module).iterator(); itResps.hasNext();) 
+				lines.add("A:"+module.getName()+":"+itResps.next().getName());
+			// Only the dependencies of the module are visited (instead of all the other modules)
+			moduleDependencies = moduleView.getDependencyRow(i);
+			for (int j = moduleDependencies.nextSetBit(0); j >= 0; j = moduleDependencies.nextSetBit(j + 1)) 
+				lines.add("D:"+module.getName()+":"+moduleView.getModule(j).getName());
+		}
+		
+		ArchEResponsibility resp = null;
+		for (Iterator<ArchEResponsibility> itResps = responsibilities.getResponsibilities().iterator(); itResps.hasNext();) {
+			resp = itResps.next();
+			try {
+				lines.add("R:"+resp.getName()+":"+resp.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE));
+			} catch (ArchEException e) {
+				lines.add("R:"+resp.getName()+":?");
+			}
+		}
+
+		ArchEResponsibilityDependencyRelationVO dependency = null;
+		List<ArchERelation> dependencies = responsibilities.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+		if (dependencies != null) {
+			for (Iterator<ArchERelation> itDeps = dependencies.iterator(); itDeps.hasNext();) {
+				dependency = (ArchEResponsibilityDependencyRelationVO)(itDeps.next());
+				try {
+					lines.add("P:"+dependency.getParent().getName()+":"+dependency.getChild().getName()
+						+":"+dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING)
+						+":"+dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING));
+				} catch (ArchEException e) {
+					lines.add("P:"+dependency.getParent().getName()+":"+dependency.getChild().getName()+":?");
+				}
+			}
+		}
+
+		ArchERelation relation = null;
+		List<ArchERelation> translations = responsibilities.getRelations(ArchETranslationRelationVO.class.getName());
+		for (Iterator<ArchERelation> itTrans = translations.iterator(); itTrans.hasNext();) {
+			relation = itTrans.next();
+			lines.add("T:"+((ArchEScenario)relation.getParent()).getFactId()+":"+((ArchEResponsibility)relation.getChild()).getName());
+		}
+		List<ArchERelation> refinements = responsibilities.getRelations(ArchERefinementRelationVO.class.getName());
+		for (Iterator<ArchERelation> itRefs = refinements.iterator(); itRefs.hasNext();) {
+			relation = itRefs.next();
+			lines.add("F:"+((ArchEResponsibility)relation.getParent()).getName()+":"+((ArchEResponsibility)relation.getChild()).getName());
+		}
+		
+		Collections.sort(lines);
+		return (CandidateEvaluationCache.digest(lines));
+	}
+
+	// It summarizes the (sorted) contents as an MD5 digest
+	static String digest(List<String> lines) {
+		StringBuffer contents = new StringBuffer();
+		for (Iterator<String> it = lines.iterator(); it.hasNext();)
+			contents.append(it.next()).append('\n');
+
+		try {
+			MessageDigest md5 = MessageDigest.getInstance("MD5");
+			byte[] bytes = md5.digest(contents.toString().getBytes());
+			StringBuffer hex = new StringBuffer();
+			for (int i = 0; i < bytes.length; i++) {
+				hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(bytes[i] & 0xF, 16));
+			}
+			return (hex.toString());
+		} catch (NoSuchAlgorithmException e) {
+			// The contents themselves are used as the key
+			return (contents.toString());
+		}
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A surrogate model that predicts the cost reduction of a candidate for a tactic, 
+ * learned online from the candidates that were fully analyzed by the solvers. 
+ * The model is a linear (ridge) regression per tactic over a few features of the 
+ * candidate (e.g., the bound of its cost reduction, and the costs, coupling and
+ * cohesion of the modules affected by the tactic).
+ * <p>
+ * Once a tactic has enough samples, a solver first analyzes the candidates with
+ * the best predicted reductions. The rest are deferred, and analyzed afterwards
+ * as long as their bounds can still make it into the K best candidates (the 
+ * predictions are not bounds, so no candidate is discarded because of them alone).
+ * Note that the candidates returned by the solvers are still analyzed exactly, so 
+ * the surrogate only affects the order (and thus the number) of the candidates 
+ * analyzed, but not their reported costs.
+ * <p>
+ * A single model is shared by all the solvers (and threads) of the reasoning framework
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+
+public class CandidateSurrogateModel {
+
+	public static final int COUNT_FEATURES = 7;
+	public static final int MIN_SAMPLES = 20; // Samples needed before using the predictions of a tactic
+	public static final int SELECTION_FACTOR = 2; // The candidates analyzed are SELECTION_FACTOR times K
+	private static final double REGULARIZATION = 0.001;
+
+	private static CandidateSurrogateModel sharedModel = new CandidateSurrogateModel();
+
+	private Hashtable<String,LinearModel> models; // A model for each tactic
+	private boolean enabled;
+
+	public CandidateSurrogateModel() {
+		models = new Hashtable<String,LinearModel>();
+		enabled = true;
+	}
+
+	public static CandidateSurrogateModel getSharedModel() {
+		return (sharedModel);
+	}
+
+	/**
+	 * It computes the features of a candidate, given the modules affected by the tactic
+	 * 
+	 * @param analyzer the analysis before applying the tactic
+	 * @param affectedModules the modules directly affected by the tactic
+	 * @param costReductionBound the bound of the cost reduction of the candidate
+	 * @return
+	 */
+	public static double[] extractFeatures(ChangeImpactAnalyzer analyzer, List<ArchEModuleVO> affectedModules, 
+			double costReductionBound) {
+		
+		double[] features = new double[COUNT_FEATURES];
+		double cost = 0.0;
+		double coupling = 0.0;
+		double cohesion = 0.0;
+		int count = 0;
+		ArchEModuleVO module = null;
+		for (Iterator<ArchEModuleVO> it = affectedModules.iterator(); it.hasNext();) {
+			module = it.next();
+			if (analyzer.isPrimaryModule(module)) {
+				cost = cost + analyzer.getModuleEstimatedCost(module);
+				coupling = coupling + analyzer.getModuleCoupling(module);
+				cohesion = cohesion + analyzer.getModuleCohesion(module);
+				count++;
+			}
+		}
+		features[0] = 1.0; // The bias
+		features[1] = costReductionBound;
+		features[2] = cost;
+		features[3] = (count > 0)? coupling / count: 0.0;
+		features[4] = (count > 0)? cohesion / count: 0.0;
+		features[5] = count;
+		features[6] = analyzer.getTotalCost();
+		return (features);
+	}
+
+	/**
+	 * It adds the exact evaluation of a candidate (its features and actual cost
+	 * reduction) as a sample for the model of its tactic
+	 */
+	public synchronized void learn(TacticCandidate candidate) {
+		if (!enabled || (candidate.getFeatures() == null))
+			return;
+		LinearModel model = models.get(candidate.getTacticName());
+		if (model == null) {
+			model = new LinearModel();
+			models.put(candidate.getTacticName(), model);
+		}
+		model.learn(candidate.getFeatures(), candidate.getCostReduction());
+	}
+
+	/**
+	 * It returns the predicted cost reduction of a candidate, or null if the 
+	 * model of its tactic has not enough samples yet
+	 */
+	public synchronized Double predict(TacticCandidate candidate) {
+		LinearModel model = models.get(candidate.getTacticName());
+		if (!enabled || (model == null) || (model.getCountSamples() < MIN_SAMPLES) || (candidate.getFeatures() == null))
+			return (null);
+		return (model.predict(candidate.getFeatures()));
+	}
+
+	/**
+	 * It selects the candidates to be analyzed first, which are those with the 
+	 * best predicted cost reductions (SELECTION_FACTOR times the number of candidates 
+	 * to be kept). If there are no predictions yet, all the candidates are selected
+	 * 
+	 * @param candidates the candidates of a tactic
+	 * @param maxCandidates the maximum number of candidates to be kept (K)
+	 * @return the selected candidates (the rest are deferred by the solver)
+	 */
+	public Set<TacticCandidate> selectCandidates(List<TacticCandidate> candidates, int maxCandidates) {
+		
+		Set<TacticCandidate> selected = new HashSet<TacticCandidate>(candidates);
+		int limit = SELECTION_FACTOR * maxCandidates;
+		if (candidates.size() <= limit)
+			return (selected);
+
+		final Hashtable<TacticCandidate,Double> predictions = new Hashtable<TacticCandidate,Double>();
+		TacticCandidate candidate = null;
+		Double prediction = null;
+		for (Iterator<TacticCandidate> it = candidates.iterator(); it.hasNext();) {
+			candidate = it.next();
+			prediction = this.predict(candidate);
+			if (prediction == null) 
+				return (selected); // The model is not ready for this tactic
+			predictions.put(candidate, prediction);
+		}
+
+		List<TacticCandidate> ranked = new ArrayList<TacticCandidate>(candidates);
+		Collections.sort(ranked, new Comparator<TacticCandidate>() {
+			public int compare(TacticCandidate c1, TacticCandidate c2) {
+				return (Double.compare(predictions.get(c2), predictions.get(c1)));
+			}
+		});
+		selected.clear();
+		selected.addAll(ranked.subList(0, limit));
+		return (selected);
+	}
+
+	/**
+	 * It discards all that was learned, and starts learning again
+	 */
+	public synchronized void reset() {
+		models.clear();
+		enabled = true;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public synchronized boolean isEnabled() {
+		return (enabled);
+	}
+
+	public synchronized List<String> getLearnedTactics() {
+		return (new ArrayList<String>(models.keySet()));
+	}
+
+	public synchronized int getCountSamples(String tacticName) {
+		LinearModel model = models.get(tacticName);
+		return ((model != null)? model.getCountSamples(): 0);
+	}
+
+	/**
+	 * It returns the mean absolute error of the predictions for a tactic, measured  
+	 * on each sample before learning from it
+	 */
+	public synchronized double getMeanAbsoluteError(String tacticName) {
+		LinearModel model = models.get(tacticName);
+		return ((model != null)? model.getMeanAbsoluteError(): 0.0);
+	}
+
+	// This internal class is a ridge regression learned online, by accumulating 
+	// the normal equations (X'X and X'y) and solving them on demand
+	static class LinearModel {
+
+		private double[][] xtx;
+		private double[] xty;
+		private double[] weights;
+		private boolean solved;
+		private int countSamples;
+		private double sumAbsoluteErrors;
+
+		LinearModel() {
+			xtx = new double[COUNT_FEATURES][COUNT_FEATURES];
+			xty = new double[COUNT_FEATURES];
+			weights = new double[COUNT_FEATURES];
+			solved = true;
+			countSamples = 0;
+			sumAbsoluteErrors = 0.0;
+		}
+
+		void learn(double[] x, double y) {
+			if (countSamples > 0)
+				sumAbsoluteErrors = sumAbsoluteErrors + Math.abs(this.predict(x) - y);
+			for (int i = 0; i < COUNT_FEATURES; i++) {
+				for (int j = 0; j < COUNT_FEATURES; j++)
+					xtx[i][j] = xtx[i][j] + x[i] * x[j];
+				xty[i] = xty[i] + x[i] * y;
+			}
+			countSamples++;
+			solved = false;
+		}
+
+		double predict(double[] x) {
+			if (!solved)
+				this.solve();
+			double y = 0.0;
+			for (int i = 0; i < COUNT_FEATURES; i++)
+				y = y + weights[i] * x[i];
+			return (y);
+		}
+
+		int getCountSamples() {
+			return (countSamples);
+		}
+
+		double getMeanAbsoluteError() {
+			if (countSamples <= 1)
+				return (0.0);
+			return (sumAbsoluteErrors / (countSamples - 1));
+		}
+
+		// It solves (X'X + lambda*I) w = X'y by Gaussian elimination with partial pivoting
+		private void solve() {
+			int n = COUNT_FEATURES;
+			double[][] a = new double[n][n + 1];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++)
+					a[i][j] = xtx[i][j];
+				a[i][i] = a[i][i] + REGULARIZATION;
+				a[i][n] = xty[i];
+			}
+			
+			double[] temp = null;
+			double factor = 0.0;
+			for (int k = 0; k < n; k++) {
+				int pivot = k;
+				for (int i = k + 1; i < n; i++) {
+					if (Math.abs(a[i][k]) > Math.abs(a[pivot][k]))
+						pivot = i;
+				}
+				temp = a[k];
+				a[k] = a[pivot];
+				a[pivot] = temp;
+				if (Math.abs(a[k][k]) < 1e-12)
+					continue; // The feature doesn't carry information (yet)
+				for (int i = k + 1; i < n; i++) {
+					factor = a[i][k] / a[k][k];
+					for (int j = k; j <= n; j++)
+						a[i][j] = a[i][j] - factor * a[k][j];
+				}
+			}
+			for (int i = n - 1; i >= 0; i--) {
+				double sum = a[i][n];
+				for (int j = i + 1; j < n; j++)
+					sum = sum - a[i][j] * weights[j];
+				weights[i] = (Math.abs(a[i][i]) < 1e-12)? 0.0: sum / a[i][i];
+			}
+			solved = true;
+		}
+	}
+
+}
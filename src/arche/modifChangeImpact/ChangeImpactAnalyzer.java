@@ -84,8 +84,13 @@ package arche.modifChangeImpact;
  */
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
@@ -199,6 +204,14 @@ public class ChangeImpactAnalyzer {
 	
 	protected double[] modCoupling; // Coupling value for each 'primary' module
 	
+	//---- Terms of the module costs, kept for the delta evaluation of local edits ----
+	private LocalChangeImpactEdit.ModuleTerms[] modCostTerms = null; // Computed (once) on demand
+	private int countResponsibilities; // The number of responsibilities when the terms were computed
+	private HashMap<Integer,Double> totalTermsByCount = null; // Sum of the module terms for a given number of responsibilities
+	private IdentityHashMap<ArchEModuleVO,Integer> modPositions = null; // Position of each primary module
+	private int[][] modSuccessors = null; // The primary modules to which each primary module ripples changes 
+	private int[][] modPredecessors = null; // The primary modules that ripple changes to each primary module
+	
 	public ChangeImpactAnalyzer() {
 		this(null,null);
 	}
@@ -294,6 +307,7 @@ public class ChangeImpactAnalyzer {
 		initializeModuleComputedCosts(0.0);
 		initializeModuleCohesion(0.0);
 		initializeModuleCoupling(0.0);
+		modCostTerms = null;
 		
 		needsComputation = true;
 		
@@ -373,6 +387,7 @@ public class ChangeImpactAnalyzer {
 	public void doEvaluation() {
 		
 		this.resetOutputParameters();		
+		modCostTerms = null; // The terms for the local edits are computed again on demand
 
 		// These are preparatory computations to calculate the figures
 		this.computeChangeProbabilityResponsibilities();
@@ -523,7 +538,7 @@ public class ChangeImpactAnalyzer {
 		List<ArchEModuleVO> primaryModulesResp = null;
 		for (Iterator<ArchEResponsibility> itResps = responsibilities.iterator(); itResps.hasNext(); ) {
 			resp = itResps.next();
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> itMods = primaryModulesResp.iterator(); itMods.hasNext();) {
 				mod = itMods.next();
 				if (!primaryModules.contains(mod))
@@ -628,7 +643,7 @@ public class ChangeImpactAnalyzer {
 		//double costOfChange = 0;
 		for (int i = 0; i <= indexPrimaryResponsibilities; i++) {
 			resp = primaryResponsibilities[i];
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> it = primaryModulesResp.iterator(); it.hasNext();) {
 				mod = it.next();
 				// Normalization of the cost to the interval [0..1]
@@ -964,7 +979,8 @@ public class ChangeImpactAnalyzer {
 		
 		double costNeighbors = 0.0;
 		double costAllocatedResponsibilities = 0.0;
-		double count = 0;		
+		int count = 0;		
+		int countNeighbors = 0;
 		ArchEResponsibility resp = null;
 		
 		//System.out.println("++++++Estimated costs: "+(indexPrimaryModules+1)+" modules");
@@ -979,8 +995,7 @@ public class ChangeImpactAnalyzer {
 					count++;					
 				}
 			}
-			if (count > 0)
-				costNeighbors = costNeighbors / count;
+			countNeighbors = count;
 			
 			// This part is for the cost of allocated responsibilities
 			costAllocatedResponsibilities = 0.0;
@@ -992,14 +1007,10 @@ public class ChangeImpactAnalyzer {
 					count++;
 				}
 			}
-			if (count > 0)
-				costAllocatedResponsibilities = costAllocatedResponsibilities / count;
 			
-			double ratio = count / allResponsibilities.getResponsibilities().size();
-			modComputedCosts[i] = ratio*modBasicCosts[i] + 0.35*costNeighbors + 0.35*costAllocatedResponsibilities;
+			modComputedCosts[i] = computeModuleCost(modBasicCosts[i], costNeighbors, countNeighbors, 
+					costAllocatedResponsibilities, count, allResponsibilities.getResponsibilities().size());
 //			System.out.println("Estimated cost for: "+primaryModules[i].getName()+" ==> ratioBasiCost "+ratio*modBasicCosts[i]+" costNeighbors "+0.35*costNeighbors+" costAllocation "+0.35*costAllocatedResponsibilities+"  = "+modComputedCosts[i]);
-			if (modComputedCosts[i] > 1)
-				modComputedCosts[i] = 1.0;
 		
 		}
 		
@@ -1008,6 +1019,25 @@ public class ChangeImpactAnalyzer {
 		return;		
 	}
 	
+	/**
+	 * It computes the cost of changing a 'primary' module out of the (summed up) terms of
+	 * the formula above. The terms are kept separately for the delta evaluation of local edits
+	 */
+	protected static double computeModuleCost(double basicCost, double costNeighbors, int countNeighbors, 
+			double costAllocatedResponsibilities, int countAllocated, int countResponsibilities) {
+		
+		if (countNeighbors > 0)
+			costNeighbors = costNeighbors / countNeighbors;
+		if (countAllocated > 0)
+			costAllocatedResponsibilities = costAllocatedResponsibilities / countAllocated;
+
+		double ratio = (double)countAllocated / countResponsibilities;
+		double cost = ratio*basicCost + 0.35*costNeighbors + 0.35*costAllocatedResponsibilities;
+		if (cost > 1)
+			cost = 1.0;
+		return (cost);
+	}
+	
 	/** 
 	 * This method estimates the cost of changing a 'primary' responsibility PR, considering 
 	 * also the cost(s) of the module(s) the responsibility PR has been allocated to (note
@@ -1339,7 +1369,260 @@ public class ChangeImpactAnalyzer {
 		return (totalModules + totalResps);
 
 	}
-	
+
+	/**
+	 * This is a lower bound of the total cost that results from a transformation local
+	 * to the given modules (see method getCostReductionBound() below)
+	 * Precondition: This method should be invoked after calling method doEvaluation()
+	 *
+	 * @param affectedModules the modules directly affected by the transformation
+	 * @return
+	 */
+	public double getTotalCostLowerBound(List<ArchEModuleVO> affectedModules) {
+		return (this.getTotalCost() - this.getCostReductionBound(affectedModules));
+	}
+
+	/**
+	 * This is an optimistic estimate (upper bound) of the reduction in the total cost
+	 * that a transformation local to the given modules can achieve (admissible, as long 
+	 * as the transformation doesn't change the dependencies and allocations of the remaining 
+	 * modules). It assumes that the costs of those modules (and of their neighbors among the 
+	 * primary modules) drop to zero, and that the remaining modules keep only the terms of 
+	 * their costs due to neighbors and allocated responsibilities. Note that the remaining
+	 * modules can't be assumed to keep their costs, because the term due to the ratio of 
+	 * allocated responsibilities decreases when the transformation adds responsibilities
+	 * Precondition: This method should be invoked after calling method doEvaluation()
+	 *
+	 * @param affectedModules the modules directly affected by the transformation
+	 * @return
+	 */
+	public double getCostReductionBound(List<ArchEModuleVO> affectedModules) {
+
+		boolean[] affected = new boolean[indexPrimaryModules + 1];
+		int pos = -1;
+		for (Iterator<ArchEModuleVO> it = affectedModules.iterator(); it.hasNext();) {
+			pos = this.getPrimaryModuleIndex(it.next());
+			if (pos != -1) {
+				affected[pos] = true;
+				// The rippling of changes reaches the neighbors of the module
+				for (int j = 0; j <= indexPrimaryModules; j++) {
+					if ((modDependencies[pos][j] > 0) || (modDependencies[j][pos] > 0))
+						affected[j] = true;
+				}
+			}
+		}
+
+		this.prepareLocalEdits();
+		double reduction = 0.0;
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			if (affected[i])
+				reduction = reduction + modComputedCosts[i];
+			else
+				reduction = reduction + modComputedCosts[i] - Math.min(modComputedCosts[i], modCostTerms[i].computeMinimumCost());
+		}
+
+		// Note that the offset of the denormalization cancels out in a difference of total costs
+		return (reduction * (MAX_MODULE_COST - MIN_MODULE_COST));
+	}
+
+	/**
+	 * It checks if a transformation local to the given modules can be discarded without
+	 * analyzing it, because the lower bound of its resulting cost can neither reach the
+	 * target cost nor improve the best cost found so far
+	 * 
+	 * @param affectedModules the modules directly affected by the transformation
+	 * @param targetCost the cost to be reached by the transformation
+	 * @param bestCost the best cost found so far
+	 * @return
+	 */
+	public boolean canDiscardTransformation(List<ArchEModuleVO> affectedModules, double targetCost, double bestCost) {
+		double lowerBound = this.getTotalCostLowerBound(affectedModules);
+		return ((lowerBound >= targetCost) && (lowerBound >= bestCost));
+	}
+
+	/**
+	 * It creates an (empty) local edit over the analysis just performed. The edit is then 
+	 * evaluated with method evaluateLocalEdit()
+	 * Precondition: This method should be invoked after calling method doEvaluation()
+	 * 
+	 * @return
+	 */
+	public LocalChangeImpactEdit createLocalEdit() {
+		this.prepareLocalEdits();
+		return (new LocalChangeImpactEdit(this));
+	}
+
+	/**
+	 * It returns an estimate of the total cost that would result from applying a local 
+	 * edit to the architecture. Only the terms of the modules touched by the edit are 
+	 * computed again, while the rest of the modules keep their terms (the number of 
+	 * responsibilities may change their costs though, but their sums are computed once 
+	 * for each number). Note that the module costs are estimated as in 
+	 * estimateCostOfChangePrimaryModules().
+	 * <p>
+	 * The estimate is an ordering heuristic, not the cost that doAnalysis() would compute
+	 * for the transformed architecture: the rippling among responsibilities (and thus the 
+	 * probabilities of the module dependencies) is not propagated again, and the edit 
+	 * approximates the transformation with fixed factors. It must only be used to decide 
+	 * which candidates are analyzed first, neither as a bound nor as the resulting cost
+	 * 
+	 * @param edit the local edit (created by this analyzer)
+	 * @return the estimated total cost after the edit (in the units of getTotalCost())
+	 */
+	public double evaluateLocalEdit(LocalChangeImpactEdit edit) {
+		
+		this.prepareLocalEdits();
+		int count = countResponsibilities + edit.getResponsibilityCountDelta();
+		double totalModules = this.getTotalModuleTerms(count);
+		
+		Map.Entry<Integer,LocalChangeImpactEdit.ModuleTerms> entry = null;
+		for (Iterator<Map.Entry<Integer,LocalChangeImpactEdit.ModuleTerms>> it = edit.getTouchedModules().entrySet().iterator(); it.hasNext();) {
+			entry = it.next();
+			totalModules = totalModules - modCostTerms[entry.getKey()].computeCost(count);
+			totalModules = totalModules + entry.getValue().computeCost(count);
+		}
+		for (Iterator<LocalChangeImpactEdit.ModuleTerms> it = edit.getNewModules().iterator(); it.hasNext();) 
+			totalModules = totalModules + it.next().computeCost(count);
+
+		return (denormalizeModuleCost(totalModules));
+	}
+
+	protected int getCountPrimaryModules() {
+		return (indexPrimaryModules + 1);
+	}
+
+	// It returns a copy of the terms of a primary module, so that they can be changed by an edit
+	protected LocalChangeImpactEdit.ModuleTerms getModuleTerms(int position) {
+		this.prepareLocalEdits();
+		return (modCostTerms[position].copy());
+	}
+
+	// It sums up the terms of all the primary modules, as in estimateCostOfChangePrimaryModules().
+	// This is done only once per analysis, and then shared by all the edits. The neighbors and 
+	// the responsibilities of each module are taken from the view, so only the dependencies and 
+	// allocations that exist are visited (instead of all the pairs of modules and responsibilities)
+	private synchronized void prepareLocalEdits() {
+		
+		if (modCostTerms != null)
+			return;
+
+		countResponsibilities = allResponsibilities.getResponsibilities().size();
+		totalTermsByCount = new HashMap<Integer,Double>();
+		int n = indexPrimaryModules + 1;
+		modPositions = new IdentityHashMap<ArchEModuleVO,Integer>();
+		HashMap<String,Integer> positionsByName = new HashMap<String,Integer>();
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			modPositions.put(primaryModules[i], i);
+			positionsByName.put(primaryModules[i].getName(), i);
+		}
+		HashMap<String,Integer> respPositionsByName = new HashMap<String,Integer>();
+		for (int k = 0; k <= indexPrimaryResponsibilities; k++)
+			respPositionsByName.put(primaryResponsibilities[k].getName(), k);
+
+		// The modules simulated by an analysis (e.g., the children of a split responsibility) 
+		// are not defined in the view, so they may depend on any other module
+		HashSet<String> viewModules = new HashSet<String>();
+		for (Iterator<ArchEModuleVO> it = moduleView.getModules().iterator(); it.hasNext();)
+			viewModules.add(it.next().getName());
+		BitSet simulatedModules = new BitSet(n);
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			if (!viewModules.contains(primaryModules[i].getName()))
+				simulatedModules.set(i);
+		}
+
+		int[] countSuccessors = new int[n];
+		int[] predecessors = new int[n];
+		int countPredecessors = 0;
+		BitSet candidates = new BitSet(n);
+		Integer position = null;
+		LocalChangeImpactEdit.ModuleTerms[] terms = new LocalChangeImpactEdit.ModuleTerms[n];
+		modPredecessors = new int[n][];
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			terms[i] = new LocalChangeImpactEdit.ModuleTerms(modBasicCosts[i]);
+			
+			// The modules that can ripple changes to the module are those with a dependency in 
+			// the view (their probabilities are taken from the analysis, as it may alter them)
+			candidates.clear();
+			if (simulatedModules.get(i))
+				candidates.set(0, n);
+			else {
+				candidates.or(simulatedModules);
+				for (Iterator<ArchEModuleVO> it = moduleView.getDependentModules(primaryModules[i]).iterator(); it.hasNext();) {
+					position = positionsByName.get(it.next().getName());
+					if (position != null)
+						candidates.set(position);
+				}
+			}
+			countPredecessors = 0;
+			for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+				if ((modDependencies[j][i] > 0) && (i != j)) {
+					terms[i].neighborsCost = terms[i].neighborsCost + modDependencies[j][i] * modBasicCosts[j];
+					terms[i].countNeighbors++;					
+					predecessors[countPredecessors++] = j;
+					countSuccessors[j]++;
+				}
+			}
+			modPredecessors[i] = new int[countPredecessors];
+			System.arraycopy(predecessors, 0, modPredecessors[i], 0, countPredecessors);
+			
+			for (Iterator<ArchEResponsibility> it = moduleView.getAllocatedResponsibilities(primaryModules[i]).iterator(); it.hasNext();) {
+				position = respPositionsByName.get(it.next().getName());
+				if (position != null) {
+					terms[i].allocatedCost = terms[i].allocatedCost + respBasicCosts[position];
+					terms[i].countAllocated++;
+				}
+			}
+		}
+		// The neighbors of each module are kept as lists, so that an edit only visits the 
+		// neighbors of the modules it touches
+		modSuccessors = new int[n][];
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			modSuccessors[i] = new int[countSuccessors[i]];
+			countSuccessors[i] = 0;
+		}
+		int predecessor = -1;
+		for (int i = 0; i <= indexPrimaryModules; i++) {
+			for (int k = 0; k < modPredecessors[i].length; k++) {
+				predecessor = modPredecessors[i][k];
+				modSuccessors[predecessor][countSuccessors[predecessor]++] = i;
+			}
+		}
+		modCostTerms = terms;
+		return;
+	}
+
+	// It returns the position of a primary module for the local edits (or -1 if 
+	// the module is not a primary module)
+	protected int getLocalModulePosition(ArchEModuleVO module) {
+		this.prepareLocalEdits();
+		Integer position = modPositions.get(module);
+		if (position == null)
+			return (-1);
+		return (position);
+	}
+
+	protected int[] getModuleSuccessors(int position) {
+		this.prepareLocalEdits();
+		return (modSuccessors[position]);
+	}
+
+	protected int[] getModulePredecessors(int position) {
+		this.prepareLocalEdits();
+		return (modPredecessors[position]);
+	}
+
+	private synchronized double getTotalModuleTerms(int count) {
+		Double total = totalTermsByCount.get(count);
+		if (total == null) {
+			double sum = 0.0;
+			for (int i = 0; i < modCostTerms.length; i++) 
+				sum = sum + modCostTerms[i].computeCost(count);
+			total = sum;
+			totalTermsByCount.put(count, total);
+		}
+		return (total);
+	}
+
 	public double getAvgRipplingProbability() {
 		
 		double total = 0;
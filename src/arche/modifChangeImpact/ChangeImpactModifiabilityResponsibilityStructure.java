@@ -74,6 +74,7 @@ import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
 import arche.modifChangeImpact.hibernate.ArchECoreDataProvider;
 import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.dao.ArchEParameterDAO;
+import arche.modifChangeImpact.hibernate.vo.ArchERefinementRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchERelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
@@ -82,6 +83,7 @@ import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
 
 import edu.cmu.sei.arche.ArchEException;
 import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 
 public class ChangeImpactModifiabilityResponsibilityStructure 
 												extends ArchECoreResponsibilityStructure {
@@ -106,9 +108,43 @@ public class ChangeImpactModifiabilityResponsibilityStructure
 	
 	protected List<ArchEResponsibilityDependencyRelationVO> depVOs; // For dependency relations	
 	
+	// The changes made to the structure (see MutationJournal)
+	private MutationJournal journal = null;
+	
 	public ChangeImpactModifiabilityResponsibilityStructure(ArchECoreArchitecture architecture) {
 		super(architecture);
 		this.depVOs = new ArrayList<ArchEResponsibilityDependencyRelationVO>();	
+		this.journal = new MutationJournal();
+	}
+
+	/**
+	 * It returns the journal of the changes made to this structure. A copy of the 
+	 * structure starts with an empty journal of its own
+	 */
+	public MutationJournal getJournal() {
+		return (journal);
+	}
+
+	public void addMutationListener(MutationListener listener) {
+		journal.addListener(listener);
+	}
+
+	public boolean removeMutationListener(MutationListener listener) {
+		return (journal.removeListener(listener));
+	}
+
+	/**
+	 * It creates an in-memory copy of this structure for a given (forked) architecture.
+	 * The copy shares the VOs with this structure, and it should not be saved to the DB
+	 *
+	 * @param architecture The architecture that will contain the copy
+	 * @return
+	 */
+	public ChangeImpactModifiabilityResponsibilityStructure copy(ArchECoreArchitecture architecture) {
+		ChangeImpactModifiabilityResponsibilityStructure structure = new ChangeImpactModifiabilityResponsibilityStructure(architecture);
+		structure.copyContentsFrom(this);
+		structure.depVOs = new ArrayList<ArchEResponsibilityDependencyRelationVO>(this.depVOs);
+		return (structure);
 	}
 
 	public void restore() throws ArchEException{
@@ -128,6 +164,7 @@ public class ChangeImpactModifiabilityResponsibilityStructure
 			//ex.printStackTrace();
 			throw new ArchEException(ex.getMessage(),ex.getCause());
 		}
+		journal.record(MutationEvent.RESET, this);
 	}
 	
 	public void save() throws ArchEException{
@@ -218,25 +255,58 @@ public class ChangeImpactModifiabilityResponsibilityStructure
 		}			
 	}
 	
+	public boolean addResponsibility(ArchEResponsibility resp) {
+		boolean added = super.addResponsibility(resp);
+		if (added)
+			journal.record(MutationEvent.RESPONSIBILITY_ADDED, resp);
+		return (added);
+	}
+
 	public boolean addRelation(ArchERelation rel) {
-		if(super.addRelation(rel))
-			return true;
+		boolean added = super.addRelation(rel);
 		
 		// The specific case of responsibility dependencies
-		if (rel instanceof ArchEResponsibilityDependencyRelationVO) {
-			return (depVOs.add((ArchEResponsibilityDependencyRelationVO)rel));
-		}
-		return (false);
+		if (!added && (rel instanceof ArchEResponsibilityDependencyRelationVO)) 
+			added = depVOs.add((ArchEResponsibilityDependencyRelationVO)rel);
+		if (added)
+			journal.record(MutationEvent.RELATION_ADDED, rel);
+		return (added);
 	}
 	
 	public boolean deleteRelation(ArchERelation rel) {
 		boolean deleted = super.deleteRelation(rel);
-		if (deleted)
-			return (true);
+		
 		// The specific case of responsibility dependencies
-		if (rel instanceof ArchEResponsibilityDependencyRelationVO)
-			return (depVOs.remove(rel));
-		return (false);
+		if (!deleted && (rel instanceof ArchEResponsibilityDependencyRelationVO))
+			deleted = depVOs.remove(rel);
+		if (deleted)
+			journal.record(MutationEvent.RELATION_REMOVED, rel);
+		return (deleted);
+	}
+
+	public boolean refineResponsibility(ArchEResponsibilityVO parent, ArchEResponsibilityVO child) {
+		boolean refined = super.refineResponsibility(parent, child);
+		if (refined) // The translations derived for the child are part of the same change
+			journal.record(MutationEvent.RELATION_ADDED, this.getRelation(parent, child, ArchERefinementRelationVO.class.getName()));
+		return (refined);
+	}
+
+	/**
+	 * It sets a parameter of a responsibility (e.g., its cost of change) and records 
+	 * the change in the journal. The parameters set directly on the VOs are not recorded
+	 */
+	public void setParameter(ArchEResponsibility responsibility, String parameterName, double value) {
+		responsibility.defineParameter(parameterName, value);
+		journal.record(MutationEvent.PARAMETER_CHANGED, responsibility, null, parameterName);
+	}
+
+	/**
+	 * It sets a parameter of a relation (e.g., a rippling probability) and records 
+	 * the change in the journal. The parameters set directly on the VOs are not recorded
+	 */
+	public void setParameter(ArchERelation relation, String parameterName, double value) {
+		relation.defineParameter(parameterName, value);
+		journal.record(MutationEvent.PARAMETER_CHANGED, relation, null, parameterName);
 	}
 	
 	public List<ArchERelation> getRelations(String relationTypeVO) {
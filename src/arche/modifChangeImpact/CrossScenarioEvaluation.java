@@ -0,0 +1,178 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * The result of evaluating a single tactic against several scenarios: the total cost
+ * of each scenario before and after applying the tactic (i.e., a cost vector), and 
+ * the aggregate over all the scenarios that could be analyzed. 
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+
+public class CrossScenarioEvaluation {
+
+	private TacticCandidate tactic;
+	private List<ArchEScenario> scenarios;
+	private double[] currentCosts; // The costs before applying the tactic (one per scenario)
+	private double[] resultingCosts; // The costs after applying the tactic (one per scenario)
+	private boolean applied; // Whether the tactic could be applied on the architecture
+
+	public CrossScenarioEvaluation(TacticCandidate tactic, List<ArchEScenario> scenarios) {
+		this.tactic = tactic;
+		this.scenarios = new ArrayList<ArchEScenario>(scenarios);
+		this.currentCosts = new double[scenarios.size()];
+		this.resultingCosts = new double[scenarios.size()];
+		for (int i = 0; i < scenarios.size(); i++) {
+			currentCosts[i] = ModifChangeImpactReasoningFramework.INVALID_RESPONSE;
+			resultingCosts[i] = ModifChangeImpactReasoningFramework.INVALID_RESPONSE;
+		}
+		this.applied = false;
+	}
+
+	public TacticCandidate getTactic() {
+		return (tactic);
+	}
+
+	public List<ArchEScenario> getScenarios() {
+		return (Collections.unmodifiableList(scenarios));
+	}
+
+	public boolean isApplied() {
+		return (applied);
+	}
+
+	protected void setApplied(boolean applied) {
+		this.applied = applied;
+	}
+
+	public double getCurrentCost(int index) {
+		return (currentCosts[index]);
+	}
+
+	protected void setCurrentCost(int index, double cost) {
+		currentCosts[index] = cost;
+	}
+
+	public double getResultingCost(int index) {
+		return (resultingCosts[index]);
+	}
+
+	protected void setResultingCost(int index, double cost) {
+		resultingCosts[index] = cost;
+	}
+
+	/**
+	 * It returns the costs of the scenarios after applying the tactic (in the
+	 * same order as the scenarios)
+	 */
+	public double[] getResultingCosts() {
+		double[] costs = new double[resultingCosts.length];
+		System.arraycopy(resultingCosts, 0, costs, 0, resultingCosts.length);
+		return (costs);
+	}
+
+	/**
+	 * It checks if the scenario could be analyzed both before and after applying the tactic 
+	 */
+	public boolean isAnalyzed(int index) {
+		return ((currentCosts[index] != ModifChangeImpactReasoningFramework.INVALID_RESPONSE) 
+				&& (resultingCosts[index] != ModifChangeImpactReasoningFramework.INVALID_RESPONSE));
+	}
+
+	/**
+	 * It returns the reduction in the cost of the scenario due to the tactic (a negative 
+	 * value means that the tactic makes the cost worse), or 0 if it couldn't be analyzed
+	 */
+	public double getCostReduction(int index) {
+		if (!this.isAnalyzed(index))
+			return (0.0);
+		return (currentCosts[index] - resultingCosts[index]);
+	}
+
+	/**
+	 * It returns the sum of the costs of the (analyzed) scenarios after applying the tactic
+	 */
+	public double getAggregateCost() {
+		double sum = 0.0;
+		for (int i = 0; i < resultingCosts.length; i++) {
+			if (this.isAnalyzed(i))
+				sum = sum + resultingCosts[i];
+		}
+		return (sum);
+	}
+
+	/**
+	 * It returns the sum of the reductions in the costs of the (analyzed) scenarios
+	 */
+	public double getAggregateCostReduction() {
+		double sum = 0.0;
+		for (int i = 0; i < resultingCosts.length; i++)
+			sum = sum + this.getCostReduction(i);
+		return (sum);
+	}
+
+	/**
+	 * It returns the number of scenarios whose costs are reduced by the tactic
+	 */
+	public int getCountImprovedScenarios() {
+		int count = 0;
+		for (int i = 0; i < resultingCosts.length; i++) {
+			if (this.getCostReduction(i) > 0)
+				count++;
+		}
+		return (count);
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * An evaluator of tactics against all the scenarios of the requirement model at once. 
+ * Instead of evaluating the same tactic for each scenario separately, the tactic is 
+ * applied only once on an in-memory copy of the architecture, and then the resulting 
+ * architecture is analyzed for every scenario. The costs of the scenarios for the 
+ * current architecture are computed once, and shared by all the tactics evaluated on 
+ * that architecture.
+ * <p>
+ * Since the evaluator works on copies, neither the original architecture nor the DB
+ * are modified by the evaluation
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+
+import edu.cmu.sei.arche.external.data.ArchEArchitecture;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+
+public class CrossScenarioEvaluator {
+
+	private ModifChangeImpactReasoningFramework reasoningFramework;
+	private Hashtable<String,Double> currentCosts; // Architecture hash + scenario -> cost
+	private int countAppliedTactics;
+	private int countAnalyses;
+
+	public CrossScenarioEvaluator(ModifChangeImpactReasoningFramework reasoningFramework) {
+		this.reasoningFramework = reasoningFramework;
+		this.currentCosts = new Hashtable<String,Double>();
+		this.countAppliedTactics = 0;
+		this.countAnalyses = 0;
+	}
+
+	public int getCountAppliedTactics() {
+		return (countAppliedTactics);
+	}
+
+	public int getCountAnalyses() {
+		return (countAnalyses);
+	}
+
+	/**
+	 * It evaluates a tactic against a list of scenarios
+	 * 
+	 * @param architecture the current architecture (it is not modified by the evaluation)
+	 * @param tactic the tactic to be applied
+	 * @param scenarios the scenarios to be analyzed
+	 * @return the costs of the scenarios before and after applying the tactic
+	 */
+	public CrossScenarioEvaluation evaluate(ArchEArchitecture architecture, TacticCandidate tactic, 
+			List<ArchEScenario> scenarios) {
+		
+		CrossScenarioEvaluation evaluation = new CrossScenarioEvaluation(tactic, scenarios);
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		ArchECoreResponsibilityStructure responsibilities = (ArchECoreResponsibilityStructure)(architecture.getResponsibilityStructure());
+		String architectureHash = CandidateEvaluationCache.computeArchitectureHash(moduleView, responsibilities);
+
+		ArchEScenario scenario = null;
+		String key = null;
+		Double cost = null;
+		for (int i = 0; i < scenarios.size(); i++) {
+			scenario = scenarios.get(i);
+			key = architectureHash + "|" + scenario.getFactId();
+			cost = currentCosts.get(key);
+			if (cost == null) { // The scenario has to be analyzed for the current architecture
+				cost = this.analyze(moduleView, responsibilities, scenario);
+				currentCosts.put(key, cost);
+			}
+			evaluation.setCurrentCost(i, cost);
+		}
+
+		// The tactic is applied only once for all the scenarios
+		ArchECoreArchitecture successor = TacticSequenceSearch.fork(architecture);
+		if (!reasoningFramework.applyTacticCandidate(successor, tactic))
+			return (evaluation);
+		evaluation.setApplied(true);
+		countAppliedTactics++;
+
+		moduleView = (ModuleADLWrapper)(successor.getView());
+		responsibilities = (ArchECoreResponsibilityStructure)(successor.getResponsibilityStructure());
+		for (int i = 0; i < scenarios.size(); i++) 
+			evaluation.setResultingCost(i, this.analyze(moduleView, responsibilities, scenarios.get(i)));
+
+		return (evaluation);
+	}
+
+	/**
+	 * It evaluates several tactics against a list of scenarios, and ranks them in 
+	 * descending order of their aggregate cost reductions (the best tactic first)
+	 */
+	public List<CrossScenarioEvaluation> evaluate(ArchEArchitecture architecture, List<TacticCandidate> tactics, 
+			List<ArchEScenario> scenarios) {
+		
+		List<CrossScenarioEvaluation> evaluations = new ArrayList<CrossScenarioEvaluation>();
+		CrossScenarioEvaluation evaluation = null;
+		for (Iterator<TacticCandidate> it = tactics.iterator(); it.hasNext();) {
+			evaluation = this.evaluate(architecture, it.next(), scenarios);
+			if (evaluation.isApplied())
+				evaluations.add(evaluation);
+		}
+		Collections.sort(evaluations, new AggregateReductionComparator());
+		return (evaluations);
+	}
+
+	/**
+	 * It runs the change impact analysis of a scenario on a given architecture
+	 * 
+	 * @return the total cost of the scenario, or INVALID_RESPONSE if the interpretation failed
+	 */
+	protected double analyze(ModuleADLWrapper moduleView, ArchECoreResponsibilityStructure responsibilities, 
+			ArchEScenario scenario) {
+		
+		List<ArchEResponsibility> primaryResps = responsibilities.getResponsibilitiesByScenario(scenario);
+		if (primaryResps.isEmpty()) // The scenario cannot be analyzed by this reasoning framework
+			return (ModifChangeImpactReasoningFramework.INVALID_RESPONSE);
+		
+		ChangeImpactAnalyzer analyzer = new ChangeImpactAnalyzer(moduleView,responsibilities);
+		try {
+			if (!analyzer.doInterpretation(primaryResps))
+				return (ModifChangeImpactReasoningFramework.INVALID_RESPONSE);
+		} catch (ChangeImpactAnalysisException e) {
+			return (ModifChangeImpactReasoningFramework.INVALID_RESPONSE);
+		}
+		analyzer.doEvaluation();
+		countAnalyses++;
+		
+		return (analyzer.getTotalCost());
+	}
+
+	// This internal class will order evaluations in a descending order
+	// according to their aggregate cost reductions
+	static class AggregateReductionComparator implements Comparator<CrossScenarioEvaluation> {
+
+		public int compare(CrossScenarioEvaluation e1, CrossScenarioEvaluation e2) {
+			double reduction1 = e1.getAggregateCostReduction();
+			double reduction2 = e2.getAggregateCostReduction();
+			if (reduction1 < reduction2)
+				return (1);
+			else if (reduction1 > reduction2)
+				return (-1);
+			else
+				return (0);
+		}
+
+	}
+
+}
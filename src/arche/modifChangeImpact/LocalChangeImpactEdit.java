@@ -0,0 +1,343 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A local structural edit (e.g., splitting a responsibility or abstracting the common
+ * part of two responsibilities) over an analysis already performed by a ChangeImpactAnalyzer.
+ * The edit records only the changes to the terms of the modules it touches (i.e., the
+ * modules of the target responsibilities, the new modules, and their direct neighbors),
+ * so that the analyzer can estimate the resulting total cost in O(local degree) 
+ * instead of analyzing the whole model again (see ChangeImpactAnalyzer.evaluateLocalEdit()).
+ * The estimate doesn't propagate the rippling among responsibilities, so it only serves 
+ * to order the candidates of a tactic (they are analyzed exactly afterwards).
+ * <p>
+ * An edit is created by ChangeImpactAnalyzer.createLocalEdit(), and it doesn't modify
+ * the analyzer, so several edits can be evaluated against the same analysis
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+
+public class LocalChangeImpactEdit {
+
+	private ChangeImpactAnalyzer analyzer;
+	private HashMap<Integer,ModuleTerms> touchedModules; // Primary modules whose terms change
+	private List<ModuleTerms> newModules; 
+	private HashMap<Integer,List<Dependency>> addedDependencies; // Dependencies added by the edit, by source module
+	private int responsibilityCountDelta;
+
+	protected LocalChangeImpactEdit(ChangeImpactAnalyzer analyzer) {
+		this.analyzer = analyzer;
+		touchedModules = new HashMap<Integer,ModuleTerms>();
+		newModules = new ArrayList<ModuleTerms>();
+		addedDependencies = new HashMap<Integer,List<Dependency>>();
+		responsibilityCountDelta = 0;
+	}
+
+	public ChangeImpactAnalyzer getAnalyzer() {
+		return (analyzer);
+	}
+
+	/**
+	 * It returns the position of a module in the edit. Primary modules keep their 
+	 * positions in the analyzer, while new modules are placed after them 
+	 * (it returns -1 if the module is not a primary module)
+	 */
+	public int getModulePosition(ArchEModuleVO module) {
+		return (analyzer.getLocalModulePosition(module));
+	}
+
+	/**
+	 * It adds a new module (with no responsibilities nor dependencies)
+	 * 
+	 * @param basicCost the normalized cost of the module
+	 * @return the position of the new module
+	 */
+	public int addModule(double basicCost) {
+		ModuleTerms terms = new ModuleTerms(basicCost);
+		newModules.add(terms);
+		return (analyzer.getCountPrimaryModules() + newModules.size() - 1);
+	}
+
+	/**
+	 * It removes a module from the analysis (e.g., a module that becomes orphan).
+	 * The changes that the module rippled to its neighbors are retracted from their terms
+	 */
+	public void removeModule(int position) {
+		ModuleTerms removedTerms = this.getTerms(position);
+		if (removedTerms.removed)
+			return;
+		removedTerms.removed = true;
+
+		double basicCost = this.getBasicCost(position);
+		ModuleTerms terms = null;
+		if (position < analyzer.getCountPrimaryModules()) {
+			int[] successors = analyzer.getModuleSuccessors(position);
+			for (int i = 0; i < successors.length; i++) {
+				terms = this.getTerms(successors[i]);
+				terms.neighborsCost = terms.neighborsCost - analyzer.modDependencies[position][successors[i]] * basicCost;
+				terms.countNeighbors--;
+			}
+		}
+		List<Dependency> dependencies = addedDependencies.remove(position);
+		if (dependencies != null) {
+			Dependency dep = null;
+			for (Iterator<Dependency> it = dependencies.iterator(); it.hasNext();) {
+				dep = it.next();
+				terms = this.getTerms(dep.to);
+				terms.neighborsCost = terms.neighborsCost - dep.probability * basicCost;
+				terms.countNeighbors--;
+			}
+		}
+	}
+
+	public void allocateResponsibility(int position, double responsibilityCost) {
+		ModuleTerms terms = this.getTerms(position);
+		terms.allocatedCost = terms.allocatedCost + responsibilityCost;
+		terms.countAllocated++;
+	}
+
+	/**
+	 * It removes a primary responsibility from all the primary modules it is allocated to
+	 */
+	public void deallocateResponsibility(ArchEResponsibility responsibility) {
+		int pos = analyzer.getPrimaryResponsibilityIndex(responsibility);
+		if (pos == -1)
+			return;
+		double cost = analyzer.respBasicCosts[pos];
+		ModuleTerms terms = null;
+		int[] positions = this.getPrimaryModulePositions(responsibility);
+		for (int i = 0; i < positions.length; i++) {
+			terms = this.getTerms(positions[i]);
+			terms.allocatedCost = terms.allocatedCost - cost;
+			terms.countAllocated--;
+		}
+	}
+
+	/**
+	 * It scales the cost of a primary responsibility in all the primary modules 
+	 * it is allocated to (e.g., after part of the responsibility is moved elsewhere)
+	 */
+	public void scaleResponsibilityCost(ArchEResponsibility responsibility, double factor) {
+		int pos = analyzer.getPrimaryResponsibilityIndex(responsibility);
+		if (pos == -1)
+			return;
+		double cost = analyzer.respBasicCosts[pos];
+		ModuleTerms terms = null;
+		int[] positions = this.getPrimaryModulePositions(responsibility);
+		for (int i = 0; i < positions.length; i++) {
+			terms = this.getTerms(positions[i]);
+			terms.allocatedCost = terms.allocatedCost + (factor - 1.0) * cost;
+		}
+	}
+
+	/**
+	 * It adds a dependency between two modules, where at least one of them 
+	 * should be a new module (so that the dependency didn't exist before).
+	 * Only the terms of the target module change, as the cost of a module  
+	 * depends on the modules that ripple changes to it
+	 * 
+	 * @param from the position of the source module
+	 * @param to the position of the target module
+	 * @param probability the probability of rippling from the source to the target
+	 */
+	public void addModuleDependency(int from, int to, double probability) {
+		if ((probability <= 0) || (from == to) || this.getTerms(from).removed)
+			return;
+		ModuleTerms terms = this.getTerms(to);
+		terms.neighborsCost = terms.neighborsCost + probability * this.getBasicCost(from);
+		terms.countNeighbors++;
+		// The dependency is kept, in case the source module is removed afterwards
+		List<Dependency> dependencies = addedDependencies.get(from);
+		if (dependencies == null) {
+			dependencies = new ArrayList<Dependency>();
+			addedDependencies.put(from, dependencies);
+		}
+		dependencies.add(new Dependency(to, probability));
+	}
+
+	/**
+	 * It copies the dependencies of a primary module (in both directions) to another 
+	 * module, scaled by a factor (e.g., the module of a child responsibility inherits 
+	 * part of the dependencies of the module of its parent)
+	 */
+	public void copyModuleDependencies(int source, int target, double factor) {
+		double[][] dependencies = analyzer.modDependencies;
+		int[] successors = analyzer.getModuleSuccessors(source);
+		for (int i = 0; i < successors.length; i++) 
+			this.addModuleDependency(target, successors[i], factor * dependencies[source][successors[i]]);
+		int[] predecessors = analyzer.getModulePredecessors(source);
+		for (int i = 0; i < predecessors.length; i++) 
+			this.addModuleDependency(predecessors[i], target, factor * dependencies[predecessors[i]][source]);
+	}
+
+	public void setResponsibilityCountDelta(int delta) {
+		responsibilityCountDelta = delta;
+	}
+
+	public int getResponsibilityCountDelta() {
+		return (responsibilityCountDelta);
+	}
+
+	/**
+	 * It returns true if the allocation of a primary module is left empty after the edit
+	 */
+	public boolean isEmptyModule(int position) {
+		return (this.getTerms(position).countAllocated <= 0);
+	}
+
+	protected HashMap<Integer,ModuleTerms> getTouchedModules() {
+		return (touchedModules);
+	}
+
+	protected List<ModuleTerms> getNewModules() {
+		return (newModules);
+	}
+
+	private int[] getPrimaryModulePositions(ArchEResponsibility responsibility) {
+		List<ArchEModuleVO> modules = analyzer.moduleView.getAllocatedModules(responsibility);
+		int count = 0;
+		int pos = -1;
+		int[] positions = new int[modules.size()];
+		for (Iterator<ArchEModuleVO> it = modules.iterator(); it.hasNext();) {
+			pos = analyzer.getLocalModulePosition(it.next());
+			if (pos != -1) 
+				positions[count++] = pos;
+		}
+		int[] result = new int[count];
+		System.arraycopy(positions, 0, result, 0, count);
+		return (result);
+	}
+
+	private double getBasicCost(int position) {
+		int n = analyzer.getCountPrimaryModules();
+		if (position < n)
+			return (analyzer.modBasicCosts[position]);
+		return (newModules.get(position - n).basicCost);
+	}
+
+	// The terms of a primary module are copied from the analyzer when the module is first touched
+	private ModuleTerms getTerms(int position) {
+		int n = analyzer.getCountPrimaryModules();
+		if (position >= n)
+			return (newModules.get(position - n));
+		ModuleTerms terms = touchedModules.get(position);
+		if (terms == null) {
+			terms = analyzer.getModuleTerms(position);
+			touchedModules.put(position, terms);
+		}
+		return (terms);
+	}
+
+	// This internal class keeps a dependency added by the edit
+	static class Dependency {
+
+		int to;
+		double probability;
+
+		Dependency(int to, double probability) {
+			this.to = to;
+			this.probability = probability;
+		}
+	}
+
+	// This internal class keeps the (summed up) terms of the cost of a module, 
+	// as computed in ChangeImpactAnalyzer.estimateCostOfChangePrimaryModules()
+	static class ModuleTerms {
+
+		double basicCost;
+		double neighborsCost;
+		int countNeighbors;
+		double allocatedCost;
+		int countAllocated;
+		boolean removed;
+
+		ModuleTerms(double basicCost) {
+			this.basicCost = basicCost;
+			this.neighborsCost = 0.0;
+			this.countNeighbors = 0;
+			this.allocatedCost = 0.0;
+			this.countAllocated = 0;
+			this.removed = false;
+		}
+
+		ModuleTerms copy() {
+			ModuleTerms terms = new ModuleTerms(basicCost);
+			terms.neighborsCost = neighborsCost;
+			terms.countNeighbors = countNeighbors;
+			terms.allocatedCost = allocatedCost;
+			terms.countAllocated = countAllocated;
+			terms.removed = removed;
+			return (terms);
+		}
+
+		// The minimum cost of the module, regardless of the number of responsibilities
+		double computeMinimumCost() {
+			if (removed)
+				return (0.0);
+			return (ChangeImpactAnalyzer.computeModuleCost(0.0, neighborsCost, countNeighbors, 
+					allocatedCost, countAllocated, 1));
+		}
+
+		double computeCost(int countResponsibilities) {
+			if (removed)
+				return (0.0);
+			return (ChangeImpactAnalyzer.computeModuleCost(basicCost, neighborsCost, countNeighbors, 
+					allocatedCost, countAllocated, countResponsibilities));
+		}
+	}
+
+}
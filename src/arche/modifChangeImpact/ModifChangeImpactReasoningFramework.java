@@ -58,11 +58,13 @@ package arche.modifChangeImpact;
  * @author Andres Diaz-Pace
  */
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
@@ -104,6 +106,10 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	// To compute the cost of applying different tactics to different architectures
 	private static int ModuleIntermediaryCounter = 1;
 	private static int ResponsibilityChildrenCounter = 1;
+	// The counters of the tactics applied on copies of the architecture (when exploring
+	// tactics), so that they don't change the names given by the tactics really applied 
+	private static int HypotheticalModuleIntermediaryCounter = 1;
+	private static int HypotheticalResponsibilityChildrenCounter = 1;
 	
 	//---- Names of parameters used by this reasoning framework
 	public static final String PARAMETER_COST_OF_CHANGE 		= "P_CostOfChange";
@@ -117,6 +123,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	public static final String ABSTRACT_COMMON_RESPONSIBILITIES_QUESTION 	= "abstractCommonResponsibilities";
 	public static final String FIX_ANALYSIS_PARAMETERS_WARNING 				= "fixAnalysisParameters";
 	public static final String DECIDE_ON_SPLITTING_WARNING 					= "decideOnSplitting";
+	public static final String SURROGATE_MODEL_LEARNED 						= "surrogateModelLearned";
 
 	//---- Tactic names used by this reasoning framework to execute architectural transformations
 	public static final String SPLIT_RESPONSIBILITY_TACTIC 						= "SplitResponsibility";
@@ -129,6 +136,33 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	protected static final int RESPONSIBILITY_COST_OUT_OF_LIMITS_ERROR 	= 2;
 	
 	protected static final double INVALID_RESPONSE = Double.MAX_VALUE/2; // An arbitrary high value
+	
+	// Maximum number of candidates suggested for each tactic (ranked by their cost reduction)
+	protected static final int MAX_CANDIDATES_PER_TACTIC = 3;
+
+	// Types of learning supported by method learnBy()
+	public static final int LEARN_FROM_EVALUATED_CANDIDATES = 1; // args: the (fully analyzed) tactic candidates
+	public static final int LEARN_ENABLE_SURROGATE_MODEL 	= 2; // args: a Boolean to enable/disable the surrogate model
+
+	// Once this number of tactics reducing the cost has been found, the solvers with 
+	// an estimated cost of (at least) EXPENSIVE_SOLVER_COST are not run
+	protected static final int ENOUGH_GOOD_TACTICS = 6;
+	protected static final double EXPENSIVE_SOLVER_COST = 4.0;
+	
+	// Time budget (in milliseconds) for the search of tactics in each round of analysis
+	protected static final long DEFAULT_TACTIC_SEARCH_TIME_BUDGET = 20000;
+	
+	private long tacticSearchTimeBudget = DEFAULT_TACTIC_SEARCH_TIME_BUDGET;
+	private TacticSearchDeadline tacticSearchDeadline = null; // The deadline of the search in progress (if any)
+	private boolean partialTacticSearch = false;
+	private int countEvaluatedCandidates = 0; // Candidates analyzed in the last search of tactics
+	private int countPrunedCandidates = 0; // Candidates discarded by their bounds in the last search of tactics
+	private int countRecalledCandidates = 0; // Candidates ranked with the reductions of previous rounds
+	private int countSkippedCandidates = 0; // Candidates left out by the surrogate model (not by their bounds)
+	private File tacticSearchCheckpointFile = null; // The file where the search of tactics is saved (if any)
+	private boolean resumeTacticSearch = false;
+	private boolean paretoTacticRanking = false; // Whether the tactics are ranked by their costs of transformation too
+	private RFArchitecturalTransformation lastTransformation = null; // The transformation of the last tactic applied
 
 	public ModifChangeImpactReasoningFramework() {
 		super();
@@ -358,8 +392,14 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 		if (this.isAnalysisValid() && !isScenarioSatisfied) {
 			// Tactics for this reasoning framework are selected (via search), 
 			// based on the results of the analysis
-			List<ArchETryTacticResult> candidateTactics = this.suggestTacticsBasedOnAnalysis(
-					analyzer,responsibilities,coreResponsibilities,adlModel, scenario);
+			TacticSearchCheckpoint checkpoint = this.startTacticSearchCheckpoint(architecture);
+			List<ArchETryTacticResult> candidateTactics = null;
+			try {
+				candidateTactics = this.suggestTacticsBasedOnAnalysis(
+						analyzer,responsibilities,coreResponsibilities,adlModel, scenario);
+			} finally { // The search is saved even if it fails
+				this.stopTacticSearchCheckpoint(checkpoint);
+			}
 
 			ArchETryTacticResult tryTactic = null;
 			for (Iterator<ArchETryTacticResult> it = candidateTactics.iterator(); it.hasNext();) {
@@ -425,13 +465,14 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 		ArchEResponsibilityVO respVO = null;
 		ArchEModuleVO moduleVO = null;
 		ArchEVersionVO versionVO = (ArchEVersionVO)view.getParent().getCurrentVersion();
+		ArchECoreResponsibilityStructure.RefinementIndex refinements = coreResponsibilities.createRefinementIndex();
 		
 		for (Iterator<ArchEResponsibility> it = coreResponsibilities.getResponsibilities().iterator(); it.hasNext();) {		
 			respVO = (ArchEResponsibilityVO)(it.next());
 			
 			// Create a module for each leaf responsibility who's not assigned to a module; 
 			// this reasoning framework considers only leaf responsibilities.
-			if(coreResponsibilities.isLeaf(respVO) 
+			if(refinements.isLeaf(respVO) 
 					&& !moduleView.isAllocated(respVO)){
 			
 				moduleView.defineResponsibility(respVO);			
@@ -448,31 +489,11 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	
 //		// Initial design rule 2: A dependency between two responsibilities maps to
 //		// a dependency between corresponding modules			
-		ArchEResponsibilityDependencyRelationVO respDependencyVO = null;
-		List<ArchEModuleVO> parentList = null;
-		List<ArchEModuleVO> childList = null;
+		// (all of them are derived at once, as a product of the allocation and dependency matrices)
 		String relationTypeVO = ArchEResponsibilityDependencyRelationVO.class.getName();
 		List<ArchERelation> dependencies = coreResponsibilities.getRelations(relationTypeVO);
-		
-		for (Iterator<ArchERelation> itDependencies = dependencies.iterator(); itDependencies.hasNext();) {
-			
-			respDependencyVO = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
-			
-			// The modules each end of the dependency is assigned to
-			parentList = moduleView.getModulesByResponsibility(respDependencyVO.getParent());
-			childList = moduleView.getModulesByResponsibility(respDependencyVO.getChild());
-			
-			ArchEModuleVO mod1 = null;
-			ArchEModuleVO mod2 = null;
-			for (Iterator<ArchEModuleVO> i = parentList.iterator(); i.hasNext();) {
-				mod1 = i.next();
-				for (Iterator<ArchEModuleVO> j = childList.iterator(); j.hasNext();) {
-					mod2 = j.next();
-					moduleView.setModuleDependency(mod1, mod2, true);
-					changed = true;
-				}
-			}
-		}
+		if (moduleView.deriveModuleDependencies(dependencies) > 0)
+			changed = true;
 
 		// Initial design rule 3: Delete the dependency between two modules that has no 
 		// corresponding dependency between two responsibilities
@@ -578,8 +599,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			respDependencyVO = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
 			
 			// The modules each end of the dependency is assigned to
-			parentList = moduleView.getModulesByResponsibility(respDependencyVO.getParent());
-			childList = moduleView.getModulesByResponsibility(respDependencyVO.getChild());
+			parentList = moduleView.getAllocatedModules(respDependencyVO.getParent());
+			childList = moduleView.getAllocatedModules(respDependencyVO.getChild());
 			
 			ArchEModuleVO mod1 = null;
 			ArchEModuleVO mod2 = null;
@@ -690,8 +711,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			respDependencyVO = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
 			
 			// The modules each end of the dependency is assigned to
-			parentList = moduleView.getModulesByResponsibility(respDependencyVO.getParent());
-			childList = moduleView.getModulesByResponsibility(respDependencyVO.getChild());
+			parentList = moduleView.getAllocatedModules(respDependencyVO.getParent());
+			childList = moduleView.getAllocatedModules(respDependencyVO.getChild());
 			
 			ArchEModuleVO mod1 = null;
 			ArchEModuleVO mod2 = null;
@@ -838,7 +859,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	 * @throws ArchEException
 	 */	
 	@Override
-	public boolean applySuggestedTactic(ArchEArchitecture architecture,
+	public synchronized boolean applySuggestedTactic(ArchEArchitecture architecture,
 			ArchETryTacticResult suggestedTactic) throws ArchEException {
 		
 		printLog(3, Level.INFO, "About to apply (suggested) tactic ... on version= "+architecture.getCurrentVersion().getId());		
@@ -855,6 +876,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				transf1.setCostForIntermediary(costIntermediary);
 				transf1.setSourceArchitecture(architecture);
 				transf1.execute();						
+				lastTransformation = transf1;
 //				printLog(4, Level.INFO, "-->costOfTransformation: "+transf1.getSwitchingCost());
 				printLog(4, Level.INFO, "-->costOfTransformation: "+transf1.getCostOfTransformation());
 				return (true);
@@ -868,6 +890,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				SplitResponsibilityCommand transf2 = new SplitResponsibilityCommand(targetResp);				
 				transf2.setSourceArchitecture(architecture);
 				transf2.execute();						
+				lastTransformation = transf2;
 //				printLog(4, Level.INFO, "-->costOfTransformation: "+transf2.getSwitchingCost());
 				printLog(4, Level.INFO, "-->costOfTransformation: "+transf2.getCostOfTransformation());
 				return (true);				
@@ -885,6 +908,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				//transf3.setLeafResponsibility(1, leaf2Resp);
 				transf3.setSourceArchitecture(architecture);
 				transf3.execute();						
+				lastTransformation = transf3;
 //				printLog(4, Level.INFO, "-->costOfTransformation: "+transf3.getSwitchingCost());
 				printLog(4, Level.INFO, "-->costOfTransformation: "+transf3.getCostOfTransformation());
 				return (true);				
@@ -898,6 +922,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				AbstractCommonServicesCommand transf4 = new AbstractCommonServicesCommand(parentRespA,parentRespB);
 				transf4.setSourceArchitecture(architecture);
 				transf4.execute();						
+				lastTransformation = transf4;
 //				printLog(4, Level.INFO, "-->costOfTransformation: "+transf4.getSwitchingCost());
 				printLog(4, Level.INFO, "-->costOfTransformation: "+transf4.getCostOfTransformation());
 				return (true);				
@@ -909,7 +934,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 	}
 
 	@Override
-	public boolean applyTacticByUserQuestion(ArchEArchitecture architecture,
+	public synchronized boolean applyTacticByUserQuestion(ArchEArchitecture architecture,
 			ArchEUserQuestion userQuestion) throws ArchEException {
 
 //		List answers = userQuestion.getAnswers();
@@ -1106,7 +1131,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			throws ArchEException {
 
 		boolean changed = false;
-		ArchECoreResponsibilityStructure coreStructure = ((ArchECoreResponsibilityStructure)responsibilityStructure);
+		ChangeImpactModifiabilityResponsibilityStructure coreStructure = ((ChangeImpactModifiabilityResponsibilityStructure)responsibilityStructure);
 		
 		// Check for missing parameters in the responsibilities
 		double costOfChange = ChangeImpactAnalyzer.DEFAULT_RESPONSIBILITY_COST;
@@ -1116,7 +1141,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			
 			if (!itemResp.hasParameter(PARAMETER_COST_OF_CHANGE)) {
 				// In case no costOfChange parameter exists, the responsibility is modified to include this parameter
-				itemResp.defineParameter(PARAMETER_COST_OF_CHANGE, costOfChange);				
+				coreStructure.setParameter(itemResp, PARAMETER_COST_OF_CHANGE, costOfChange);				
 				changed = true;
 			} 
 
@@ -1162,7 +1187,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			if (!respDependencyVO.hasParameter(PARAMETER_PROBABILITY_INCOMING)) {
 				// In case no probability parameter exists, the relation 
 				// is modified to include this parameter
-				respDependencyVO.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingProbability);				
+				coreStructure.setParameter(respDependencyVO, PARAMETER_PROBABILITY_INCOMING, ripplingProbability);				
 				changed = true;
 			} 
 			// The the value probabilityIncoming must be within the range [0..1]
@@ -1181,7 +1206,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			if (!respDependencyVO.hasParameter(PARAMETER_PROBABILITY_OUTGOING)) {
 				// In case no probability parameter exists, the relation 
 				// is modified to include this parameter
-				respDependencyVO.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingProbability);
+				coreStructure.setParameter(respDependencyVO, PARAMETER_PROBABILITY_OUTGOING, ripplingProbability);
 				changed = true;
 			} 
 			// The value probabilityOutgoing must be within the range [0..1]
@@ -1316,23 +1341,68 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 		return (warningQuestions);
 	}
 
+	/**
+	 * It starts a new learning session, so that the surrogate model used by the solvers
+	 * forgets what it has learned so far (e.g., for a different design)
+	 */
 	@Override
 	public void beginLearning() throws ArchEException {
-		// TODO Auto-generated method stub
-		
+		CandidateSurrogateModel.getSharedModel().reset();
+		printLog(3, Level.INFO, "Surrogate model --> reset");
 	}
 
+	/**
+	 * It describes (as warnings) what the surrogate model has learned for each tactic
+	 */
 	@Override
 	public List<ArchEUserQuestion> describeWhatLearned() throws ArchEException {
-		// TODO Auto-generated method stub
-		return null;
+		
+		List<ArchEUserQuestion> learnedQuestions = new ArrayList<ArchEUserQuestion>();
+		CandidateSurrogateModel surrogate = CandidateSurrogateModel.getSharedModel();
+		ArchEUserQuestion question = null;
+		String tacticName = null;
+		for (Iterator<String> it = surrogate.getLearnedTactics().iterator(); it.hasNext();) {
+			tacticName = it.next();
+			question = new ArchEUserQuestion();
+			question.setQuestionID(SURROGATE_MODEL_LEARNED);
+			question.setParent(null);
+			question.setAffectedFacts(null);
+			List parameters = new ArrayList();
+			parameters.add(tacticName);
+			parameters.add(surrogate.getCountSamples(tacticName));
+			parameters.add(surrogate.getMeanAbsoluteError(tacticName));
+			question.setParameters(parameters);
+			learnedQuestions.add(question);
+		}
+		return (learnedQuestions);
 	}
 
+	/**
+	 * It feeds the surrogate model used by the solvers. Note that the solvers already 
+	 * learn from the candidates they analyze, so this is for candidates analyzed elsewhere
+	 * 
+	 * @param typeOfLearning either LEARN_FROM_EVALUATED_CANDIDATES or LEARN_ENABLE_SURROGATE_MODEL
+	 * @param args the arguments for the type of learning
+	 */
 	@Override
 	public void learnBy(int typeOfLearning, Object[] args)
 			throws ArchEException {
-		// TODO Auto-generated method stub
 		
+		CandidateSurrogateModel surrogate = CandidateSurrogateModel.getSharedModel();
+		if (typeOfLearning == LEARN_FROM_EVALUATED_CANDIDATES) {
+			for (int i = 0; (args != null) && (i < args.length); i++) {
+				if (args[i] instanceof TacticCandidate)
+					surrogate.learn((TacticCandidate)(args[i]));
+			}
+		}
+		else if (typeOfLearning == LEARN_ENABLE_SURROGATE_MODEL) {
+			if ((args != null) && (args.length > 0) && (args[0] instanceof Boolean))
+				surrogate.setEnabled(((Boolean)(args[0])).booleanValue());
+		}
+		else
+			throw new ArchEException("Unknown type of learning: "+typeOfLearning);
+		
+		return;
 	}
 	
 //	private static final double THRESHOLD_SPLITTING = 0.005; // For a responsibility cost normalized to range [0..1]
@@ -1352,85 +1422,450 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			ModuleADLWrapper moduleView, ArchEScenario currentScenario) {
 		
 		ArrayList<ArchETryTacticResult> modifTactics = new ArrayList<ArchETryTacticResult>();
+		ParetoTacticRanking ranking = new ParetoTacticRanking(); // The candidates found by all the solvers
+		IdentityHashMap<TacticCandidate,ArchETryTacticResult> resultsByCandidate = new IdentityHashMap<TacticCandidate,ArchETryTacticResult>();
 		ArchETryTacticResult candidate = null;
+		TacticCandidate tactic = null;
+		int rank = 0;
 		
-		// Rule 1: Suggest a tactic to split a costly responsibility
-		ModifiabilityTacticSolver solver1 = new TrySplitResponsibilitySolver(analyzer,primaryResps);
-		solver1.setResponsibilityStructure(allResponsibilities);
-		solver1.setModuleView(moduleView);
-		ArchEResponsibilityVO targetResponsibility = null;
-		if (solver1.searchForTactic(currentScenario)) {
-			candidate = new ArchETryTacticResult();
-			candidate.setTacticName(SPLIT_RESPONSIBILITY_TACTIC);
-			candidate.setParameters(solver1.getParameters());
-			targetResponsibility = (ArchEResponsibilityVO)(solver1.getTarget().get(0));
-			candidate.setAt(solver1.estimateContext());
-			candidate.setTacticDescription("Split Responsibility Tactic 1"+" ["+targetResponsibility.getName()+"]");
-			printLog(3, Level.INFO, "Setting responsibility target 1 --> " + targetResponsibility.getName());
-			modifTactics.add(candidate);			
+		// All the solvers share the same deadline, so that the suggestion of tactics
+		// takes (at most) the time budget
+		TacticSearchDeadline deadline = this.startTacticSearch();
+		try {
+			// The solvers are run in the order given by the registry (cheap and high-yield 
+			// solvers first). Once enough good tactics have been found, the expensive
+			// solvers are skipped. The rules behind the built-in solvers are:
+			// Rule 1: Suggest tactics to split the most costly responsibilities
+			// Rule 2: Suggest tactics to insert an intermediary for the most coupled modules
+			// Rule 3: Check the case in which an abstract responsibility is mapped to
+			// two (or more) leaf responsibilities within the same scenario. If so, 
+			// suggest a tactic to remove any of the mapped children from the scenario
+			// Rule 4: Suggest tactics to abstract common services in pairs of costly responsibilities
+			List<ModifiabilityTacticSolverProvider> providers = TacticSolverRegistry.getSharedRegistry().getScheduledProviders();
+			ModifiabilityTacticSolverProvider provider = null;
+			ModifiabilityTacticSolver solver = null;
+			int goodTactics = 0;
+			partialTacticSearch = false;
+			countEvaluatedCandidates = 0;
+			countPrunedCandidates = 0;
+			countRecalledCandidates = 0;
+			countSkippedCandidates = 0;
+			for (Iterator<ModifiabilityTacticSolverProvider> itProviders = providers.iterator(); itProviders.hasNext();) {
+				provider = itProviders.next();
+				if ((goodTactics >= ENOUGH_GOOD_TACTICS) && (provider.getEstimatedCost() >= EXPENSIVE_SOLVER_COST)) {
+					printLog(3, Level.INFO, "Skipping solver --> " + provider.getTacticName()+" (enough tactics found so far: "+goodTactics+")");
+					continue;
+				}
+			
+				solver = provider.createSolver(analyzer,primaryResps);
+				solver.setResponsibilityStructure(allResponsibilities);
+				solver.setModuleView(moduleView);
+				solver.setReasoningFramework(this);
+				if (solver.searchForTactics(currentScenario, MAX_CANDIDATES_PER_TACTIC, deadline)) {
+					rank = 0;
+					for (Iterator<TacticCandidate> it = solver.getCandidates().iterator(); it.hasNext();) {
+						tactic = it.next();
+						rank++;
+						candidate = this.createTryTacticResult(tactic);
+						candidate.setTacticDescription(provider.describeCandidate(tactic, rank));
+						printLog(3, Level.INFO, "Setting target "+rank+" --> " + candidate.getTacticDescription());
+						modifTactics.add(candidate);
+						ranking.addCandidate(tactic);
+						resultsByCandidate.put(tactic, candidate);
+						if (tactic.getCostReduction() > 0)
+							goodTactics++;
+					}
+				}
+				partialTacticSearch = partialTacticSearch || solver.isPartialResult();
+				countEvaluatedCandidates = countEvaluatedCandidates + solver.getCountEvaluatedCandidates();
+				countPrunedCandidates = countPrunedCandidates + solver.getCountPrunedCandidates();
+				countRecalledCandidates = countRecalledCandidates + solver.getCountRecalledCandidates();
+				countSkippedCandidates = countSkippedCandidates + solver.getCountSkippedCandidates();
+				printLog(3, Level.INFO, "Candidates for "+provider.getTacticName()+" --> evaluated= "+solver.getCountEvaluatedCandidates()
+						+" pruned= "+solver.getCountPrunedCandidates()+" recalled= "+solver.getCountRecalledCandidates()
+						+" skipped= "+solver.getCountSkippedCandidates());
+			}
+			printLog(3, Level.INFO, "Pruning ratio --> "+this.getPruningRatio()+" (pruned= "+countPrunedCandidates
+					+" of "+(countEvaluatedCandidates + countPrunedCandidates)+" candidates, skipped by the surrogate model= "
+					+countSkippedCandidates+")");
+			if (paretoTacticRanking && !modifTactics.isEmpty()) {
+				// The tactics are suggested front by front, according to their costs of 
+				// transformation and their resulting costs
+				this.computeCostsOfTransformation(moduleView.getParent(), ranking.getCandidates(), deadline);
+				ArrayList<ArchETryTacticResult> rankedTactics = new ArrayList<ArchETryTacticResult>();
+				for (Iterator<TacticCandidate> it = ranking.getRankedCandidates().iterator(); it.hasNext();) 
+					rankedTactics.add(resultsByCandidate.get(it.next()));
+				modifTactics = rankedTactics;
+				printLog(3, Level.INFO, "Pareto ranking --> fronts= "+ranking.getFronts().size()
+						+" (Pareto front= "+ranking.getParetoFront().size()+" of "+ranking.getCandidates().size()
+						+" candidates, unranked= "+ranking.getUnrankedCandidates().size()+")");
+			}
+			if (partialTacticSearch)
+				printLog(3, Level.INFO, "Tactic search interrupted (deadline expired or cancelled) --> partial results");
+		} finally {
+			tacticSearchDeadline = null;
 		}
 		
-		// Rule 2: Suggest a tactic to insert an intermediary for a module
-		ModifiabilityTacticSolver solver2 = new TryInsertIntermediaryModuleSolver(analyzer,primaryResps);
-		solver2.setResponsibilityStructure(allResponsibilities);
-		solver2.setModuleView(moduleView);
-		ArchEModuleVO targetModule = null;
-		if (solver2.searchForTactic(currentScenario)) {
-			candidate = new ArchETryTacticResult();
-			candidate.setTacticName(INSERT_INTERMEDIARY_MODULE_TACTIC);
-			candidate.setParameters(solver2.getParameters());
-			targetModule = (ArchEModuleVO)(solver2.getTarget().get(0));
-			candidate.setAt(solver2.estimateContext());
-			candidate.setTacticDescription("Insert Intermediary Tactic 1"+" ["+targetModule.getName()+"]");
-			printLog(3, Level.INFO, "Setting module target 1 --> " + targetModule.getName());
-			modifTactics.add(candidate);			
-		}
+		CandidateEvaluationCache cache = CandidateEvaluationCache.getSharedCache();
+		printLog(3, Level.INFO, "Evaluation cache --> hits= "+cache.getHits()+" misses= "+cache.getMisses()+" size= "+cache.size());
+		TacticSearchHistory history = TacticSearchHistory.getSharedHistory();
+		printLog(3, Level.INFO, "Search history --> recalled= "+countRecalledCandidates+" (total= "+history.getCountRecalled()
+				+") revalidated= "+history.getCountRevalidated()+" size= "+history.size());
 	
-		// Rule 3: Check the case in which an abstract responsibility is mapped to
-		// two (or more) leaf responsibilities within the same scenario. If so, 
-		// suggest a tactic to remove any of the mapped children from the scenario
-		ModifiabilityTacticSolver solver3 = new TryAdjustImpactRefinedResponsibilitySolver(analyzer,primaryResps);
-		solver3.setResponsibilityStructure(allResponsibilities);
-		solver3.setModuleView(moduleView);
-		ArchEResponsibilityVO abstractResponsibility = null;
-		ArchEResponsibilityVO leaf1 = null;
-		ArchEResponsibilityVO leaf2 = null;
-		if (solver3.searchForTactic(currentScenario)) {
-			candidate = new ArchETryTacticResult();
-			candidate.setTacticName(ADJUST_IMPACT_REFINED_RESPONSIBILITIES_TACTIC);
-			candidate.setParameters(solver3.getParameters());
-			abstractResponsibility = (ArchEResponsibilityVO)(solver3.getTarget().get(0));
-			leaf1 = (ArchEResponsibilityVO)(solver3.getTarget().get(1));
-			leaf2 = (ArchEResponsibilityVO)(solver3.getTarget().get(2));
-			candidate.setAt(solver3.estimateContext());
-			candidate.setTacticDescription("Minimize Change Impact Tactic"+" ["+abstractResponsibility.getName()+"-"+leaf1.getName()+"-"+leaf2.getName()+"]");
-			printLog(3, Level.INFO, "Setting parent responsibility --> " + abstractResponsibility.getName());
-			printLog(3, Level.INFO, "Setting leaf1 responsibility --> " + leaf1.getName());
-			printLog(3, Level.INFO, "Setting leaf2 responsibility --> " + leaf2.getName());
-			printLog(3, Level.INFO, "Setting scenario --> " + ((ArchEScenarioVO)currentScenario).getId());
-			modifTactics.add(candidate);			
+		return (modifTactics); // Here are the suggested tactics returned by this method
+	}
+
+	/**
+	 * It sets the time budget for the search of tactics
+	 * 
+	 * @param timeBudget the time budget in milliseconds
+	 */
+	public void setTacticSearchTimeBudget(long timeBudget) {
+		tacticSearchTimeBudget = timeBudget;
+	}
+
+	/**
+	 * It sets whether the suggested tactics are ranked by both their costs of transformation 
+	 * and the resulting costs of the scenario (see ParetoTacticRanking), instead of the 
+	 * order given by the solvers. Note that each tactic has to be applied (on a copy of 
+	 * the architecture) to know its cost of transformation
+	 */
+	public void setParetoTacticRanking(boolean enabled) {
+		paretoTacticRanking = enabled;
+	}
+
+	/**
+	 * It ranks a number of tactic candidates (e.g., the candidates found by the solvers, 
+	 * or the first tactics of the sequences found by searchTacticSequences()) according 
+	 * to their costs of transformation and their resulting costs. The tactics are applied 
+	 * on copies of the architecture, so the architecture is not modified by this method
+	 * 
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param candidates the candidates to be ranked (with their resulting costs already set)
+	 * @return the ranking, whose first front is the Pareto front of the candidates
+	 */
+	public ParetoTacticRanking rankTacticsByCosts(ArchEArchitecture architecture, List<TacticCandidate> candidates) {
+		
+		ParetoTacticRanking ranking = new ParetoTacticRanking();
+		ranking.addCandidates(candidates);
+		try {
+			this.computeCostsOfTransformation(architecture, candidates, this.startTacticSearch());
+		} finally {
+			tacticSearchDeadline = null;
 		}
 
-		// Rule 4: Suggest a tactic to abstract common services in a pair of costly responsibilities
-		ModifiabilityTacticSolver solver4 = new TryAbstractCommonResponsibilitiesSolver(analyzer,primaryResps);
-		solver4.setResponsibilityStructure(allResponsibilities);
-		solver4.setModuleView(moduleView);
-		ArchEResponsibilityVO targetResponsibilityA = null;
-		ArchEResponsibilityVO targetResponsibilityB = null;
-		if (solver4.searchForTactic(currentScenario)) {
-			candidate = new ArchETryTacticResult();
-			candidate.setTacticName(ABSTRACT_COMMON_RESPONSIBILITIES_TACTIC);
-			candidate.setParameters(solver4.getParameters());
-			targetResponsibilityA = (ArchEResponsibilityVO)(solver4.getTarget().get(0));
-			targetResponsibilityB = (ArchEResponsibilityVO)(solver4.getTarget().get(1));
-			candidate.setAt(solver4.estimateContext());
-			candidate.setTacticDescription("Abstract Common Responsibilities Tactic 1"+" ["+targetResponsibilityA.getName()+" - "+targetResponsibilityB.getName()+" ]");
-			printLog(3, Level.INFO, "Setting responsibility targetA 1 --> " + targetResponsibilityA.getName());
-			printLog(3, Level.INFO, "Setting responsibility targetB 1 --> " + targetResponsibilityB.getName());
-			modifTactics.add(candidate);			
+		printLog(3, Level.INFO, "Pareto ranking --> fronts= "+ranking.getFronts().size()
+				+" (Pareto front= "+ranking.getParetoFront().size()+" of "+candidates.size()+" candidates, unranked= "
+				+ranking.getUnrankedCandidates().size()+", partial= "+partialTacticSearch+")");
+		return (ranking);
+	}
+
+	// It applies each candidate (whose cost of transformation is unknown) on a copy of the 
+	// architecture, until the deadline expires
+	private void computeCostsOfTransformation(ArchEArchitecture architecture, List<TacticCandidate> candidates, 
+			TacticSearchDeadline deadline) {
+		
+		TacticCandidate tactic = null;
+		for (Iterator<TacticCandidate> it = candidates.iterator(); it.hasNext();) {
+			tactic = it.next();
+			if (tactic.hasCostOfTransformation())
+				continue;
+			if (deadline.hasExpired()) {
+				partialTacticSearch = true;
+				return;
+			}
+			this.applyTacticCandidate(TacticSequenceSearch.fork(architecture), tactic);
 		}
-	
-		return (modifTactics); // Here are the suggested tactics returned by this method
+		return;
+	}
+
+	/**
+	 * It sets a local file where the search of tactics is saved at regular intervals 
+	 * (and at the end of the search), so that a long search can be resumed later
+	 * 
+	 * @param file the file for the checkpoints (or null to disable them)
+	 * @param resume whether the next searches continue from the checkpoint, as long 
+	 *        as the architecture version is unchanged
+	 */
+	public void setTacticSearchCheckpoint(File file, boolean resume) {
+		tacticSearchCheckpointFile = file;
+		resumeTacticSearch = resume;
+	}
+
+	// It restores the search of tactics from the checkpoint (if required), and then 
+	// starts saving the search to the checkpoint file
+	private TacticSearchCheckpoint startTacticSearchCheckpoint(ArchEArchitecture architecture) {
+		if (tacticSearchCheckpointFile == null)
+			return (null);
+		
+		TacticSearchHistory history = TacticSearchHistory.getSharedHistory();
+		TacticSearchCheckpoint checkpoint = new TacticSearchCheckpoint(tacticSearchCheckpointFile, 
+				String.valueOf(architecture.getCurrentVersion().getId()));
+		if (resumeTacticSearch) {
+			int restored = checkpoint.resume(history);
+			printLog(3, Level.INFO, "Resuming tactic search --> candidates restored= "+restored
+					+" (version= "+checkpoint.getVersionId()+")");
+		}
+		history.setCheckpoint(checkpoint);
+		return (checkpoint);
+	}
+
+	private void stopTacticSearchCheckpoint(TacticSearchCheckpoint checkpoint) {
+		if (checkpoint == null)
+			return;
+		
+		TacticSearchHistory history = TacticSearchHistory.getSharedHistory();
+		history.setCheckpoint(null);
+		if (!checkpoint.save(history))
+			printLog(3, Level.INFO, "Tactic search checkpoint couldn't be saved --> "+checkpoint.getFile().getPath());
+		return;
+	}
+
+	/**
+	 * It cancels the search of tactics in progress (if any). The solvers return 
+	 * the best candidates found so far
+	 */
+	public void cancelTacticSearch() {
+		TacticSearchDeadline deadline = tacticSearchDeadline;
+		if (deadline != null)
+			deadline.cancel();
+	}
+
+	/**
+	 * It checks if the last search of tactics was interrupted, so that the 
+	 * suggested tactics may not be the best ones
+	 */
+	public boolean isPartialTacticSearch() {
+		return (partialTacticSearch);
+	}
+
+	/**
+	 * It returns the fraction of candidates (in range [0..1]) that were discarded
+	 * by their bounds, without analyzing them, in the last search of tactics (the
+	 * candidates skipped by the surrogate model are not counted)
+	 */
+	public double getPruningRatio() {
+		int total = countEvaluatedCandidates + countPrunedCandidates;
+		if (total == 0)
+			return (0.0);
+		return ((double)countPrunedCandidates / total);
+	}
+
+	// It creates the deadline for a new search of tactics
+	private TacticSearchDeadline startTacticSearch() {
+		partialTacticSearch = false;
+		tacticSearchDeadline = new TacticSearchDeadline(tacticSearchTimeBudget);
+		return (tacticSearchDeadline);
+	}
+
+	/**
+	 * It creates a tryTacticResult out of a candidate found by a solver (the 
+	 * description of the tactic must be set afterwards)
+	 * 
+	 * @param tactic the candidate for the tactic
+	 * @return
+	 */
+	private ArchETryTacticResult createTryTacticResult(TacticCandidate tactic) {
+		ArchETryTacticResult tryTactic = new ArchETryTacticResult();
+		tryTactic.setTacticName(tactic.getTacticName());
+		tryTactic.setParameters(tactic.getParameters());
+		tryTactic.setAt(tactic.getContext());
+		return (tryTactic);
+	}
+
+	/**
+	 * It applies a candidate found by a solver on an (in-memory) copy of the architecture. 
+	 * The commands are executed one at a time, because they share the counters used
+	 * to name new responsibilities and modules. The copies have their own counters, which 
+	 * start after the counters of the architecture (so the new names are unique within 
+	 * the copies), and the counters of the architecture are restored afterwards (so the 
+	 * exploration of tactics doesn't change the names given when a tactic is really applied)
+	 *
+	 * @param architecture the architecture to be transformed
+	 * @param tactic the candidate for the tactic
+	 * @return true if the tactic could be applied
+	 */
+	protected synchronized boolean applyTacticCandidate(ArchEArchitecture architecture, TacticCandidate tactic) {
+		int moduleIntermediaryCounter = ModuleIntermediaryCounter;
+		int responsibilityChildrenCounter = ResponsibilityChildrenCounter;
+		ModuleIntermediaryCounter = Math.max(ModuleIntermediaryCounter, HypotheticalModuleIntermediaryCounter);
+		ResponsibilityChildrenCounter = Math.max(ResponsibilityChildrenCounter, HypotheticalResponsibilityChildrenCounter);
+		try {
+			lastTransformation = null;
+			if (!this.applySuggestedTactic(architecture, this.createTryTacticResult(tactic)))
+				return (false);
+			if (lastTransformation != null)
+				tactic.setCostOfTransformation(lastTransformation.getCostOfTransformation());
+			return (true);
+		} catch (ArchEException e) {
+			printLog(3, Level.INFO, "Tactic "+tactic.getTacticName()+" couldn't be applied: "+e.getMessage());
+			return (false);
+		} finally {
+			HypotheticalModuleIntermediaryCounter = ModuleIntermediaryCounter;
+			HypotheticalResponsibilityChildrenCounter = ResponsibilityChildrenCounter;
+			ModuleIntermediaryCounter = moduleIntermediaryCounter;
+			ResponsibilityChildrenCounter = responsibilityChildrenCounter;
+		}
+	}
+
+	/**
+	 * It searches for sequences of tactics (instead of single tactics) that reduce
+	 * the cost of a scenario. The search is performed on copies of the architecture,
+	 * so the architecture is not modified by this method
+	 *
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param scenario scenario to be analyzed on the architecture
+	 * @param maxDepth the maximum number of tactics in a sequence
+	 * @param beamWidth the number of sequences kept at each step of the search
+	 * @return the best sequences found (as many as the beam width, the best sequence first)
+	 * @throws ArchEException
+	 */
+	public List<TacticSequence> searchTacticSequences(ArchEArchitecture architecture, ArchEScenario scenario,
+			int maxDepth, int beamWidth) throws ArchEException {
+		return (this.searchTacticSequences(architecture, scenario, maxDepth, beamWidth, beamWidth));
+	}
+
+	/**
+	 * It searches for sequences of tactics, as the method above does, but it returns 
+	 * a given number of the best sequences found (instead of the beam width)
+	 *
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param scenario scenario to be analyzed on the architecture
+	 * @param maxDepth the maximum number of tactics in a sequence
+	 * @param beamWidth the number of sequences kept at each step of the search
+	 * @param maxSequences the maximum number of sequences to be returned
+	 * @return the best sequences found (the best sequence first)
+	 * @throws ArchEException
+	 */
+	public List<TacticSequence> searchTacticSequences(ArchEArchitecture architecture, ArchEScenario scenario,
+			int maxDepth, int beamWidth, int maxSequences) throws ArchEException {
+
+		TacticSequenceSearch search = new TacticSequenceSearch(this, beamWidth, maxDepth);
+		List<TacticSequence> sequences = null;
+		try {
+			search.setDeadline(this.startTacticSearch());
+			sequences = search.search(architecture, scenario, maxSequences);
+			partialTacticSearch = search.isPartialResult();
+		} finally {
+			tacticSearchDeadline = null;
+		}
+
+		printLog(3, Level.INFO, "Tactic sequences found = " + sequences.size()+" (architectures evaluated= "
+				+search.getCountEvaluatedArchitectures()+", transpositions= "+search.getCountTranspositions()
+				+", partial= "+partialTacticSearch+")");
+		return (sequences);
+	}
+
+	/**
+	 * It searches for a better allocation of the responsibilities to the existing modules
+	 * (see AllocationOptimizer), within the time budget for the search of tactics. The
+	 * best allocation is then analyzed for the scenario on a copy of the architecture, 
+	 * so the architecture is not modified by this method
+	 * 
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param scenario scenario to be analyzed on the proposed allocation
+	 * @return the proposed allocation, with its total cost for the scenario
+	 * @throws ArchEException
+	 */
+	public AllocationProposal optimizeAllocation(ArchEArchitecture architecture, ArchEScenario scenario) throws ArchEException {
+		
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		ArchECoreResponsibilityStructure coreResponsibilities = (ArchECoreResponsibilityStructure)(architecture.getResponsibilityStructure());
+		AllocationOptimizer optimizer = new AllocationOptimizer(moduleView, coreResponsibilities);
+		AllocationProposal proposal = null;
+		try {
+			optimizer.setDeadline(this.startTacticSearch());
+			proposal = optimizer.optimize();
+			partialTacticSearch = optimizer.isPartialResult();
+		} finally {
+			tacticSearchDeadline = null;
+		}
+
+		this.analyzeProposal(architecture, scenario, proposal, "allocation");
+
+		printLog(3, Level.INFO, "Allocation optimized --> cost= "+proposal.getCost()+" (initial= "+proposal.getInitialCost()
+				+", moved responsibilities= "+proposal.getMovedResponsibilities().size()+", scenario cost= "+proposal.getScenarioCost()
+				+", partial= "+partialTacticSearch+")");
+		return (proposal);
+	}
+
+	/**
+	 * It proposes a restructuring of the modules based on a partition of the dependency
+	 * graph of responsibilities (see ModularizationPartitioner). The new modules are
+	 * analyzed for the scenario on a copy of the architecture, so the architecture is
+	 * not modified by this method
+	 *
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param scenario scenario to be analyzed on the proposed modules
+	 * @return the proposed allocation, with its total cost for the scenario
+	 * @throws ArchEException
+	 */
+	public AllocationProposal proposeModularization(ArchEArchitecture architecture, ArchEScenario scenario) throws ArchEException {
+
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		ArchECoreResponsibilityStructure coreResponsibilities = (ArchECoreResponsibilityStructure)(architecture.getResponsibilityStructure());
+		ModularizationPartitioner partitioner = new ModularizationPartitioner(coreResponsibilities);
+		AllocationProposal proposal = partitioner.propose(moduleView);
+
+		this.analyzeProposal(architecture, scenario, proposal, "modularization");
+
+		printLog(3, Level.INFO, "Modularization proposed --> modules= "+proposal.getModules().size()+", cost= "+proposal.getCost()
+				+" (initial= "+proposal.getInitialCost()+", modularity= "+partitioner.getModularity()
+				+", levels= "+partitioner.getCountLevels()+", scenario cost= "+proposal.getScenarioCost()+")");
+		return (proposal);
+	}
+
+	// It applies a proposal to a copy of the architecture, and sets the total cost of
+	// the scenario on the resulting architecture (the architecture is not modified)
+	private void analyzeProposal(ArchEArchitecture architecture, ArchEScenario scenario, 
+			AllocationProposal proposal, String description) throws ArchEException {
+		
+		ArchECoreArchitecture copy = TacticSequenceSearch.fork(architecture);
+		ModuleADLWrapper copyView = (ModuleADLWrapper)(copy.getView());
+		ArchECoreResponsibilityStructure copyResponsibilities = (ArchECoreResponsibilityStructure)(copy.getResponsibilityStructure());
+		proposal.applyTo(copyView, copyResponsibilities);
+		ChangeImpactAnalyzer analyzer = new ChangeImpactAnalyzer(copyView, copyResponsibilities);
+		try {
+			if (analyzer.doInterpretation(copyResponsibilities.getResponsibilitiesByScenario(scenario))) {
+				analyzer.doEvaluation();
+				proposal.setScenarioCost(analyzer.getTotalCost());
+			}
+		} catch (ChangeImpactAnalysisException e) {
+			printLog(3, Level.INFO, "Proposed "+description+" couldn't be analyzed: "+e.getMessage());
+		}
+		return;
+	}
+
+	/**
+	 * It evaluates a number of tactics against all the scenarios of the requirement
+	 * model handled by this reasoning framework. Each tactic is applied only once (on 
+	 * a copy of the architecture), and its resulting architecture is analyzed for all 
+	 * the scenarios, so the architecture is not modified by this method
+	 * 
+	 * @param architecture current architecture model (assumed consistent)
+	 * @param requirementModel the current requirement model
+	 * @param tactics the tactics to be evaluated (e.g., the candidates found for some scenario)
+	 * @return the cost vectors of the tactics, ranked in descending order of their aggregate reductions
+	 */
+	public List<CrossScenarioEvaluation> evaluateTacticsAcrossScenarios(ArchEArchitecture architecture, 
+			ArchERequirementModel requirementModel, List<TacticCandidate> tactics) {
+
+		List<ArchEScenario> scenarios = new ArrayList<ArchEScenario>();
+		ArchEScenario scenario = null;
+		String rfID = null;
+		for (Iterator<ArchEScenario> it = requirementModel.getScenarios().iterator(); it.hasNext();) {
+			scenario = it.next();
+			rfID = ((ArchEScenarioVO)scenario).getReasoningFramework();
+			if ((rfID != null) && rfID.equalsIgnoreCase(this.getID()))
+				scenarios.add(scenario);
+		}
+
+		CrossScenarioEvaluator evaluator = new CrossScenarioEvaluator(this);
+		List<CrossScenarioEvaluation> evaluations = evaluator.evaluate(architecture, tactics, scenarios);
+
+		printLog(3, Level.INFO, "Cross-scenario evaluation --> tactics= "+evaluations.size()+" scenarios= "+scenarios.size()
+				+" (tactics applied= "+evaluator.getCountAppliedTactics()+", analyses= "+evaluator.getCountAnalyses()+")");
+		return (evaluations);
 	}
 
 	/**
@@ -1479,7 +1914,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			if (targetResponsibility != null) {				
 							
 				ModuleADLWrapper moduleView = (ModuleADLWrapper)(baseArchitecture.getView());
-				ArchECoreResponsibilityStructure coreResponsibilities = (ArchECoreResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
+				ChangeImpactModifiabilityResponsibilityStructure coreResponsibilities = (ChangeImpactModifiabilityResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
 				ArchEVersionVO versionVO = (ArchEVersionVO)moduleView.getParent().getCurrentVersion();
 				
 				// The new children responsibilities A and B are created and configured
@@ -1508,8 +1943,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 					costChildren = costChildren * 0.3;
 					if (costChildren < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
 						costChildren = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
-					childrenA.defineParameter(PARAMETER_COST_OF_CHANGE, costChildren);
-					childrenB.defineParameter(PARAMETER_COST_OF_CHANGE, costChildren);
+					coreResponsibilities.setParameter(childrenA, PARAMETER_COST_OF_CHANGE, costChildren);
+					coreResponsibilities.setParameter(childrenB, PARAMETER_COST_OF_CHANGE, costChildren);
 				} catch (ArchEException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
@@ -1585,8 +2020,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				dependencyAB.setParent(childrenA);
 				dependencyAB.setChild(childrenB);
 				double rippling = ChangeImpactAnalyzer.DEFAULT_RIPLING_PROBABILITY_RESPONSIBILITIES;
-				dependencyAB.defineParameter(PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
-				dependencyAB.defineParameter(PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyAB, PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyAB, PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
 				added = coreResponsibilities.addRelation(dependencyAB);
 				printLog(4, Level.INFO,"Adding dependency (in structure) ... "+childrenA.getName()+"->"+childrenB.getName()+" : "+added);
 
@@ -1621,16 +2056,16 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 						newDependencyA = new ArchEResponsibilityDependencyRelationVO(versionVO);
 						newDependencyA.setParent(respItem);
 						newDependencyA.setChild(childrenA);
-						newDependencyA.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.5);
-						newDependencyA.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.5);
+						coreResponsibilities.setParameter(newDependencyA, PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.5);
+						coreResponsibilities.setParameter(newDependencyA, PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.5);
 						added = coreResponsibilities.addRelation(newDependencyA);
 						printLog(5, Level.INFO,"Adding dependency (in structure) ... "+newDependencyA.getParent().getName()+"->"+newDependencyA.getChild().getName()+" : "+added);
 						
 						newDependencyB = new ArchEResponsibilityDependencyRelationVO(versionVO);
 						newDependencyB.setParent(respItem);
 						newDependencyB.setChild(childrenB);
-						newDependencyB.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.5);
-						newDependencyB.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.5);
+						coreResponsibilities.setParameter(newDependencyB, PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.5);
+						coreResponsibilities.setParameter(newDependencyB, PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.5);
 						added = coreResponsibilities.addRelation(newDependencyB);
 						printLog(5, Level.INFO,"Adding dependency (in structure) ... "+newDependencyB.getParent().getName()+"->"+newDependencyB.getChild().getName()+" : "+added);
 						
@@ -1672,6 +2107,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				refined = coreResponsibilities.refineResponsibility((ArchEResponsibilityVO)targetResponsibility, childrenB);				
 				printLog(4, Level.INFO,"Refining responsibility (in structure) ... "+targetResponsibility.getName()+" as "+childrenB.getName()+"  :"+refined);
 	
+				// The slots of the removed module and responsibility are discarded once the tactic is applied
+				moduleView.compact();
 			}
 			
 			return (baseArchitecture);
@@ -1739,7 +2176,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				if (targetModule != null) {				
 
 					ModuleADLWrapper moduleView = (ModuleADLWrapper)(baseArchitecture.getView());
-					ArchECoreResponsibilityStructure coreResponsibilities = (ArchECoreResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
+					ChangeImpactModifiabilityResponsibilityStructure coreResponsibilities = (ChangeImpactModifiabilityResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
 					ArchEVersionVO versionVO = (ArchEVersionVO)baseArchitecture.getCurrentVersion();
 					
 					List<ArchEModuleVO> oldModules = moduleView.getModules();
@@ -1785,8 +2222,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 						respDependency = new ArchEResponsibilityDependencyRelationVO(versionVO);
 						respDependency.setParent((ArchEResponsibilityVO)(itTargetResps.next()));
 						respDependency.setChild(intermediaryA);
-						respDependency.defineParameter(PARAMETER_PROBABILITY_INCOMING, rippling * 0.3);
-						respDependency.defineParameter(PARAMETER_PROBABILITY_OUTGOING, rippling * 0.7);
+						coreResponsibilities.setParameter(respDependency, PARAMETER_PROBABILITY_INCOMING, rippling * 0.3);
+						coreResponsibilities.setParameter(respDependency, PARAMETER_PROBABILITY_OUTGOING, rippling * 0.7);
 						added = coreResponsibilities.addRelation(respDependency);
 						printLog(4, Level.INFO,"New dependency (structure) "+intermediaryA.getName()+" --> "+respDependency.getParent().getName()+"rippling "+rippling+" : "+added);
 					}
@@ -1848,8 +2285,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 										newDependencyB = new ArchEResponsibilityDependencyRelationVO(versionVO);
 										newDependencyB.setParent(intermediaryA);
 										newDependencyB.setChild((ArchEResponsibilityVO)modResp);
-										newDependencyB.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.75);
-										newDependencyB.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.75);
+										coreResponsibilities.setParameter(newDependencyB, PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.75);
+										coreResponsibilities.setParameter(newDependencyB, PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.75);
 										added = coreResponsibilities.addRelation(newDependencyB);
 										printLog(4, Level.INFO,"New dependency (structure) "+intermediaryA.getName()+" --> "+modResp.getName()+" : "+added);
 										
@@ -2022,7 +2459,7 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 			if ((targetResponsibilityA != null) && (targetResponsibilityB != null)) {				
 							
 				ModuleADLWrapper moduleView = (ModuleADLWrapper)(baseArchitecture.getView());
-				ArchECoreResponsibilityStructure coreResponsibilities = (ArchECoreResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
+				ChangeImpactModifiabilityResponsibilityStructure coreResponsibilities = (ChangeImpactModifiabilityResponsibilityStructure)(baseArchitecture.getResponsibilityStructure());
 				ArchEVersionVO versionVO = (ArchEVersionVO)moduleView.getParent().getCurrentVersion();
 				
 //				String relationTypeVO = ArchEResponsibilityDependencyRelationVO.class.getName();
@@ -2065,18 +2502,18 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 					costChildrenAB = costChildrenAB * 0.7;
 					if (costChildrenAB < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
 						costChildrenAB = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
-					childrenC.defineParameter(PARAMETER_COST_OF_CHANGE, costChildrenAB);
+					coreResponsibilities.setParameter(childrenC, PARAMETER_COST_OF_CHANGE, costChildrenAB);
 					double costChildrenA = targetResponsibilityA.getDoubleParameter(PARAMETER_COST_OF_CHANGE);
 					costChildrenA = costChildrenA * 0.3;
 					if (costChildrenA < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
 						costChildrenA = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
-					childrenA2.defineParameter(PARAMETER_COST_OF_CHANGE, costChildrenA);
+					coreResponsibilities.setParameter(childrenA2, PARAMETER_COST_OF_CHANGE, costChildrenA);
 
 					double costChildrenB = targetResponsibilityB.getDoubleParameter(PARAMETER_COST_OF_CHANGE);
 					costChildrenB = costChildrenB * 0.3;
 					if (costChildrenB < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
 						costChildrenB = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
-					childrenB2.defineParameter(PARAMETER_COST_OF_CHANGE, costChildrenB);
+					coreResponsibilities.setParameter(childrenB2, PARAMETER_COST_OF_CHANGE, costChildrenB);
 				} catch (ArchEException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
@@ -2138,8 +2575,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				dependencyA1C.setParent(childrenC);
 				dependencyA1C.setChild(childrenA2);
 				double rippling = ChangeImpactAnalyzer.DEFAULT_RIPLING_PROBABILITY_RESPONSIBILITIES;
-				dependencyA1C.defineParameter(PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
-				dependencyA1C.defineParameter(PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyA1C, PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyA1C, PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
 				added = coreResponsibilities.addRelation(dependencyA1C);
 				printLog(4, Level.INFO,"Adding dependency (in structure) ... "+childrenC.getName()+"->"+childrenA2.getName()+" : "+added);
 
@@ -2147,8 +2584,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				ArchEResponsibilityDependencyRelationVO dependencyB1C = new ArchEResponsibilityDependencyRelationVO(versionVO);
 				dependencyB1C.setParent(childrenC);
 				dependencyB1C.setChild(childrenB2);
-				dependencyB1C.defineParameter(PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
-				dependencyB1C.defineParameter(PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyB1C, PARAMETER_PROBABILITY_INCOMING, rippling * 0.45);
+				coreResponsibilities.setParameter(dependencyB1C, PARAMETER_PROBABILITY_OUTGOING, rippling * 0.45);
 				added = coreResponsibilities.addRelation(dependencyB1C);
 				printLog(4, Level.INFO,"Adding dependency (in structure) ... "+childrenC.getName()+"->"+childrenB2.getName()+" : "+added);
 				
@@ -2182,8 +2619,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 						newDependencyA2 = new ArchEResponsibilityDependencyRelationVO(versionVO);
 						newDependencyA2.setParent(respItem);
 						newDependencyA2.setChild(childrenA2);
-						newDependencyA2.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.45);
-						newDependencyA2.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.45);
+						coreResponsibilities.setParameter(newDependencyA2, PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.45);
+						coreResponsibilities.setParameter(newDependencyA2, PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.45);
 						added = coreResponsibilities.addRelation(newDependencyA2);
 						printLog(5, Level.INFO,"Adding dependency (in structure) ... "+newDependencyA2.getParent().getName()+"->"+newDependencyA2.getChild().getName()+" : "+added);	
 						
@@ -2220,8 +2657,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 						newDependencyB2 = new ArchEResponsibilityDependencyRelationVO(versionVO);
 						newDependencyB2.setParent(respItem);
 						newDependencyB2.setChild(childrenB2);
-						newDependencyB2.defineParameter(PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.45);
-						newDependencyB2.defineParameter(PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.45);
+						coreResponsibilities.setParameter(newDependencyB2, PARAMETER_PROBABILITY_INCOMING, ripplingIncoming * 0.45);
+						coreResponsibilities.setParameter(newDependencyB2, PARAMETER_PROBABILITY_OUTGOING, ripplingOutgoing * 0.45);
 						added = coreResponsibilities.addRelation(newDependencyB2);
 						printLog(5, Level.INFO,"Adding dependency (in structure) ... "+newDependencyB2.getParent().getName()+"->"+newDependencyB2.getChild().getName()+" : "+added);	
 						
@@ -2243,6 +2680,8 @@ public class ModifChangeImpactReasoningFramework extends ArchEReasoningFramework
 				// If the scenario is automatically mapped to the children responsibilities A1, B1 & C, 
 				// then tactic "Adjust Impact of Refined Responsibilities" should work as usual
 
+				// The slots of the removed responsibilities are discarded once the tactic is applied
+				moduleView.compact();
 			}
 			
 			return (baseArchitecture);
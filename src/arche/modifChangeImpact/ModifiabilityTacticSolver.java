@@ -58,6 +58,7 @@ package arche.modifChangeImpact;
 import java.util.List;
 
 import edu.cmu.sei.arche.external.data.ArchEScenario;
+import edu.cmu.sei.arche.external.reasoningframework.ArchEReasoningFramework;
 import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 
 public interface ModifiabilityTacticSolver {
@@ -66,12 +67,99 @@ public interface ModifiabilityTacticSolver {
 	
 	public void setModuleView(RFModuleView view);
 	
+	/**
+	 * It sets the reasoning framework whose log is used to report the candidates 
+	 * that couldn't be analyzed
+	 */
+	public void setReasoningFramework(ArchEReasoningFramework rf);
+	
+	/**
+	 * It sets the history where the candidates analyzed by the solver are recorded 
+	 * (by default, the one shared by the reasoning framework)
+	 */
+	public void setSearchHistory(TacticSearchHistory history);
+	
+	/**
+	 * It sets the surrogate model that selects the candidates to be analyzed first, 
+	 * and learns from them (by default, the one shared by the reasoning framework)
+	 */
+	public void setSurrogateModel(CandidateSurrogateModel model);
+	
 	public boolean searchForTactic(ArchEScenario scenario);
 	
+	/**
+	 * It searches for the tactic until a deadline expires (or the search is cancelled).
+	 * In that case, the best candidate found so far is kept, and the result is 
+	 * flagged as partial
+	 * 
+	 * @param scenario the scenario being analyzed
+	 * @param deadline the deadline for the search
+	 * @return true if a candidate was found
+	 */
+	public boolean searchForTactic(ArchEScenario scenario, TacticSearchDeadline deadline);
+	
 	public List getTarget();
 	
 	public List getParameters();
 	
 	public List estimateContext();
+	
+	/**
+	 * It searches for the K best candidates of the tactic, ranked in descending 
+	 * order of their cost reduction (top-K mode)
+	 * 
+	 * @param scenario the scenario being analyzed
+	 * @param maxCandidates the maximum number of candidates to be kept (K)
+	 * @return true if at least one candidate was found
+	 */
+	public boolean searchForTactics(ArchEScenario scenario, int maxCandidates);
+	
+	/**
+	 * It searches for the K best candidates of the tactic until a deadline expires (or 
+	 * the search is cancelled). In that case, the best candidates found so far are kept, 
+	 * and the result is flagged as partial
+	 * 
+	 * @param scenario the scenario being analyzed
+	 * @param maxCandidates the maximum number of candidates to be kept (K)
+	 * @param deadline the deadline for the search
+	 * @return true if at least one candidate was found
+	 */
+	public boolean searchForTactics(ArchEScenario scenario, int maxCandidates, TacticSearchDeadline deadline);
+	
+	/**
+	 * It checks if the last search was interrupted by its deadline, so that
+	 * not all the candidates were evaluated
+	 */
+	public boolean isPartialResult();
+	
+	/**
+	 * It returns the number of candidates analyzed in the last search
+	 */
+	public int getCountEvaluatedCandidates();
+	
+	/**
+	 * It returns the number of candidates discarded in the last search (because of  
+	 * the bounds of their costs) without analyzing them
+	 */
+	public int getCountPrunedCandidates();
+	
+	/**
+	 * It returns the number of candidates ranked in the last search with the reductions 
+	 * found in previous rounds (because their neighborhoods did not change)
+	 */
+	public int getCountRecalledCandidates();
+	
+	/**
+	 * It returns the number of candidates discarded in the last search without analyzing
+	 * them, because the surrogate model left them out (so they were deferred), and the 
+	 * candidates analyzed before them left no room for their bounds in the K best ones.
+	 * These candidates are not counted as pruned
+	 */
+	public int getCountSkippedCandidates();
+	
+	/**
+	 * It returns the candidates found by the last top-K search (the best candidate first)
+	 */
+	public List<TacticCandidate> getCandidates();
 
 }
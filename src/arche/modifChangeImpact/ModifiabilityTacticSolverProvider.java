@@ -0,0 +1,103 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * This interface defines a provider (factory) of solvers for a given class of tactics.
+ * Providers are discovered by the TacticSolverRegistry (via java.util.ServiceLoader), 
+ * so new tactics can be added without changing the reasoning framework. 
+ * <p>
+ * Each provider declares an estimate of the cost of running its solver and the benefit
+ * expected from its tactics, which are used to schedule the solvers (cheap and
+ * high-yield solvers first)
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.List;
+
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+
+public interface ModifiabilityTacticSolverProvider {
+
+	/**
+	 * It returns the name of the tactic whose candidates are found by the solvers
+	 */
+	public String getTacticName();
+
+	/**
+	 * It returns the estimated cost of running a solver, measured as the number of 
+	 * what-if analyses per candidate (relative to the other solvers)
+	 */
+	public double getEstimatedCost();
+
+	/**
+	 * It returns the expected benefit of the tactic in range [0..1] (e.g., how often
+	 * its candidates actually reduce the cost of a scenario)
+	 */
+	public double getExpectedBenefit();
+
+	/**
+	 * It creates a solver for the analysis just performed on a scenario
+	 * 
+	 * @param analyzer the change impact analysis just performed
+	 * @param primaryResps the responsibilities of the scenario
+	 * @return
+	 */
+	public ModifiabilityTacticSolver createSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> primaryResps);
+
+	/**
+	 * It returns the description of a candidate found by the solver (as shown to the user)
+	 * 
+	 * @param candidate the candidate for the tactic
+	 * @param rank the rank of the candidate (1 is the best one)
+	 * @return
+	 */
+	public String describeCandidate(TacticCandidate candidate, int rank);
+
+}
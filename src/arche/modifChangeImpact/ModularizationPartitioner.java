@@ -0,0 +1,541 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A partitioner of the responsibilities into modules, based on the dependencies among
+ * responsibilities weighted by their rippling probabilities (incoming plus outgoing). 
+ * The partitioning maximizes the modularity of the dependency graph (i.e., the rippling 
+ * within modules versus the rippling expected for a random graph), which favors modules 
+ * with little rippling among them.
+ * <p>
+ * The partitioner is multilevel (in the style of the Louvain method): each responsibility
+ * starts in its own module, and is moved to the neighboring module with the best gain in
+ * modularity until no move improves it; then the modules are coarsened into single nodes 
+ * and the process is repeated on the coarser graph, until the partition doesn't change. 
+ * The graph is kept in compressed (adjacency array) form, so that large responsibility 
+ * structures can be partitioned in a few passes that are linear in the number of dependencies.
+ * <p>
+ * Only leaf responsibilities are partitioned (as in initializeView() of the reasoning framework)
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
+
+import edu.cmu.sei.arche.ArchEException;
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+
+public class ModularizationPartitioner {
+
+	public static final int MAX_LEVELS = 20;
+	
+	private static final double MIN_GAIN = 1e-9; // Smaller gains in modularity are ignored
+	
+	private List<ArchEResponsibility> responsibilities;
+	private int countResponsibilities; // In the whole responsibility structure
+	private double[] respCosts; // Normalized, for each responsibility
+	private Graph graph; // The dependency graph among (leaf) responsibilities
+	private int countLevels;
+	private double modularity;
+
+	public ModularizationPartitioner(ArchECoreResponsibilityStructure responsibilityStructure) {
+		
+		this.responsibilities = new ArrayList<ArchEResponsibility>();
+		this.countResponsibilities = responsibilityStructure.getResponsibilities().size();
+		HashMap<String,Integer> indexes = new HashMap<String,Integer>();
+		ArchECoreResponsibilityStructure.RefinementIndex refinements = responsibilityStructure.createRefinementIndex();
+		ArchEResponsibility resp = null;
+		for (Iterator<ArchEResponsibility> it = responsibilityStructure.getResponsibilities().iterator(); it.hasNext();) {
+			resp = it.next();
+			if (refinements.isLeaf(resp)) {
+				indexes.put(resp.getName(), responsibilities.size());
+				responsibilities.add(resp);
+			}
+		}
+
+		this.respCosts = new double[responsibilities.size()];
+		double cost = 0.0;
+		for (int i = 0; i < responsibilities.size(); i++) {
+			cost = ChangeImpactAnalyzer.DEFAULT_RESPONSIBILITY_COST;
+			try {
+				cost = responsibilities.get(i).getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE);
+			} catch (ArchEException e) {
+				// The default cost is used
+			}
+			respCosts[i] = ChangeImpactAnalyzer.normalizeResponsibilityCost(cost);
+		}
+
+		// Each dependency is an edge weighted by the rippling in both directions
+		List<ArchERelation> dependencies = responsibilityStructure.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+		int[] sources = new int[dependencies.size()];
+		int[] targets = new int[dependencies.size()];
+		double[] outgoing = new double[dependencies.size()];
+		double[] incoming = new double[dependencies.size()];
+		int countEdges = 0;
+		ArchEResponsibilityDependencyRelationVO dependency = null;
+		Integer parent = null;
+		Integer child = null;
+		for (Iterator<ArchERelation> itDependencies = dependencies.iterator(); itDependencies.hasNext();) {
+			dependency = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
+			if ((dependency.getParent() == null) || (dependency.getChild() == null))
+				continue;
+			parent = indexes.get(dependency.getParent().getName());
+			child = indexes.get(dependency.getChild().getName());
+			if ((parent == null) || (child == null) || parent.equals(child))
+				continue;
+			try {
+				outgoing[countEdges] = dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING);
+				incoming[countEdges] = dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING);
+			} catch (ArchEException e) {
+				continue;
+			}
+			sources[countEdges] = parent;
+			targets[countEdges] = child;
+			countEdges++;
+		}
+		this.graph = Graph.create(responsibilities.size(), sources, targets, outgoing, incoming, countEdges);
+		this.countLevels = 0;
+		this.modularity = 0.0;
+	}
+
+	public List<ArchEResponsibility> getResponsibilities() {
+		return (responsibilities);
+	}
+
+	public int getCountLevels() {
+		return (countLevels);
+	}
+
+	/**
+	 * It returns the modularity of the last partition (in range [-0.5..1])
+	 */
+	public double getModularity() {
+		return (modularity);
+	}
+
+	/**
+	 * It partitions the responsibilities into modules 
+	 * 
+	 * @return the module (from 0 to the number of modules - 1) of each responsibility, 
+	 *         in the same order as getResponsibilities()
+	 */
+	public int[] partition() {
+		
+		int[] partition = new int[responsibilities.size()];
+		for (int i = 0; i < partition.length; i++)
+			partition[i] = i;
+		
+		Graph level = graph;
+		int[] communities = null;
+		countLevels = 0;
+		boolean improved = true;
+		while (improved && (countLevels < MAX_LEVELS)) {
+			communities = level.moveNodes();
+			int countCommunities = ModularizationPartitioner.renumber(communities);
+			improved = (countCommunities < level.countNodes);
+			if (improved) {
+				for (int i = 0; i < partition.length; i++)
+					partition[i] = communities[partition[i]];
+				level = level.coarsen(communities, countCommunities);
+				countLevels++;
+			}
+		}
+		modularity = graph.computeModularity(partition);
+		
+		return (partition);
+	}
+
+	/**
+	 * It proposes an allocation of the responsibilities to new modules, one for each part 
+	 * of the partition. The costs of the modules (for the current and the proposed 
+	 * allocations) follow the formula of ChangeImpactAnalyzer, with all the modules 
+	 * considered as primary
+	 * 
+	 * @param view the current view of the architecture (it is not modified)
+	 * @return the proposed allocation
+	 */
+	public AllocationProposal propose(ModuleADLWrapper view) {
+		
+		int[] partition = this.partition();
+		int countModules = 0;
+		for (int i = 0; i < partition.length; i++) 
+			countModules = Math.max(countModules, partition[i] + 1);
+		
+		ArchEVersionVO versionVO = (ArchEVersionVO)(view.getParent().getCurrentVersion());
+		List<ArchEModuleVO> modules = new ArrayList<ArchEModuleVO>();
+		double[] basicCosts = new double[countModules];
+		ArchEModuleVO module = null;
+		for (int j = 0; j < countModules; j++) {
+			module = new ArchEModuleVO(versionVO);
+			module.setName("(M) Partition_"+(j + 1));
+			module.setCostOfChange(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+			modules.add(module);
+			basicCosts[j] = ChangeImpactAnalyzer.normalizeModuleCost(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+		}
+		double cost = this.computeCost(partition, basicCosts);
+
+		// The current allocation (only the first module of each responsibility is considered,
+		// and the responsibilities that are not allocated yet get a module of their own)
+		List<ArchEModuleVO> currentModules = view.getModules();
+		IdentityHashMap<ArchEModuleVO,Integer> moduleIndexes = new IdentityHashMap<ArchEModuleVO,Integer>();
+		for (int j = 0; j < currentModules.size(); j++)
+			moduleIndexes.put(currentModules.get(j), j);
+		int[] currentAllocation = new int[responsibilities.size()];
+		List<ArchEModuleVO> allocatedModules = null;
+		for (int i = 0; i < responsibilities.size(); i++) {
+			allocatedModules = view.getAllocatedModules(responsibilities.get(i));
+			if (allocatedModules.isEmpty())
+				currentAllocation[i] = currentModules.size() + i;
+			else
+				currentAllocation[i] = moduleIndexes.get(allocatedModules.get(0));
+		}
+		double[] currentBasicCosts = new double[currentModules.size() + responsibilities.size()];
+		Arrays.fill(currentBasicCosts, ChangeImpactAnalyzer.normalizeModuleCost(ChangeImpactAnalyzer.DEFAULT_MODULE_COST));
+		for (int j = 0; j < currentModules.size(); j++)
+			currentBasicCosts[j] = ChangeImpactAnalyzer.normalizeModuleCost(currentModules.get(j).getCostOfChange());
+		double currentCost = this.computeCost(currentAllocation, currentBasicCosts);
+
+		// None of the new modules corresponds to a current one 
+		int[] initialAllocation = new int[responsibilities.size()];
+		Arrays.fill(initialAllocation, -1);
+		return (new AllocationProposal(responsibilities, modules, initialAllocation, currentCost, partition, cost));
+	}
+
+	/**
+	 * It computes the (denormalized) cost of all the modules for a given allocation. 
+	 * The rippling between modules is kept in a sparse way, so that the computation 
+	 * is linear in the number of dependencies
+	 */
+	private double computeCost(int[] allocation, double[] basicCosts) {
+
+		double[] sumAllocated = new double[basicCosts.length];
+		int[] countAllocated = new int[basicCosts.length];
+		for (int i = 0; i < allocation.length; i++) {
+			sumAllocated[allocation[i]] = sumAllocated[allocation[i]] + respCosts[i];
+			countAllocated[allocation[i]]++;
+		}
+
+		// The rippling (summed up and counted) from other modules to each module
+		List<HashMap<Integer,double[]>> rippling = new ArrayList<HashMap<Integer,double[]>>();
+		for (int j = 0; j < basicCosts.length; j++)
+			rippling.add(new HashMap<Integer,double[]>());
+		int from = 0;
+		int to = 0;
+		double[] terms = null;
+		for (int i = 0; i < graph.countNodes; i++) {
+			for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+				from = allocation[graph.targets[k]];
+				to = allocation[i];
+				if (from != to) {
+					terms = rippling.get(to).get(from);
+					if (terms == null) {
+						terms = new double[2];
+						rippling.get(to).put(from, terms);
+					}
+					terms[0] = terms[0] + graph.incoming[k];
+					terms[1]++;
+				}
+			}
+		}
+
+		double total = 0.0;
+		double costNeighbors = 0.0;
+		int countNeighbors = 0;
+		Map.Entry<Integer,double[]> entry = null;
+		for (int j = 0; j < basicCosts.length; j++) {
+			if (countAllocated[j] == 0)
+				continue;
+			costNeighbors = 0.0;
+			countNeighbors = 0;
+			for (Iterator<Map.Entry<Integer,double[]>> it = rippling.get(j).entrySet().iterator(); it.hasNext();) {
+				entry = it.next();
+				terms = entry.getValue();
+				if (terms[0] > 0) {
+					costNeighbors = costNeighbors + (terms[0] / terms[1]) * basicCosts[entry.getKey()];
+					countNeighbors++;
+				}
+			}
+			total = total + ChangeImpactAnalyzer.computeModuleCost(basicCosts[j], costNeighbors, countNeighbors, 
+					sumAllocated[j], countAllocated[j], countResponsibilities);
+		}
+		return (ChangeImpactAnalyzer.denormalizeModuleCost(total));
+	}
+
+	// It renumbers the communities from 0 to (number of communities - 1), and returns that number
+	private static int renumber(int[] communities) {
+		int[] numbers = new int[communities.length];
+		Arrays.fill(numbers, -1);
+		int count = 0;
+		for (int i = 0; i < communities.length; i++) {
+			if (numbers[communities[i]] == -1) {
+				numbers[communities[i]] = count;
+				count++;
+			}
+			communities[i] = numbers[communities[i]];
+		}
+		return (count);
+	}
+
+	/**
+	 * This internal class is an undirected weighted graph in compressed form (the 
+	 * neighbors of node i are at positions offsets[i] .. offsets[i+1]-1), where 
+	 * each edge appears once for each of its ends. The weight of an edge is the sum 
+	 * of its rippling probabilities, and (only for the graph of responsibilities) the 
+	 * rippling from each neighbor to node i is also kept
+	 */
+	static class Graph {
+
+		private int countNodes;
+		private int[] offsets;
+		private int[] targets;
+		private double[] weights;
+		private double[] incoming; // Rippling from the neighbors (or null for coarsened graphs)
+		private double[] selfLoops; // The weights within each node (for coarsened graphs)
+		private double[] degrees; // The total weight of the edges of each node
+		private double totalWeight; // The sum of all the degrees
+
+		private Graph(int countNodes) {
+			this.countNodes = countNodes;
+			this.offsets = new int[countNodes + 1];
+			this.selfLoops = new double[countNodes];
+			this.degrees = new double[countNodes];
+		}
+
+		// The rippling is outgoing from the source to the target, and incoming from the target to the source
+		static Graph create(int countNodes, int[] sources, int[] targets, double[] outgoing, double[] incoming, int countEdges) {
+			Graph graph = new Graph(countNodes);
+			for (int e = 0; e < countEdges; e++) {
+				graph.offsets[sources[e] + 1]++;
+				graph.offsets[targets[e] + 1]++;
+			}
+			for (int i = 0; i < countNodes; i++)
+				graph.offsets[i + 1] = graph.offsets[i + 1] + graph.offsets[i];
+			
+			graph.targets = new int[2 * countEdges];
+			graph.weights = new double[2 * countEdges];
+			graph.incoming = new double[2 * countEdges];
+			int[] next = graph.offsets.clone();
+			for (int e = 0; e < countEdges; e++) {
+				graph.targets[next[sources[e]]] = targets[e];
+				graph.weights[next[sources[e]]] = outgoing[e] + incoming[e];
+				graph.incoming[next[sources[e]]] = incoming[e];
+				next[sources[e]]++;
+				graph.targets[next[targets[e]]] = sources[e];
+				graph.weights[next[targets[e]]] = outgoing[e] + incoming[e];
+				graph.incoming[next[targets[e]]] = outgoing[e];
+				next[targets[e]]++;
+			}
+			graph.computeDegrees();
+			return (graph);
+		}
+
+		private void computeDegrees() {
+			totalWeight = 0.0;
+			for (int i = 0; i < countNodes; i++) {
+				degrees[i] = selfLoops[i];
+				for (int k = offsets[i]; k < offsets[i + 1]; k++)
+					degrees[i] = degrees[i] + weights[k];
+				totalWeight = totalWeight + degrees[i];
+			}
+		}
+
+		/**
+		 * It moves each node to the neighboring community with the best gain in 
+		 * modularity, until no move improves the modularity
+		 * 
+		 * @return the community of each node
+		 */
+		int[] moveNodes() {
+			int[] communities = new int[countNodes];
+			double[] totals = new double[countNodes]; // The degrees of the nodes in each community
+			for (int i = 0; i < countNodes; i++) {
+				communities[i] = i;
+				totals[i] = degrees[i];
+			}
+			if (totalWeight == 0)
+				return (communities);
+
+			// These are the weights from a node to its neighboring communities
+			double[] neighborWeights = new double[countNodes];
+			int[] neighborCommunities = new int[countNodes];
+			Arrays.fill(neighborWeights, -1);
+			int countNeighbors = 0;
+			
+			boolean moved = true;
+			int community = 0;
+			int best = 0;
+			double bestGain = 0.0;
+			double gain = 0.0;
+			while (moved) {
+				moved = false;
+				for (int i = 0; i < countNodes; i++) {
+					countNeighbors = 0;
+					community = communities[i];
+					neighborWeights[community] = 0.0;
+					neighborCommunities[countNeighbors++] = community;
+					for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+						if (neighborWeights[communities[targets[k]]] == -1) {
+							neighborWeights[communities[targets[k]]] = 0.0;
+							neighborCommunities[countNeighbors++] = communities[targets[k]];
+						}
+						neighborWeights[communities[targets[k]]] += weights[k];
+					}
+
+					// The node is removed from its community, and inserted in the best one
+					totals[community] = totals[community] - degrees[i];
+					best = community;
+					bestGain = neighborWeights[community] - totals[community] * degrees[i] / totalWeight;
+					for (int n = 0; n < countNeighbors; n++) {
+						gain = neighborWeights[neighborCommunities[n]] 
+						        - totals[neighborCommunities[n]] * degrees[i] / totalWeight;
+						if (gain > bestGain + MIN_GAIN) {
+							best = neighborCommunities[n];
+							bestGain = gain;
+						}
+					}
+					totals[best] = totals[best] + degrees[i];
+					if (best != community) {
+						communities[i] = best;
+						moved = true;
+					}
+					
+					for (int n = 0; n < countNeighbors; n++)
+						neighborWeights[neighborCommunities[n]] = -1;
+				}
+			}
+			
+			return (communities);
+		}
+
+		/**
+		 * It creates a coarser graph in which each community is a single node
+		 */
+		Graph coarsen(int[] communities, int countCommunities) {
+			Graph coarse = new Graph(countCommunities);
+			
+			// The edges of the coarser graph are merged by means of a map for each community
+			List<HashMap<Integer,Double>> edges = new ArrayList<HashMap<Integer,Double>>();
+			for (int c = 0; c < countCommunities; c++)
+				edges.add(new HashMap<Integer,Double>());
+			int from = 0;
+			int to = 0;
+			Double weight = null;
+			for (int i = 0; i < countNodes; i++) {
+				from = communities[i];
+				coarse.selfLoops[from] = coarse.selfLoops[from] + selfLoops[i];
+				for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+					to = communities[targets[k]];
+					if (from == to) 
+						coarse.selfLoops[from] = coarse.selfLoops[from] + weights[k];
+					else {
+						weight = edges.get(from).get(to);
+						edges.get(from).put(to, (weight == null? weights[k]: weight + weights[k]));
+					}
+				}
+			}
+
+			for (int c = 0; c < countCommunities; c++)
+				coarse.offsets[c + 1] = coarse.offsets[c] + edges.get(c).size();
+			coarse.targets = new int[coarse.offsets[countCommunities]];
+			coarse.weights = new double[coarse.offsets[countCommunities]];
+			int position = 0;
+			Map.Entry<Integer,Double> entry = null;
+			for (int c = 0; c < countCommunities; c++) {
+				for (Iterator<Map.Entry<Integer,Double>> it = edges.get(c).entrySet().iterator(); it.hasNext();) {
+					entry = it.next();
+					coarse.targets[position] = entry.getKey();
+					coarse.weights[position] = entry.getValue();
+					position++;
+				}
+			}
+			coarse.computeDegrees();
+			return (coarse);
+		}
+
+		/**
+		 * It computes the modularity of a partition of the nodes
+		 */
+		double computeModularity(int[] partition) {
+			if (totalWeight == 0)
+				return (0.0);
+			
+			int countParts = 0;
+			for (int i = 0; i < countNodes; i++)
+				countParts = Math.max(countParts, partition[i] + 1);
+			double[] internal = new double[countParts];
+			double[] totals = new double[countParts];
+			for (int i = 0; i < countNodes; i++) {
+				internal[partition[i]] = internal[partition[i]] + selfLoops[i];
+				totals[partition[i]] = totals[partition[i]] + degrees[i];
+				for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+					if (partition[targets[k]] == partition[i])
+						internal[partition[i]] = internal[partition[i]] + weights[k];
+				}
+			}
+			double q = 0.0;
+			for (int c = 0; c < countParts; c++)
+				q = q + internal[c] / totalWeight - (totals[c] / totalWeight) * (totals[c] / totalWeight);
+			return (q);
+		}
+
+	}
+
+}
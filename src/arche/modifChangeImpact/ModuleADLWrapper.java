@@ -54,6 +54,12 @@ package arche.modifChangeImpact;
  */
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -64,47 +70,336 @@ import org.hibernate.Session;
 import arche.modifChangeImpact.hibernate.ArchECoreDataProvider;
 import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.ArchECoreView;
+import arche.modifChangeImpact.hibernate.vo.ArchECoreModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleDependencyRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityToModuleRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
 
 import edu.cmu.sei.arche.ArchEException;
 import edu.cmu.sei.arche.external.data.ArchEArchitecture;
+import edu.cmu.sei.arche.external.data.ArchERelation;
 import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 
 public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 
-	private static final int MAX_ALLOCATION_PER_MODULE 	= 50;
-	private static final int MAX_MODULES 				= 50;
+	// The slots freed by removals are compacted when there are at least MIN_COMPACTION_SLOTS 
+	// free slots, and they are more than MAX_FRAGMENTATION of all the slots (see compact())
+	public static final int MIN_COMPACTION_SLOTS = 32;
+	public static final double MAX_FRAGMENTATION = 0.5;
 
-	private boolean [][] dependencyMatrix; // Dependencies among modules (according to the responsibilities allocated to them)
-	private boolean [][] allocationMatrix; // Mapping from responsibilities to modules
-	private ArchEModuleVO[] modules = null; // The current modules in the view
-	private ArchEResponsibility[] allocatedResponsibilities = null; // The current responsibilities allocated to the modules
+	// The matrices have a row of bits for each module, and both the rows and the 
+	// number of rows grow on demand (so the view has no limit on the number of modules 
+	// or responsibilities, and each row only takes the bits up to its last set bit).
+	// Each module or responsibility keeps its slot (i.e., its row and column) while it 
+	// is defined in the view. A removed element leaves a null slot (a tombstone) with 
+	// empty rows and columns, which is reused by the next element defined
+	private ArrayList<BitSet> dependencyMatrix; // Dependencies among modules (according to the responsibilities allocated to them)
+	private ArrayList<BitSet> allocationMatrix; // Mapping from responsibilities to modules
+	private ArrayList<BitSet> coAllocationMatrix; // The transpose of allocationMatrix (a row of modules for each responsibility)
+	private ArrayList<AllocationList<ArchEResponsibility>> responsibilitiesByModule; // The rows of allocationMatrix as lists (built on demand)
+	private ArrayList<AllocationList<ArchEModuleVO>> modulesByResponsibility; // The rows of coAllocationMatrix as lists (built on demand)
+	private ArrayList<ArchEModuleVO> modules = null; // The current modules in the view (by slot)
+	private ArrayList<ArchEResponsibility> allocatedResponsibilities = null; // The current responsibilities allocated to the modules (by slot)
+	private ArrayList<Integer> freeModuleSlots = null; // The tombstones of modules, to be reused
+	private ArrayList<Integer> freeResponsibilitySlots = null; // The tombstones of responsibilities, to be reused
 	private int countModules = -1;
 	private int countResponsibilities = -1;
+	
+	// The contents shared with the copies of this view (see copy()). The slots (i.e., 
+	// the matrices, the elements and the free slots), the indexes, the raw VOs and the 
+	// VOs to be synchronized are cloned by the first view that changes them, and then
+	// the rows of the matrices are still shared until each row changes. The lists of 
+	// allocations are not shared, but built on demand by each view
+	private boolean sharedSlots = false;
+	private BitSet sharedDependencyRows = null;
+	private BitSet sharedAllocationRows = null;
+	private BitSet sharedCoAllocationRows = null;
+	private boolean sharedModuleIndexes = false;
+	private boolean sharedResponsibilityIndexes = false;
+	private boolean sharedRawVOs = false;
+	private boolean sharedAllocationVOs = false; // Of dirtyAllocations and allocationVOs
+	private boolean sharedDependencyVOs = false; // Of dirtyDependencies and dependencyVOs
+	
+	// Indexes of the modules and responsibilities by their names (the names of the 
+	// design elements are not supposed to change while they are defined in the view)
+	private HashMap<String,Integer> moduleIndexes = null;
+	private HashMap<String,Integer> responsibilityIndexes = null;
 		
 	// Lists of raw VOs used when restoring/saving/updating/deleting VOs from the DB
 	private List<ArchEModuleVO> rawModuleVOs = null;
 	private List<ArchEModuleDependencyRelationVO> rawModuleDependencies = null;
 	private List<ArchEResponsibilityToModuleRelationVO> rawResponsibilityAllocations = null;
 	
+	// The cells of the matrices that changed since the raw VOs were last synchronized, and 
+	// the raw relation VOs indexed by their cells. After a reset of the view, all the raw 
+	// VOs are synchronized again (see updateResponsibilityAllocationVOs() and updateModuleDependencyVOs())
+	private HashSet<ViewCell> dirtyAllocations = null;
+	private HashSet<ViewCell> dirtyDependencies = null;
+	private HashMap<ViewCell,ArchEResponsibilityToModuleRelationVO> allocationVOs = null;
+	private HashMap<ViewCell,ArchEModuleDependencyRelationVO> dependencyVOs = null;
+	private boolean synchronizeAllAllocationVOs = true;
+	private boolean synchronizeAllDependencyVOs = true;
+	
+	// The changes made to the view (see MutationJournal)
+	private MutationJournal journal = null;
+	private ModuleDependencyGraph dependencyGraph = null; // Created on demand
+	
 	public ModuleADLWrapper(ArchEArchitecture architecture) {
 		super(architecture);
 		
-		dependencyMatrix = new boolean[MAX_MODULES][MAX_MODULES];
-		allocationMatrix = new boolean[MAX_MODULES][MAX_ALLOCATION_PER_MODULE];
-		modules = new ArchEModuleVO[MAX_MODULES];
-		allocatedResponsibilities = new ArchEResponsibility[MAX_ALLOCATION_PER_MODULE];
-		countModules = 0;
-		countResponsibilities = 0;		
+		responsibilitiesByModule = new ArrayList<AllocationList<ArchEResponsibility>>();
+		modulesByResponsibility = new ArrayList<AllocationList<ArchEModuleVO>>();
+		sharedDependencyRows = new BitSet();
+		sharedAllocationRows = new BitSet();
+		sharedCoAllocationRows = new BitSet();
+		allocationVOs = new HashMap<ViewCell,ArchEResponsibilityToModuleRelationVO>();
+		dependencyVOs = new HashMap<ViewCell,ArchEModuleDependencyRelationVO>();
+		journal = new MutationJournal();
+		this.clearContents();
 	}
 	
 	protected void reset() {
+		this.clearContents();
+		synchronizeAllAllocationVOs = true;
+		synchronizeAllDependencyVOs = true;
+		journal.record(MutationEvent.RESET, this);
+	}
+
+	// It empties the view (the contents that may be shared with a copy are replaced 
+	// rather than cleared, and the VO indexes are kept until the next synchronization)
+	private void clearContents() {
+		dependencyMatrix = new ArrayList<BitSet>();
+		allocationMatrix = new ArrayList<BitSet>();
+		coAllocationMatrix = new ArrayList<BitSet>();
+		modules = new ArrayList<ArchEModuleVO>();
+		allocatedResponsibilities = new ArrayList<ArchEResponsibility>();
+		freeModuleSlots = new ArrayList<Integer>();
+		freeResponsibilitySlots = new ArrayList<Integer>();
+		sharedSlots = false;
+		responsibilitiesByModule.clear();
+		modulesByResponsibility.clear();
+		sharedDependencyRows.clear();
+		sharedAllocationRows.clear();
+		sharedCoAllocationRows.clear();
 		countModules = 0;
 		countResponsibilities = 0;	
+		moduleIndexes = new HashMap<String,Integer>();
+		responsibilityIndexes = new HashMap<String,Integer>();
+		sharedModuleIndexes = false;
+		sharedResponsibilityIndexes = false;
+		dirtyAllocations = new HashSet<ViewCell>();
+		dirtyDependencies = new HashSet<ViewCell>();
+	}
+
+	/**
+	 * It returns the journal of the changes made to this view. A copy of the view 
+	 * starts with an empty journal of its own
+	 */
+	public MutationJournal getJournal() {
+		return (journal);
+	}
+
+	public void addMutationListener(MutationListener listener) {
+		journal.addListener(listener);
+	}
+
+	public boolean removeMutationListener(MutationListener listener) {
+		return (journal.removeListener(listener));
+	}
+
+	/**
+	 * It returns the structural analyses of the dependencies among the modules of this
+	 * view, which are kept up to date as the view changes (see ModuleDependencyGraph)
+	 */
+	public ModuleDependencyGraph getDependencyGraph() {
+		if (dependencyGraph == null) {
+			dependencyGraph = new ModuleDependencyGraph(this);
+			journal.addListener(dependencyGraph);
+		}
+		return (dependencyGraph);
+	}
+
+	/**
+	 * It creates an in-memory copy of this view for a given (forked) architecture.
+	 * The two views share their contents (copy-on-write), so that tactics can be tried 
+	 * on the copy without affecting this view, and the copy only costs what either 
+	 * view changes afterwards (see ownSlots())
+	 */
+	public ModuleADLWrapper copy(ArchEArchitecture architecture) {
+
+		ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+		view.dependencyMatrix = dependencyMatrix;
+		view.allocationMatrix = allocationMatrix;
+		view.coAllocationMatrix = coAllocationMatrix;
+		view.modules = modules;
+		view.allocatedResponsibilities = allocatedResponsibilities;
+		view.freeModuleSlots = freeModuleSlots;
+		view.freeResponsibilitySlots = freeResponsibilitySlots;
+		view.countModules = countModules;
+		view.countResponsibilities = countResponsibilities;
+		view.moduleIndexes = moduleIndexes;
+		view.responsibilityIndexes = responsibilityIndexes;
+
+		view.rawModuleVOs = rawModuleVOs;
+		view.rawModuleDependencies = rawModuleDependencies;
+		view.rawResponsibilityAllocations = rawResponsibilityAllocations;
+		view.dirtyAllocations = dirtyAllocations;
+		view.dirtyDependencies = dirtyDependencies;
+		view.allocationVOs = allocationVOs;
+		view.dependencyVOs = dependencyVOs;
+		view.synchronizeAllAllocationVOs = synchronizeAllAllocationVOs;
+		view.synchronizeAllDependencyVOs = synchronizeAllDependencyVOs;
+		
+		this.shareContents();
+		view.shareContents();
+		return (view);
+	}
+
+	private void shareContents() {
+		sharedSlots = true;
+		sharedModuleIndexes = true;
+		sharedResponsibilityIndexes = true;
+		sharedRawVOs = true;
+		sharedAllocationVOs = true;
+		sharedDependencyVOs = true;
+	}
+
+	// It clones the slots before they change, if they are shared with a copy of the view. 
+	// Only the lists of rows are cloned, and the rows themselves are still shared until 
+	// they change (see getOwnDependencyRow())
+	private void ownSlots() {
+		if (!sharedSlots)
+			return;
+		dependencyMatrix = new ArrayList<BitSet>(dependencyMatrix);
+		allocationMatrix = new ArrayList<BitSet>(allocationMatrix);
+		coAllocationMatrix = new ArrayList<BitSet>(coAllocationMatrix);
+		modules = new ArrayList<ArchEModuleVO>(modules);
+		allocatedResponsibilities = new ArrayList<ArchEResponsibility>(allocatedResponsibilities);
+		freeModuleSlots = new ArrayList<Integer>(freeModuleSlots);
+		freeResponsibilitySlots = new ArrayList<Integer>(freeResponsibilitySlots);
+		sharedDependencyRows.set(0, modules.size());
+		sharedAllocationRows.set(0, modules.size());
+		sharedCoAllocationRows.set(0, allocatedResponsibilities.size());
+		sharedSlots = false;
+	}
+
+	private void ownModuleIndexes() {
+		if (sharedModuleIndexes) {
+			moduleIndexes = new HashMap<String,Integer>(moduleIndexes);
+			sharedModuleIndexes = false;
+		}
+	}
+
+	private void ownResponsibilityIndexes() {
+		if (sharedResponsibilityIndexes) {
+			responsibilityIndexes = new HashMap<String,Integer>(responsibilityIndexes);
+			sharedResponsibilityIndexes = false;
+		}
+	}
+
+	private void ownRawVOs() {
+		if (!sharedRawVOs)
+			return;
+		if (rawModuleVOs != null)
+			rawModuleVOs = new ArrayList<ArchEModuleVO>(rawModuleVOs);
+		if (rawModuleDependencies != null)
+			rawModuleDependencies = new ArrayList<ArchEModuleDependencyRelationVO>(rawModuleDependencies);
+		if (rawResponsibilityAllocations != null)
+			rawResponsibilityAllocations = new ArrayList<ArchEResponsibilityToModuleRelationVO>(rawResponsibilityAllocations);
+		sharedRawVOs = false;
+	}
+
+	private void ownAllocationVOs() {
+		if (sharedAllocationVOs) {
+			dirtyAllocations = new HashSet<ViewCell>(dirtyAllocations);
+			allocationVOs = new HashMap<ViewCell,ArchEResponsibilityToModuleRelationVO>(allocationVOs);
+			sharedAllocationVOs = false;
+		}
+	}
+
+	private void ownDependencyVOs() {
+		if (sharedDependencyVOs) {
+			dirtyDependencies = new HashSet<ViewCell>(dirtyDependencies);
+			dependencyVOs = new HashMap<ViewCell,ArchEModuleDependencyRelationVO>(dependencyVOs);
+			sharedDependencyVOs = false;
+		}
+	}
+
+	// It returns the row of dependencies of a module slot to be changed (it is cloned 
+	// first if it is shared with a copy of the view)
+	private BitSet getOwnDependencyRow(int index) {
+		this.ownSlots();
+		if (sharedDependencyRows.get(index)) {
+			dependencyMatrix.set(index, (BitSet)(dependencyMatrix.get(index).clone()));
+			sharedDependencyRows.clear(index);
+		}
+		return (dependencyMatrix.get(index));
+	}
+
+	// It returns the row of allocations of a module slot to be changed
+	private BitSet getOwnAllocationRow(int index) {
+		this.ownSlots();
+		if (sharedAllocationRows.get(index)) {
+			allocationMatrix.set(index, (BitSet)(allocationMatrix.get(index).clone()));
+			sharedAllocationRows.clear(index);
+		}
+		return (allocationMatrix.get(index));
+	}
+
+	// It returns the row of allocations of a responsibility slot to be changed
+	private BitSet getOwnCoAllocationRow(int index) {
+		this.ownSlots();
+		if (sharedCoAllocationRows.get(index)) {
+			coAllocationMatrix.set(index, (BitSet)(coAllocationMatrix.get(index).clone()));
+			sharedCoAllocationRows.clear(index);
+		}
+		return (coAllocationMatrix.get(index));
+	}
+
+	// It returns the list of the responsibilities allocated to a module slot, which 
+	// is built from the row of the slot the first time this view needs it
+	private AllocationList<ArchEResponsibility> getResponsibilityList(int index) {
+		AllocationList<ArchEResponsibility> list = null;
+		if (index < responsibilitiesByModule.size())
+			list = responsibilitiesByModule.get(index);
+		if (list == null) {
+			list = new AllocationList<ArchEResponsibility>();
+			list.update(allocationMatrix.get(index), allocatedResponsibilities);
+			while (responsibilitiesByModule.size() <= index)
+				responsibilitiesByModule.add(null);
+			responsibilitiesByModule.set(index, list);
+		}
+		return (list);
+	}
+
+	// It returns the list of the modules of a responsibility slot (built on demand too)
+	private AllocationList<ArchEModuleVO> getModuleList(int index) {
+		AllocationList<ArchEModuleVO> list = null;
+		if (index < modulesByResponsibility.size())
+			list = modulesByResponsibility.get(index);
+		if (list == null) {
+			list = new AllocationList<ArchEModuleVO>();
+			list.update(coAllocationMatrix.get(index), modules);
+			while (modulesByResponsibility.size() <= index)
+				modulesByResponsibility.add(null);
+			modulesByResponsibility.set(index, list);
+		}
+		return (list);
+	}
+
+	// It updates the list of a module slot after its row changed (if the list was built)
+	private void updateResponsibilityList(int index) {
+		if ((index < responsibilitiesByModule.size()) && (responsibilitiesByModule.get(index) != null))
+			responsibilitiesByModule.get(index).update(allocationMatrix.get(index), allocatedResponsibilities);
+	}
+
+	// It updates the list of a responsibility slot after its row changed (if the list was built)
+	private void updateModuleList(int index) {
+		if ((index < modulesByResponsibility.size()) && (modulesByResponsibility.get(index) != null))
+			modulesByResponsibility.get(index).update(coAllocationMatrix.get(index), modules);
 	}
 	
 	/** 
@@ -112,14 +407,13 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 	 */
 	protected int getResponsibilityIndex(ArchEResponsibility responsibility) {
 		
-		for (int i = 0; i < countResponsibilities; i++) {
-			// The two responsibilities are equal if  they have the same name
-			// (under the same version of the architecture)
-			if (allocatedResponsibilities[i].getName().equals(responsibility.getName()))
-				return (i);
-		}
+		// The two responsibilities are equal if  they have the same name
+		// (under the same version of the architecture)
+		Integer index = responsibilityIndexes.get(responsibility.getName());
+		if (index == null)
+			return (-1);
 		
-		return (-1);
+		return (index);
 	}
 
 	/** 
@@ -127,14 +421,13 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 	 */
 	protected int getModuleIndex(ArchEModuleVO module) {
 		
-		for (int i = 0; i < countModules; i++) {
-			// The two modules are equal if  they have the same name
-			// (under the same version of the architecture)
-			if (modules[i].getName().equals(module.getName()))
-				return (i);
-		}
+		// The two modules are equal if  they have the same name
+		// (under the same version of the architecture)
+		Integer index = moduleIndexes.get(module.getName());
+		if (index == null)
+			return (-1);
 		
-		return (-1);
+		return (index);
 	}
 	
 	/** 
@@ -150,7 +443,27 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (j == -1) // The module doesn't exist
 			return (false);
 		
-		return (dependencyMatrix[i][j]);
+		return (dependencyMatrix.get(i).get(j));
+	}
+
+	/** 
+	 * It returns the modules that have a dependency with a specific module (not 
+	 * including the module itself), visiting only the bits of its row
+	 */
+	public List<ArchEModuleVO> getDependentModules(ArchEModuleVO module) {
+		
+		int i = this.getModuleIndex(module);
+		if (i == -1) // The module doesn't exist
+			return (Collections.<ArchEModuleVO>emptyList());
+		
+		BitSet dependencies = dependencyMatrix.get(i);
+		ArrayList<ArchEModuleVO> list = new ArrayList<ArchEModuleVO>(dependencies.cardinality());
+		for (int j = dependencies.nextSetBit(0); j >= 0; j = dependencies.nextSetBit(j + 1)) {
+			if (j != i)
+				list.add(modules.get(j));
+		}
+		
+		return (list);
 	}
 	
 	/** 
@@ -166,7 +479,7 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (j == -1) // The responsibility doesn't exist
 			return (false);
 		
-		return (allocationMatrix[i][j]);
+		return (allocationMatrix.get(i).get(j));
 	}
 
 	/** 
@@ -178,12 +491,7 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (j == -1) // The responsibility doesn't exist
 			return (false);
 		
-		for (int i = 0; i < countModules; i++) {
-			if (allocationMatrix[i][j])
-				return (true);			
-		}
-		
-		return (false);
+		return (!coAllocationMatrix.get(j).isEmpty());
 	}
 	
 	// It returns the number of responsibilities effectively allocated to modules
@@ -193,23 +501,35 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		return (countResponsibilities);
 	}
 
+	// It returns the number of slots for modules (including the tombstones)
+	int getCountModuleSlots() {
+		return (modules.size());
+	}
+
+	// It returns the module in a given slot, or null for a tombstone (the slots 
+	// only change when the view is compacted)
+	ArchEModuleVO getModule(int index) {
+		return (modules.get(index));
+	}
+
+	// It returns the dependencies of the module in a given slot (the row is not a copy, 
+	// so it must not be modified)
+	BitSet getDependencyRow(int index) {
+		return (dependencyMatrix.get(index));
+	}
+
 	public int getCountAllocatedResponsibilities(ArchEModuleVO module) {
-		int countAllocations = 0;
 		int i = this.getModuleIndex(module);
-		if (i != -1) { // The module exists
-			for (int j = 0; j < countResponsibilities; j++) {
-				if (allocationMatrix[i][j])
-					countAllocations++;
-			}
-		}
-		return (countAllocations);
+		if (i == -1) // The module doesn't exist
+			return (0);
+		return (this.getResponsibilityList(i).size());
 	}
 	
 	public int getCountModuleDependencies() {
 		int countDependencies = 0;
-		for (int i = 0; i < countModules; i++) {
+		for (int i = 0; i < modules.size(); i++) {
 			for (int j = 0; j < i; j++) { // It only counts under the matrix diagonal
-				if (dependencyMatrix[i][j])
+				if (dependencyMatrix.get(i).get(j))
 					countDependencies++;
 			}
 		}
@@ -233,7 +553,7 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (k == -1)  // The responsibility doesn't exist
 			return (false);
 		
-		return (allocationMatrix[i][j] && allocationMatrix[i][k]);
+		return (allocationMatrix.get(i).get(j) && allocationMatrix.get(i).get(k));
 	}
 	
 	/** 
@@ -249,12 +569,8 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (k == -1)  // The responsibility doesn't exist
 			return (false);
 		
-		for (int i = 0; i < countModules; i++) {			
-			if (areCoAllocated(modules[i],resp1,resp2))
-				return (true);
-		}
-		
-		return (false);
+		// The modules of both responsibilities are intersected (a few words of bits)
+		return (coAllocationMatrix.get(j).intersects(coAllocationMatrix.get(k)));
 	}
 
 	/** 
@@ -270,8 +586,18 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (pos2 == -1) // The module doesn't exist
 			return (false);
 		
-		dependencyMatrix[pos1][pos2] = value; // Dependency is bidirectional
-		dependencyMatrix[pos2][pos1] = value; // Dependency is bidirectional
+		boolean changed = (pos1 != pos2) && (dependencyMatrix.get(pos1).get(pos2) != value);
+		if (changed) {
+			this.ownDependencyVOs();
+			dirtyDependencies.add(ViewCell.createDependencyCell(modules.get(pos1), modules.get(pos2)));
+		}
+		if ((dependencyMatrix.get(pos1).get(pos2) != value) || (dependencyMatrix.get(pos2).get(pos1) != value)) {
+			this.getOwnDependencyRow(pos1).set(pos2, value); // Dependency is bidirectional
+			this.getOwnDependencyRow(pos2).set(pos1, value); // Dependency is bidirectional
+		}
+		if (changed)
+			journal.record(value? MutationEvent.DEPENDENCY_SET: MutationEvent.DEPENDENCY_UNSET, 
+					modules.get(pos1), modules.get(pos2), null);
 		
 		return (true);
 		
@@ -284,6 +610,119 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 
 	}	
 
+	/**
+	 * It derives the dependencies among modules from the dependencies among responsibilities:
+	 * two modules depend on each other if some of their responsibilities do (as in the
+	 * initial design rules of the reasoning framework). The derived dependencies are the 
+	 * product A.D.At of the allocation (A) and responsibility dependency (D) matrices, 
+	 * which is computed in a single pass over the dependencies, and then over the rows of 
+	 * the allocations. The derived dependencies are established, but the existing ones 
+	 * are not deleted
+	 * 
+	 * @param dependencies the dependencies among responsibilities
+	 * @return the number of pairs of modules derived (including pairs of the same module) 
+	 */
+	public int deriveModuleDependencies(List<ArchERelation> dependencies) {
+		
+		BitSet[] reachableModules = this.computeReachableModules(dependencies, null);
+		int countPairs = 0;
+		BitSet derived = null;
+		for (int i = 0; i < modules.size(); i++) {
+			if (modules.get(i) == null) // A tombstone
+				continue;
+			derived = this.deriveDependencies(i, reachableModules);
+			countPairs = countPairs + derived.cardinality() - derived.get(0, i).cardinality();
+			derived.andNot(dependencyMatrix.get(i)); // Only the new dependencies are set
+			for (int k = derived.nextSetBit(i + 1); k >= 0; k = derived.nextSetBit(k + 1))
+				this.setModuleDependency(modules.get(i), modules.get(k), true);
+		}
+		return (countPairs);
+	}
+
+	/**
+	 * It updates the dependencies of some modules, after their allocations (or the 
+	 * dependencies among their responsibilities) changed. A pair of modules can only 
+	 * change if one of the two modules changed, so only the rows of the modules that
+	 * changed are derived again (and the dependencies that are no longer derived 
+	 * are deleted). The modules that changed should include those that lost 
+	 * responsibilities
+	 * 
+	 * @param dependencies the dependencies among responsibilities
+	 * @param changedModules the modules whose dependencies may change
+	 * @return the number of dependencies established or deleted
+	 */
+	public int updateModuleDependencies(List<ArchERelation> dependencies, Collection<ArchEModuleVO> changedModules) {
+		
+		// Only the responsibilities of the modules that changed are needed
+		BitSet changedSlots = new BitSet();
+		BitSet neededResponsibilities = new BitSet();
+		int i = -1;
+		for (Iterator<ArchEModuleVO> itModules = changedModules.iterator(); itModules.hasNext();) {
+			i = this.getModuleIndex(itModules.next());
+			if (i != -1) {
+				changedSlots.set(i);
+				neededResponsibilities.or(allocationMatrix.get(i));
+			}
+		}
+		
+		BitSet[] reachableModules = this.computeReachableModules(dependencies, neededResponsibilities);
+		int countChanges = 0;
+		BitSet derived = null;
+		for (i = changedSlots.nextSetBit(0); i >= 0; i = changedSlots.nextSetBit(i + 1)) {
+			derived = this.deriveDependencies(i, reachableModules);
+			derived.set(i); // The self-dependency of the module is kept
+			derived.xor(dependencyMatrix.get(i)); // The dependencies that differ
+			for (int k = derived.nextSetBit(0); k >= 0; k = derived.nextSetBit(k + 1)) {
+				this.setModuleDependency(modules.get(i), modules.get(k), !dependencyMatrix.get(i).get(k));
+				countChanges++;
+			}
+		}
+		return (countChanges);
+	}
+
+	// It computes the product D.At, i.e., the modules of the responsibilities each 
+	// responsibility depends on (only for the responsibilities needed, or all if null)
+	private BitSet[] computeReachableModules(List<ArchERelation> dependencies, BitSet neededResponsibilities) {
+		
+		BitSet[] reachableModules = new BitSet[allocatedResponsibilities.size()];
+		ArchEResponsibilityDependencyRelationVO dependency = null;
+		Integer parent = null;
+		Integer child = null;
+		for (Iterator<ArchERelation> itDependencies = dependencies.iterator(); itDependencies.hasNext();) {
+			dependency = (ArchEResponsibilityDependencyRelationVO)(itDependencies.next());
+			if ((dependency.getParent() == null) || (dependency.getChild() == null))
+				continue;
+			parent = responsibilityIndexes.get(dependency.getParent().getName());
+			child = responsibilityIndexes.get(dependency.getChild().getName());
+			if ((parent == null) || (child == null)) // Some responsibility is not in the view
+				continue;
+			
+			// The dependencies between modules are bidirectional
+			if ((neededResponsibilities == null) || neededResponsibilities.get(parent)) {
+				if (reachableModules[parent] == null)
+					reachableModules[parent] = new BitSet();
+				reachableModules[parent].or(coAllocationMatrix.get(child));
+			}
+			if ((neededResponsibilities == null) || neededResponsibilities.get(child)) {
+				if (reachableModules[child] == null)
+					reachableModules[child] = new BitSet();
+				reachableModules[child].or(coAllocationMatrix.get(parent));
+			}
+		}
+		return (reachableModules);
+	}
+
+	// It computes a row of the product A.D.At, i.e., the modules that a module depends on
+	private BitSet deriveDependencies(int i, BitSet[] reachableModules) {
+		BitSet derived = new BitSet();
+		BitSet allocations = allocationMatrix.get(i);
+		for (int j = allocations.nextSetBit(0); j >= 0; j = allocations.nextSetBit(j + 1)) {
+			if (reachableModules[j] != null)
+				derived.or(reachableModules[j]);
+		}
+		return (derived);
+	}
+
 	/** 
 	 * It establishes (or deletes) an allocation relationship between
 	 * a module and a relationship
@@ -299,7 +738,16 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (pos2 == -1)  // The responsibility doesn't exist
 			return (false);
 		
-		allocationMatrix[pos1][pos2] = value; 
+		if (allocationMatrix.get(pos1).get(pos2) != value) {
+			this.ownAllocationVOs();
+			dirtyAllocations.add(new ViewCell(modules.get(pos1).getName(), allocatedResponsibilities.get(pos2).getName()));
+			this.getOwnAllocationRow(pos1).set(pos2, value); 
+			this.getOwnCoAllocationRow(pos2).set(pos1, value); 
+			this.updateResponsibilityList(pos1);
+			this.updateModuleList(pos2);
+			journal.record(value? MutationEvent.ALLOCATION_SET: MutationEvent.ALLOCATION_UNSET, 
+					modules.get(pos1), allocatedResponsibilities.get(pos2), null);
+		}
 		
 		// TODO: If the responsibility is not allocated to any other module within the view, 
 		// maybe the responsibility should be also removed from vector 'allocatedResponsibilities'
@@ -327,15 +775,22 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		int index = this.getResponsibilityIndex(responsibility);
 		if (index == -1) { // The responsibility is a new one
 			
-			if (countResponsibilities == MAX_ALLOCATION_PER_MODULE - 1)
-				return (false); // The allocation matrix doen't support new responsibilities
-
-			// If not, the new responsibility is registered
-			allocatedResponsibilities[countResponsibilities] = responsibility;
+			// The new responsibility is registered in a free slot, or in a new slot 
+			// (with no allocations, since the columns of free and new slots are always cleared)
+			this.ownSlots();
+			this.ownResponsibilityIndexes();
+			if (!freeResponsibilitySlots.isEmpty()) {
+				index = freeResponsibilitySlots.remove(freeResponsibilitySlots.size() - 1);
+				allocatedResponsibilities.set(index, responsibility);
+			}
+			else {
+				index = allocatedResponsibilities.size();
+				allocatedResponsibilities.add(responsibility);
+				coAllocationMatrix.add(new BitSet());
+			}
+			responsibilityIndexes.put(responsibility.getName(), index);
 			countResponsibilities++; 
-			
-			for (int i = 0; i < countModules; i++)
-				allocationMatrix[i][countResponsibilities] = false;
+			journal.record(MutationEvent.RESPONSIBILITY_ADDED, responsibility);
 
 			return (true);
 
@@ -353,21 +808,24 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		int index = this.getModuleIndex(module);
 		if (index == -1) { // The module is a new one
 
-			if (countModules == MAX_MODULES - 1)
-				return (false); // The module vector is full
-
-			// If not, the new module is added
-			modules[countModules] = module;
+			// The new module is added in a free slot, or in a new slot (the rows and 
+			// columns of free and new slots are always cleared)
+			this.ownSlots();
+			this.ownModuleIndexes();
+			if (!freeModuleSlots.isEmpty()) {
+				index = freeModuleSlots.remove(freeModuleSlots.size() - 1);
+				modules.set(index, module);
+			}
+			else {
+				index = modules.size();
+				modules.add(module);
+				dependencyMatrix.add(new BitSet());
+				allocationMatrix.add(new BitSet());
+			}
+			moduleIndexes.put(module.getName(), index);
+			this.getOwnDependencyRow(index).set(index);
 			countModules++; 
-			
-			// The dependencies are updated
-			for (int i = 0; i < countModules; i++)
-				dependencyMatrix[i][countModules] = false;
-			dependencyMatrix[countModules][countModules] = true;
-			
-			// The allocations are updated
-			for (int i = 0; i < countResponsibilities; i++)
-				allocationMatrix[countModules][i] = false;
+			journal.record(MutationEvent.MODULE_ADDED, module);
 			
 			return (true);
 			
@@ -376,6 +834,107 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		return (false);
 	}
 
+	/**
+	 * It moves the modules and responsibilities to the first slots, discarding the 
+	 * tombstones, if the free slots exceed the fragmentation threshold. The rows and
+	 * columns of the matrices are renumbered in a single pass over their bits.
+	 * The removals never compact the view by themselves, so the slots held by the 
+	 * callers remain valid along a batch of removals (the owner of the view invokes 
+	 * this method once the batch is done)
+	 * 
+	 * @return true if the view was compacted
+	 */
+	public boolean compact() {
+		
+		if (!ModuleADLWrapper.isFragmented(freeModuleSlots.size(), modules.size()) 
+				&& !ModuleADLWrapper.isFragmented(freeResponsibilitySlots.size(), allocatedResponsibilities.size()))
+			return (false);
+		
+		this.discardTombstones();
+		return (true);
+	}
+
+	// It discards all the tombstones of the view, regardless of the fragmentation
+	private void discardTombstones() {
+		
+		// The new slots keep the relative order of the elements (and of their lists)
+		this.ownSlots();
+		this.ownModuleIndexes();
+		this.ownResponsibilityIndexes();
+		int[] newModuleSlots = ModuleADLWrapper.compactSlots(modules);
+		int[] newResponsibilitySlots = ModuleADLWrapper.compactSlots(allocatedResponsibilities);
+		for (int i = 0; i < modules.size(); i++)
+			moduleIndexes.put(modules.get(i).getName(), i);
+		for (int j = 0; j < allocatedResponsibilities.size(); j++)
+			responsibilityIndexes.put(allocatedResponsibilities.get(j).getName(), j);
+		
+		ArrayList<BitSet> newDependencyMatrix = new ArrayList<BitSet>(countModules);
+		ArrayList<BitSet> newAllocationMatrix = new ArrayList<BitSet>(countModules);
+		ArrayList<AllocationList<ArchEResponsibility>> newResponsibilitiesByModule = 
+			new ArrayList<AllocationList<ArchEResponsibility>>(countModules);
+		for (int i = 0; i < newModuleSlots.length; i++) {
+			if (newModuleSlots[i] != -1) {
+				newDependencyMatrix.add(ModuleADLWrapper.renumberColumns(dependencyMatrix.get(i), newModuleSlots));
+				newAllocationMatrix.add(ModuleADLWrapper.renumberColumns(allocationMatrix.get(i), newResponsibilitySlots));
+				newResponsibilitiesByModule.add((i < responsibilitiesByModule.size())? responsibilitiesByModule.get(i): null);
+			}
+		}
+		ArrayList<BitSet> newCoAllocationMatrix = new ArrayList<BitSet>(countResponsibilities);
+		ArrayList<AllocationList<ArchEModuleVO>> newModulesByResponsibility = 
+			new ArrayList<AllocationList<ArchEModuleVO>>(countResponsibilities);
+		for (int j = 0; j < newResponsibilitySlots.length; j++) {
+			if (newResponsibilitySlots[j] != -1) {
+				newCoAllocationMatrix.add(ModuleADLWrapper.renumberColumns(coAllocationMatrix.get(j), newModuleSlots));
+				newModulesByResponsibility.add((j < modulesByResponsibility.size())? modulesByResponsibility.get(j): null);
+			}
+		}
+		
+		dependencyMatrix = newDependencyMatrix;
+		allocationMatrix = newAllocationMatrix;
+		coAllocationMatrix = newCoAllocationMatrix;
+		responsibilitiesByModule = newResponsibilitiesByModule;
+		modulesByResponsibility = newModulesByResponsibility;
+		sharedDependencyRows.clear(); // The renumbered rows are all new
+		sharedAllocationRows.clear();
+		sharedCoAllocationRows.clear();
+		freeModuleSlots.clear();
+		freeResponsibilitySlots.clear();
+		// The consumers holding slots can remap them (-1 stands for a discarded tombstone)
+		journal.record(MutationEvent.SLOTS_COMPACTED, newModuleSlots, newResponsibilitySlots, null);
+	}
+
+	private static boolean isFragmented(int countFreeSlots, int countSlots) {
+		return ((countFreeSlots >= MIN_COMPACTION_SLOTS) && (countFreeSlots > MAX_FRAGMENTATION * countSlots));
+	}
+
+	// It removes the tombstones from a list of elements, and returns the 
+	// new slot of each old slot (or -1 for a tombstone)
+	private static <T> int[] compactSlots(ArrayList<T> elements) {
+		int[] newSlots = new int[elements.size()];
+		int count = 0;
+		T element = null;
+		for (int k = 0; k < elements.size(); k++) {
+			element = elements.get(k);
+			if (element != null) {
+				newSlots[k] = count;
+				elements.set(count, element);
+				count++;
+			}
+			else
+				newSlots[k] = -1;
+		}
+		elements.subList(count, elements.size()).clear();
+		return (newSlots);
+	}
+
+	// It returns a row of bits with its columns moved to their new slots
+	private static BitSet renumberColumns(BitSet row, int[] newSlots) {
+		BitSet newRow = new BitSet();
+		for (int k = row.nextSetBit(0); k >= 0; k = row.nextSetBit(k + 1)) 
+			newRow.set(newSlots[k]);
+		return (newRow);
+	}
+
 	/** 
 	 * It returns all the modules defined for this view that contain a 
 	 * specific responsibility
@@ -388,21 +947,33 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		if (pos == -1) // The responsibility doesn't exist within the view
 			return list;
 		
-		for (int i = 0; i < countModules; i++) {
-			if (allocationMatrix[i][pos]) {
-				list.add(modules[i]);
-			}
-		}
+		list.addAll(this.getModuleList(pos).elements);
 		
 		return (list);
 	}
 
+	/** 
+	 * It returns a read-only list of the modules that contain a specific responsibility.
+	 * Unlike getModulesByResponsibility(), the list is not copied, so it reflects later 
+	 * changes in the allocation (and it shouldn't be iterated while changing the allocation
+	 * of the responsibility)
+	 */
+	public List<ArchEModuleVO> getAllocatedModules(ArchEResponsibility responsibility) {
+		
+		int pos = this.getResponsibilityIndex(responsibility);
+		if (pos == -1) // The responsibility doesn't exist within the view
+			return (Collections.<ArchEModuleVO>emptyList());
+		
+		return (this.getModuleList(pos).readOnlyElements);
+	}
+
 	public List<ArchEModuleVO> getModules() {
 		
-		ArrayList<ArchEModuleVO> list = new ArrayList<ArchEModuleVO>();
+		ArrayList<ArchEModuleVO> list = new ArrayList<ArchEModuleVO>(countModules);
 	
-		for (int i = 0; i < countModules; i++) {
-			list.add(modules[i]);			
+		for (int i = 0; i < modules.size(); i++) {
+			if (modules.get(i) != null) // The tombstones are skipped
+				list.add(modules.get(i));			
 		}
 		
 		return (list);
@@ -433,20 +1004,31 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		ArrayList<ArchEResponsibility> list = new ArrayList<ArchEResponsibility>();
 
 		int pos = this.getModuleIndex(module);		
-		if (pos != -1) { // The module exists in the view			
-			ArchEResponsibility resp = null;
-			for (int j = 0; j < countResponsibilities; j++) { 
-				if (allocationMatrix[pos][j])  // There is an allocation relationship
-					list.add(allocatedResponsibilities[j]);
-			}					
-		}
+		if (pos != -1) // The module exists in the view			
+			list.addAll(this.getResponsibilityList(pos).elements);
 
 		return (list);
 	}
+
+	/** 
+	 * It returns a read-only list of the responsibilities allocated to a particular module.
+	 * Unlike getResponsibilitiesByModule(), the list is not copied, so it reflects later 
+	 * changes in the allocation (and it shouldn't be iterated while changing the allocation
+	 * of the module)
+	 */
+	public List<ArchEResponsibility> getAllocatedResponsibilities(ArchEModuleVO module) {
+
+		int pos = this.getModuleIndex(module);		
+		if (pos == -1) // The module doesn't exist in the view			
+			return (Collections.<ArchEResponsibility>emptyList());
+
+		return (this.getResponsibilityList(pos).readOnlyElements);
+	}
 	
 	/**
 	 * It deletes a module from the current view, and it also keeps the module
-	 * as a VO to be removed when invoking the save() operation in the DB 
+	 * as a VO to be removed when invoking the save() operation in the DB. Its slot 
+	 * becomes a tombstone until the owner of the view invokes compact()
 	 */
 	public boolean removeModule(ArchEModuleVO module) {
 		
@@ -456,23 +1038,42 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		
 		if (pos != -1) { // The module exists  within the view			
 		
-			for (int i = pos ; i < countModules -1; i++) 
-				modules[i] = modules[i+1];
+			// The allocations of the module have to be deleted when saving the view
+			this.ownSlots();
+			this.ownModuleIndexes();
+			this.ownAllocationVOs();
+			BitSet cells = allocationMatrix.get(pos);
+			for (int n = cells.nextSetBit(0); n >= 0; n = cells.nextSetBit(n + 1))
+				dirtyAllocations.add(new ViewCell(modules.get(pos).getName(), allocatedResponsibilities.get(n).getName()));
 			
-			// Updating the dependencies between modules
-			for (int j = pos; j < countModules; j++) // Moving the rows up				
-				for (int k = 0; k < countModules; k++)
-					dependencyMatrix[j][k] = dependencyMatrix[j+1][k];
-			for (int j = pos; j < countModules-1; j++) // Moving the columns back				
-				for (int k = pos; k < countModules-1; k++)
-					dependencyMatrix[j][k] = dependencyMatrix[j][k+1];
+			// The slot of the module becomes a tombstone
+			ArchEModuleVO removedModule = modules.get(pos);
+			moduleIndexes.remove(module.getName());
+			modules.set(pos, null);
+			freeModuleSlots.add(pos);
+			
+			// Updating the dependencies between modules (only the modules 
+			// depending on the removed one have their column cleared)
+			BitSet dependencies = this.getOwnDependencyRow(pos);
+			for (int j = dependencies.nextSetBit(0); j >= 0; j = dependencies.nextSetBit(j + 1)) {
+				this.getOwnDependencyRow(j).clear(pos);
+				if (j != pos)
+					journal.record(MutationEvent.DEPENDENCY_UNSET, removedModule, modules.get(j), null);
+			}
+			dependencies.clear();
 
 			// Updating the allocation of responsibilities
-			for (int m = pos; m < countModules -1; m++) // Moving the rows up
-				for (int n = 0; n < countResponsibilities; n++)
-					allocationMatrix[m][n] = allocationMatrix[m+1][n];
+			BitSet allocations = this.getOwnAllocationRow(pos);
+			for (int n = allocations.nextSetBit(0); n >= 0; n = allocations.nextSetBit(n + 1)) {
+				this.getOwnCoAllocationRow(n).clear(pos);
+				this.updateModuleList(n);
+				journal.record(MutationEvent.ALLOCATION_UNSET, removedModule, allocatedResponsibilities.get(n), null);
+			}
+			allocations.clear();
+			this.updateResponsibilityList(pos);
 			
 			countModules--;
+			journal.record(MutationEvent.MODULE_REMOVED, removedModule);
 			
 			return (true);
 		
@@ -481,7 +1082,8 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 	}
 
 	/**
-	 * It deletes a responsibility from the current view
+	 * It deletes a responsibility from the current view. Its slot becomes a 
+	 * tombstone until the owner of the view invokes compact()
 	 */
 	public boolean removeResponsibility(ArchEResponsibility responsibility) {
 		
@@ -489,15 +1091,33 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 		
 		if (pos != -1) { // The responsibility exists within the view
 			
-			for (int i = pos; i < countResponsibilities -1; i++) 
-				allocatedResponsibilities[i] = allocatedResponsibilities[i+1];
+			// The allocations of the responsibility have to be deleted when saving the view
+			this.ownSlots();
+			this.ownResponsibilityIndexes();
+			this.ownAllocationVOs();
+			BitSet cells = coAllocationMatrix.get(pos);
+			for (int m = cells.nextSetBit(0); m >= 0; m = cells.nextSetBit(m + 1))
+				dirtyAllocations.add(new ViewCell(modules.get(m).getName(), allocatedResponsibilities.get(pos).getName()));
 			
-			// Updating the allocation of responsibilities
-			for (int m = 0; m < countModules; m++) // Moving the columns back
-				for (int n = pos; n < countResponsibilities-1; n++)
-					allocationMatrix[m][n] = allocationMatrix[m][n+1];
+			// The slot of the responsibility becomes a tombstone
+			ArchEResponsibility removedResponsibility = allocatedResponsibilities.get(pos);
+			responsibilityIndexes.remove(responsibility.getName());
+			allocatedResponsibilities.set(pos, null);
+			freeResponsibilitySlots.add(pos);
+			
+			// Updating the allocation of responsibilities (only the modules 
+			// of the removed responsibility have their column cleared)
+			BitSet allocations = this.getOwnCoAllocationRow(pos);
+			for (int m = allocations.nextSetBit(0); m >= 0; m = allocations.nextSetBit(m + 1)) {
+				this.getOwnAllocationRow(m).clear(pos);
+				this.updateResponsibilityList(m);
+				journal.record(MutationEvent.ALLOCATION_UNSET, modules.get(m), removedResponsibility, null);
+			}
+			allocations.clear();
+			this.updateModuleList(pos);
 
 			countResponsibilities--;
+			journal.record(MutationEvent.RESPONSIBILITY_REMOVED, removedResponsibility);
 			
 			return (true);
 		}
@@ -506,229 +1126,284 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 
 	// It returns all the actual VO allocation relations defined for this view, and updates the 
 	// rawResponsibilityAllocations list (this method should be used when executing 
-	// save/delete operations on the database)
+	// save/delete operations on the database). Only the allocations that changed since the
+	// last update are synchronized, unless the view was reset (e.g., when restored)
 	protected List<ArchEResponsibilityToModuleRelationVO> updateResponsibilityAllocationVOs() {
 		
 		ArchEResponsibilityToModuleRelationVO rel = null;
-		ArchEVersionVO versionVO = (ArchEVersionVO)this.getParent().getCurrentVersion();
+		ViewCell cell = null;
+		IdentityHashMap<ArchEResponsibilityToModuleRelationVO,Boolean> removedRelations = 
+			new IdentityHashMap<ArchEResponsibilityToModuleRelationVO,Boolean>();
+		this.ownRawVOs();
+		this.ownAllocationVOs();
 		
-		// It looks for dangling allocations (because their parents modules were deleted by some tactic)
-		boolean danglingAllocation = false;
-		for (Iterator<ArchEResponsibilityToModuleRelationVO> itAllocations = rawResponsibilityAllocations.iterator(); 
-			itAllocations.hasNext();) {
-			rel = itAllocations.next();
-			danglingAllocation = true;
-			for (int i = 0; i < countModules; i++) {
-				for (int j = 0; j < countResponsibilities; j++) {
-					if (rel.getParent().equals(modules[i])
-							&& rel.getChild().equals(allocatedResponsibilities[j])) 
-						danglingAllocation = false; // There's still some parent/child for the allocation					
+		if (synchronizeAllAllocationVOs) {
+			// All the relations are checked, so that dangling allocations (because their parent 
+			// modules were deleted by some tactic) and deleted allocations are removed
+			dirtyAllocations.clear();
+			allocationVOs.clear();
+			for (Iterator<ArchEResponsibilityToModuleRelationVO> itAllocations = rawResponsibilityAllocations.iterator(); 
+				itAllocations.hasNext();) {
+				rel = itAllocations.next();
+				if ((rel.getParent() == null) || (rel.getChild() == null)) {
+					removedRelations.put(rel, Boolean.TRUE);
+					continue;
 				}
+				cell = new ViewCell(rel.getParent().getName(), rel.getChild().getName());
+				if (!allocationVOs.containsKey(cell))
+					allocationVOs.put(cell, rel);
+				dirtyAllocations.add(cell);
 			}
-			if (danglingAllocation) {
-				itAllocations.remove();
-				this.deleteDesignRelation(rel);							
+			// ... and all the current allocations of responsibilities to modules too
+			BitSet row = null;
+			for (int i = 0; i < modules.size(); i++) {
+				row = allocationMatrix.get(i);
+				for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1))
+					dirtyAllocations.add(new ViewCell(modules.get(i).getName(), allocatedResponsibilities.get(j).getName()));
 			}
 		}
 		
-		// It traverses all the current allocations of responsibilities to modules
-		// Note that only allocations for 'actual' modules are synchronized (this assumes
-		// that allocations for removed modules have been deleted somehow before)
-		for (int i = 0; i < countModules; i++) {
-			for (int j = 0; j < countResponsibilities; j++) {
-				
-				rel = this.findAllocationRelationVO(modules[i], allocatedResponsibilities[j]);
-				
-				if (allocationMatrix[i][j]) { 					
-					// In case there exist a relation between a module and a responsibility 
-					// (as given by the current allocation matrix)
-					if (rel == null) {
-						// The relation didn't exist when rawResponsibilityAllocations was loaded,
-						rel = new ArchEResponsibilityToModuleRelationVO(versionVO);
-						rel.setParent(modules[i]); // A new relation is created and stored
-						rel.setChild((ArchEResponsibilityVO)allocatedResponsibilities[j]);
-						rawResponsibilityAllocations.add(rel);
-					}
-					// else: The relation comes from when rawResponsibilityAllocations was loaded
-					// If so, nothing needs to be updated in the VO list for allocations
-				
-				} 
-				else {
-					// In case there's no relation between a module and a responsibility
-					// (as given by the current allocation matrix)
-					if (rel != null) {
-						// There is an old relation still in rawResponsibilityAllocations (that
-						// was set when rawResponsibilityAllocations was loaded, and then removed
-						// by some operation on the view)
-						rawResponsibilityAllocations.remove(rel);
-						this.deleteDesignRelation(rel);
-					}				
-					// else: the relation is not neither in rawResponsibilityAllocations
-					// nor in the matrix. If so, nothing needs to be updated
-					
-				} // End main if-else for allocationMatrix[i][j]
+		ArchEVersionVO versionVO = (ArchEVersionVO)this.getParent().getCurrentVersion();
+		Integer i = null;
+		Integer j = null;
+		for (Iterator<ViewCell> itCells = dirtyAllocations.iterator(); itCells.hasNext();) {
+			cell = itCells.next();
+			rel = allocationVOs.get(cell);
+			i = moduleIndexes.get(cell.parentName);
+			j = responsibilityIndexes.get(cell.childName);
+			
+			if ((i != null) && (j != null) && allocationMatrix.get(i).get(j)) { 					
+				// In case there exist a relation between a module and a responsibility 
+				// (as given by the current allocation matrix)
+				if (rel == null) {
+					// The relation didn't exist when rawResponsibilityAllocations was loaded,
+					rel = new ArchEResponsibilityToModuleRelationVO(versionVO);
+					rel.setParent(modules.get(i)); // A new relation is created and stored
+					rel.setChild((ArchEResponsibilityVO)allocatedResponsibilities.get(j));
+					rawResponsibilityAllocations.add(rel);
+					allocationVOs.put(cell, rel);
+				}
+				// else: The relation comes from when rawResponsibilityAllocations was loaded
+				// If so, nothing needs to be updated in the VO list for allocations
+			} 
+			else if (rel != null) {
+				// There is an old relation still in rawResponsibilityAllocations (that
+				// was set when rawResponsibilityAllocations was loaded, and then removed
+				// by some operation on the view, or whose module no longer exists)
+				removedRelations.put(rel, Boolean.TRUE);
+				allocationVOs.remove(cell);
+			}				
+			// else: the relation is not neither in rawResponsibilityAllocations
+			// nor in the matrix. If so, nothing needs to be updated
+		}
+		dirtyAllocations.clear();
+		synchronizeAllAllocationVOs = false;
+		
+		// The old relations are removed in a single pass over the list
+		if (!removedRelations.isEmpty()) {
+			for (Iterator<ArchEResponsibilityToModuleRelationVO> itAllocations = rawResponsibilityAllocations.iterator(); 
+				itAllocations.hasNext();) {
+				rel = itAllocations.next();
+				if (removedRelations.containsKey(rel)) {
+					itAllocations.remove();
+					this.deleteDesignRelation(rel);
+				}
 			}
 		}
 		
 		return (rawResponsibilityAllocations);
 	}
 	
-	private ArchEResponsibilityToModuleRelationVO findAllocationRelationVO(ArchEModuleVO module, ArchEResponsibility resp) {
-		ArchEResponsibilityToModuleRelationVO allocation = null;
-		for(Iterator<ArchEResponsibilityToModuleRelationVO> it = rawResponsibilityAllocations.iterator(); it.hasNext();) {
-			allocation = it.next();
-			if (allocation.getParent().equals(module) && allocation.getChild().equals(resp))
-				return (allocation);
-		}
-		return (null);
-	}
-
 	// It returns all the actual VO module dependency relations defined for this view, and updates the 
 	// rawModuleDependencies list (this method should be used when executing save/delete 
-	// operations on the database)
+	// operations on the database). Only the dependencies that changed since the last update 
+	// are synchronized, unless the view was reset (e.g., when restored)
 	protected List<ArchEModuleDependencyRelationVO> updateModuleDependencyVOs() {		
 		
 		ArchEModuleDependencyRelationVO rel = null;
+		ViewCell cell = null;
+		IdentityHashMap<ArchEModuleDependencyRelationVO,Boolean> removedRelations = 
+			new IdentityHashMap<ArchEModuleDependencyRelationVO,Boolean>();
+		this.ownRawVOs();
+		this.ownDependencyVOs();
+
+		if (synchronizeAllDependencyVOs) {
+			// All the relations are checked, as well as all the current dependencies between modules
+			dirtyDependencies.clear();
+			dependencyVOs.clear();
+			for (Iterator<ArchEModuleDependencyRelationVO> itDependencies = rawModuleDependencies.iterator(); 
+				itDependencies.hasNext();) {
+				rel = itDependencies.next();
+				if ((rel.getParent() == null) || (rel.getChild() == null)) 
+					continue; // As in previous versions, these relations are kept
+				cell = ViewCell.createDependencyCell(rel.getParent(), rel.getChild());
+				if (!dependencyVOs.containsKey(cell))
+					dependencyVOs.put(cell, rel);
+				dirtyDependencies.add(cell);
+			}
+			BitSet row = null;
+			for (int i = 0; i < modules.size(); i++) {
+				row = dependencyMatrix.get(i);
+				// It just checks the triangle under the matrix diagonal, because 
+				// the dependencies between modules are supposed to be symmetrical				
+				for (int j = row.nextSetBit(0); (j >= 0) && (j < i); j = row.nextSetBit(j + 1))
+					dirtyDependencies.add(ViewCell.createDependencyCell(modules.get(i), modules.get(j)));
+			}
+		}
+		
 		ArchEVersionVO versionVO = (ArchEVersionVO)this.getParent().getCurrentVersion();
+		Integer i = null;
+		Integer j = null;
+		for (Iterator<ViewCell> itCells = dirtyDependencies.iterator(); itCells.hasNext();) {
+			cell = itCells.next();
+			rel = dependencyVOs.get(cell);
+			i = moduleIndexes.get(cell.parentName);
+			j = moduleIndexes.get(cell.childName);
+			
+			if ((i != null) && (j != null) && dependencyMatrix.get(i).get(j)) { 					
+				// In case there exist a relation between two modules
+				// (as given by the current dependency matrix)
+				if (rel == null) {
+					// The relation was set AFTER the rawModuleDependencies was loaded
+					rel = new ArchEModuleDependencyRelationVO(versionVO);
+					rel.setParent(modules.get(Math.max(i, j))); // A new relation is created and stored
+					rel.setChild(modules.get(Math.min(i, j)));
+					rawModuleDependencies.add(rel);
+					dependencyVOs.put(cell, rel);
+				}
+				// else: The relation comes from when rawModuleDependencies was loaded
+				// If so, nothing needs to be updated
+			} 
+			else if ((rel != null) && (i != null) && (j != null)) {
+				// There is an old relation still in rawModuleDependencies (that
+				// was set when rawModuleDependencies was loaded, and then removed
+				// by some operation on the view)
+				removedRelations.put(rel, Boolean.TRUE);
+				dependencyVOs.remove(cell);
+			}				
+			// else: the relation is not neither in rawModuleDependencies
+			// nor in the matrix (or one of its modules was removed, and then 
+			// the relation is kept as in previous versions). If so, nothing needs to be updated
+		}
+		dirtyDependencies.clear();
+		synchronizeAllDependencyVOs = false;
 		
-		// It traverses all the current dependencies between modules
-		for (int i = 0; i < countModules; i++) {
-			//for (int j = 0; j < countModules; j++) {
-			for (int j = 0; j < i; j++) { // It just checks the triangle under the matrix
-				// diagonal, because the dependencies between modules are supposed to be symmetrical				
-				rel = this.findModuleDependencyVO(modules[i], modules[j]);
-				
-				if (dependencyMatrix[i][j]) { 					
-					// In case there exist a relation between two modules
-					// (as given by the current dependency matrix)
-					if (rel == null) {
-						// The relation was set AFTER the rawModuleDependencies was loaded
-						rel = new ArchEModuleDependencyRelationVO(versionVO);
-						rel.setParent(modules[i]); // A new relation is created and stored
-						rel.setChild(modules[j]);
-						rawModuleDependencies.add(rel);
-					}
-					// else: The relation comes from when rawModuleDependencies was loaded
-					// If so, nothing needs to be updated
-				
-				} 
-				else {
-					// In case there's no relation between this pair of modules
-					// (as given by the current dependency matrix)
-					if (rel != null) {
-						// There is an old relation still in rawModuleDependencies (that
-						// was set when rawModuleDependencies was loaded, and then removed
-						// by some operation on the view)
-						rawModuleDependencies.remove(rel);
-						this.deleteDesignRelation(rel);
-					}				
-					// else: the relation is not neither in rawModuleDependencies
-					// nor in the matrix. If so, nothing needs to be updated
-					
-				} // End main if-else for dependencyMatrix[i][j]
+		// The old relations are removed in a single pass over the list
+		if (!removedRelations.isEmpty()) {
+			for (Iterator<ArchEModuleDependencyRelationVO> itDependencies = rawModuleDependencies.iterator(); 
+				itDependencies.hasNext();) {
+				rel = itDependencies.next();
+				if (removedRelations.containsKey(rel)) {
+					itDependencies.remove();
+					this.deleteDesignRelation(rel);
+				}
 			}
 		}
 		
 		return (rawModuleDependencies);
 	}
-	
-	private ArchEModuleDependencyRelationVO findModuleDependencyVO(ArchEModuleVO mod1, ArchEModuleVO mod2) {
-		ArchEModuleDependencyRelationVO modDependency = null;
-		for(Iterator<ArchEModuleDependencyRelationVO> it = rawModuleDependencies.iterator(); it.hasNext();) {
-			modDependency = it.next();
-			if (modDependency.getParent().equals(mod1) && modDependency.getChild().equals(mod2))
-				return (modDependency);
-			if (modDependency.getParent().equals(mod2) && modDependency.getChild().equals(mod1))
-				return (modDependency);
-		}
-		return (null);
-	}	
 
 	/**
 	 * It ensures that the module view is loaded consistently from the database. 
 	 * The consistency rules refer to: allocation of 'current' responsibilities only, 
 	 * deletion of 'dangling' dependencies between modules, and also elimination of 
 	 * modules with no responsibilities allocated to them.
+	 * <p>
+	 * The leaf responsibilities are indexed once, the allocations are validated in 
+	 * a single pass, and the orphan modules are discarded with a single compaction, 
+	 * so the loading is linear in the number of VOs
 	 * 
 	 * @param responsibilities The current responsibility structure the module should be consistent with
 	 */
 	public boolean loadViewWithConsistencyChecking(ArchECoreResponsibilityStructure responsibilities){
 		
 		this.reset();
+		this.ownRawVOs();
 		
 		// Step 1: Recover the 'old' list of modules
     	for (Iterator<ArchEModuleVO> it = rawModuleVOs.iterator(); it.hasNext();) 
     		this.defineModule(it.next());
 
     	// Step 2: Only set those allocation relation with 'valid' responsibilities
+    	// (the bits are set directly, and the lists of allocations are built on demand)
+    	ArchECoreResponsibilityStructure.RefinementIndex refinements = responsibilities.createRefinementIndex();
+    	ArrayList<ArchEResponsibilityToModuleRelationVO> validAllocations = 
+    		new ArrayList<ArchEResponsibilityToModuleRelationVO>(rawResponsibilityAllocations.size());
     	ArchEResponsibilityToModuleRelationVO tempAllocation = null;
-    	boolean allocated = false;
     	ArchEResponsibilityVO resVO = null;
     	ArchEModuleVO modVO = null;
+    	int pos1 = -1;
+    	int pos2 = -1;
     	for (Iterator<ArchEResponsibilityToModuleRelationVO> it = rawResponsibilityAllocations.iterator(); it.hasNext();) {
     		tempAllocation = it.next();
     		resVO = tempAllocation.getChild();
     		modVO = tempAllocation.getParent();
-    		if ((resVO == null) || (modVO == null)) {
-    			it.remove();
+    		// Warning: if the responsibility dependencies changed and a responsibility 
+    		// has been refined, then it should NOT be allocated to its corresponding module anymore
+    		if ((resVO == null) || (modVO == null) || !refinements.isLeaf(resVO)) 
     			this.deleteDesignRelation(tempAllocation);
-    		}
-    		else {     	
-    			// Warning: if the responsibility dependencies changed and a responsibility 
-    			// has been refined, then it should NOT be allocated to its corresponding module anymore
-    			if (responsibilities.isLeaf(resVO)) {
-    				this.defineResponsibility(resVO);
-    				allocated = this.setResponsibilityAllocation(modVO, resVO, true);
-    			}
-    			else {
-        			it.remove();
-        			this.deleteDesignRelation(tempAllocation);    				
+    		else {
+    			validAllocations.add(tempAllocation);
+    			this.defineResponsibility(resVO);
+    			pos1 = this.getModuleIndex(modVO);
+    			pos2 = this.getResponsibilityIndex(resVO);
+    			// There's no need to mark the cells as dirty, because all the 
+    			// allocations are synchronized after a reset
+    			if ((pos1 != -1) && !allocationMatrix.get(pos1).get(pos2)) {
+    				this.getOwnAllocationRow(pos1).set(pos2); 
+    				this.getOwnCoAllocationRow(pos2).set(pos1);
+    				journal.record(MutationEvent.ALLOCATION_SET, 
+    						modules.get(pos1), allocatedResponsibilities.get(pos2), null);
     			}
     		}
     	}
+    	// The list is refilled rather than having its invalid allocations removed one by one
+    	if (validAllocations.size() < rawResponsibilityAllocations.size()) {
+    		rawResponsibilityAllocations.clear();
+    		rawResponsibilityAllocations.addAll(validAllocations);
+    	}
 
 		// Step 3: Visit the modules again, deleting those that now 
-    	// have no allocated responsibilities (orphan modules)
+    	// have no allocated responsibilities (orphan modules). Their slots 
+    	// become tombstones, which are discarded by a single compaction 
+    	ArrayList<ArchEModuleVO> allocatedModules = new ArrayList<ArchEModuleVO>(rawModuleVOs.size());
 		ArchEModuleVO definedModuleVO = null;
 		boolean removed = false;
     	for (Iterator<ArchEModuleVO> it = rawModuleVOs.iterator(); it.hasNext();) {
     		definedModuleVO = it.next();
-			if (this.getCountAllocatedResponsibilities(definedModuleVO) == 0) { 
+    		pos1 = this.getModuleIndex(definedModuleVO);
+			if ((pos1 == -1) || allocationMatrix.get(pos1).isEmpty()) { 
 				// There's no  responsibilities allocated to this module
-				// The operation below removes the module from the view 
-				it.remove();
-				removed |= this.removeModule(definedModuleVO);
+				this.deleteDesignElement(definedModuleVO);
+				if (pos1 != -1) {
+					// The orphan module has no allocations, and only depends on itself
+					moduleIndexes.remove(definedModuleVO.getName());
+					modules.set(pos1, null);
+					this.getOwnDependencyRow(pos1).clear();
+					freeModuleSlots.add(pos1);
+					countModules--;
+					journal.record(MutationEvent.MODULE_REMOVED, definedModuleVO);
+					removed = true;
+				}
 			}
+			else
+				allocatedModules.add(definedModuleVO);
+    	}
+    	if (allocatedModules.size() < rawModuleVOs.size()) {
+    		rawModuleVOs.clear();
+    		rawModuleVOs.addAll(allocatedModules);
     	}
+    	if (!freeModuleSlots.isEmpty())
+    		this.discardTombstones();
     	
 		// Step 4: Recover the module dependencies, but only establish those that 
     	// now make sense based on the allocation of responsibilities    
-    	ArchEModuleDependencyRelationVO tempDependency = null;
-//    	ArchEModuleVO parentModule = null;
-//    	ArchEModuleVO childModule = null;
     	// Step4(bis): Delete all the module dependencies. Anyway, module dependencies will be
     	// re-computed by initializeView() based on the current responsibilities
     	// and responsibility dependencies in the responsibility structure
-    	for (Iterator<ArchEModuleDependencyRelationVO> it = rawModuleDependencies.iterator(); it.hasNext();) {
-    		tempDependency = it.next();
-			it.remove();
-			this.deleteDesignRelation(tempDependency);
-		}
-//    	for (Iterator<ArchEModuleDependencyRelationVO> it = rawModuleDependencies.iterator(); it.hasNext();) {
-//    		tempDependency = it.next();
-//    		// The method below only sets the dependency, if the two modules exist in 
-//    		// the view (some modules may not exist, because they were removed in step 3)
-//    		parentModule = tempDependency.getParent();
-//    		childModule = tempDependency.getChild();
-//    		if(parentModule == null || childModule == null){
-//    			it.remove();
-//    			this.deleteDesignRelation(tempDependency);
-//    		}
-//    		else{    			
-//    	    	// TODO: Warning, if the responsibility dependencies changed, some module dependencies may be invalid!!!
-//        		this.setModuleDependency(tempDependency.getParent(), tempDependency.getChild(), true);
-//    		}
-//    	}	
+    	for (Iterator<ArchEModuleDependencyRelationVO> it = rawModuleDependencies.iterator(); it.hasNext();) 
+			this.deleteDesignRelation(it.next());
+    	rawModuleDependencies.clear();
 
 		return removed;
 	}
@@ -863,6 +1538,67 @@ public class ModuleADLWrapper extends ArchECoreView implements RFModuleView {
 //		return (null);
 //	}
 
-}
+	/**
+	 * This internal class keeps the elements of a row of bits (of either allocationMatrix 
+	 * or coAllocationMatrix) as a list, in the order of the bits, along with a read-only 
+	 * view of that list
+	 */
+	static class AllocationList<T> {
+
+		private ArrayList<T> elements;
+		private List<T> readOnlyElements;
+
+		AllocationList() {
+			this.elements = new ArrayList<T>();
+			this.readOnlyElements = Collections.unmodifiableList(elements);
+		}
+
+		int size() {
+			return (elements.size());
+		}
+
+		// It rebuilds the list after a change in its row of bits
+		void update(BitSet row, List<T> all) {
+			elements.clear();
+			for (int k = row.nextSetBit(0); k >= 0; k = row.nextSetBit(k + 1))
+				elements.add(all.get(k));
+			return;
+		}
+
+	}
+
+	/**
+	 * This internal class identifies a cell of the allocation matrix (by the names of the 
+	 * module and the responsibility) or of the dependency matrix (by the names of the two 
+	 * modules, in alphabetical order since the dependencies are symmetrical)
+	 */
+	static class ViewCell {
 
+		private String parentName;
+		private String childName;
+
+		ViewCell(String parentName, String childName) {
+			this.parentName = parentName;
+			this.childName = childName;
+		}
+
+		static ViewCell createDependencyCell(ArchECoreModuleVO module1, ArchECoreModuleVO module2) {
+			if (module1.getName().compareTo(module2.getName()) <= 0)
+				return (new ViewCell(module1.getName(), module2.getName()));
+			return (new ViewCell(module2.getName(), module1.getName()));
+		}
 
+		public boolean equals(Object object) {
+			if (!(object instanceof ViewCell))
+				return (false);
+			ViewCell cell = (ViewCell)object;
+			return (parentName.equals(cell.parentName) && childName.equals(cell.childName));
+		}
+
+		public int hashCode() {
+			return (31 * parentName.hashCode() + childName.hashCode());
+		}
+
+	}
+
+}
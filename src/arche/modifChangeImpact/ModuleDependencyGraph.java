@@ -0,0 +1,483 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * Structural analyses of the dependency graph among the modules of a view: strongly
+ * connected components (Tarjan), reachability (a transitive closure with a row of 
+ * bits for each module), and fan-in/fan-out rankings.
+ * <p>
+ * The results are computed on demand, and then kept up to date by listening to the 
+ * changes of the view. A new module or dependency updates the results in place (e.g., 
+ * merging the components and extending the reachable sets), while the removal of 
+ * dependencies or modules discards the results so that they are computed again when 
+ * needed. The results are indexed by the slots of the modules in the view.
+ * <p>
+ * Note that the dependencies of a ModuleADLWrapper are bidirectional, so the fan-in 
+ * and fan-out of a module are the same, and the components are the connected sets 
+ * of modules. The self-dependencies of the modules are not considered
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+
+public class ModuleDependencyGraph implements MutationListener {
+
+	private ModuleADLWrapper view = null;
+	
+	// The results are indexed by the slots of the modules in the view (a null 
+	// array means that the results have to be computed again)
+	private int[] components = null; // The component of each module (or -1 for a tombstone)
+	private int countComponents = 0;
+	private BitSet[] closure = null; // The modules reachable from each module (including itself)
+	private int[] fanIn = null;
+	private int[] fanOut = null;
+
+	public ModuleDependencyGraph(ModuleADLWrapper view) {
+		this.view = view;
+	}
+
+	public void mutationRecorded(MutationEvent event) {
+		switch (event.getType()) {
+			case MutationEvent.DEPENDENCY_SET:
+				this.addDependency(view.getModuleIndex((ArchEModuleVO)(event.getElement())), 
+						view.getModuleIndex((ArchEModuleVO)(event.getTarget())));
+				break;
+			case MutationEvent.MODULE_ADDED:
+				this.addModule(view.getModuleIndex((ArchEModuleVO)(event.getElement())));
+				break;
+			case MutationEvent.DEPENDENCY_UNSET:
+			case MutationEvent.MODULE_REMOVED:
+			case MutationEvent.SLOTS_COMPACTED: // Its results refer to the old slots
+			case MutationEvent.RESET:
+				this.invalidate();
+				break;
+			default: // The allocations do not affect the graph
+				break;
+		}
+	}
+
+	public void invalidate() {
+		components = null;
+		closure = null;
+		fanIn = null;
+		fanOut = null;
+	}
+
+	// It updates the results for a new module (with no dependencies), which takes either 
+	// a tombstone or a new slot at the end of the view
+	private void addModule(int i) {
+		if (i == -1) {
+			this.invalidate();
+			return;
+		}
+
+		if (fanIn != null) {
+			if (i >= fanIn.length) {
+				fanIn = ModuleDependencyGraph.grow(fanIn, i + 1, 0);
+				fanOut = ModuleDependencyGraph.grow(fanOut, i + 1, 0);
+			}
+			fanIn[i] = 0;
+			fanOut[i] = 0;
+		}
+		if (components != null) {
+			if (i >= components.length) {
+				// The slots in between (if any) are taken as tombstones
+				components = ModuleDependencyGraph.grow(components, i + 1, -1);
+				BitSet[] newClosure = new BitSet[i + 1];
+				System.arraycopy(closure, 0, newClosure, 0, closure.length);
+				closure = newClosure;
+			}
+			components[i] = countComponents;
+			countComponents++;
+			closure[i] = new BitSet();
+			closure[i].set(i);
+		}
+		return;
+	}
+
+	private static int[] grow(int[] values, int length, int initialValue) {
+		int[] newValues = new int[length];
+		System.arraycopy(values, 0, newValues, 0, values.length);
+		for (int k = values.length; k < length; k++)
+			newValues[k] = initialValue; 
+		return (newValues);
+	}
+
+	// It updates the results for a new (bidirectional) dependency between two modules
+	private void addDependency(int i, int j) {
+		if ((i == -1) || (j == -1)) {
+			this.invalidate();
+			return;
+		}
+
+		if (fanIn != null) {
+			fanIn[i]++;
+			fanIn[j]++;
+			fanOut[i]++;
+			fanOut[j]++;
+		}
+
+		if ((components != null) && (components[i] != components[j])) {
+			// The component of j is merged into the component of i
+			// (the following component indexes are moved back to keep them contiguous)
+			int merged = components[j];
+			int target = (components[i] > merged)? components[i] - 1: components[i];
+			for (int k = 0; k < components.length; k++) {
+				if (components[k] == merged)
+					components[k] = target;
+				else if (components[k] > merged)
+					components[k]--; 
+			}
+			countComponents--;
+		}
+
+		if (closure != null) {
+			// The modules that reach one end of the dependency now reach all the 
+			// modules reachable from the other end
+			BitSet reachableFromI = (BitSet)(closure[i].clone());
+			BitSet reachableFromJ = (BitSet)(closure[j].clone());
+			for (int k = 0; k < closure.length; k++) {
+				if (closure[k] == null) // A tombstone
+					continue;
+				boolean reachesI = closure[k].get(i);
+				boolean reachesJ = closure[k].get(j);
+				if (reachesI)
+					closure[k].or(reachableFromJ);
+				if (reachesJ)
+					closure[k].or(reachableFromI);
+			}
+		}
+		return;
+	}
+
+	// It computes the strongly connected components with (an iterative version of) 
+	// the algorithm of Tarjan, and the transitive closure of the components in the
+	// order they are found (a component is found after all the components it reaches)
+	private void computeComponents() {
+
+		int n = view.getCountModuleSlots();
+		components = new int[n];
+		closure = new BitSet[n];
+		countComponents = 0;
+
+		int[] order = new int[n]; // The discovery order of each module (from 1)
+		int[] lowLink = new int[n];
+		int[] nextNeighbor = new int[n]; // The next dependency to explore for each module
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int[] path = new int[n]; // The modules being explored (instead of recursive calls)
+		int depth = 0;
+		int counter = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (view.getModule(root) == null) // The tombstones are not part of the graph
+				components[root] = -1;
+			if ((order[root] != 0) || (components[root] == -1))
+				continue;
+			
+			path[depth++] = root;
+			while (depth > 0) {
+				int v = path[depth - 1];
+				if (order[v] == 0) { // The module is visited for the first time
+					counter++;
+					order[v] = counter;
+					lowLink[v] = counter;
+					stack[top++] = v;
+					onStack[v] = true;
+					nextNeighbor[v] = 0;
+				}
+				
+				BitSet row = view.getDependencyRow(v);
+				int w = row.nextSetBit(nextNeighbor[v]);
+				if (w == v)
+					w = row.nextSetBit(v + 1); // The self-dependency is skipped
+				if (w >= 0) {
+					nextNeighbor[v] = w + 1;
+					if (order[w] == 0) 
+						path[depth++] = w;
+					else if (onStack[w])
+						lowLink[v] = Math.min(lowLink[v], order[w]);
+				}
+				else { // All the dependencies of the module were explored
+					depth--;
+					if (depth > 0) {
+						int parent = path[depth - 1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+					}
+					if (lowLink[v] == order[v]) // The module is the root of a component
+						top = this.popComponent(v, stack, top, onStack);
+				}
+			}
+		}
+		return;
+	}
+
+	// It assigns the modules on top of the stack (up to a root) to a new component, 
+	// computes the modules reachable from the component, and returns the new top of the stack
+	private int popComponent(int root, int[] stack, int top, boolean[] onStack) {
+
+		BitSet members = new BitSet();
+		int k = top;
+		int w = -1;
+		do {
+			k--;
+			w = stack[k];
+			onStack[w] = false;
+			members.set(w);
+		} while (w != root);
+
+		BitSet reachable = (BitSet)(members.clone());
+		for (int m = members.nextSetBit(0); m >= 0; m = members.nextSetBit(m + 1)) {
+			BitSet row = view.getDependencyRow(m);
+			for (int t = row.nextSetBit(0); t >= 0; t = row.nextSetBit(t + 1)) {
+				if (!members.get(t) && !reachable.get(t))
+					reachable.or(closure[t]); // The other component was already found
+			}
+		}
+		for (int m = members.nextSetBit(0); m >= 0; m = members.nextSetBit(m + 1)) {
+			components[m] = countComponents;
+			closure[m] = (BitSet)(reachable.clone());
+		}
+		countComponents++;
+		return (k);
+	}
+
+	private void computeDegrees() {
+		int n = view.getCountModuleSlots();
+		fanIn = new int[n];
+		fanOut = new int[n];
+		for (int i = 0; i < n; i++) {
+			BitSet row = view.getDependencyRow(i);
+			for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1)) {
+				if (i != j) {
+					fanOut[i]++;
+					fanIn[j]++;
+				}
+			}
+		}
+		return;
+	}
+
+	private void ensureComponents() {
+		if (components == null)
+			this.computeComponents();
+	}
+
+	private void ensureDegrees() {
+		if (fanIn == null)
+			this.computeDegrees();
+	}
+
+	/**
+	 * It returns the strongly connected components of the graph (in the order 
+	 * they were found, with the modules of each component in the order of the view)
+	 */
+	public List<List<ArchEModuleVO>> getStronglyConnectedComponents() {
+		this.ensureComponents();
+		List<List<ArchEModuleVO>> result = new ArrayList<List<ArchEModuleVO>>(countComponents);
+		for (int c = 0; c < countComponents; c++)
+			result.add(new ArrayList<ArchEModuleVO>());
+		for (int i = 0; i < components.length; i++) {
+			if (components[i] != -1)
+				result.get(components[i]).add(view.getModule(i));
+		}
+		return (result);
+	}
+
+	/**
+	 * It returns the components with more than one module (i.e., the modules 
+	 * involved in dependency cycles)
+	 */
+	public List<List<ArchEModuleVO>> getCyclicComponents() {
+		List<List<ArchEModuleVO>> result = new ArrayList<List<ArchEModuleVO>>();
+		List<ArchEModuleVO> component = null;
+		for (Iterator<List<ArchEModuleVO>> it = this.getStronglyConnectedComponents().iterator(); it.hasNext();) {
+			component = it.next();
+			if (component.size() > 1)
+				result.add(component);
+		}
+		return (result);
+	}
+
+	public int getCountComponents() {
+		this.ensureComponents();
+		return (countComponents);
+	}
+
+	public boolean areInSameComponent(ArchEModuleVO mod1, ArchEModuleVO mod2) {
+		int i = view.getModuleIndex(mod1);
+		int j = view.getModuleIndex(mod2);
+		if ((i == -1) || (j == -1)) // Some module doesn't exist
+			return (false);
+		this.ensureComponents();
+		return (components[i] == components[j]);
+	}
+
+	/**
+	 * It checks if a module can be reached from another one through (a chain of) dependencies
+	 */
+	public boolean isReachable(ArchEModuleVO from, ArchEModuleVO to) {
+		int i = view.getModuleIndex(from);
+		int j = view.getModuleIndex(to);
+		if ((i == -1) || (j == -1)) // Some module doesn't exist
+			return (false);
+		this.ensureComponents();
+		return (closure[i].get(j));
+	}
+
+	/**
+	 * It returns the modules that can be reached from a module (not including itself)
+	 */
+	public List<ArchEModuleVO> getReachableModules(ArchEModuleVO module) {
+		List<ArchEModuleVO> result = new ArrayList<ArchEModuleVO>();
+		int i = view.getModuleIndex(module);
+		if (i == -1) // The module doesn't exist
+			return (result);
+		this.ensureComponents();
+		BitSet reachable = closure[i];
+		for (int j = reachable.nextSetBit(0); j >= 0; j = reachable.nextSetBit(j + 1)) {
+			if (j != i)
+				result.add(view.getModule(j));
+		}
+		return (result);
+	}
+
+	public int getFanIn(ArchEModuleVO module) {
+		int i = view.getModuleIndex(module);
+		if (i == -1) // The module doesn't exist
+			return (0);
+		this.ensureDegrees();
+		return (fanIn[i]);
+	}
+
+	public int getFanOut(ArchEModuleVO module) {
+		int i = view.getModuleIndex(module);
+		if (i == -1) // The module doesn't exist
+			return (0);
+		this.ensureDegrees();
+		return (fanOut[i]);
+	}
+
+	/**
+	 * It returns the modules ordered by their fan-in (in descending order)
+	 */
+	public List<ArchEModuleVO> rankByFanIn() {
+		this.ensureDegrees();
+		return (this.rank(fanIn));
+	}
+
+	/**
+	 * It returns the modules ordered by their fan-out (in descending order)
+	 */
+	public List<ArchEModuleVO> rankByFanOut() {
+		this.ensureDegrees();
+		return (this.rank(fanOut));
+	}
+
+	private List<ArchEModuleVO> rank(int[] degrees) {
+		List<Integer> positions = new ArrayList<Integer>(degrees.length);
+		for (int i = 0; i < degrees.length; i++) {
+			if (view.getModule(i) != null) // The tombstones are skipped
+				positions.add(i);
+		}
+		Collections.sort(positions, new DegreeComparator(degrees));
+		List<ArchEModuleVO> result = new ArrayList<ArchEModuleVO>(degrees.length);
+		for (Iterator<Integer> it = positions.iterator(); it.hasNext();)
+			result.add(view.getModule(it.next()));
+		return (result);
+	}
+
+	/**
+	 * It orders modules in descending order of fan-in, keeping the relative order
+	 * of the modules with the same fan-in (the modules outside the view go last)
+	 */
+	public void sortByFanIn(List<ArchEModuleVO> modules) {
+		this.ensureDegrees();
+		Collections.sort(modules, new FanInComparator());
+		return;
+	}
+
+	// This internal class will order slots of modules in a descending order
+	// according to their degrees
+	static class DegreeComparator implements Comparator<Integer> {
+
+		private int[] degrees = null;
+
+		public DegreeComparator(int[] degrees) {
+			this.degrees = degrees;
+		}
+
+		public int compare(Integer i1, Integer i2) {
+			return (degrees[i2] - degrees[i1]);
+		}
+	}
+
+	// This internal class will order modules in a descending order
+	// according to their fan-in
+	class FanInComparator implements Comparator<ArchEModuleVO> {
+
+		public int compare(ArchEModuleVO mod1, ArchEModuleVO mod2) {
+			int i1 = view.getModuleIndex(mod1);
+			int i2 = view.getModuleIndex(mod2);
+			int fanIn1 = (i1 == -1)? -1: fanIn[i1];
+			int fanIn2 = (i2 == -1)? -1: fanIn[i2];
+			return (fanIn2 - fanIn1);
+		}
+	}
+
+}
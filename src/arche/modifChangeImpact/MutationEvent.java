@@ -0,0 +1,122 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A change in the module view or in the responsibility structure, as recorded 
+ * by a MutationJournal. An event refers to the design elements involved in the 
+ * change (e.g., the module and the responsibility of an allocation), so that 
+ * consumers can react to the change without inspecting the whole architecture
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+public class MutationEvent {
+
+	public static final int ALLOCATION_SET 			= 1;  // element: module, target: responsibility
+	public static final int ALLOCATION_UNSET 		= 2;  // element: module, target: responsibility
+	public static final int DEPENDENCY_SET 			= 3;  // element: module, target: module
+	public static final int DEPENDENCY_UNSET 		= 4;  // element: module, target: module
+	public static final int MODULE_ADDED 			= 5;  // element: module
+	public static final int MODULE_REMOVED 			= 6;  // element: module
+	public static final int RESPONSIBILITY_ADDED 	= 7;  // element: responsibility
+	public static final int RESPONSIBILITY_REMOVED 	= 8;  // element: responsibility
+	public static final int RELATION_ADDED 			= 9;  // element: relation
+	public static final int RELATION_REMOVED 		= 10; // element: relation
+	public static final int PARAMETER_CHANGED 		= 11; // element: responsibility or relation, parameter: its name
+	public static final int RESET 					= 12; // All the contents were replaced (e.g., when restored from the DB)
+	public static final int SLOTS_COMPACTED 		= 13; // element: new module slots (int[]), target: new responsibility slots (int[])
+
+	private long sequence;
+	private int type;
+	private Object element;
+	private Object target;
+	private String parameter;
+
+	public MutationEvent(long sequence, int type, Object element, Object target, String parameter) {
+		this.sequence = sequence;
+		this.type = type;
+		this.element = element;
+		this.target = target;
+		this.parameter = parameter;
+	}
+
+	// The position of the event in its journal (starting from 1)
+	public long getSequence() {
+		return (sequence);
+	}
+
+	public int getType() {
+		return (type);
+	}
+
+	public Object getElement() {
+		return (element);
+	}
+
+	public Object getTarget() {
+		return (target);
+	}
+
+	public String getParameter() {
+		return (parameter);
+	}
+
+	public String toString() {
+		StringBuffer description = new StringBuffer();
+		description.append(sequence).append(": ").append(type);
+		if (element != null)
+			description.append(' ').append(element);
+		if (target != null)
+			description.append(" -> ").append(target);
+		if (parameter != null)
+			description.append(" [").append(parameter).append(']');
+		return (description.toString());
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A journal of the changes made to a module view or a responsibility structure. 
+ * The consumers can either register as listeners (to be notified of each change), 
+ * or open a cursor and later ask for the events since the last time they read it.
+ * <p>
+ * The journal only keeps the events that an open cursor has not read yet, so it 
+ * keeps no events at all when there are no cursors (the consumers should close 
+ * the cursors they no longer need)
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class MutationJournal {
+
+	/**
+	 * The position of a consumer in the journal (the sequence of the last event read)
+	 */
+	public static class Cursor {
+		
+		private long sequence;
+		
+		private Cursor(long sequence) {
+			this.sequence = sequence;
+		}
+		
+		public long getSequence() {
+			return (sequence);
+		}
+	}
+
+	private ArrayList<MutationEvent> events;
+	private ArrayList<MutationListener> listeners;
+	private ArrayList<Cursor> cursors;
+	private long lastSequence;
+	private long firstSequence; // The sequence of the first event kept in the journal
+
+	public MutationJournal() {
+		this.events = new ArrayList<MutationEvent>();
+		this.listeners = new ArrayList<MutationListener>();
+		this.cursors = new ArrayList<Cursor>();
+		this.lastSequence = 0;
+		this.firstSequence = 1;
+	}
+
+	public synchronized void addListener(MutationListener listener) {
+		if (!listeners.contains(listener))
+			listeners.add(listener);
+	}
+
+	public synchronized boolean removeListener(MutationListener listener) {
+		return (listeners.remove(listener));
+	}
+
+	/**
+	 * It opens a cursor positioned at the last event recorded, so that the events 
+	 * recorded from now on are kept until the cursor reads them (see getEventsSince())
+	 */
+	public synchronized Cursor openCursor() {
+		Cursor cursor = new Cursor(lastSequence);
+		cursors.add(cursor);
+		return (cursor);
+	}
+
+	/**
+	 * It closes a cursor, and discards the events that no other cursor needs
+	 */
+	public synchronized boolean closeCursor(Cursor cursor) {
+		boolean removed = cursors.remove(cursor);
+		if (removed)
+			this.discardReadEvents();
+		return (removed);
+	}
+
+	/**
+	 * It appends an event to the journal and notifies the listeners
+	 * 
+	 * @param type the type of change (see MutationEvent)
+	 * @param element the design element changed
+	 * @param target the other design element involved in the change (or null)
+	 * @param parameter the name of the parameter changed (or null)
+	 * @return the new event
+	 */
+	public MutationEvent record(int type, Object element, Object target, String parameter) {
+		
+		MutationEvent event = null;
+		List<MutationListener> currentListeners = null;
+		synchronized (this) {
+			lastSequence++;
+			event = new MutationEvent(lastSequence, type, element, target, parameter);
+			if (cursors.isEmpty()) // No consumer is going to read the event later
+				firstSequence = lastSequence + 1;
+			else
+				events.add(event);
+			if (listeners.isEmpty())
+				return (event);
+			currentListeners = new ArrayList<MutationListener>(listeners);
+		}
+		
+		// The listeners are notified outside the lock, so they can query the journal
+		for (Iterator<MutationListener> it = currentListeners.iterator(); it.hasNext();)
+			it.next().mutationRecorded(event);
+		return (event);
+	}
+
+	public MutationEvent record(int type, Object element) {
+		return (this.record(type, element, null, null));
+	}
+
+	// The sequence of the last event recorded (or 0 if no events were recorded)
+	public synchronized long getLastSequence() {
+		return (lastSequence);
+	}
+
+	/**
+	 * It returns the events recorded since the last time the cursor read the journal
+	 * (in the order they were recorded), and moves the cursor to the last event. 
+	 * The events that no other cursor needs are discarded
+	 */
+	public synchronized List<MutationEvent> getEventsSince(Cursor cursor) {
+		if (!cursors.contains(cursor))
+			throw new IllegalStateException("The cursor is not open in this journal");
+		int from = (int)(cursor.sequence + 1 - firstSequence);
+		List<MutationEvent> result = new ArrayList<MutationEvent>(events.subList(from, events.size()));
+		cursor.sequence = lastSequence;
+		this.discardReadEvents();
+		return (result);
+	}
+
+	// The events kept in the journal (i.e., the ones some open cursor has not read yet)
+	public synchronized List<MutationEvent> getEvents() {
+		return (Collections.unmodifiableList(new ArrayList<MutationEvent>(events)));
+	}
+
+	// It discards the events that every open cursor has already read
+	private void discardReadEvents() {
+		long sequence = lastSequence;
+		for (Iterator<Cursor> it = cursors.iterator(); it.hasNext();)
+			sequence = Math.min(sequence, it.next().sequence);
+		if (sequence < firstSequence)
+			return;
+		int count = (int)(sequence - firstSequence + 1);
+		events.subList(0, count).clear();
+		firstSequence = firstSequence + count;
+	}
+
+}
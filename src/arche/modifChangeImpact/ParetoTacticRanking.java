@@ -0,0 +1,247 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A multi-objective ranking of tactic candidates, according to both their cost of 
+ * transformation (i.e., the effort of applying the tactic) and the resulting cost of 
+ * the scenario. A candidate dominates another one if it is not worse in any of the two 
+ * costs, and it is better in at least one of them. 
+ * <p>
+ * The candidates are ranked in fronts: the first front (the Pareto front) contains the 
+ * candidates not dominated by any other candidate, the second front contains the candidates 
+ * only dominated by candidates of the first front, and so on. Since there are only two 
+ * objectives, the fronts are computed by sorting the candidates by their cost of 
+ * transformation, and then placing each candidate with a binary search over the fronts 
+ * (in O(n log n) time, for n candidates).
+ * <p>
+ * The candidates whose costs of transformation are still unknown (e.g., the deadline 
+ * expired before applying them) are not dominated by the others, but they cannot be 
+ * compared either. So they are left out of the fronts, and they are ranked after the 
+ * candidates of all the fronts (see getUnrankedCandidates())
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+public class ParetoTacticRanking {
+
+	private List<TacticCandidate> candidates;
+	private List<List<TacticCandidate>> fronts; // Computed on demand
+
+	public ParetoTacticRanking() {
+		this.candidates = new ArrayList<TacticCandidate>();
+		this.fronts = null;
+	}
+
+	public void addCandidate(TacticCandidate candidate) {
+		candidates.add(candidate);
+		fronts = null;
+	}
+
+	public void addCandidates(List<TacticCandidate> candidates) {
+		this.candidates.addAll(candidates);
+		fronts = null;
+	}
+
+	public List<TacticCandidate> getCandidates() {
+		return (candidates);
+	}
+
+	/**
+	 * It returns the candidates that are not dominated by any other candidate, 
+	 * in ascending order of their costs of transformation
+	 */
+	public List<TacticCandidate> getParetoFront() {
+		List<List<TacticCandidate>> fronts = this.getFronts();
+		if (fronts.isEmpty())
+			return (new ArrayList<TacticCandidate>());
+		return (fronts.get(0));
+	}
+
+	/**
+	 * It returns all the fronts (the Pareto front first). The candidates of each 
+	 * front are in ascending order of their costs of transformation
+	 */
+	public List<List<TacticCandidate>> getFronts() {
+		if (fronts == null)
+			fronts = ParetoTacticRanking.computeFronts(candidates);
+		return (fronts);
+	}
+
+	/**
+	 * It returns the candidates front by front (the Pareto front first), and within 
+	 * each front, in ascending order of their resulting costs. The candidates whose costs 
+	 * of transformation are unknown come last
+	 */
+	public List<TacticCandidate> getRankedCandidates() {
+		List<TacticCandidate> ranked = new ArrayList<TacticCandidate>();
+		List<TacticCandidate> front = null;
+		for (Iterator<List<TacticCandidate>> it = this.getFronts().iterator(); it.hasNext();) {
+			front = new ArrayList<TacticCandidate>(it.next());
+			Collections.sort(front, new ResultingCostComparator());
+			ranked.addAll(front);
+		}
+		ranked.addAll(this.getUnrankedCandidates());
+		return (ranked);
+	}
+
+	/**
+	 * It returns the candidates whose costs of transformation are unknown (they are not
+	 * in any front), in ascending order of their resulting costs
+	 */
+	public List<TacticCandidate> getUnrankedCandidates() {
+		List<TacticCandidate> unranked = new ArrayList<TacticCandidate>();
+		TacticCandidate candidate = null;
+		for (Iterator<TacticCandidate> it = candidates.iterator(); it.hasNext();) {
+			candidate = it.next();
+			if (!candidate.hasCostOfTransformation())
+				unranked.add(candidate);
+		}
+		Collections.sort(unranked, new ResultingCostComparator());
+		return (unranked);
+	}
+
+	/**
+	 * It sorts a list of candidates into non-dominated fronts (the candidates whose 
+	 * costs of transformation are unknown are skipped)
+	 */
+	public static List<List<TacticCandidate>> computeFronts(List<TacticCandidate> candidates) {
+
+		List<TacticCandidate> sorted = new ArrayList<TacticCandidate>(candidates.size());
+		TacticCandidate candidate = null;
+		for (Iterator<TacticCandidate> it = candidates.iterator(); it.hasNext();) {
+			candidate = it.next();
+			if (candidate.hasCostOfTransformation())
+				sorted.add(candidate);
+		}
+		Collections.sort(sorted, new TransformationCostComparator());
+		
+		// Since the candidates are visited in ascending order of their costs of transformation,
+		// the last candidate of each front has the lowest resulting cost of the front, and 
+		// these lowest costs increase from one front to the next one 
+		List<List<TacticCandidate>> fronts = new ArrayList<List<TacticCandidate>>();
+		List<TacticCandidate> lasts = new ArrayList<TacticCandidate>();
+		int low = 0;
+		int high = 0;
+		int middle = 0;
+		for (Iterator<TacticCandidate> it = sorted.iterator(); it.hasNext();) {
+			candidate = it.next();
+			// The candidate goes to the first front whose last candidate doesn't dominate it
+			low = 0;
+			high = fronts.size();
+			while (low < high) {
+				middle = (low + high) / 2;
+				if (ParetoTacticRanking.dominates(lasts.get(middle), candidate))
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			if (low == fronts.size()) {
+				fronts.add(new ArrayList<TacticCandidate>());
+				lasts.add(null);
+			}
+			fronts.get(low).add(candidate);
+			lasts.set(low, candidate);
+		}
+
+		return (fronts);
+	}
+
+	/**
+	 * It checks if a candidate dominates another one, that is, if it is not worse in 
+	 * any of the two costs, and it is better in at least one of them
+	 */
+	public static boolean dominates(TacticCandidate c1, TacticCandidate c2) {
+		if ((c1.getCostOfTransformation() > c2.getCostOfTransformation()) 
+				|| (c1.getResultingCost() > c2.getResultingCost()))
+			return (false);
+		return ((c1.getCostOfTransformation() < c2.getCostOfTransformation()) 
+				|| (c1.getResultingCost() < c2.getResultingCost()));
+	}
+
+	// This internal class will order candidates in an ascending order according to 
+	// their costs of transformation (and then to their resulting costs)
+	static class TransformationCostComparator implements Comparator<TacticCandidate> {
+
+		public int compare(TacticCandidate c1, TacticCandidate c2) {
+			if (c1.getCostOfTransformation() < c2.getCostOfTransformation())
+				return (-1);
+			else if (c1.getCostOfTransformation() > c2.getCostOfTransformation())
+				return (1);
+			else if (c1.getResultingCost() < c2.getResultingCost())
+				return (-1);
+			else if (c1.getResultingCost() > c2.getResultingCost())
+				return (1);
+			else
+				return (0);
+		}
+
+	}
+
+	// This internal class will order candidates in an ascending order 
+	// according to their resulting costs
+	static class ResultingCostComparator implements Comparator<TacticCandidate> {
+
+		public int compare(TacticCandidate c1, TacticCandidate c2) {
+			if (c1.getResultingCost() < c2.getResultingCost())
+				return (-1);
+			else if (c1.getResultingCost() > c2.getResultingCost())
+				return (1);
+			else
+				return (0);
+		}
+
+	}
+
+}
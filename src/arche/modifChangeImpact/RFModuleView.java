@@ -107,6 +107,15 @@ public interface RFModuleView extends ArchEView {
 	 */
 	public boolean hasDependency(ArchEModuleVO module1, ArchEModuleVO module2);	
 
+	/** 
+	 * It returns the modules that have a dependency with a particular module
+	 * (not including the module itself)
+	 * 
+	 * @param module
+	 * @return
+	 */
+	public List<ArchEModuleVO> getDependentModules(ArchEModuleVO module);
+
 	/** 
 	 * It returns all the modules defined for this view that contain a specific responsibility
 	 * 
@@ -114,6 +123,15 @@ public interface RFModuleView extends ArchEView {
 	 * @return
 	 */
 	public List<ArchEModuleVO> getModulesByResponsibility(ArchEResponsibility responsibility);
+
+	/** 
+	 * It returns a read-only list of the modules that contain a specific responsibility
+	 * (the list is not a copy, so it must not be iterated while the allocation changes)
+	 * 
+	 * @param responsibility
+	 * @return
+	 */
+	public List<ArchEModuleVO> getAllocatedModules(ArchEResponsibility responsibility);
 	
 	/** 
 	 * It returns all the modules defined for this view
@@ -130,6 +148,15 @@ public interface RFModuleView extends ArchEView {
 	 */
 	public List<ArchEResponsibility> getResponsibilitiesByModule(ArchEModuleVO module);
 
+	/** 
+	 * It returns a read-only list of the responsibilities allocated to a particular module
+	 * (the list is not a copy, so it must not be iterated while the allocation changes)
+	 * 
+	 * @param module
+	 * @return
+	 */
+	public List<ArchEResponsibility> getAllocatedResponsibilities(ArchEModuleVO module);
+
 
 }
 
@@ -0,0 +1,191 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A candidate for a tactic, as found by a given solver. A candidate keeps the 
+ * targets and parameters needed to create a tryTacticResult, as well as the
+ * estimated cost of the scenario before and after applying the tactic 
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+
+public class TacticCandidate {
+	
+	private String tacticName;
+	private List target;
+	private List parameters;
+	private List context;
+	private double currentCost; // The total cost before applying the tactic
+	private double resultingCost; // The total cost after applying the tactic
+	private double costReductionBound; // An optimistic estimate of the cost reduction
+	private double estimatedCostReduction; // A quick (not exact) estimate of the cost reduction, to order the candidates
+	private double costOfTransformation; // The cost of applying the tactic (unknown until it is applied)
+	private double[] features; // The features of the candidate for the surrogate model (if any)
+	private String neighborhoodHash; // The contents of the architecture around the target (if any)
+	private List<ArchEModuleVO> affectedModules; // The modules affected by the tactic (if any)
+	
+	public TacticCandidate(String tacticName, List target, double currentCost) {
+		this.tacticName = tacticName;
+		this.target = target;
+		this.parameters = null;
+		this.context = null;
+		this.currentCost = currentCost;
+		this.resultingCost = Double.MAX_VALUE;
+		this.costReductionBound = Double.MAX_VALUE;
+		this.estimatedCostReduction = 0.0;
+		this.costOfTransformation = Double.MAX_VALUE;
+		this.features = null;
+		this.neighborhoodHash = null;
+		this.affectedModules = null;
+	}
+
+	public String getTacticName() {
+		return (tacticName);
+	}
+
+	public List getTarget() {
+		return (target);
+	}
+
+	public List getParameters() {
+		return (parameters);
+	}
+
+	public void setParameters(List parameters) {
+		this.parameters = parameters;
+	}
+
+	public List getContext() {
+		return (context);
+	}
+
+	public void setContext(List context) {
+		this.context = context;
+	}
+
+	public double getCurrentCost() {
+		return (currentCost);
+	}
+
+	public double getResultingCost() {
+		return (resultingCost);
+	}
+
+	public void setResultingCost(double resultingCost) {
+		this.resultingCost = resultingCost;
+	}
+
+	public double getCostReductionBound() {
+		return (costReductionBound);
+	}
+
+	public void setCostReductionBound(double costReductionBound) {
+		this.costReductionBound = costReductionBound;
+	}
+
+	public double getEstimatedCostReduction() {
+		return (estimatedCostReduction);
+	}
+
+	public void setEstimatedCostReduction(double estimatedCostReduction) {
+		this.estimatedCostReduction = estimatedCostReduction;
+	}
+
+	public double getCostOfTransformation() {
+		return (costOfTransformation);
+	}
+
+	public void setCostOfTransformation(double costOfTransformation) {
+		this.costOfTransformation = costOfTransformation;
+	}
+
+	/**
+	 * It checks if the cost of transformation is known (i.e., the tactic has been applied)
+	 */
+	public boolean hasCostOfTransformation() {
+		return (costOfTransformation != Double.MAX_VALUE);
+	}
+
+	public double[] getFeatures() {
+		return (features);
+	}
+
+	public void setFeatures(double[] features) {
+		this.features = features;
+	}
+
+	public String getNeighborhoodHash() {
+		return (neighborhoodHash);
+	}
+
+	public void setNeighborhoodHash(String neighborhoodHash) {
+		this.neighborhoodHash = neighborhoodHash;
+	}
+
+	public List<ArchEModuleVO> getAffectedModules() {
+		return (affectedModules);
+	}
+
+	public void setAffectedModules(List<ArchEModuleVO> affectedModules) {
+		this.affectedModules = affectedModules;
+	}
+
+	/**
+	 * It returns the reduction in the total cost of the scenario due to the tactic 
+	 * (a negative value means that the tactic actually makes the cost worse)
+	 */
+	public double getCostReduction() {
+		return (currentCost - resultingCost);
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A bounded priority queue that keeps the K best candidates found by a solver,
+ * ranked according to their cost reduction. The worst candidate of the queue 
+ * is at its head, so that it can be replaced when a better candidate arrives.
+ * <p>
+ * Solvers are expected to evaluate their candidates in descending order of
+ * their cost reduction bounds, and stop as soon as canImprove() returns false
+ * (none of the remaining candidates can make it into the K best). When the 
+ * candidates are ordered by an estimate instead (see sortByEstimatedCostReduction()), 
+ * the bound of each candidate is checked before evaluating it
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class TacticCandidateQueue {
+	
+	private int capacity;
+	private PriorityQueue<TacticCandidate> queue;
+	
+	public TacticCandidateQueue(int maxCandidates) {
+		if (maxCandidates < 1)
+			maxCandidates = 1;
+		capacity = maxCandidates;
+		queue = new PriorityQueue<TacticCandidate>(capacity, new CostReductionComparator());
+	}
+	
+	/**
+	 * It adds a candidate (already evaluated) to the queue, as long as the queue is not
+	 * full or the candidate is better than the worst candidate in the queue
+	 * 
+	 * @param candidate the evaluated candidate
+	 * @return true if the candidate was kept in the queue
+	 */
+	public boolean offer(TacticCandidate candidate) {
+		if (queue.size() < capacity) {
+			queue.add(candidate);
+			return (true);
+		}
+		if (candidate.getCostReduction() > queue.peek().getCostReduction()) {
+			queue.poll();
+			queue.add(candidate);
+			return (true);
+		}
+		return (false);
+	}
+	
+	/**
+	 * It checks if a candidate with the given bound can still make it into 
+	 * the queue (i.e., the bound exceeds the K-th best cost reduction)
+	 * 
+	 * @param costReductionBound an optimistic estimate of the cost reduction of the candidate
+	 */
+	public boolean canImprove(double costReductionBound) {
+		if (queue.size() < capacity)
+			return (true);
+		return (costReductionBound > queue.peek().getCostReduction());
+	}
+	
+	public boolean isFull() {
+		return (queue.size() >= capacity);
+	}
+	
+	public int size() {
+		return (queue.size());
+	}
+	
+	public int getCapacity() {
+		return (capacity);
+	}
+	
+	/**
+	 * It returns the candidates in the queue in descending order of cost reduction 
+	 * (the best candidate first)
+	 */
+	public List<TacticCandidate> getRankedCandidates() {
+		List<TacticCandidate> ranked = new ArrayList<TacticCandidate>(queue);
+		Collections.sort(ranked, Collections.reverseOrder(new CostReductionComparator()));
+		return (ranked);
+	}
+
+	/**
+	 * It orders a list of (not yet evaluated) candidates in descending order
+	 * according to their cost reduction bounds
+	 */
+	public static void sortByCostReductionBound(List<TacticCandidate> candidates) {
+		Collections.sort(candidates, new CostReductionBoundComparator());
+		return;
+	}
+
+	/**
+	 * It orders a list of (not yet evaluated) candidates in descending order
+	 * according to their estimated cost reductions (ties keep the order of the list). 
+	 * The estimates are not bounds, so they are only used to evaluate the most 
+	 * promising candidates first
+	 */
+	public static void sortByEstimatedCostReduction(List<TacticCandidate> candidates) {
+		Collections.sort(candidates, new EstimatedCostReductionComparator());
+		return;
+	}
+
+	// This internal class will order candidates in an ascending order
+	// according to their cost reduction
+	static class CostReductionComparator implements Comparator<TacticCandidate> {
+
+		public int compare(TacticCandidate c1, TacticCandidate c2) {
+			double reduction1 = c1.getCostReduction();
+			double reduction2 = c2.getCostReduction();
+			if (reduction1 < reduction2)
+				return (-1);
+			else if (reduction1 > reduction2)
+				return (1);
+			else
+				return (0);
+		}
+
+	}
+
+	// This internal class will order candidates in a descending order
+	// according to their cost reduction bounds
+	static class CostReductionBoundComparator implements Comparator<TacticCandidate> {
+
+		public int compare(TacticCandidate c1, TacticCandidate c2) {
+			double bound1 = c1.getCostReductionBound();
+			double bound2 = c2.getCostReductionBound();
+			if (bound1 < bound2)
+				return (1);
+			else if (bound1 > bound2)
+				return (-1);
+			else
+				return (0);
+		}
+
+	}
+
+	// This internal class will order candidates in a descending order
+	// according to their estimated cost reductions
+	static class EstimatedCostReductionComparator implements Comparator<TacticCandidate> {
+
+		public int compare(TacticCandidate c1, TacticCandidate c2) {
+			double estimate1 = c1.getEstimatedCostReduction();
+			double estimate2 = c2.getEstimatedCostReduction();
+			if (estimate1 < estimate2)
+				return (1);
+			else if (estimate1 > estimate2)
+				return (-1);
+			else
+				return (0);
+		}
+
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A checkpoint of the search for tactics in a local file, so that a long search 
+ * (e.g., overnight) is not lost if Eclipse is closed or the search is cancelled.
+ * <p>
+ * The checkpoint stores the contents of a TacticSearchHistory (i.e., the candidates 
+ * visited by the solvers and their scores, from which the best candidates so far are 
+ * ranked again) along with the architecture version being analyzed. The history is
+ * saved at regular intervals while the solvers record new candidates, and it can be
+ * restored later only if the architecture version is unchanged. After that, the 
+ * solvers skip the analysis of the restored candidates (see TacticSearchHistory).
+ * <p>
+ * The file is written to a temporary file first, and then renamed, so that a 
+ * checkpoint is never left half-written
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TacticSearchCheckpoint {
+
+	public static final long DEFAULT_INTERVAL = 30000; // In milliseconds
+	
+	private static final String VERSION_PROPERTY = "version";
+
+	private File file;
+	private String versionId; // The architecture version being analyzed
+	private long interval; // The minimum time between two checkpoints
+	private AtomicLong lastSaved;
+	private int countSaved;
+
+	public TacticSearchCheckpoint(File file, String versionId) {
+		this.file = file;
+		this.versionId = versionId;
+		this.interval = DEFAULT_INTERVAL;
+		this.lastSaved = new AtomicLong(System.currentTimeMillis());
+		this.countSaved = 0;
+	}
+
+	public File getFile() {
+		return (file);
+	}
+
+	public String getVersionId() {
+		return (versionId);
+	}
+
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+
+	public synchronized int getCountSaved() {
+		return (countSaved);
+	}
+
+	/**
+	 * It checks if the interval since the last checkpoint has elapsed. If so, the 
+	 * next save is reserved for the caller, so that concurrent callers don't save 
+	 * the same history twice. This method doesn't block, so it can be called while 
+	 * holding the lock of the history (but the save itself shouldn't)
+	 */
+	public boolean claimSave() {
+		long last = lastSaved.get();
+		long now = System.currentTimeMillis();
+		return ((now - last >= interval) && lastSaved.compareAndSet(last, now));
+	}
+
+	/**
+	 * It saves the history to the file, if the interval since the last checkpoint has elapsed
+	 */
+	public void saveIfDue(TacticSearchHistory history) {
+		if (this.claimSave())
+			this.save(history);
+	}
+
+	/**
+	 * It saves the history to the file (replacing the previous checkpoint, if any)
+	 * 
+	 * @return false if the file couldn't be written
+	 */
+	public boolean save(TacticSearchHistory history) {
+		// The history is locked only while its entries are copied, not while the file is written
+		Properties properties = history.toProperties();
+		properties.setProperty(VERSION_PROPERTY, versionId);
+		return (this.write(properties));
+	}
+
+	private synchronized boolean write(Properties properties) {
+		File temporaryFile = new File(file.getPath()+".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(temporaryFile);
+			properties.store(out, "Tactic search checkpoint");
+			out.close();
+			out = null;
+			if (file.exists() && !file.delete())
+				return (false);
+			if (!temporaryFile.renameTo(file))
+				return (false);
+		} catch (IOException e) {
+			return (false);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// Nothing else can be done here
+				}
+			}
+		}
+		
+		lastSaved.set(System.currentTimeMillis());
+		countSaved++;
+		return (true);
+	}
+
+	/**
+	 * It restores the history from the file, as long as the checkpoint was taken 
+	 * for the same architecture version
+	 * 
+	 * @return the number of candidates restored (0 if there is no valid checkpoint)
+	 */
+	public int resume(TacticSearchHistory history) {
+		// The history is not locked while the file is read
+		Properties properties = this.read();
+		if ((properties == null) || !versionId.equals(properties.getProperty(VERSION_PROPERTY)))
+			return (0); // The architecture has changed since the checkpoint
+		properties.remove(VERSION_PROPERTY);
+		return (history.fromProperties(properties));
+	}
+
+	private synchronized Properties read() {
+		if (!file.exists())
+			return (null);
+		
+		Properties properties = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			properties.load(in);
+		} catch (IOException e) {
+			return (null);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// Nothing else can be done here
+				}
+			}
+		}
+		return (properties);
+	}
+
+	public synchronized boolean delete() {
+		return (!file.exists() || file.delete());
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A time budget for the search of tactics, which can also be cancelled at any 
+ * time (e.g., by the user). Solvers are expected to check the deadline between 
+ * the evaluation of two candidates, and return the best candidates found so far
+ * (flagged as a partial result) once the deadline has expired
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+public class TacticSearchDeadline {
+
+	private long deadline; // Absolute time in milliseconds (Long.MAX_VALUE means no time limit)
+	private volatile boolean cancelled; // It can be set by a thread other than the search one
+
+	/**
+	 * It creates a deadline with no time limit (it only expires when cancelled)
+	 */
+	public TacticSearchDeadline() {
+		this.deadline = Long.MAX_VALUE;
+		this.cancelled = false;
+	}
+
+	/**
+	 * It creates a deadline that expires after a given time budget
+	 * 
+	 * @param timeBudget the time budget in milliseconds
+	 */
+	public TacticSearchDeadline(long timeBudget) {
+		long now = System.currentTimeMillis();
+		if (timeBudget > Long.MAX_VALUE - now)
+			this.deadline = Long.MAX_VALUE;
+		else
+			this.deadline = now + timeBudget;
+		this.cancelled = false;
+	}
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return (cancelled);
+	}
+
+	/**
+	 * It checks if the search should stop, either because the time budget 
+	 * was exhausted or because the search was cancelled
+	 */
+	public boolean hasExpired() {
+		return (cancelled || (System.currentTimeMillis() >= deadline));
+	}
+
+	/**
+	 * It returns the remaining time in milliseconds (0 if the deadline has expired)
+	 */
+	public long getRemainingTime() {
+		if (cancelled)
+			return (0);
+		if (deadline == Long.MAX_VALUE)
+			return (Long.MAX_VALUE);
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining < 0)
+			return (0);
+		return (remaining);
+	}
+
+}
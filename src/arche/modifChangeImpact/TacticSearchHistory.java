@@ -0,0 +1,471 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A history of the candidates evaluated by the solvers in previous rounds, so that 
+ * a new search for tactics can start from the reductions found before. 
+ * <p>
+ * For each scenario, the history keeps the cost reduction of every analyzed candidate
+ * together with a hash of its neighborhood (i.e., the modules affected by the tactic,
+ * their neighbors, the responsibilities allocated to them, and their dependencies). 
+ * In the next round, a candidate whose neighborhood did not change is ranked with its 
+ * previous reduction, and only the candidates whose neighborhoods changed are analyzed again. 
+ * <p>
+ * The history can be saved to a local file at regular intervals, so that it can be
+ * restored after the search is cancelled (see TacticSearchCheckpoint).
+ * <p>
+ * A single history is shared by all the solvers (and threads) of the reasoning framework
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+
+import edu.cmu.sei.arche.ArchEException;
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+
+public class TacticSearchHistory {
+
+	private static TacticSearchHistory sharedHistory = new TacticSearchHistory();
+
+	// The entries of each scenario, indexed by the tactic and target of the candidates
+	private HashMap<String,HashMap<String,Entry>> entriesByScenario;
+	private long countRecalled; // Candidates ranked with their previous reductions
+	private long countRevalidated; // Candidates analyzed again because their neighborhoods changed
+	private TacticSearchCheckpoint checkpoint; // The file where the history is saved (if any)
+
+	public TacticSearchHistory() {
+		entriesByScenario = new HashMap<String,HashMap<String,Entry>>();
+		countRecalled = 0;
+		countRevalidated = 0;
+		checkpoint = null;
+	}
+
+	public static TacticSearchHistory getSharedHistory() {
+		return (sharedHistory);
+	}
+
+	/**
+	 * It checks if an entry was stored for the candidate in a previous round (whatever
+	 * its neighborhood), so that the neighborhood of the candidate is only computed 
+	 * when it can be recalled
+	 */
+	public synchronized boolean contains(ArchEScenario scenario, TacticCandidate candidate) {
+		HashMap<String,Entry> entries = entriesByScenario.get(scenario.getFactId());
+		return ((entries != null) && entries.containsKey(TacticSearchHistory.createKey(candidate)));
+	}
+
+	/**
+	 * It returns the entry stored for the candidate in a previous round, or null
+	 * if the candidate was never analyzed or its neighborhood has changed since then
+	 */
+	public synchronized Entry recall(ArchEScenario scenario, TacticCandidate candidate) {
+		HashMap<String,Entry> entries = entriesByScenario.get(scenario.getFactId());
+		if ((entries == null) || (candidate.getNeighborhoodHash() == null))
+			return (null);
+		
+		Entry entry = entries.get(TacticSearchHistory.createKey(candidate));
+		if (entry == null)
+			return (null);
+		if (!entry.getNeighborhoodHash().equals(candidate.getNeighborhoodHash())) {
+			countRevalidated++;
+			return (null);
+		}
+		countRecalled++;
+		return (entry);
+	}
+
+	/**
+	 * It stores the cost reduction of an analyzed candidate (it replaces the reduction 
+	 * found in previous rounds, if any)
+	 * 
+	 * @param scenario the scenario being analyzed
+	 * @param candidate the candidate (with its resulting cost and neighborhood)
+	 * @param setting an additional value found by the solver for the candidate (or null)
+	 */
+	public void record(ArchEScenario scenario, TacticCandidate candidate, Double setting) {
+		if (candidate.getNeighborhoodHash() == null)
+			return;
+		
+		TacticSearchCheckpoint dueCheckpoint = null;
+		synchronized (this) {
+			HashMap<String,Entry> entries = entriesByScenario.get(scenario.getFactId());
+			if (entries == null) {
+				entries = new HashMap<String,Entry>();
+				entriesByScenario.put(scenario.getFactId(), entries);
+			}
+			entries.put(TacticSearchHistory.createKey(candidate), 
+					new Entry(candidate.getNeighborhoodHash(), candidate.getCostReduction(), setting));
+			if ((checkpoint != null) && checkpoint.claimSave())
+				dueCheckpoint = checkpoint;
+		}
+		// The file is written once the lock is released, so that the other solvers 
+		// can keep recording candidates (the entries are copied by the checkpoint)
+		if (dueCheckpoint != null)
+			dueCheckpoint.save(this);
+	}
+
+	/**
+	 * It sets the checkpoint where the history is saved while the solvers record new 
+	 * candidates (or null to stop saving it)
+	 */
+	public synchronized void setCheckpoint(TacticSearchCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	public synchronized TacticSearchCheckpoint getCheckpoint() {
+		return (checkpoint);
+	}
+
+	public synchronized void clear() {
+		entriesByScenario.clear();
+		countRecalled = 0;
+		countRevalidated = 0;
+	}
+
+	public synchronized int size() {
+		int count = 0;
+		for (Iterator<HashMap<String,Entry>> it = entriesByScenario.values().iterator(); it.hasNext();)
+			count = count + it.next().size();
+		return (count);
+	}
+
+	public synchronized long getCountRecalled() {
+		return (countRecalled);
+	}
+
+	public synchronized long getCountRevalidated() {
+		return (countRevalidated);
+	}
+
+	/**
+	 * It converts the entries of the history to properties (one per candidate), 
+	 * as stored by a checkpoint
+	 */
+	public synchronized Properties toProperties() {
+		Properties properties = new Properties();
+		Map.Entry<String,HashMap<String,Entry>> scenarioEntries = null;
+		Map.Entry<String,Entry> candidateEntry = null;
+		Entry entry = null;
+		for (Iterator<Map.Entry<String,HashMap<String,Entry>>> itScenarios = entriesByScenario.entrySet().iterator(); itScenarios.hasNext();) {
+			scenarioEntries = itScenarios.next();
+			for (Iterator<Map.Entry<String,Entry>> itEntries = scenarioEntries.getValue().entrySet().iterator(); itEntries.hasNext();) {
+				candidateEntry = itEntries.next();
+				entry = candidateEntry.getValue();
+				properties.setProperty(scenarioEntries.getKey()+"|"+candidateEntry.getKey(), 
+						entry.getNeighborhoodHash()+";"+entry.getCostReduction()+";"+(entry.getSetting() != null? entry.getSetting(): ""));
+			}
+		}
+		return (properties);
+	}
+
+	/**
+	 * It adds the entries stored as properties by a checkpoint to the history (the 
+	 * malformed entries are ignored)
+	 * 
+	 * @return the number of entries added
+	 */
+	public synchronized int fromProperties(Properties properties) {
+		int count = 0;
+		String key = null;
+		String[] values = null;
+		int separator = -1;
+		HashMap<String,Entry> entries = null;
+		Double setting = null;
+		for (Iterator<Object> it = properties.keySet().iterator(); it.hasNext();) {
+			key = (String)(it.next());
+			separator = key.indexOf('|');
+			values = properties.getProperty(key).split(";", -1);
+			if ((separator == -1) || (values.length != 3))
+				continue;
+			
+			try {
+				setting = null;
+				if (values[2].length() > 0)
+					setting = Double.valueOf(values[2]);
+				entries = entriesByScenario.get(key.substring(0, separator));
+				if (entries == null) {
+					entries = new HashMap<String,Entry>();
+					entriesByScenario.put(key.substring(0, separator), entries);
+				}
+				entries.put(key.substring(separator + 1), new Entry(values[0], Double.parseDouble(values[1]), setting));
+				count++;
+			} catch (NumberFormatException e) {
+				// The entry is ignored
+			}
+		}
+		return (count);
+	}
+
+	private static String createKey(TacticCandidate candidate) {
+		StringBuffer key = new StringBuffer(candidate.getTacticName());
+		Object item = null;
+		for (Iterator it = candidate.getTarget().iterator(); it.hasNext();) {
+			item = it.next();
+			key.append('|');
+			// Two design elements are equal if they have the same name 
+			if (item instanceof ArchEModuleVO)
+				key.append(((ArchEModuleVO)item).getName());
+			else if (item instanceof ArchEResponsibility)
+				key.append(((ArchEResponsibility)item).getName());
+			else
+				key.append(item);
+		}
+		return (key.toString());
+	}
+
+	/**
+	 * It computes a hash of the contents of the architecture around the modules affected 
+	 * by a tactic (see Neighborhood.computeHash()). It builds the indexes of the 
+	 * neighborhood for a single candidate, so the solvers create a Neighborhood instead 
+	 * when they compute the hashes of several candidates
+	 */
+	public static String computeNeighborhoodHash(ModuleADLWrapper moduleView, 
+			ArchECoreResponsibilityStructure responsibilities, 
+			List<ArchEModuleVO> affectedModules, List<ArchEResponsibility> scenarioResponsibilities) {
+		
+		Neighborhood neighborhood = new Neighborhood(moduleView, responsibilities, scenarioResponsibilities);
+		return (neighborhood.computeHash(affectedModules));
+	}
+
+	/**
+	 * This internal class computes the hashes of the neighborhoods of the candidates 
+	 * found in a search. The dependencies of the responsibilities are indexed by the 
+	 * names of their responsibilities, and the terms that do not depend on the candidate
+	 * are computed once for all of them
+	 */
+	public static class Neighborhood {
+
+		private ModuleADLWrapper moduleView;
+		// The dependencies of each responsibility (as parent or child), indexed by its name
+		private HashMap<String,List<ArchEResponsibilityDependencyRelationVO>> dependenciesByResponsibility;
+		private List<String> globalLines; // The terms shared by all the neighborhoods
+
+		public Neighborhood(ModuleADLWrapper moduleView, ArchECoreResponsibilityStructure responsibilities, 
+				List<ArchEResponsibility> scenarioResponsibilities) {
+			this.moduleView = moduleView;
+			dependenciesByResponsibility = new HashMap<String,List<ArchEResponsibilityDependencyRelationVO>>();
+			List<ArchERelation> dependencies = responsibilities.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+			ArchEResponsibilityDependencyRelationVO dependency = null;
+			if (dependencies != null) {
+				for (Iterator<ArchERelation> itDeps = dependencies.iterator(); itDeps.hasNext();) {
+					dependency = (ArchEResponsibilityDependencyRelationVO)(itDeps.next());
+					this.indexDependency(dependency.getParent().getName(), dependency);
+					if (!dependency.getChild().getName().equals(dependency.getParent().getName()))
+						this.indexDependency(dependency.getChild().getName(), dependency);
+				}
+			}
+
+			// The responsibilities of the scenario and the total number of responsibilities 
+			// determine the scope of the analysis. The cost of a module also depends on 
+			// the rest of the view (e.g., through the ratio of allocated responsibilities),
+			// so the size of the view, its total module cost, and its allocations are included
+			globalLines = new ArrayList<String>();
+			for (Iterator<ArchEResponsibility> itResps = scenarioResponsibilities.iterator(); itResps.hasNext();)
+				globalLines.add("S:"+itResps.next().getName());
+			globalLines.add("C:"+responsibilities.getResponsibilities().size());
+			List<ArchEModuleVO> modules = moduleView.getModules();
+			ArchEModuleVO module = null;
+			double totalCost = 0.0;
+			int countAllocations = 0;
+			for (Iterator<ArchEModuleVO> itModules = modules.iterator(); itModules.hasNext();) {
+				module = itModules.next();
+				totalCost = totalCost + module.getCostOfChange();
+				countAllocations = countAllocations + moduleView.getCountAllocatedResponsibilities(module);
+			}
+			globalLines.add("G:"+modules.size()+":"+totalCost+":"+countAllocations+":"+moduleView.getCountAllocatedResponsibilities());
+		}
+
+		private void indexDependency(String name, ArchEResponsibilityDependencyRelationVO dependency) {
+			List<ArchEResponsibilityDependencyRelationVO> list = dependenciesByResponsibility.get(name);
+			if (list == null) {
+				list = new ArrayList<ArchEResponsibilityDependencyRelationVO>();
+				dependenciesByResponsibility.put(name, list);
+			}
+			list.add(dependency);
+		}
+
+		/**
+		 * It computes a hash of the contents of the architecture around the modules affected 
+		 * by a tactic: the modules and their neighbors, their costs, the responsibilities 
+		 * allocated to them (and their costs), the dependencies among them, and the 
+		 * dependencies of those responsibilities (with their rippling probabilities). The 
+		 * terms shared by all the neighborhoods are also included (see above)
+		 */
+		public String computeHash(List<ArchEModuleVO> affectedModules) {
+
+			List<String> lines = new ArrayList<String>(globalLines);
+
+			// The neighbors are taken from the rows of the dependencies (which are symmetric)
+			List<ArchEModuleVO> neighborhood = new ArrayList<ArchEModuleVO>();
+			IdentityHashMap<ArchEModuleVO,Boolean> included = new IdentityHashMap<ArchEModuleVO,Boolean>();
+			ArchEModuleVO module = null;
+			for (Iterator<ArchEModuleVO> itAffected = affectedModules.iterator(); itAffected.hasNext();) {
+				module = itAffected.next();
+				if (included.put(module, Boolean.TRUE) == null)
+					neighborhood.add(module);
+			}
+			ArchEModuleVO other = null;
+			BitSet row = null;
+			int index = -1;
+			for (Iterator<ArchEModuleVO> itAffected = affectedModules.iterator(); itAffected.hasNext();) {
+				index = moduleView.getModuleIndex(itAffected.next());
+				if (index == -1)
+					continue;
+				row = moduleView.getDependencyRow(index);
+				for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1)) {
+					other = moduleView.getModule(j);
+					if ((other != null) && (included.put(other, Boolean.TRUE) == null))
+						neighborhood.add(other);
+				}
+			}
+			
+			ArchEResponsibility resp = null;
+			Set<String> allocatedNames = new HashSet<String>();
+			for (Iterator<ArchEModuleVO> itModules = neighborhood.iterator(); itModules.hasNext();) {
+				module = itModules.next();
+				lines.add("M:"+module.getName()+":"+module.getCostOfChange());
+				for (Iterator<ArchEResponsibility> itResps = moduleView.getAllocatedResponsibilities(module).iterator(); itResps.hasNext();) {
+					resp = itResps.next();
+					allocatedNames.add(resp.getName());
+					try {
+						lines.add("A:"+module.getName()+":"+resp.getName()+":"
+								+resp.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE));
+					} catch (ArchEException e) {
+						lines.add("A:"+module.getName()+":"+resp.getName()+":?");
+					}
+				}
+				index = moduleView.getModuleIndex(module);
+				if (index == -1)
+					continue;
+				row = moduleView.getDependencyRow(index);
+				for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1)) {
+					other = moduleView.getModule(j);
+					if (other != null)
+						lines.add("D:"+module.getName()+":"+other.getName());
+				}
+			}
+
+			// The dependencies of the allocated responsibilities determine the rippling 
+			// among the modules of the neighborhood (each one is added once, even if both 
+			// of its responsibilities are allocated there)
+			IdentityHashMap<ArchEResponsibilityDependencyRelationVO,Boolean> added = new IdentityHashMap<ArchEResponsibilityDependencyRelationVO,Boolean>();
+			List<ArchEResponsibilityDependencyRelationVO> dependencies = null;
+			ArchEResponsibilityDependencyRelationVO dependency = null;
+			for (Iterator<String> itNames = allocatedNames.iterator(); itNames.hasNext();) {
+				dependencies = dependenciesByResponsibility.get(itNames.next());
+				if (dependencies == null)
+					continue;
+				for (Iterator<ArchEResponsibilityDependencyRelationVO> itDeps = dependencies.iterator(); itDeps.hasNext();) {
+					dependency = itDeps.next();
+					if (added.put(dependency, Boolean.TRUE) != null)
+						continue;
+					try {
+						lines.add("P:"+dependency.getParent().getName()+":"+dependency.getChild().getName()
+							+":"+dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING)
+							+":"+dependency.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING));
+					} catch (ArchEException e) {
+						lines.add("P:"+dependency.getParent().getName()+":"+dependency.getChild().getName()+":?");
+					}
+				}
+			}
+
+			Collections.sort(lines);
+			return (CandidateEvaluationCache.digest(lines));
+		}
+	}
+
+	/**
+	 * This internal class is the result of a candidate analyzed in a previous round
+	 */
+	public static class Entry {
+
+		private String neighborhoodHash;
+		private double costReduction;
+		private Double setting;
+
+		public Entry(String neighborhoodHash, double costReduction, Double setting) {
+			this.neighborhoodHash = neighborhoodHash;
+			this.costReduction = costReduction;
+			this.setting = setting;
+		}
+
+		public String getNeighborhoodHash() {
+			return (neighborhoodHash);
+		}
+
+		public double getCostReduction() {
+			return (costReduction);
+		}
+
+		/**
+		 * It returns the additional value found by the solver for the candidate (or null)
+		 */
+		public Double getSetting() {
+			return (setting);
+		}
+	}
+
+}
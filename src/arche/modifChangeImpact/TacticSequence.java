@@ -0,0 +1,144 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A sequence of tactics (as found by the beam search), along with the in-memory
+ * architecture that results from applying those tactics in order and the total
+ * cost of the scenario for that architecture. 
+ * <p>
+ * The architecture of a sequence is a copy of the original one, so it should
+ * never be saved to the DB. In order to apply the sequence for real, the tactics 
+ * must be applied again (one by one) on the actual architecture
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+
+public class TacticSequence {
+
+	private List<TacticCandidate> tactics;
+	private ArchECoreArchitecture architecture; // The architecture after applying the tactics
+	private double cost; // The total cost of the scenario after applying the tactics
+	private String structuralHash; // The key of the architecture in the transposition table
+
+	public TacticSequence(ArchECoreArchitecture architecture, double cost, String structuralHash) {
+		this.tactics = new ArrayList<TacticCandidate>();
+		this.architecture = architecture;
+		this.cost = cost;
+		this.structuralHash = structuralHash;
+	}
+
+	/**
+	 * It creates a new sequence that extends this one with one more tactic
+	 * 
+	 * @param tactic the tactic being appended to the sequence
+	 * @param architecture the architecture that results from applying the tactic
+	 * @param cost the total cost for the resulting architecture
+	 * @param structuralHash the key for the resulting architecture
+	 * @return
+	 */
+	public TacticSequence extend(TacticCandidate tactic, ArchECoreArchitecture architecture, 
+			double cost, String structuralHash) {
+		TacticSequence sequence = new TacticSequence(architecture, cost, structuralHash);
+		sequence.tactics.addAll(this.tactics);
+		sequence.tactics.add(tactic);
+		return (sequence);
+	}
+
+	public List<TacticCandidate> getTactics() {
+		return (Collections.unmodifiableList(tactics));
+	}
+
+	public int getDepth() {
+		return (tactics.size());
+	}
+
+	public ArchECoreArchitecture getArchitecture() {
+		return (architecture);
+	}
+
+	public double getCost() {
+		return (cost);
+	}
+
+	public String getStructuralHash() {
+		return (structuralHash);
+	}
+
+	/**
+	 * It orders a list of sequences in ascending order according to their costs
+	 * (the best sequence first)
+	 */
+	public static void sortByCost(List<TacticSequence> sequences) {
+		Collections.sort(sequences, new CostComparator());
+		return;
+	}
+
+	// This internal class will order sequences in an ascending order
+	// according to their costs (shorter sequences first, if costs are equal)
+	static class CostComparator implements Comparator<TacticSequence> {
+
+		public int compare(TacticSequence s1, TacticSequence s2) {
+			if (s1.getCost() < s2.getCost())
+				return (-1);
+			else if (s1.getCost() > s2.getCost())
+				return (1);
+			else
+				return (s1.getDepth() - s2.getDepth());
+		}
+
+	}
+
+}
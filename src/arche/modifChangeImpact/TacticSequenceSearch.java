@@ -0,0 +1,446 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * A beam search over sequences of tactics (up to a maximum depth). At each level, 
+ * every sequence in the beam is expanded with the best candidates found by the 
+ * solvers for its architecture, each candidate is applied on an in-memory copy 
+ * of that architecture, and the resulting architecture is analyzed for the scenario. 
+ * Only the best sequences (the beam width) are kept for the next level.
+ * <p>
+ * Architectures that are structurally equivalent (e.g., the same tactics applied
+ * in a different order) are detected by means of a transposition table, so that 
+ * each architecture is expanded only once. The sequences of a level are expanded
+ * in parallel by a pool of threads.
+ * <p>
+ * The solvers of the search use a history and a surrogate model of their own, since 
+ * the candidates of the (hypothetical) architectures of the search must not be 
+ * recorded in the ones shared by the reasoning framework (e.g., saved by its checkpoint)
+ * <p>
+ * Since the search works on copies, neither the original architecture nor the DB
+ * are modified by the search
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+
+import edu.cmu.sei.arche.ArchEException;
+import edu.cmu.sei.arche.external.data.ArchEArchitecture;
+import edu.cmu.sei.arche.external.data.ArchERelation;
+import edu.cmu.sei.arche.external.data.ArchEResponsibility;
+import edu.cmu.sei.arche.external.data.ArchEScenario;
+
+public class TacticSequenceSearch {
+
+	public static final int DEFAULT_BEAM_WIDTH 	= 3;
+	public static final int DEFAULT_MAX_DEPTH 	= 3;
+
+	// The counters appended by the tactics to the names of new responsibilities and
+	// modules are ignored, so that equivalent architectures get the same hash
+	private static final Pattern GENERATED_NAME_COUNTER = Pattern.compile("_(child|shared|intermediary|Intermediary)_?[0-9]+");
+
+	private ModifChangeImpactReasoningFramework reasoningFramework;
+	private int beamWidth;
+	private int maxDepth;
+	private int numberOfThreads;
+	private TacticSearchDeadline deadline;
+	private volatile boolean partialResult;
+
+	private Hashtable<String,Double> transpositionTable; // Structural hash -> cost of the architecture
+	private TacticSearchHistory searchHistory; // The reductions found for the architectures of the search
+	private CandidateSurrogateModel surrogateModel; // The predictions learned from the architectures of the search
+	private int countEvaluatedArchitectures;
+	private int countTranspositions;
+
+	public TacticSequenceSearch(ModifChangeImpactReasoningFramework reasoningFramework, 
+			int beamWidth, int maxDepth) {
+		this.reasoningFramework = reasoningFramework;
+		this.beamWidth = beamWidth;
+		this.maxDepth = maxDepth;
+		this.numberOfThreads = Runtime.getRuntime().availableProcessors();
+		this.deadline = new TacticSearchDeadline();
+		this.partialResult = false;
+		this.transpositionTable = new Hashtable<String,Double>();
+		this.searchHistory = new TacticSearchHistory();
+		this.surrogateModel = new CandidateSurrogateModel();
+		this.countEvaluatedArchitectures = 0;
+		this.countTranspositions = 0;
+	}
+
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void setDeadline(TacticSearchDeadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * It checks if the last search was interrupted by its deadline (the sequences
+	 * found so far are returned in that case)
+	 */
+	public boolean isPartialResult() {
+		return (partialResult);
+	}
+
+	public int getCountEvaluatedArchitectures() {
+		return (countEvaluatedArchitectures);
+	}
+
+	public int getCountTranspositions() {
+		return (countTranspositions);
+	}
+
+	/**
+	 * It searches for the best sequences of tactics (up to the maximum depth) for a 
+	 * given scenario, ranked in ascending order of their resulting costs
+	 * 
+	 * @param architecture the current architecture (it is not modified by the search)
+	 * @param scenario the scenario being analyzed
+	 * @param maxSequences the maximum number of sequences to be returned
+	 * @return the best sequences (or an empty list if the architecture cannot be analyzed)
+	 * @throws ArchEException
+	 */
+	public List<TacticSequence> search(ArchEArchitecture architecture, ArchEScenario scenario, 
+			int maxSequences) throws ArchEException {
+
+		transpositionTable.clear();
+		searchHistory.clear();
+		countEvaluatedArchitectures = 0;
+		countTranspositions = 0;
+		partialResult = false;
+
+		List<TacticSequence> bestSequences = new ArrayList<TacticSequence>();
+		
+		ArchECoreArchitecture root = TacticSequenceSearch.fork(architecture);
+		ChangeImpactAnalyzer rootAnalyzer = this.analyze(root, scenario);
+		if (rootAnalyzer == null) // The current architecture cannot be analyzed
+			return (bestSequences);
+		String rootHash = TacticSequenceSearch.computeStructuralHash(root, scenario);
+		transpositionTable.put(rootHash, rootAnalyzer.getTotalCost());
+
+		List<TacticSequence> beam = new ArrayList<TacticSequence>();
+		beam.add(new TacticSequence(root, rootAnalyzer.getTotalCost(), rootHash));
+
+		ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (int depth = 1; (depth <= maxDepth) && !beam.isEmpty() && !partialResult; depth++) {
+
+				// All the sequences of the beam are expanded in parallel
+				List<Callable<List<TacticSequence>>> expansions = new ArrayList<Callable<List<TacticSequence>>>();
+				for (Iterator<TacticSequence> it = beam.iterator(); it.hasNext();)
+					expansions.add(new ExpansionTask(it.next(), scenario));
+				
+				List<TacticSequence> successors = new ArrayList<TacticSequence>();
+				List<Future<List<TacticSequence>>> results = pool.invokeAll(expansions);
+				for (Iterator<Future<List<TacticSequence>>> it = results.iterator(); it.hasNext();)
+					successors.addAll(it.next().get());
+
+				// Only the best successors are kept for the next level
+				TacticSequence.sortByCost(successors);
+				beam = new ArrayList<TacticSequence>();
+				for (int i = 0; (i < successors.size()) && (i < beamWidth); i++) 
+					beam.add(successors.get(i));
+				bestSequences.addAll(beam);
+				
+				if ((depth < maxDepth) && deadline.hasExpired())
+					partialResult = true; // The next levels are not explored
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new ArchEException(e.getMessage(),e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+
+		TacticSequence.sortByCost(bestSequences);
+		if (bestSequences.size() > maxSequences)
+			return (new ArrayList<TacticSequence>(bestSequences.subList(0, maxSequences)));
+		return (bestSequences);
+	}
+
+	/**
+	 * It expands a sequence with the candidates found by the solvers for its architecture.
+	 * The candidates leading to architectures that were already reached by some other 
+	 * sequence are discarded
+	 */
+	protected List<TacticSequence> expand(TacticSequence sequence, ArchEScenario scenario) {
+
+		List<TacticSequence> successors = new ArrayList<TacticSequence>();
+
+		ArchECoreArchitecture architecture = sequence.getArchitecture();
+		ChangeImpactAnalyzer analyzer = this.analyze(architecture, scenario);
+		if (analyzer == null)
+			return (successors);
+
+		ChangeImpactModifiabilityResponsibilityStructure responsibilities = 
+			(ChangeImpactModifiabilityResponsibilityStructure)(architecture.getResponsibilityStructure());
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		List<ArchEResponsibility> primaryResps = responsibilities.getResponsibilitiesByScenario(scenario);
+
+		List<ModifiabilityTacticSolver> solvers = new ArrayList<ModifiabilityTacticSolver>();
+		List<ModifiabilityTacticSolverProvider> providers = TacticSolverRegistry.getSharedRegistry().getScheduledProviders();
+		for (Iterator<ModifiabilityTacticSolverProvider> itProviders = providers.iterator(); itProviders.hasNext();)
+			solvers.add(itProviders.next().createSolver(analyzer,primaryResps));
+
+		ModifiabilityTacticSolver solver = null;
+		TacticCandidate tactic = null;
+		ArchECoreArchitecture successor = null;
+		ChangeImpactAnalyzer successorAnalyzer = null;
+		String hash = null;
+		for (Iterator<ModifiabilityTacticSolver> itSolvers = solvers.iterator(); itSolvers.hasNext();) {
+			solver = itSolvers.next();
+			solver.setResponsibilityStructure(responsibilities);
+			solver.setModuleView(moduleView);
+			solver.setReasoningFramework(reasoningFramework);
+			solver.setSearchHistory(searchHistory);
+			solver.setSurrogateModel(surrogateModel);
+			if (!solver.searchForTactics(scenario, beamWidth, deadline))
+				continue;
+			if (solver.isPartialResult())
+				partialResult = true;
+			
+			for (Iterator<TacticCandidate> itTactics = solver.getCandidates().iterator(); itTactics.hasNext();) {
+				tactic = itTactics.next();
+				successor = TacticSequenceSearch.fork(architecture);
+				if (!reasoningFramework.applyTacticCandidate(successor, tactic))
+					continue;
+
+				hash = TacticSequenceSearch.computeStructuralHash(successor, scenario);
+				if (!this.registerTransposition(hash)) 
+					continue; // This architecture was already reached by some other sequence
+
+				successorAnalyzer = this.analyze(successor, scenario);
+				if (successorAnalyzer != null) {
+					transpositionTable.put(hash, successorAnalyzer.getTotalCost());
+					successors.add(sequence.extend(tactic, successor, successorAnalyzer.getTotalCost(), hash));
+				}
+			}
+		}
+
+		return (successors);
+	}
+
+	// It returns false if the architecture was already in the transposition table (its 
+	// hash covers the parameters of the analysis, so the architecture has the same cost)
+	private synchronized boolean registerTransposition(String hash) {
+		if (transpositionTable.containsKey(hash)) {
+			countTranspositions++;
+			return (false);
+		}
+		transpositionTable.put(hash, ModifChangeImpactReasoningFramework.INVALID_RESPONSE);
+		return (true);
+	}
+
+	/**
+	 * It runs the change impact analysis of a scenario on a given architecture
+	 * 
+	 * @return the analyzer after the evaluation, or null if the interpretation failed
+	 */
+	protected ChangeImpactAnalyzer analyze(ArchECoreArchitecture architecture, ArchEScenario scenario) {
+		
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		ChangeImpactModifiabilityResponsibilityStructure responsibilities = 
+			(ChangeImpactModifiabilityResponsibilityStructure)(architecture.getResponsibilityStructure());
+		ChangeImpactAnalyzer analyzer = new ChangeImpactAnalyzer(moduleView,responsibilities);
+		
+		try {
+			if (!analyzer.doInterpretation(responsibilities.getResponsibilitiesByScenario(scenario)))
+				return (null);
+		} catch (ChangeImpactAnalysisException e) {
+			return (null);
+		}
+		analyzer.doEvaluation();
+		
+		synchronized (this) {
+			countEvaluatedArchitectures++;
+		}
+		return (analyzer);
+	}
+
+	/**
+	 * It creates an in-memory copy of an architecture (responsibility structure and
+	 * module view), on which tactics can be applied without affecting the original one.
+	 * The copy of the view shares the contents of the original one until either changes them
+	 */
+	public static ArchECoreArchitecture fork(ArchEArchitecture architecture) {
+		ArchECoreArchitecture copy = new ArchECoreArchitecture(architecture.getCurrentVersion());
+		ChangeImpactModifiabilityResponsibilityStructure responsibilities = 
+			(ChangeImpactModifiabilityResponsibilityStructure)(architecture.getResponsibilityStructure());
+		copy.setResponsibilityStructure(responsibilities.copy(copy));
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		copy.setView(moduleView.copy(copy));
+		return (copy);
+	}
+
+	/**
+	 * It computes a key for an architecture that only depends on its structure and on
+	 * the parameters of the analysis: the responsibilities allocated to each module (with 
+	 * their costs), the costs of the modules, the dependencies between modules, the 
+	 * dependencies between responsibilities (with their rippling probabilities), and the 
+	 * responsibilities mapped to the scenario. The names of the modules themselves, as 
+	 * well as the counters in the names of the new responsibilities, are not considered
+	 */
+	public static String computeStructuralHash(ArchECoreArchitecture architecture, ArchEScenario scenario) {
+		
+		ModuleADLWrapper moduleView = (ModuleADLWrapper)(architecture.getView());
+		List<ArchEModuleVO> modules = moduleView.getModules();
+		
+		// Each module is described by its cost and its allocated responsibilities
+		String[] moduleKeys = new String[modules.size()];
+		List<String> names = null;
+		ArchEResponsibility responsibility = null;
+		for (int i = 0; i < modules.size(); i++) {
+			names = new ArrayList<String>();
+			for (Iterator<ArchEResponsibility> it = moduleView.getAllocatedResponsibilities(modules.get(i)).iterator(); it.hasNext();) {
+				responsibility = it.next();
+				names.add(TacticSequenceSearch.normalizeName(responsibility.getName())+"="
+						+TacticSequenceSearch.getParameter(responsibility, ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE));
+			}
+			Collections.sort(names);
+			moduleKeys[i] = modules.get(i).getCostOfChange()+names.toString();
+		}
+		List<String> allocations = new ArrayList<String>();
+		for (int i = 0; i < moduleKeys.length; i++)
+			allocations.add(moduleKeys[i]);
+		Collections.sort(allocations);
+
+		List<String> dependencies = new ArrayList<String>();
+		for (int i = 0; i < modules.size(); i++) {
+			for (int j = 0; j < i; j++) { // Dependencies between modules are symmetrical
+				if (moduleView.hasDependency(modules.get(i), modules.get(j))) {
+					if (moduleKeys[i].compareTo(moduleKeys[j]) < 0)
+						dependencies.add(moduleKeys[i]+"-"+moduleKeys[j]);
+					else
+						dependencies.add(moduleKeys[j]+"-"+moduleKeys[i]);
+				}
+			}
+		}
+		Collections.sort(dependencies);
+
+		ArchECoreResponsibilityStructure responsibilities = 
+			(ArchECoreResponsibilityStructure)(architecture.getResponsibilityStructure());
+		List<String> ripplings = new ArrayList<String>();
+		List<ArchERelation> relations = responsibilities.getRelations(ArchEResponsibilityDependencyRelationVO.class.getName());
+		ArchEResponsibilityDependencyRelationVO relation = null;
+		if (relations != null) {
+			for (Iterator<ArchERelation> it = relations.iterator(); it.hasNext();) {
+				relation = (ArchEResponsibilityDependencyRelationVO)(it.next());
+				ripplings.add(TacticSequenceSearch.normalizeName(relation.getParent().getName())+">"
+						+TacticSequenceSearch.normalizeName(relation.getChild().getName())+"="
+						+TacticSequenceSearch.getParameter(relation, ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING)+"/"
+						+TacticSequenceSearch.getParameter(relation, ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING));
+			}
+		}
+		Collections.sort(ripplings);
+
+		List<String> translations = new ArrayList<String>();
+		for (Iterator<ArchEResponsibility> it = responsibilities.getResponsibilitiesByScenario(scenario).iterator(); it.hasNext();) 
+			translations.add(TacticSequenceSearch.normalizeName(it.next().getName()));
+		Collections.sort(translations);
+
+		return (allocations.toString()+dependencies.toString()+ripplings.toString()+translations.toString());
+	}
+
+	// It returns the value of a parameter as text ("?" if it is not defined)
+	private static String getParameter(ArchEResponsibility responsibility, String parameter) {
+		try {
+			return (String.valueOf(responsibility.getDoubleParameter(parameter)));
+		} catch (ArchEException e) {
+			return ("?");
+		}
+	}
+
+	private static String getParameter(ArchERelation relation, String parameter) {
+		try {
+			return (String.valueOf(relation.getDoubleParameter(parameter)));
+		} catch (ArchEException e) {
+			return ("?");
+		}
+	}
+
+	private static String normalizeName(String name) {
+		return (GENERATED_NAME_COUNTER.matcher(name).replaceAll("_$1"));
+	}
+
+	// This internal class expands a sequence of the beam (in a thread of the pool)
+	class ExpansionTask implements Callable<List<TacticSequence>> {
+
+		private TacticSequence sequence;
+		private ArchEScenario scenario;
+
+		public ExpansionTask(TacticSequence sequence, ArchEScenario scenario) {
+			this.sequence = sequence;
+			this.scenario = scenario;
+		}
+
+		public List<TacticSequence> call() throws Exception {
+			return (expand(sequence, scenario));
+		}
+
+	}
+
+}
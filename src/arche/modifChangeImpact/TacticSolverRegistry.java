@@ -0,0 +1,186 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * This class keeps the providers of solvers available to the reasoning framework.
+ * The providers are discovered via java.util.ServiceLoader (files named
+ * META-INF/services/arche.modifChangeImpact.ModifiabilityTacticSolverProvider),
+ * so that domain-specific tactics can be plugged in by just adding a provider
+ * to the classpath of the plugin. If no provider can be discovered (e.g., because 
+ * of the class loader of the platform), the built-in solvers are registered.
+ * <p>
+ * The registry also schedules the solvers for a search: cheap and high-yield 
+ * solvers come first (in descending order of benefit per unit of cost), so that 
+ * the expensive ones can be skipped once enough good tactics have been found.
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+public class TacticSolverRegistry {
+
+	private static TacticSolverRegistry sharedRegistry = null;
+
+	private List<ModifiabilityTacticSolverProvider> providers;
+
+	public TacticSolverRegistry() {
+		providers = new ArrayList<ModifiabilityTacticSolverProvider>();
+	}
+
+	/**
+	 * It returns the registry shared by the reasoning framework, which is 
+	 * populated with the discovered providers the first time it is requested
+	 */
+	public static synchronized TacticSolverRegistry getSharedRegistry() {
+		if (sharedRegistry == null) {
+			sharedRegistry = new TacticSolverRegistry();
+			sharedRegistry.loadProviders(TacticSolverRegistry.class.getClassLoader());
+			if (sharedRegistry.getProviders().isEmpty())
+				sharedRegistry.registerBuiltInProviders();
+		}
+		return (sharedRegistry);
+	}
+
+	/**
+	 * It discovers the providers declared for a given class loader. Note that,
+	 * within the platform, the class loader of the plugin has to be given explicitly
+	 * (the context class loader of the thread does not see the plugin resources)
+	 * 
+	 * @param loader the class loader to look for the provider declarations
+	 * @return the number of providers discovered
+	 */
+	public synchronized int loadProviders(ClassLoader loader) {
+		int count = 0;
+		ServiceLoader<ModifiabilityTacticSolverProvider> serviceLoader = 
+			ServiceLoader.load(ModifiabilityTacticSolverProvider.class, loader);
+		Iterator<ModifiabilityTacticSolverProvider> it = serviceLoader.iterator();
+		boolean more = true;
+		while (more) {
+			try {
+				more = it.hasNext();
+				if (more && this.register(it.next()))
+					count++;
+			} catch (ServiceConfigurationError error) {
+				// A provider that cannot be instantiated is just ignored
+			}
+		}
+		return (count);
+	}
+
+	public synchronized void registerBuiltInProviders() {
+		this.register(new TrySplitResponsibilitySolver.Provider());
+		this.register(new TryInsertIntermediaryModuleSolver.Provider());
+		this.register(new TryAdjustImpactRefinedResponsibilitySolver.Provider());
+		this.register(new TryAbstractCommonResponsibilitiesSolver.Provider());
+	}
+
+	/**
+	 * It registers a provider, unless there's already a provider for the same tactic
+	 * 
+	 * @param provider
+	 * @return true if the provider was registered
+	 */
+	public synchronized boolean register(ModifiabilityTacticSolverProvider provider) {
+		if (this.getProvider(provider.getTacticName()) != null)
+			return (false);
+		providers.add(provider);
+		return (true);
+	}
+
+	public synchronized boolean unregister(String tacticName) {
+		ModifiabilityTacticSolverProvider provider = this.getProvider(tacticName);
+		if (provider == null)
+			return (false);
+		providers.remove(provider);
+		return (true);
+	}
+
+	public synchronized ModifiabilityTacticSolverProvider getProvider(String tacticName) {
+		ModifiabilityTacticSolverProvider provider = null;
+		for (Iterator<ModifiabilityTacticSolverProvider> it = providers.iterator(); it.hasNext();) {
+			provider = it.next();
+			if (provider.getTacticName().equals(tacticName))
+				return (provider);
+		}
+		return (null);
+	}
+
+	public synchronized List<ModifiabilityTacticSolverProvider> getProviders() {
+		return (new ArrayList<ModifiabilityTacticSolverProvider>(providers));
+	}
+
+	/**
+	 * It returns the providers in the order in which their solvers should be run,
+	 * that is, in descending order of expected benefit per unit of cost
+	 */
+	public synchronized List<ModifiabilityTacticSolverProvider> getScheduledProviders() {
+		List<ModifiabilityTacticSolverProvider> schedule = new ArrayList<ModifiabilityTacticSolverProvider>(providers);
+		// The sort is stable, so providers with the same ratio keep the registration order
+		Collections.sort(schedule, new BenefitPerCostComparator());
+		return (schedule);
+	}
+
+	// This internal class will order providers in a descending order of benefit per cost
+	static class BenefitPerCostComparator implements Comparator<ModifiabilityTacticSolverProvider> {
+
+		public int compare(ModifiabilityTacticSolverProvider p1, ModifiabilityTacticSolverProvider p2) {
+			double ratio1 = p1.getExpectedBenefit() / Math.max(p1.getEstimatedCost(), Double.MIN_VALUE);
+			double ratio2 = p2.getExpectedBenefit() / Math.max(p2.getEstimatedCost(), Double.MIN_VALUE);
+			return (Double.compare(ratio2, ratio1));
+		}
+	}
+
+}
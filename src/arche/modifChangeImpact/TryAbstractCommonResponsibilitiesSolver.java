@@ -60,10 +60,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 //import java.util.logging.Level;
 
 //import arche.example.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
-import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEScenarioVO;
@@ -73,44 +73,26 @@ import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 import edu.cmu.sei.arche.external.data.ArchEResponsibilityStructure;
 import edu.cmu.sei.arche.external.data.ArchEScenario;
 
-public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTacticSolver {
+public class TryAbstractCommonResponsibilitiesSolver extends AbstractModifiabilityTacticSolver {
 
 	private static final double THRESHOLD_COST = 0.003; 
+	private static final double REDUCTION_FACTOR = 0.9; // The cost to be reached (relative to the current cost)
 	
-	private ModuleADLWrapper myModuleView;
-	private ArchECoreResponsibilityStructure myResponsibilityStructure;		
-	private List<ArchEResponsibility> primaryResponsibilities;
 	private ArchEResponsibilityVO targetResponsibilityA;
 	private ArchEResponsibilityVO targetResponsibilityB;
-	private ChangeImpactAnalyzer initialAnalyzer;
 	private AbstractCommonResponsibilitiesChangeImpactAnalyzer bestAnalyzer;
 	private AbstractCommonResponsibilitiesChangeImpactAnalyzer betterAnalyzer;
-	private ArchEScenarioVO targetScenario = null;
 	private Double bestAbstractionCost;
 	
 	public TryAbstractCommonResponsibilitiesSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> scenarioResponsibilities) {
-		myModuleView = null;
-		myResponsibilityStructure = null;
-		primaryResponsibilities = scenarioResponsibilities;
+		super(analyzer, scenarioResponsibilities);
 		targetResponsibilityA = null;
 		targetResponsibilityB = null;
-		initialAnalyzer = analyzer;
 		bestAnalyzer = null;
 		betterAnalyzer = null;
-		targetScenario = null;
 	}
 	
-	public void setResponsibilityStructure(ArchECoreResponsibilityStructure responsibilities) {
-		myResponsibilityStructure = responsibilities;			
-	}
-	
-	public void setModuleView(RFModuleView view) {
-		myModuleView = (ModuleADLWrapper)view;			
-	}
-	
-	private Double findBestAbstractionCost(ArchEResponsibilityVO respA, ArchEResponsibilityVO respB, double maxCost) {
-		
-		double reductionFactor = 0.9;
+	private AbstractCommonResponsibilitiesChangeImpactAnalyzer evaluateAbstraction(ArchEResponsibilityVO respA, ArchEResponsibilityVO respB) {
 		
 		AbstractCommonResponsibilitiesChangeImpactAnalyzer newAnalyzer = new AbstractCommonResponsibilitiesChangeImpactAnalyzer(myModuleView, myResponsibilityStructure);
 		
@@ -119,16 +101,24 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 			newAnalyzer.doInterpretation(primaryResponsibilities);
 			newAnalyzer.doEvaluation();
 		} catch (ChangeImpactAnalysisException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			printLog(3, Level.INFO, "Abstraction of "+respA.getName()+" and "+respB.getName()+" couldn't be analyzed: "+e.getMessage());
+			return (null);
 		}				
+		return (newAnalyzer);
+	}
+
+	private Double findBestAbstractionCost(ArchEResponsibilityVO respA, ArchEResponsibilityVO respB, double maxCost) {
+		
+		AbstractCommonResponsibilitiesChangeImpactAnalyzer newAnalyzer = this.evaluateAbstraction(respA, respB);
+		if (newAnalyzer == null)
+			return (null);
 		double totalCost = newAnalyzer.getTotalCost();
 		//System.out.println("Total cost: "+totalCost);
 		
 		if ((betterAnalyzer == null) || (totalCost < betterAnalyzer.getTotalCost()))
 			betterAnalyzer = newAnalyzer;
 		
-		if (totalCost < reductionFactor * maxCost) {
+		if (totalCost < REDUCTION_FACTOR * maxCost) {
 			bestAnalyzer = newAnalyzer;
 			return (totalCost);
 		}
@@ -137,6 +127,10 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 	}	
 	
 	public boolean searchForTactic(ArchEScenario scenario) {
+		return (this.searchForTactic(scenario, new TacticSearchDeadline()));
+	}
+
+	public boolean searchForTactic(ArchEScenario scenario, TacticSearchDeadline deadline) {
 		
 		targetScenario = (ArchEScenarioVO)scenario;
 		// The responsibilities are ordered according to coupling in descendent order
@@ -154,16 +148,20 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 		targetResponsibilityB = null;
 		double estimatedCostA = 0.0;
 		double estimatedCostB = 0.0;
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
 		boolean found = false;
 		boolean stop = false;
 		boolean denormalizedCost = false;
+		List<ArchEModuleVO> affectedModules = null;
 		
 		for (int i = 0; (i < listResponsibilities.size()) && !stop ; i++) {
 			targetResponsibilityA = (ArchEResponsibilityVO)(listResponsibilities.get(i));
 			targetResponsibilityB = null;
 			estimatedCostA = initialAnalyzer.getResponsibilityEstimatedCost(targetResponsibilityA,denormalizedCost);
 
-			for (int j = i + 1; j < listResponsibilities.size(); j++) {
+			for (int j = i + 1; (j < listResponsibilities.size()) && !stop; j++) {
 				targetResponsibilityB = (ArchEResponsibilityVO)(listResponsibilities.get(j));
 				estimatedCostB = initialAnalyzer.getResponsibilityEstimatedCost(targetResponsibilityB,denormalizedCost);
 				
@@ -173,12 +171,28 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 					// Here, I have a candidate pair (A,B) that may or may not improve the scenario 
 					// response when common parts are separated
 //					System.out.println("======SEARCHING RESPONSIBILITIES TO ABSTRACT FOR: "+targetResponsibilityA.getName()+" - "+targetResponsibilityB.getName());			
-					bestAbstractionCost = this.findBestAbstractionCost(targetResponsibilityA,targetResponsibilityB,initialAnalyzer.getTotalCost());
+					affectedModules = new ArrayList<ArchEModuleVO>();
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(targetResponsibilityA));
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(targetResponsibilityB));
+					if ((betterAnalyzer != null) && initialAnalyzer.canDiscardTransformation(affectedModules, 
+							REDUCTION_FACTOR * initialAnalyzer.getTotalCost(), betterAnalyzer.getTotalCost())) {
+						bestAbstractionCost = null; // It can neither reach the target nor improve the best cost so far
+						countPrunedCandidates++;
+					}
+					else {
+						bestAbstractionCost = this.findBestAbstractionCost(targetResponsibilityA,targetResponsibilityB,initialAnalyzer.getTotalCost());
+						countEvaluatedCandidates++;
+					}
 //					System.out.println("               Best cost found (so far) = "+bestAbstractionCost);
 
 					// Check if I found something that improves the response?!
 					if (betterAnalyzer != null)  // At least there's a minimum cost found 
 						found = true;
+
+					if (deadline.hasExpired()) {
+						partialResult = true; // The best pair found so far is kept
+						stop = true;
+					}
 				}			
 			}			
 
@@ -251,6 +265,167 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 		return (at);
 	}
 
+	// It estimates the total cost after abstracting the common part of a pair of responsibilities 
+	// through a local edit of the initial analysis (similar to that simulated by 
+	// AbstractCommonResponsibilitiesChangeImpactAnalyzer, but only good to order the candidates, 
+	// since the rippling is not propagated again)
+	private double estimateAbstraction(ArchEResponsibilityVO respA, ArchEResponsibilityVO respB) {
+		
+		LocalChangeImpactEdit edit = initialAnalyzer.createLocalEdit();
+		double costShared = ChangeImpactAnalyzer.DEFAULT_RESPONSIBILITY_COST;
+		try {
+			costShared = 0.7* (respA.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE) 
+					+ respB.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE)) / 2.0;
+			if (costShared < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
+				costShared = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
+		} catch (ArchEException e) {
+			printLog(3, Level.INFO, "Costs of "+respA.getName()+" and "+respB.getName()+" not found, using the default cost: "+e.getMessage());
+		}
+
+		// The shared responsibility is allocated to a new module
+		double costM = ChangeImpactAnalyzer.normalizeModuleCost(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+		int shared = edit.addModule(costM);
+		edit.allocateResponsibility(shared, ChangeImpactAnalyzer.normalizeResponsibilityCost(costShared));
+		
+		// The modules of A & B depend on the new module, and keep only part of the costs of A & B
+		double rippling = 0.45 * ChangeImpactAnalyzer.DEFAULT_RIPLING_PROBABILITY_RESPONSIBILITIES;
+		List<ArchEModuleVO> modules = new ArrayList<ArchEModuleVO>(myModuleView.getModulesByResponsibility(respA));
+		ArchEModuleVO module = null;
+		for (Iterator<ArchEModuleVO> itModules = myModuleView.getModulesByResponsibility(respB).iterator(); itModules.hasNext();) {
+			module = itModules.next();
+			if (!modules.contains(module))
+				modules.add(module);
+		}
+		int pos = -1;
+		for (Iterator<ArchEModuleVO> itModules = modules.iterator(); itModules.hasNext();) {
+			pos = edit.getModulePosition(itModules.next());
+			if (pos != -1) {
+				edit.addModuleDependency(shared, pos, rippling);
+				edit.addModuleDependency(pos, shared, rippling);
+			}
+		}
+		edit.scaleResponsibilityCost(respA, 0.3);
+		edit.scaleResponsibilityCost(respB, 0.3);
+		edit.setResponsibilityCountDelta(1);
+		
+		return (initialAnalyzer.evaluateLocalEdit(edit));
+	}
+
+	// It computes the total cost after abstracting the common part of the pair of 
+	// target responsibilities of the candidate (or takes it from the previous round, 
+	// if the entry is not null)
+	protected boolean evaluateCandidate(TacticCandidate candidate, TacticSearchHistory.Entry previous) {
+		
+		ArchEResponsibilityVO respA = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+		ArchEResponsibilityVO respB = (ArchEResponsibilityVO)(candidate.getTarget().get(1));
+		Double improvedCostAfterAbstraction = null;
+		if (previous != null)
+			improvedCostAfterAbstraction = candidate.getCurrentCost() - previous.getCostReduction();
+		else {
+			String key = CandidateEvaluationCache.createKey(architectureHash, targetScenario, 
+					candidate.getTacticName(), candidate.getTarget(), null);
+			CandidateEvaluation evaluation = evaluationCache.lookup(key);
+			if (evaluation == null) { // The abstraction has to be analyzed
+				AbstractCommonResponsibilitiesChangeImpactAnalyzer newAnalyzer = this.evaluateAbstraction(respA, respB);
+				if (newAnalyzer == null)
+					return (false);
+				evaluation = new CandidateEvaluation(newAnalyzer);
+				evaluationCache.store(key, evaluation);
+			}
+			improvedCostAfterAbstraction = evaluation.getTotalCost();
+		}
+		candidate.setResultingCost(improvedCostAfterAbstraction);
+		if (previous == null)
+			this.recordCandidate(candidate, null);
+
+		List parameters = new ArrayList();
+		parameters.add(respA); // parameter <0> for the question
+		parameters.add(respB); // parameter <1> for the question
+		parameters.add(candidate.getCurrentCost()); // parameter <2> for the question
+		parameters.add(improvedCostAfterAbstraction); // parameter <3> for the question
+		parameters.add(targetScenario);
+		candidate.setParameters(parameters);
+
+		List at = new ArrayList();
+		at.add(respA);
+		at.add(respB);
+		candidate.setContext(at);
+		
+		return (true);
+	}
+
+	// The candidates are all the pairs of the responsibilities above the threshold
+	protected List<TacticCandidate> createCandidates(ArchEScenario scenario, double currentCost, TacticSearchDeadline deadline) {
+		
+		boolean denormalizedCost = false;
+		List<ArchEResponsibility> listResponsibilities = myResponsibilityStructure.getResponsibilitiesByScenario(scenario);
+		List<ArchEResponsibility> selectedResponsibilities = new ArrayList<ArchEResponsibility>();
+		ArchEResponsibility responsibility = null;
+		for (Iterator<ArchEResponsibility> itResponsibilities = listResponsibilities.iterator(); itResponsibilities.hasNext();) {
+			responsibility = itResponsibilities.next();
+			if (initialAnalyzer.isPrimaryResponsibility(responsibility) 
+					&& (initialAnalyzer.getResponsibilityEstimatedCost(responsibility,denormalizedCost) > THRESHOLD_COST))
+				selectedResponsibilities.add(responsibility);
+		}
+
+		List<TacticCandidate> pendingCandidates = new ArrayList<TacticCandidate>();
+		ArchEResponsibilityVO respA = null;
+		ArchEResponsibilityVO respB = null;
+		List<ArchEModuleVO> affectedModules = null;
+		List targets = null;
+		boolean stop = false;
+		for (int i = 0; (i < selectedResponsibilities.size()) && !stop; i++) {
+			respA = (ArchEResponsibilityVO)(selectedResponsibilities.get(i));
+			for (int j = i + 1; (j < selectedResponsibilities.size()) && !stop; j++) {
+				respB = (ArchEResponsibilityVO)(selectedResponsibilities.get(j));
+				targets = new ArrayList();
+				targets.add(respA);
+				targets.add(respB);
+				affectedModules = new ArrayList<ArchEModuleVO>();
+				affectedModules.addAll(myModuleView.getModulesByResponsibility(respA));
+				affectedModules.addAll(myModuleView.getModulesByResponsibility(respB));
+				pendingCandidates.add(this.createCandidate(ModifChangeImpactReasoningFramework.ABSTRACT_COMMON_RESPONSIBILITIES_TACTIC, 
+						targets, currentCost, affectedModules));
+				stop = deadline.hasExpired(); // The number of pairs is quadratic in the scenario size
+			}
+		}
+		return (pendingCandidates);
+	}
+
+	protected Double estimateResultingCost(TacticCandidate candidate) {
+		return (this.estimateAbstraction((ArchEResponsibilityVO)(candidate.getTarget().get(0)), 
+				(ArchEResponsibilityVO)(candidate.getTarget().get(1))));
+	}
+
+	/**
+	 * This internal class is the provider of "abstract common responsibilities" solvers, as discovered
+	 * by the TacticSolverRegistry
+	 */
+	public static class Provider implements ModifiabilityTacticSolverProvider {
+
+		public String getTacticName() {
+			return (ModifChangeImpactReasoningFramework.ABSTRACT_COMMON_RESPONSIBILITIES_TACTIC);
+		}
+
+		public double getEstimatedCost() {
+			return (4.0); // One what-if analysis per pair of responsibilities (quadratic in the scenario size)
+		}
+
+		public double getExpectedBenefit() {
+			return (0.5);
+		}
+
+		public ModifiabilityTacticSolver createSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> primaryResps) {
+			return (new TryAbstractCommonResponsibilitiesSolver(analyzer, primaryResps));
+		}
+
+		public String describeCandidate(TacticCandidate candidate, int rank) {
+			ArchEResponsibilityVO targetA = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+			ArchEResponsibilityVO targetB = (ArchEResponsibilityVO)(candidate.getTarget().get(1));
+			return ("Abstract Common Responsibilities Tactic "+rank+" ["+targetA.getName()+" - "+targetB.getName()+" ]");
+		}
+	}
+
 	// This internal class will order responsibilities in a descending order
 	// according to their individual costs
 	class ResponsibilityCostComparator implements Comparator<ArchEResponsibility> {
@@ -444,7 +619,7 @@ public class TryAbstractCommonResponsibilitiesSolver implements ModifiabilityTac
 		boolean becomesOrphanModule = false;
 		for (Iterator<ArchEResponsibility> itResps = responsibilities.iterator(); itResps.hasNext(); ) {
 			resp = itResps.next();
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> itMods = primaryModulesResp.iterator(); itMods.hasNext();) {
 				mod = itMods.next();
 				becomesOrphanModule = false; // Because it only contains the responsibility to be split
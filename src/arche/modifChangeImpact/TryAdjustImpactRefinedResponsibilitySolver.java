@@ -58,9 +58,9 @@ package arche.modifChangeImpact;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 //import java.util.logging.Level;
 
-import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEScenarioVO;
@@ -69,39 +69,22 @@ import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 import edu.cmu.sei.arche.external.data.ArchEResponsibilityStructure;
 import edu.cmu.sei.arche.external.data.ArchEScenario;
 
-public class TryAdjustImpactRefinedResponsibilitySolver implements ModifiabilityTacticSolver {
+public class TryAdjustImpactRefinedResponsibilitySolver extends AbstractModifiabilityTacticSolver {
 
-	private ModuleADLWrapper myModuleView;
-	private ArchECoreResponsibilityStructure myResponsibilityStructure;		
-	private List<ArchEResponsibility> primaryResponsibilities;
 	private ArchEResponsibilityVO targetResponsibility;
 	private ArchEResponsibilityVO leaf1, leaf2;
-	private ChangeImpactAnalyzer initialAnalyzer;
 	private AdjustResponsibilityRefinementChangeImpactAnalyzer bestAnalyzer;
 	private AdjustResponsibilityRefinementChangeImpactAnalyzer betterAnalyzer;
 	private Double bestAdjustmentCost;
-	private ArchEScenarioVO currentScenario;
 
 	
 	public TryAdjustImpactRefinedResponsibilitySolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> scenarioResponsibilities) {
-		myModuleView = null;
-		myResponsibilityStructure = null;
-		primaryResponsibilities = scenarioResponsibilities;
+		super(analyzer, scenarioResponsibilities);
 		targetResponsibility = null;
 		leaf1 = null;
 		leaf2 = null;
-		initialAnalyzer = analyzer;
 		bestAnalyzer = null;
 		betterAnalyzer = null;
-		currentScenario = null;
-	}
-	
-	public void setResponsibilityStructure(ArchECoreResponsibilityStructure responsibilities) {
-		myResponsibilityStructure = responsibilities;			
-	}
-	
-	public void setModuleView(RFModuleView view) {
-		myModuleView = (ModuleADLWrapper)view;			
 	}
 	
 	private List<ArchEResponsibility> findChildrenResponsibilities(ArchEResponsibility parent) {
@@ -110,7 +93,7 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 		ArchEResponsibilityVO respItem = null;
 		for (Iterator<ArchEResponsibility> it = children.iterator(); it.hasNext();) {
 			respItem = (ArchEResponsibilityVO)(it.next());
-			if (myResponsibilityStructure.existTranslation(currentScenario, respItem))
+			if (myResponsibilityStructure.existTranslation(targetScenario, respItem))
 				result.add(respItem);
 		}
 		return (result);
@@ -176,8 +159,12 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 	}
 	
 	public boolean searchForTactic(ArchEScenario scenario) {
+		return (this.searchForTactic(scenario, new TacticSearchDeadline()));
+	}
+
+	public boolean searchForTactic(ArchEScenario scenario, TacticSearchDeadline deadline) {
 		
-		currentScenario = (ArchEScenarioVO)(scenario);
+		targetScenario = (ArchEScenarioVO)(scenario);
 		
 		// The responsibilities are ordered according to coupling in descendent order
 //		List<ArchEResponsibility> listResponsibilities = myResponsibilityStructure.getResponsibilities();
@@ -190,6 +177,11 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 		betterAnalyzer = null;
 		targetResponsibility = null;
 		double estimatedCost = 0.0;
+		List<ArchEResponsibility> children = null;
+		List<ArchEModuleVO> affectedModules = null;
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
 		boolean found = false;
 		boolean stop = false;
 		while (itResponsibilities.hasNext() && !found && !stop) {				
@@ -198,7 +190,21 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 			if (!myResponsibilityStructure.isLeaf(targetResponsibility)) {
 				estimatedCost = initialAnalyzer.getTotalCost();				
 				//System.out.println("======SEARCHING RESPONSIBILITY TO ADJUST FOR: "+targetResponsibility.getName());			
-				bestAdjustmentCost = this.findBestAdjustmentCost(targetResponsibility,estimatedCost);
+				children = this.findChildrenResponsibilities(targetResponsibility);
+				affectedModules = new ArrayList<ArchEModuleVO>();
+				if (children.size() >= 2) {
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(children.get(0)));
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(children.get(1)));
+				}
+				if ((betterAnalyzer != null) && (children.size() >= 2) && initialAnalyzer.canDiscardTransformation(affectedModules, 
+						estimatedCost, betterAnalyzer.getTotalCost())) {
+					bestAdjustmentCost = null; // It can neither reach the target nor improve the best cost so far
+					countPrunedCandidates++;
+				}
+				else {
+					bestAdjustmentCost = this.findBestAdjustmentCost(targetResponsibility,estimatedCost);
+					countEvaluatedCandidates++;
+				}
 				//System.out.println("               Best cost found (so far) = "+bestAdjustmentCost);
 
 				if (initialAnalyzer.isPrimaryResponsibility(targetResponsibility) && bestAdjustmentCost != null) { 
@@ -206,6 +212,11 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 					//targetResponsibility = bestAnalyzer.getTargetResponsibility();
 				}				
 			}
+
+			if (itResponsibilities.hasNext() && !found && !stop && deadline.hasExpired()) {
+				partialResult = true; // The best candidate found so far is kept
+				stop = true;
+			}
 		}
 		
 		if (betterAnalyzer != null) { // At least there's a minimum cost found 
@@ -261,12 +272,133 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 			List<ArchEResponsibility> children = this.findChildrenResponsibilities(targetResponsibility);			
 			at.add(children.get(0));
 			at.add(children.get(1));
-			at.add(currentScenario);
+			at.add(targetScenario);
 		}		
 		
 		return (at);
 	}
 
+	// It computes the total cost after removing each of the two children of the target
+	// responsibility from the scenario, and keeps the lowest of the two costs (or takes
+	// it from the previous round, if the entry is not null)
+	protected boolean evaluateCandidate(TacticCandidate candidate, TacticSearchHistory.Entry previous) {
+		
+		ArchEResponsibilityVO parent = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+		ArchEResponsibilityVO child = null;
+		AdjustResponsibilityRefinementChangeImpactAnalyzer newAnalyzer = null;
+		CandidateEvaluation evaluation = null;
+		List removedChild = null;
+		String key = null;
+		double totalCost = 0.0;
+		if (previous != null)
+			candidate.setResultingCost(candidate.getCurrentCost() - previous.getCostReduction());
+		for (int i = 1; (i <= 2) && (previous == null); i++) {
+			child = (ArchEResponsibilityVO)(candidate.getTarget().get(i));
+			removedChild = new ArrayList();
+			removedChild.add(child);
+			key = CandidateEvaluationCache.createKey(architectureHash, targetScenario, 
+					candidate.getTacticName(), candidate.getTarget(), removedChild);
+			evaluation = evaluationCache.lookup(key);
+			if (evaluation == null) { // The adjustment has to be analyzed
+				newAnalyzer = new AdjustResponsibilityRefinementChangeImpactAnalyzer(myModuleView, myResponsibilityStructure);
+				newAnalyzer.setTargetResponsibility(parent);
+				try {
+					newAnalyzer.doInterpretation(this.getCopyOfResponsibilities(child));
+					newAnalyzer.doEvaluation();
+					evaluation = new CandidateEvaluation(newAnalyzer);
+					evaluationCache.store(key, evaluation);
+				} catch (ChangeImpactAnalysisException e) {
+					printLog(3, Level.INFO, "Removal of "+child.getName()+" from the scenario couldn't be analyzed: "+e.getMessage());
+				}				
+			}
+			if (evaluation != null) {
+				totalCost = evaluation.getTotalCost();
+				if (totalCost < candidate.getResultingCost())
+					candidate.setResultingCost(totalCost);
+			}
+		}
+		if (candidate.getResultingCost() == Double.MAX_VALUE)
+			return (false); // None of the children could be analyzed
+		if (previous == null)
+			this.recordCandidate(candidate, null);
+
+		List parameters = new ArrayList();
+		parameters.add(parent); // parameter <0> for the question
+		parameters.add(candidate.getTarget().get(1));
+		parameters.add(candidate.getTarget().get(2));
+		candidate.setParameters(parameters);
+
+		List at = new ArrayList();
+		at.add(parent);
+		at.add(candidate.getTarget().get(1));
+		at.add(candidate.getTarget().get(2));
+		at.add(targetScenario);
+		candidate.setContext(at);
+
+		return (true);
+	}
+
+	// The candidates are the refined responsibilities with (at least) two children in the scenario
+	protected List<TacticCandidate> createCandidates(ArchEScenario scenario, double currentCost, TacticSearchDeadline deadline) {
+		
+		List<TacticCandidate> pendingCandidates = new ArrayList<TacticCandidate>();
+		List<ArchEResponsibility> listResponsibilities = myResponsibilityStructure.getResponsibilitiesByScenario(scenario);
+		ArchEResponsibilityVO responsibility = null;
+		List<ArchEResponsibility> children = null;
+		List<ArchEModuleVO> affectedModules = null;
+		List targets = null;
+		Iterator<ArchEResponsibility> itResponsibilities = listResponsibilities.iterator();
+		while (itResponsibilities.hasNext() && !deadline.hasExpired()) {
+			responsibility = (ArchEResponsibilityVO)(itResponsibilities.next());
+			if (!myResponsibilityStructure.isLeaf(responsibility) 
+					&& initialAnalyzer.isPrimaryResponsibility(responsibility)) {
+				children = this.findChildrenResponsibilities(responsibility);
+				if (children.size() >= 2) {
+					targets = new ArrayList();
+					targets.add(responsibility);
+					targets.add(children.get(0));
+					targets.add(children.get(1));
+					affectedModules = new ArrayList<ArchEModuleVO>();
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(children.get(0)));
+					affectedModules.addAll(myModuleView.getModulesByResponsibility(children.get(1)));
+					pendingCandidates.add(this.createCandidate(ModifChangeImpactReasoningFramework.ADJUST_IMPACT_REFINED_RESPONSIBILITIES_TACTIC, 
+							targets, currentCost, affectedModules));
+				}
+			}
+		}
+		return (pendingCandidates);
+	}
+
+	/**
+	 * This internal class is the provider of "adjust change impact" solvers, as discovered
+	 * by the TacticSolverRegistry
+	 */
+	public static class Provider implements ModifiabilityTacticSolverProvider {
+
+		public String getTacticName() {
+			return (ModifChangeImpactReasoningFramework.ADJUST_IMPACT_REFINED_RESPONSIBILITIES_TACTIC);
+		}
+
+		public double getEstimatedCost() {
+			return (1.0); // One what-if analysis per pair of refined responsibilities (only a few per scenario)
+		}
+
+		public double getExpectedBenefit() {
+			return (0.3);
+		}
+
+		public ModifiabilityTacticSolver createSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> primaryResps) {
+			return (new TryAdjustImpactRefinedResponsibilitySolver(analyzer, primaryResps));
+		}
+
+		public String describeCandidate(TacticCandidate candidate, int rank) {
+			ArchEResponsibilityVO parent = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+			ArchEResponsibilityVO leaf1 = (ArchEResponsibilityVO)(candidate.getTarget().get(1));
+			ArchEResponsibilityVO leaf2 = (ArchEResponsibilityVO)(candidate.getTarget().get(2));
+			return ("Minimize Change Impact Tactic "+rank+" ["+parent.getName()+"-"+leaf1.getName()+"-"+leaf2.getName()+"]");
+		}
+	}
+
 	// This internal class simulates that some children responsibilities have been removed
 	// from the scenario, and then estimates the resulting cost of that tactic.
 	class AdjustResponsibilityRefinementChangeImpactAnalyzer extends ChangeImpactAnalyzer {
@@ -390,7 +522,7 @@ public class TryAdjustImpactRefinedResponsibilitySolver implements Modifiability
 		boolean becomesOrphanModule = false;
 		for (Iterator<ArchEResponsibility> itResps = responsibilities.iterator(); itResps.hasNext(); ) {
 			resp = itResps.next();
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> itMods = primaryModulesResp.iterator(); itMods.hasNext();) {
 				mod = itMods.next();
 				becomesOrphanModule = false; // Because it only contains the responsibility to be split
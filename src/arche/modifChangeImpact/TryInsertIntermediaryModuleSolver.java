@@ -61,9 +61,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 //import java.util.logging.Level;
 
-import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEScenarioVO;
@@ -73,44 +73,28 @@ import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 import edu.cmu.sei.arche.external.data.ArchEResponsibilityStructure;
 import edu.cmu.sei.arche.external.data.ArchEScenario;
 
-public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSolver {
+public class TryInsertIntermediaryModuleSolver extends AbstractModifiabilityTacticSolver {
 
 	private static final double THRESHOLD_COUPLING = 0.33; 
+	private static final double REDUCTION_FACTOR = 0.9; // The cost to be reached (relative to the current cost)
 	
-	private ModuleADLWrapper myModuleView;
-	private ArchECoreResponsibilityStructure myResponsibilityStructure;		
-	private List<ArchEResponsibility> primaryResponsibilities;
 	private Double bestIntermediaryCost;
 	private ArchEModuleVO targetModule;
-	private ChangeImpactAnalyzer initialAnalyzer;
 	private InsertIntermediaryChangeImpactAnalyzer bestAnalyzer;
 	private InsertIntermediaryChangeImpactAnalyzer betterAnalyzer;
-	private ArchEScenarioVO targetScenario;
 	
 	public TryInsertIntermediaryModuleSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> scenarioResponsibilities) {
-		myModuleView = null;
-		myResponsibilityStructure = null;
-		primaryResponsibilities = scenarioResponsibilities;
+		super(analyzer, scenarioResponsibilities);
 		targetModule = null;
-		initialAnalyzer = analyzer;
 		bestAnalyzer = null;
 		betterAnalyzer = null;
-		targetScenario = null;
 	}
 	
-	public void setResponsibilityStructure(ArchECoreResponsibilityStructure responsibilities) {
-		myResponsibilityStructure = responsibilities;			
-	}
-	
-	public void setModuleView(RFModuleView view) {
-		myModuleView = (ModuleADLWrapper)view;			
-	}
 
 	private Double optimizeIntermediaryCost(ArchEModuleVO module, double maxCost) {
 		
 		double guessIntermediaryCost = 1.0;
 		double totalCost = 0.0;
-		double costReduction = 0.9;
 		
 		// Try different costs for the intermediary just inserted
 		InsertIntermediaryChangeImpactAnalyzer newAnalyzer = new InsertIntermediaryChangeImpactAnalyzer(myModuleView, myResponsibilityStructure);
@@ -131,7 +115,7 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 			if ((betterAnalyzer == null) || (totalCost < betterAnalyzer.getTotalCost()))
 				betterAnalyzer = newAnalyzer;
 			
-			if (totalCost < costReduction*maxCost) {
+			if (totalCost < REDUCTION_FACTOR*maxCost) {
 				bestAnalyzer = newAnalyzer;
 				return (guessIntermediaryCost);
 			}
@@ -142,12 +126,18 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 	}
 	
 	public boolean searchForTactic(ArchEScenario scenario) {
+		return (this.searchForTactic(scenario, new TacticSearchDeadline()));
+	}
+
+	public boolean searchForTactic(ArchEScenario scenario, TacticSearchDeadline deadline) {
 		
 		targetScenario = (ArchEScenarioVO)scenario;
 		// The modules are ordered according to coupling in descending order
+		// (and the hub modules go first among the modules with the same coupling)
 		Comparator<ArchEModuleVO> c = new ModuleCouplingComparator(initialAnalyzer);
 //		List<ArchEModuleVO> listModules = myModuleView.getModules();
 		List<ArchEModuleVO> listModules = initialAnalyzer.getModules();
+		this.sortByFanIn(listModules);
 		Collections.sort(listModules, c);
 		
 		Iterator<ArchEModuleVO> itModules = listModules.iterator();
@@ -157,13 +147,27 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 		targetModule = null;
 		double estimatedCoupling = 0.0;
 		bestIntermediaryCost = null;
+		List<ArchEModuleVO> affectedModules = null;
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
 		boolean found = false;
 		boolean stop = false;
 		while (itModules.hasNext() && !found && !stop) {				
 			targetModule = itModules.next();
 			estimatedCoupling = initialAnalyzer.getModuleCoupling(targetModule);				
 			//System.out.println("======SEARCHING INTERMEDIARY FOR: "+targetModule.getName());					
-			bestIntermediaryCost = this.optimizeIntermediaryCost(targetModule,initialAnalyzer.getTotalCost());
+			affectedModules = new ArrayList<ArchEModuleVO>();
+			affectedModules.add(targetModule);
+			if ((betterAnalyzer != null) && initialAnalyzer.canDiscardTransformation(affectedModules, 
+					REDUCTION_FACTOR * initialAnalyzer.getTotalCost(), betterAnalyzer.getTotalCost())) {
+				bestIntermediaryCost = null; // It can neither reach the target nor improve the best cost so far
+				countPrunedCandidates++;
+			}
+			else {
+				bestIntermediaryCost = this.optimizeIntermediaryCost(targetModule,initialAnalyzer.getTotalCost());
+				countEvaluatedCandidates++;
+			}
 			//bestIntermediaryCost = this.optimizeIntermediaryCost(targetModule, scenario.getMeasureValue());
 			//System.out.println("               Best cost found (so far) = "+bestIntermediaryCost);
 			
@@ -175,6 +179,11 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 			
 			if (estimatedCoupling <= THRESHOLD_COUPLING)
 				stop = true; // The remaining modules are also below the threshold
+
+			if (itModules.hasNext() && !found && !stop && deadline.hasExpired()) {
+				partialResult = true; // The best candidate found so far is kept
+				stop = true;
+			}
 		}
 		
 		if (betterAnalyzer != null)
@@ -240,6 +249,137 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 		return (at);
 	}
 
+	// It tries different costs for the intermediary inserted for the target module of 
+	// the candidate, and keeps the lowest total cost found (and its parameters). If the entry 
+	// is not null, the cost and the intermediary are taken from the previous round instead
+	protected boolean evaluateCandidate(TacticCandidate candidate, TacticSearchHistory.Entry previous) {
+		
+		ArchEModuleVO module = (ArchEModuleVO)(candidate.getTarget().get(0));
+		double guessIntermediaryCost = 1.0;
+		double bestGuessIntermediaryCost = guessIntermediaryCost;
+		double totalCost = 0.0;
+
+		InsertIntermediaryChangeImpactAnalyzer newAnalyzer = null;
+		CandidateEvaluation evaluation = null;
+		List guess = null;
+		String key = null;
+		if (previous != null) {
+			candidate.setResultingCost(candidate.getCurrentCost() - previous.getCostReduction());
+			bestGuessIntermediaryCost = previous.getSetting();
+			guessIntermediaryCost = 0.0; // No need to try other costs for the intermediary
+		}
+		while (guessIntermediaryCost > 0.1) {
+			// Each cost for the intermediary is a different evaluation for the cache
+			guess = new ArrayList();
+			guess.add(guessIntermediaryCost);
+			key = CandidateEvaluationCache.createKey(architectureHash, targetScenario, 
+					candidate.getTacticName(), candidate.getTarget(), guess);
+			evaluation = evaluationCache.lookup(key);
+			if (evaluation == null) { // The intermediary has to be analyzed
+				if (newAnalyzer == null)
+					newAnalyzer = new InsertIntermediaryChangeImpactAnalyzer(myModuleView, myResponsibilityStructure);
+				newAnalyzer.setTargetModule(module, guessIntermediaryCost);
+				try {
+					newAnalyzer.doInterpretation(primaryResponsibilities);
+					newAnalyzer.doEvaluation();
+					evaluation = new CandidateEvaluation(newAnalyzer);
+					evaluationCache.store(key, evaluation);
+				} catch (ChangeImpactAnalysisException e) {
+					// The guess is skipped (the analyzer still has the results of the previous guess)
+					printLog(3, Level.INFO, "Intermediary for "+module.getName()+" with cost "+guessIntermediaryCost
+							+" couldn't be analyzed: "+e.getMessage());
+				}				
+			}
+			if (evaluation != null) {
+				totalCost = evaluation.getTotalCost();
+				if (totalCost < candidate.getResultingCost()) {
+					candidate.setResultingCost(totalCost);
+					bestGuessIntermediaryCost = guessIntermediaryCost;
+				}
+			}
+			
+			guessIntermediaryCost = guessIntermediaryCost - 0.1;
+		}
+		if (candidate.getResultingCost() == Double.MAX_VALUE)
+			return (false); // None of the guesses could be analyzed
+		if (previous == null)
+			this.recordCandidate(candidate, bestGuessIntermediaryCost);
+		
+		List parameters = new ArrayList();
+		parameters.add(module); // parameter <0> for the question
+		Double estimatedCostIntermediary = ChangeImpactAnalyzer.denormalizeModuleCost(bestGuessIntermediaryCost);
+		parameters.add(estimatedCostIntermediary); // parameter <1> for the question
+		parameters.add(candidate.getCurrentCost()); // parameter <2> for the question
+		parameters.add(candidate.getResultingCost()); // parameter <3> for the question
+		parameters.add(targetScenario);
+		candidate.setParameters(parameters);
+
+		List at = new ArrayList();
+		at.add(module);
+		candidate.setContext(at);
+		
+		return (true);
+	}
+
+	// The candidates are the modules above the coupling threshold (the hub modules go 
+	// first, so they are analyzed first among the candidates with the same bound)
+	protected List<TacticCandidate> createCandidates(ArchEScenario scenario, double currentCost, TacticSearchDeadline deadline) {
+		
+		List<TacticCandidate> pendingCandidates = new ArrayList<TacticCandidate>();
+		List<ArchEModuleVO> listModules = initialAnalyzer.getModules();
+		this.sortByFanIn(listModules);
+		ArchEModuleVO module = null;
+		List targets = null;
+		Iterator<ArchEModuleVO> itModules = listModules.iterator();
+		while (itModules.hasNext() && !deadline.hasExpired()) {
+			module = itModules.next();
+			if (initialAnalyzer.isPrimaryModule(module) 
+					&& (initialAnalyzer.getModuleCoupling(module) > THRESHOLD_COUPLING)) {
+				targets = new ArrayList();
+				targets.add(module);
+				pendingCandidates.add(this.createCandidate(ModifChangeImpactReasoningFramework.INSERT_INTERMEDIARY_MODULE_TACTIC, 
+						targets, currentCost, targets));
+			}
+		}
+		return (pendingCandidates);
+	}
+
+	// It orders the modules by the number of modules depending on them (the sort is 
+	// stable, so the fan-in only breaks the ties of the orderings applied later)
+	private void sortByFanIn(List<ArchEModuleVO> modules) {
+		if (myModuleView != null)
+			myModuleView.getDependencyGraph().sortByFanIn(modules);
+		return;
+	}
+
+	/**
+	 * This internal class is the provider of "insert intermediary" solvers, as discovered
+	 * by the TacticSolverRegistry
+	 */
+	public static class Provider implements ModifiabilityTacticSolverProvider {
+
+		public String getTacticName() {
+			return (ModifChangeImpactReasoningFramework.INSERT_INTERMEDIARY_MODULE_TACTIC);
+		}
+
+		public double getEstimatedCost() {
+			return (9.0); // Up to nine what-if analyses (guesses of the intermediary cost) per module
+		}
+
+		public double getExpectedBenefit() {
+			return (0.5);
+		}
+
+		public ModifiabilityTacticSolver createSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> primaryResps) {
+			return (new TryInsertIntermediaryModuleSolver(analyzer, primaryResps));
+		}
+
+		public String describeCandidate(TacticCandidate candidate, int rank) {
+			ArchEModuleVO target = (ArchEModuleVO)(candidate.getTarget().get(0));
+			return ("Insert Intermediary Tactic "+rank+" ["+target.getName()+"]");
+		}
+	}
+
 
 	// This internal class will order modules in a descending order
 	// according to their average coupling
@@ -427,7 +567,7 @@ public class TryInsertIntermediaryModuleSolver implements ModifiabilityTacticSol
 		List<ArchEModuleVO> primaryModulesResp = null;
 		for (Iterator<ArchEResponsibility> itResps = responsibilities.iterator(); itResps.hasNext(); ) {
 			resp = itResps.next();
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> itMods = primaryModulesResp.iterator(); itMods.hasNext();) {
 				mod = itMods.next();
 				if (!primaryModules.contains(mod))
@@ -60,9 +60,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 //import java.util.logging.Level;
 
-import arche.modifChangeImpact.hibernate.ArchECoreResponsibilityStructure;
 import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
 import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
@@ -73,43 +73,25 @@ import edu.cmu.sei.arche.external.data.ArchEResponsibility;
 import edu.cmu.sei.arche.external.data.ArchEResponsibilityStructure;
 import edu.cmu.sei.arche.external.data.ArchEScenario;
 
-public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
+public class TrySplitResponsibilitySolver extends AbstractModifiabilityTacticSolver {
 
 	private static final double THRESHOLD_COST = 0.05; 
+	private static final double REDUCTION_FACTOR = 0.9; // The cost to be reached (relative to the current cost)
 	
-	private ModuleADLWrapper myModuleView;
-	private ArchECoreResponsibilityStructure myResponsibilityStructure;		
-	private List<ArchEResponsibility> primaryResponsibilities;
 	private ArchEResponsibilityVO targetResponsibility;
-	private ChangeImpactAnalyzer initialAnalyzer;
 	private SplitResponsibilityChangeImpactAnalyzer bestAnalyzer;
 	private SplitResponsibilityChangeImpactAnalyzer betterAnalyzer;
 	private Double bestSplittingCost;
-	private ArchEScenarioVO targetScenario = null;
 
 	
 	public TrySplitResponsibilitySolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> scenarioResponsibilities) {
-		myModuleView = null;
-		myResponsibilityStructure = null;
-		primaryResponsibilities = scenarioResponsibilities;
+		super(analyzer, scenarioResponsibilities);
 		targetResponsibility = null;
-		initialAnalyzer = analyzer;
 		bestAnalyzer = null;
 		betterAnalyzer = null;
-		targetScenario = null;
 	}
 	
-	public void setResponsibilityStructure(ArchECoreResponsibilityStructure responsibilities) {
-		myResponsibilityStructure = responsibilities;			
-	}
-	
-	public void setModuleView(RFModuleView view) {
-		myModuleView = (ModuleADLWrapper)view;			
-	}
-	
-	private Double findBestSplittingCost(ArchEResponsibilityVO responsibility, double maxCost) {
-		
-		double reductionFactor = 0.9;
+	private SplitResponsibilityChangeImpactAnalyzer evaluateSplitting(ArchEResponsibilityVO responsibility) {
 		
 		SplitResponsibilityChangeImpactAnalyzer newAnalyzer = new SplitResponsibilityChangeImpactAnalyzer(myModuleView, myResponsibilityStructure);
 		
@@ -118,15 +100,23 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 			newAnalyzer.doInterpretation(primaryResponsibilities);
 			newAnalyzer.doEvaluation();
 		} catch (ChangeImpactAnalysisException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			printLog(3, Level.INFO, "Splitting of "+responsibility.getName()+" couldn't be analyzed: "+e.getMessage());
+			return (null);
 		}				
+		return (newAnalyzer);
+	}
+
+	private Double findBestSplittingCost(ArchEResponsibilityVO responsibility, double maxCost) {
+		
+		SplitResponsibilityChangeImpactAnalyzer newAnalyzer = this.evaluateSplitting(responsibility);
+		if (newAnalyzer == null)
+			return (null);
 		double totalCost = newAnalyzer.getTotalCost();
 		
 		if ((betterAnalyzer == null) || (totalCost < betterAnalyzer.getTotalCost()))
 			betterAnalyzer = newAnalyzer;
 		
-		if (totalCost < reductionFactor * maxCost) {
+		if (totalCost < REDUCTION_FACTOR * maxCost) {
 			bestAnalyzer = newAnalyzer;
 			return (totalCost);
 		}
@@ -135,6 +125,10 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 	}	
 	
 	public boolean searchForTactic(ArchEScenario scenario) {
+		return (this.searchForTactic(scenario, new TacticSearchDeadline()));
+	}
+
+	public boolean searchForTactic(ArchEScenario scenario, TacticSearchDeadline deadline) {
 		
 		targetScenario = (ArchEScenarioVO)scenario;
 		// The responsibilities are ordered according to coupling in descending order
@@ -150,6 +144,9 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 		betterAnalyzer = null;
 		targetResponsibility = null;
 		double estimatedCost = 0.0;
+		partialResult = false;
+		countEvaluatedCandidates = 0;
+		countPrunedCandidates = 0;
 		boolean found = false;
 		boolean stop = false;
 		boolean denormalizedCost = false;
@@ -158,7 +155,15 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 			estimatedCost = initialAnalyzer.getResponsibilityEstimatedCost(targetResponsibility,denormalizedCost);				
 			
 			//System.out.println("======SEARCHING RESPONSIBILITY TO SPLIT FOR: "+targetResponsibility.getName());			
-			bestSplittingCost = this.findBestSplittingCost(targetResponsibility,initialAnalyzer.getTotalCost());
+			if ((betterAnalyzer != null) && initialAnalyzer.canDiscardTransformation(myModuleView.getAllocatedModules(targetResponsibility), 
+					REDUCTION_FACTOR * initialAnalyzer.getTotalCost(), betterAnalyzer.getTotalCost())) {
+				bestSplittingCost = null; // It can neither reach the target nor improve the best cost so far
+				countPrunedCandidates++;
+			}
+			else {
+				bestSplittingCost = this.findBestSplittingCost(targetResponsibility,initialAnalyzer.getTotalCost());
+				countEvaluatedCandidates++;
+			}
 			//System.out.println("               Best cost found (so far) = "+bestSplittingCost);
 
 			if (initialAnalyzer.isPrimaryResponsibility(targetResponsibility) 
@@ -169,6 +174,11 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 
 			if (estimatedCost <= THRESHOLD_COST)
 				stop = true; // The remaining modules are also below the threshold
+
+			if (itResponsibilities.hasNext() && !found && !stop && deadline.hasExpired()) {
+				partialResult = true; // The best candidate found so far is kept
+				stop = true;
+			}
 		}
 		
 		if (betterAnalyzer != null) { // At least there's a minimum cost found 
@@ -229,6 +239,145 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 		return (at);
 	}
 
+	// It estimates the total cost after splitting a responsibility through a local edit 
+	// of the initial analysis (similar to that simulated by SplitResponsibilityChangeImpactAnalyzer,
+	// but only good to order the candidates, since the rippling is not propagated again)
+	private double estimateSplitting(ArchEResponsibilityVO responsibility) {
+		
+		LocalChangeImpactEdit edit = initialAnalyzer.createLocalEdit();
+		double costChildren = ChangeImpactAnalyzer.DEFAULT_RESPONSIBILITY_COST;
+		try {
+			costChildren = 0.3* responsibility.getDoubleParameter(ModifChangeImpactReasoningFramework.PARAMETER_COST_OF_CHANGE);
+			if (costChildren < ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST)
+				costChildren = ChangeImpactAnalyzer.MIN_RESPONSIBILITY_COST;
+		} catch (ArchEException e) {
+			printLog(3, Level.INFO, "Cost of "+responsibility.getName()+" not found, using the default cost: "+e.getMessage());
+		}
+
+		// The two children are allocated to new modules
+		double costM = ChangeImpactAnalyzer.normalizeModuleCost(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+		int childA = edit.addModule(costM);
+		int childB = edit.addModule(costM);
+		edit.allocateResponsibility(childA, ChangeImpactAnalyzer.normalizeResponsibilityCost(costChildren));
+		edit.allocateResponsibility(childB, ChangeImpactAnalyzer.normalizeResponsibilityCost(costChildren));
+		double rippling = 0.45 * ChangeImpactAnalyzer.DEFAULT_RIPLING_PROBABILITY_RESPONSIBILITIES;
+		edit.addModuleDependency(childA, childB, rippling);
+		edit.addModuleDependency(childB, childA, rippling);
+
+		// The children inherit half of the dependencies of the modules of the responsibility
+		List<ArchEModuleVO> modules = myModuleView.getAllocatedModules(responsibility);
+		int pos = -1;
+		for (Iterator<ArchEModuleVO> itModules = modules.iterator(); itModules.hasNext();) {
+			pos = edit.getModulePosition(itModules.next());
+			if (pos != -1) {
+				edit.copyModuleDependencies(pos, childA, 0.50);
+				edit.copyModuleDependencies(pos, childB, 0.50);
+			}
+		}
+		edit.deallocateResponsibility(responsibility);
+		for (Iterator<ArchEModuleVO> itModules = modules.iterator(); itModules.hasNext();) {
+			pos = edit.getModulePosition(itModules.next());
+			if ((pos != -1) && edit.isEmptyModule(pos))
+				edit.removeModule(pos);
+		}
+		edit.setResponsibilityCountDelta(2);
+		
+		return (initialAnalyzer.evaluateLocalEdit(edit));
+	}
+
+	// It computes the total cost after splitting the target responsibility of the candidate
+	// (or takes it from the previous round, if the entry is not null)
+	protected boolean evaluateCandidate(TacticCandidate candidate, TacticSearchHistory.Entry previous) {
+		
+		ArchEResponsibilityVO responsibility = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+		Double improvedCostAfterSplitting = null;
+		if (previous != null) 
+			improvedCostAfterSplitting = candidate.getCurrentCost() - previous.getCostReduction();
+		else {
+			String key = CandidateEvaluationCache.createKey(architectureHash, targetScenario, 
+					candidate.getTacticName(), candidate.getTarget(), null);
+			CandidateEvaluation evaluation = evaluationCache.lookup(key);
+			if (evaluation == null) { // The splitting has to be analyzed
+				SplitResponsibilityChangeImpactAnalyzer newAnalyzer = this.evaluateSplitting(responsibility);
+				if (newAnalyzer == null)
+					return (false);
+				evaluation = new CandidateEvaluation(newAnalyzer);
+				evaluationCache.store(key, evaluation);
+			}
+			improvedCostAfterSplitting = evaluation.getTotalCost();
+		}
+		candidate.setResultingCost(improvedCostAfterSplitting);
+		if (previous == null)
+			this.recordCandidate(candidate, null);
+
+		List parameters = new ArrayList();
+		parameters.add(responsibility); // parameter <0> for the question
+		parameters.add(candidate.getCurrentCost()); // parameter <1> for the question
+		parameters.add(improvedCostAfterSplitting); // parameter <2> for the question
+		parameters.add(targetScenario);
+		candidate.setParameters(parameters);
+
+		List at = new ArrayList();
+		at.add(responsibility);
+		candidate.setContext(at);
+		
+		return (true);
+	}
+
+	// The candidates are the responsibilities above the threshold
+	protected List<TacticCandidate> createCandidates(ArchEScenario scenario, double currentCost, TacticSearchDeadline deadline) {
+		
+		boolean denormalizedCost = false;
+		List<TacticCandidate> pendingCandidates = new ArrayList<TacticCandidate>();
+		List<ArchEResponsibility> listResponsibilities = myResponsibilityStructure.getResponsibilitiesByScenario(scenario);
+		ArchEResponsibilityVO responsibility = null;
+		List targets = null;
+		Iterator<ArchEResponsibility> itResponsibilities = listResponsibilities.iterator();
+		while (itResponsibilities.hasNext() && !deadline.hasExpired()) {
+			responsibility = (ArchEResponsibilityVO)(itResponsibilities.next());
+			if (initialAnalyzer.isPrimaryResponsibility(responsibility) 
+					&& (initialAnalyzer.getResponsibilityEstimatedCost(responsibility,denormalizedCost) > THRESHOLD_COST)) {
+				targets = new ArrayList();
+				targets.add(responsibility);
+				pendingCandidates.add(this.createCandidate(ModifChangeImpactReasoningFramework.SPLIT_RESPONSIBILITY_TACTIC, 
+						targets, currentCost, myModuleView.getAllocatedModules(responsibility)));
+			}
+		}
+		return (pendingCandidates);
+	}
+
+	protected Double estimateResultingCost(TacticCandidate candidate) {
+		return (this.estimateSplitting((ArchEResponsibilityVO)(candidate.getTarget().get(0))));
+	}
+
+	/**
+	 * This internal class is the provider of "split responsibility" solvers, as discovered
+	 * by the TacticSolverRegistry
+	 */
+	public static class Provider implements ModifiabilityTacticSolverProvider {
+
+		public String getTacticName() {
+			return (ModifChangeImpactReasoningFramework.SPLIT_RESPONSIBILITY_TACTIC);
+		}
+
+		public double getEstimatedCost() {
+			return (1.0); // One what-if analysis per responsibility of the scenario
+		}
+
+		public double getExpectedBenefit() {
+			return (0.6);
+		}
+
+		public ModifiabilityTacticSolver createSolver(ChangeImpactAnalyzer analyzer, List<ArchEResponsibility> primaryResps) {
+			return (new TrySplitResponsibilitySolver(analyzer, primaryResps));
+		}
+
+		public String describeCandidate(TacticCandidate candidate, int rank) {
+			ArchEResponsibilityVO target = (ArchEResponsibilityVO)(candidate.getTarget().get(0));
+			return ("Split Responsibility Tactic "+rank+" ["+target.getName()+"]");
+		}
+	}
+
 	// This internal class will order responsibilities in a descending order
 	// according to their individual costs
 	class ResponsibilityCostComparator implements Comparator<ArchEResponsibility> {
@@ -405,7 +554,7 @@ public class TrySplitResponsibilitySolver implements ModifiabilityTacticSolver {
 		boolean becomesOrphanModule = false;
 		for (Iterator<ArchEResponsibility> itResps = responsibilities.iterator(); itResps.hasNext(); ) {
 			resp = itResps.next();
-			primaryModulesResp = moduleView.getModulesByResponsibility(resp);
+			primaryModulesResp = moduleView.getAllocatedModules(resp);
 			for (Iterator<ArchEModuleVO> itMods = primaryModulesResp.iterator(); itMods.hasNext();) {
 				mod = itMods.next();
 				becomesOrphanModule = false; // Because it only contains the responsibility to be split
@@ -66,6 +66,8 @@ package arche.modifChangeImpact.hibernate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -115,7 +117,22 @@ public class ArchECoreResponsibilityStructure implements ArchEResponsibilityStru
 
 	public ArchEArchitecture getParent(){
 		return parent;
-	}	
+	}
+
+	/**
+	 * Copy the responsibilities and the core relations of another structure into this one.
+	 * The VOs are shared, but the containers are not, so that in-memory changes
+	 * (e.g., when trying tactics) on this structure do not affect the source structure
+	 *
+	 * @param source The responsibility structure to be copied
+	 */
+	protected void copyContentsFrom(ArchECoreResponsibilityStructure source) {
+		this.rawRSVO = new ArchEResponsibilityStructureVO(
+				new HashSet<ArchEResponsibilityVO>(source.rawRSVO.getResponsibilities()));
+		this.rawRSVO.setId(source.rawRSVO.getId());
+		this.trVOs = new ArrayList<ArchETranslationRelationVO>(source.trVOs);
+		this.refVOs = new ArrayList<ArchERefinementRelationVO>(source.refVOs);
+	}
 
 	/**
 	 * Restore all the VOs related to this core responsibility structure
@@ -681,4 +698,58 @@ public class ArchECoreResponsibilityStructure implements ArchEResponsibilityStru
 		return (false);		
 	}
 
+	/** 
+	 * Creates an index of the responsibilities refined by other responsibilities, so that
+	 * many responsibilities can be tested for being leaves after a single pass over the 
+	 * refinement relations (the index is not updated when the refinements change)
+	 */
+	public RefinementIndex createRefinementIndex() {
+		RefinementIndex index = new RefinementIndex();
+		ArchERefinementRelationVO item = null;
+		for (Iterator<ArchERefinementRelationVO> it = refVOs.iterator(); it.hasNext();) {
+			item = it.next();
+			if ((item.getParent() != null) && (item.getChild() != null))
+				index.addRefinedResponsibility(item.getParent());
+		}
+		return (index);
+	}
+
+	/**
+	 * An index of refined responsibilities that answers isLeaf() in constant time, with the 
+	 * same notion of equality as the responsibility VOs (i.e., the same object, or the same
+	 * uid or name when both responsibilities have uids)
+	 */
+	public static class RefinementIndex {
+
+		private IdentityHashMap<ArchEResponsibility,Boolean> refinedResponsibilities;
+		private HashSet<Integer> refinedUids;
+		private HashSet<String> refinedNames;
+
+		RefinementIndex() {
+			refinedResponsibilities = new IdentityHashMap<ArchEResponsibility,Boolean>();
+			refinedUids = new HashSet<Integer>();
+			refinedNames = new HashSet<String>();
+		}
+
+		void addRefinedResponsibility(ArchEResponsibilityVO responsibility) {
+			refinedResponsibilities.put(responsibility, Boolean.TRUE);
+			if (responsibility.getUid() != null) {
+				refinedUids.add(responsibility.getUid());
+				refinedNames.add(responsibility.getName());
+			}
+		}
+
+		public boolean isLeaf(ArchEResponsibility responsibility) {
+			if (refinedResponsibilities.containsKey(responsibility))
+				return (false);
+			if ((responsibility instanceof ArchEResponsibilityVO) 
+					&& (((ArchEResponsibilityVO)responsibility).getUid() != null)) {
+				ArchEResponsibilityVO responsibilityVO = (ArchEResponsibilityVO)responsibility;
+				if (refinedUids.contains(responsibilityVO.getUid()) || refinedNames.contains(responsibilityVO.getName()))
+					return (false);
+			}
+			return (true);
+		}
+	}
+
 }
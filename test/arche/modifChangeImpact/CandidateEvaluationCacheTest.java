@@ -0,0 +1,227 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * It checks the least-recently-used policy of CandidateEvaluationCache against a 
+ * simple list of keys, and the keys and hashes used to look up the evaluations
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEScenarioVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
+
+import junit.framework.TestCase;
+
+public class CandidateEvaluationCacheTest extends TestCase {
+
+	private ArchEVersionVO version;
+	private ArchECoreArchitecture architecture;
+	private ChangeImpactModifiabilityResponsibilityStructure structure;
+
+	protected void setUp() throws Exception {
+		version = new ArchEVersionVO();
+		version.setId(1);
+		version.setMaxFactID(1);
+		architecture = new ArchECoreArchitecture(version);
+		structure = new ChangeImpactModifiabilityResponsibilityStructure(architecture);
+	}
+
+	public void testLeastRecentlyUsedEviction() {
+		
+		Random random = new Random(13);
+		int capacity = 8;
+		CandidateEvaluationCache cache = new CandidateEvaluationCache(capacity);
+		LinkedList<String> recent = new LinkedList<String>(); // The most recently used key last
+		long hits = 0;
+		long misses = 0;
+		String key = null;
+		CandidateEvaluation evaluation = null;
+		for (int step = 0; step < 5000; step++) {
+			key = "K"+random.nextInt(20);
+			if (random.nextBoolean()) {
+				evaluation = cache.lookup(key);
+				if (recent.remove(key)) {
+					assertNotNull(key, evaluation);
+					assertEquals(Double.parseDouble(key.substring(1)), evaluation.getTotalCost(), 0.0);
+					recent.addLast(key);
+					hits++;
+				}
+				else {
+					assertNull(key, evaluation);
+					misses++;
+				}
+			}
+			else {
+				cache.store(key, this.createEvaluation(Double.parseDouble(key.substring(1))));
+				recent.remove(key);
+				recent.addLast(key);
+				if (recent.size() > capacity)
+					recent.removeFirst();
+			}
+			assertEquals(recent.size(), cache.size());
+		}
+		assertEquals(hits, cache.getHits());
+		assertEquals(misses, cache.getMisses());
+		assertEquals((double)hits / (hits + misses), cache.getHitRatio(), 1e-12);
+	}
+
+	public void testLookupRefreshesAnEntry() {
+		
+		CandidateEvaluationCache cache = new CandidateEvaluationCache(2);
+		cache.store("A", this.createEvaluation(1.0));
+		cache.store("B", this.createEvaluation(2.0));
+		assertNotNull(cache.lookup("A")); // Now B is the least recently used
+		cache.store("C", this.createEvaluation(3.0));
+		assertNotNull(cache.lookup("A"));
+		assertNull(cache.lookup("B"));
+		assertNotNull(cache.lookup("C"));
+		
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+		assertEquals(0.0, cache.getHitRatio(), 0.0);
+	}
+
+	public void testKeys() {
+		
+		ArchEScenarioVO scenario1 = new ArchEScenarioVO();
+		scenario1.setFactId("S1");
+		ArchEScenarioVO scenario2 = new ArchEScenarioVO();
+		scenario2.setFactId("S2");
+		List<ArchEResponsibilityVO> target = new ArrayList<ArchEResponsibilityVO>();
+		target.add(this.createResponsibility("R1"));
+		List<ArchEResponsibilityVO> sameTarget = new ArrayList<ArchEResponsibilityVO>();
+		sameTarget.add(this.createResponsibility("R1")); // Another VO with the same name
+		List<ArchEResponsibilityVO> otherTarget = new ArrayList<ArchEResponsibilityVO>();
+		otherTarget.add(this.createResponsibility("R2"));
+		List<Double> parameters = new ArrayList<Double>();
+		parameters.add(0.5);
+		
+		String key = CandidateEvaluationCache.createKey("H", scenario1, "split", target, null);
+		assertEquals(key, CandidateEvaluationCache.createKey("H", scenario1, "split", sameTarget, null));
+		assertFalse(key.equals(CandidateEvaluationCache.createKey("G", scenario1, "split", target, null)));
+		assertFalse(key.equals(CandidateEvaluationCache.createKey("H", scenario2, "split", target, null)));
+		assertFalse(key.equals(CandidateEvaluationCache.createKey("H", scenario1, "abstract", target, null)));
+		assertFalse(key.equals(CandidateEvaluationCache.createKey("H", scenario1, "split", otherTarget, null)));
+		assertFalse(key.equals(CandidateEvaluationCache.createKey("H", scenario1, "split", target, parameters)));
+	}
+
+	public void testArchitectureHash() {
+		
+		ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+		List<ArchEModuleVO> modules = new ArrayList<ArchEModuleVO>();
+		List<ArchEResponsibilityVO> responsibilities = new ArrayList<ArchEResponsibilityVO>();
+		for (int i = 0; i < 40; i++) {
+			modules.add(this.createModule("M"+i));
+			view.defineModule(modules.get(i));
+			responsibilities.add(this.createResponsibility("R"+i));
+			structure.addResponsibility(responsibilities.get(i));
+			view.defineResponsibility(responsibilities.get(i));
+			view.setResponsibilityAllocation(modules.get(i), responsibilities.get(i), true);
+		}
+		for (int i = 1; i < 40; i++)
+			view.setModuleDependency(modules.get(i - 1), modules.get(i), true);
+		String hash = CandidateEvaluationCache.computeArchitectureHash(view, structure);
+		assertEquals(hash, CandidateEvaluationCache.computeArchitectureHash(view, structure));
+		
+		// A module that is removed and then defined again leaves a tombstone, but the 
+		// contents (and thus the hash) are the same before and after the compaction
+		view.removeModule(modules.get(0));
+		String removed = CandidateEvaluationCache.computeArchitectureHash(view, structure);
+		assertFalse(hash.equals(removed));
+		for (int i = 1; i < 38; i++)
+			view.removeModule(modules.get(i));
+		for (int i = 1; i < 38; i++) {
+			view.defineModule(modules.get(i));
+			view.setResponsibilityAllocation(modules.get(i), responsibilities.get(i), true);
+			view.setModuleDependency(modules.get(i), modules.get(i + 1), true);
+			if (i > 1)
+				view.setModuleDependency(modules.get(i - 1), modules.get(i), true);
+		}
+		assertEquals(removed, CandidateEvaluationCache.computeArchitectureHash(view, structure));
+		view.compact();
+		assertEquals(removed, CandidateEvaluationCache.computeArchitectureHash(view, structure));
+		
+		modules.get(5).setCostOfChange(modules.get(5).getCostOfChange() + 1.0);
+		assertFalse(removed.equals(CandidateEvaluationCache.computeArchitectureHash(view, structure)));
+	}
+
+	private CandidateEvaluation createEvaluation(final double totalCost) {
+		ChangeImpactAnalyzer analyzer = new ChangeImpactAnalyzer(new ModuleADLWrapper(architecture), structure) {
+			public double getTotalCost() {
+				return (totalCost);
+			}
+		};
+		return (new CandidateEvaluation(analyzer));
+	}
+
+	private ArchEModuleVO createModule(String name) {
+		ArchEModuleVO module = new ArchEModuleVO(version);
+		module.setName(name);
+		module.setCostOfChange(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+		return (module);
+	}
+
+	private ArchEResponsibilityVO createResponsibility(String name) {
+		ArchEResponsibilityVO responsibility = new ArchEResponsibilityVO(version);
+		responsibility.setName(name);
+		return (responsibility);
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * It checks the ridge regression of CandidateSurrogateModel against the normal 
+ * equations accumulated independently, and the selection of the candidates 
+ * based on its predictions
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CandidateSurrogateModelTest extends TestCase {
+
+	private static final double REGULARIZATION = 0.001; // As in CandidateSurrogateModel
+	private static final int N = CandidateSurrogateModel.COUNT_FEATURES;
+
+	public void testRecoversLinearRelation() {
+		
+		Random random = new Random(17);
+		double[] weights = new double[N];
+		for (int i = 0; i < N; i++)
+			weights[i] = 2 * random.nextDouble() - 1;
+		CandidateSurrogateModel.LinearModel model = new CandidateSurrogateModel.LinearModel();
+		double[] x = null;
+		for (int s = 0; s < 500; s++) {
+			x = CandidateSurrogateModelTest.createFeatures(random);
+			model.learn(x, CandidateSurrogateModelTest.dot(weights, x));
+		}
+		
+		for (int i = 0; i < N; i++) 
+			assertEquals("weight "+i, weights[i], model.predict(CandidateSurrogateModelTest.unit(i)), 1e-3);
+		x = CandidateSurrogateModelTest.createFeatures(random);
+		assertEquals(CandidateSurrogateModelTest.dot(weights, x), model.predict(x), 1e-3);
+	}
+
+	public void testSolvesNormalEquations() {
+		
+		Random random = new Random(19);
+		for (int t = 0; t < 50; t++) {
+			CandidateSurrogateModel.LinearModel model = new CandidateSurrogateModel.LinearModel();
+			double[][] xtx = new double[N][N];
+			double[] xty = new double[N];
+			double[] x = null;
+			double y = 0.0;
+			int countSamples = 1 + random.nextInt(30);
+			for (int s = 0; s < countSamples; s++) {
+				x = CandidateSurrogateModelTest.createFeatures(random);
+				if (t % 2 == 0) 
+					x[3] = 2 * x[2]; // Two collinear features, which ridge regression has to cope with
+				y = 10 * random.nextDouble() - 5;
+				model.learn(x, y);
+				for (int i = 0; i < N; i++) {
+					for (int j = 0; j < N; j++)
+						xtx[i][j] = xtx[i][j] + x[i] * x[j];
+					xty[i] = xty[i] + x[i] * y;
+				}
+			}
+			
+			// The weights are the predictions for the unit vectors, and they must satisfy 
+			// (X'X + lambda*I) w = X'y
+			double[] w = new double[N];
+			for (int i = 0; i < N; i++) {
+				w[i] = model.predict(CandidateSurrogateModelTest.unit(i));
+				assertFalse(Double.isNaN(w[i]) || Double.isInfinite(w[i]));
+			}
+			double residual = 0.0;
+			for (int i = 0; i < N; i++) {
+				residual = REGULARIZATION * w[i] - xty[i];
+				for (int j = 0; j < N; j++)
+					residual = residual + xtx[i][j] * w[j];
+				assertEquals("equation "+i+" of trial "+t, 0.0, residual, 1e-6 * (1 + Math.abs(xty[i])));
+			}
+		}
+	}
+
+	public void testMeanAbsoluteError() {
+		
+		CandidateSurrogateModel.LinearModel model = new CandidateSurrogateModel.LinearModel();
+		double[] x = CandidateSurrogateModelTest.unit(0);
+		model.learn(x, 4.0); // The first sample is not predicted
+		assertEquals(0.0, model.getMeanAbsoluteError(), 0.0);
+		double predicted = model.predict(x);
+		model.learn(x, 2.0);
+		assertEquals(Math.abs(predicted - 2.0), model.getMeanAbsoluteError(), 1e-12);
+		assertEquals(2, model.getCountSamples());
+	}
+
+	public void testPredictionsNeedEnoughSamples() {
+		
+		Random random = new Random(23);
+		CandidateSurrogateModel surrogate = new CandidateSurrogateModel();
+		TacticCandidate candidate = null;
+		for (int s = 0; s < CandidateSurrogateModel.MIN_SAMPLES; s++) {
+			candidate = CandidateSurrogateModelTest.createCandidate("split", random);
+			assertNull(surrogate.predict(candidate));
+			surrogate.learn(candidate);
+		}
+		assertEquals(CandidateSurrogateModel.MIN_SAMPLES, surrogate.getCountSamples("split"));
+		assertNotNull(surrogate.predict(candidate));
+		assertNull(surrogate.predict(CandidateSurrogateModelTest.createCandidate("abstract", random)));
+		
+		// The candidates without features are neither learned nor predicted
+		TacticCandidate unknown = new TacticCandidate("split", null, 10.0);
+		surrogate.learn(unknown);
+		assertEquals(CandidateSurrogateModel.MIN_SAMPLES, surrogate.getCountSamples("split"));
+		assertNull(surrogate.predict(unknown));
+		
+		surrogate.setEnabled(false);
+		assertNull(surrogate.predict(candidate));
+		surrogate.reset();
+		assertTrue(surrogate.isEnabled());
+		assertEquals(0, surrogate.getCountSamples("split"));
+	}
+
+	public void testSelectsBestPredictions() {
+		
+		Random random = new Random(29);
+		CandidateSurrogateModel surrogate = new CandidateSurrogateModel();
+		int maxCandidates = 3;
+		int limit = CandidateSurrogateModel.SELECTION_FACTOR * maxCandidates;
+		List<TacticCandidate> candidates = new ArrayList<TacticCandidate>();
+		for (int s = 0; s < 4 * limit; s++)
+			candidates.add(CandidateSurrogateModelTest.createCandidate("split", random));
+		
+		// Without predictions, all the candidates are selected
+		assertEquals(candidates.size(), surrogate.selectCandidates(candidates, maxCandidates).size());
+		
+		for (int s = 0; s < 2 * CandidateSurrogateModel.MIN_SAMPLES; s++)
+			surrogate.learn(CandidateSurrogateModelTest.createCandidate("split", random));
+		Set<TacticCandidate> selected = surrogate.selectCandidates(candidates, maxCandidates);
+		assertEquals(limit, selected.size());
+		double worstSelected = Double.MAX_VALUE;
+		double bestDeferred = -Double.MAX_VALUE;
+		double prediction = 0.0;
+		for (int s = 0; s < candidates.size(); s++) {
+			prediction = surrogate.predict(candidates.get(s));
+			if (selected.contains(candidates.get(s)))
+				worstSelected = Math.min(worstSelected, prediction);
+			else
+				bestDeferred = Math.max(bestDeferred, prediction);
+		}
+		assertTrue(worstSelected >= bestDeferred);
+		
+		// There is no need to select when there are few candidates
+		assertEquals(limit, surrogate.selectCandidates(candidates.subList(0, limit), maxCandidates).size());
+	}
+
+	// The features of a candidate whose cost reduction is a linear function of them
+	private static TacticCandidate createCandidate(String tacticName, Random random) {
+		TacticCandidate candidate = new TacticCandidate(tacticName, null, 10.0);
+		double[] features = CandidateSurrogateModelTest.createFeatures(random);
+		candidate.setFeatures(features);
+		candidate.setResultingCost(10.0 - (0.5 * features[1] - 0.2 * features[2] + 0.1 * features[5]));
+		return (candidate);
+	}
+
+	private static double[] createFeatures(Random random) {
+		double[] x = new double[N];
+		x[0] = 1.0; // The bias
+		for (int i = 1; i < N; i++)
+			x[i] = 4 * random.nextDouble();
+		return (x);
+	}
+
+	private static double[] unit(int i) {
+		double[] x = new double[N];
+		x[i] = 1.0;
+		return (x);
+	}
+
+	private static double dot(double[] w, double[] x) {
+		double y = 0.0;
+		for (int i = 0; i < N; i++)
+			y = y + w[i] * x[i];
+		return (y);
+	}
+
+}
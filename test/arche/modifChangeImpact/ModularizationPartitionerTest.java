@@ -0,0 +1,276 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * It checks the partitions of ModularizationPartitioner on graphs with a known 
+ * structure, and their modularity against that computed from the list of dependencies
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityDependencyRelationVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEResponsibilityVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
+
+import junit.framework.TestCase;
+
+public class ModularizationPartitionerTest extends TestCase {
+
+	private static final int TRIALS = 50;
+	private static final double EPSILON = 1e-9;
+
+	private ArchEVersionVO version;
+	private ArchECoreArchitecture architecture;
+	private ChangeImpactModifiabilityResponsibilityStructure structure;
+	private List<ArchEResponsibilityVO> responsibilities;
+	private List<int[]> edges; // The responsibilities of each dependency
+	private List<Double> weights; // The rippling of each dependency (in both directions)
+
+	protected void setUp() throws Exception {
+		version = new ArchEVersionVO();
+		version.setId(1);
+		version.setMaxFactID(1);
+		architecture = new ArchECoreArchitecture(version);
+		structure = new ChangeImpactModifiabilityResponsibilityStructure(architecture);
+		responsibilities = new ArrayList<ArchEResponsibilityVO>();
+		edges = new ArrayList<int[]>();
+		weights = new ArrayList<Double>();
+	}
+
+	public void testTwoCliquesWithAWeakDependency() {
+		
+		this.addResponsibilities(8);
+		for (int i = 0; i < 4; i++) {
+			for (int j = i + 1; j < 4; j++) {
+				this.addDependency(i, j, 0.5, 0.5);
+				this.addDependency(4 + i, 4 + j, 0.5, 0.5);
+			}
+		}
+		this.addDependency(3, 4, 0.05, 0.05);
+		
+		ModularizationPartitioner partitioner = new ModularizationPartitioner(structure);
+		int[] partition = this.partition(partitioner);
+		assertEquals(2, ModularizationPartitionerTest.countParts(partition));
+		for (int i = 1; i < 4; i++) {
+			assertEquals(partition[0], partition[i]);
+			assertEquals(partition[4], partition[4 + i]);
+		}
+		assertTrue(partition[0] != partition[4]);
+		assertEquals(this.computeModularity(partition), partitioner.getModularity(), EPSILON);
+		assertTrue(partitioner.getModularity() > 0.4);
+	}
+
+	public void testRandomGraphs() throws Exception {
+		
+		Random random = new Random(5);
+		int n = 0;
+		int[] partition = null;
+		int[] singletons = null;
+		for (int t = 0; t < TRIALS; t++) {
+			this.setUp();
+			n = 2 + random.nextInt(60);
+			this.addResponsibilities(n);
+			for (int k = 2 * n; k > 0; k--)
+				this.addDependency(random.nextInt(n), random.nextInt(n), random.nextDouble(), random.nextDouble());
+			
+			ModularizationPartitioner partitioner = new ModularizationPartitioner(structure);
+			partition = this.partition(partitioner);
+			assertEquals(n, partition.length);
+			ModularizationPartitionerTest.countParts(partition); // The parts are numbered from 0 on
+			assertEquals(this.computeModularity(partition), partitioner.getModularity(), EPSILON);
+			
+			// The partition can't be worse than leaving each responsibility in its own 
+			// module, or than placing all of them in a single module (i.e., zero modularity)
+			singletons = new int[n];
+			for (int i = 0; i < n; i++)
+				singletons[i] = i;
+			assertTrue(partitioner.getModularity() >= this.computeModularity(singletons) - EPSILON);
+			assertTrue(partitioner.getModularity() >= -EPSILON);
+			assertTrue(partitioner.getCountLevels() <= ModularizationPartitioner.MAX_LEVELS);
+		}
+	}
+
+	public void testOnlyLeavesAndValidDependencies() {
+		
+		this.addResponsibilities(3);
+		ArchEResponsibilityVO parent = this.addResponsibility("P");
+		assertTrue(structure.refineResponsibility(parent, responsibilities.get(0)));
+		this.addDependency(0, 1, 0.4, 0.4);
+		
+		// A dependency without probabilities, and another one without a parent, are skipped
+		ArchEResponsibilityDependencyRelationVO dependency = new ArchEResponsibilityDependencyRelationVO(version);
+		dependency.setParent(responsibilities.get(1));
+		dependency.setChild(responsibilities.get(2));
+		structure.addRelation(dependency);
+		dependency = new ArchEResponsibilityDependencyRelationVO(version);
+		dependency.setChild(responsibilities.get(2));
+		structure.addRelation(dependency);
+		
+		ModularizationPartitioner partitioner = new ModularizationPartitioner(structure);
+		assertEquals(3, partitioner.getResponsibilities().size());
+		assertFalse(partitioner.getResponsibilities().contains(parent));
+		int[] partition = this.partition(partitioner);
+		assertEquals(partition[0], partition[1]);
+		assertTrue(partition[0] != partition[2]);
+	}
+
+	public void testProposalDoesntChangeTheView() {
+		
+		this.addResponsibilities(6);
+		for (int i = 0; i < 5; i++)
+			this.addDependency(i, i + 1, 0.3, 0.3);
+		ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+		ArchEModuleVO module = null;
+		for (int j = 0; j < 2; j++) {
+			module = new ArchEModuleVO(version);
+			module.setName("M"+j);
+			module.setCostOfChange(ChangeImpactAnalyzer.DEFAULT_MODULE_COST);
+			view.defineModule(module);
+		}
+		for (int i = 0; i < 5; i++) { // The last responsibility is not allocated
+			view.defineResponsibility(responsibilities.get(i));
+			view.setResponsibilityAllocation(view.getModules().get(i % 2), responsibilities.get(i), true);
+		}
+		
+		ModularizationPartitioner partitioner = new ModularizationPartitioner(structure);
+		AllocationProposal proposal = partitioner.propose(view);
+		assertEquals(2, view.getModules().size());
+		assertEquals(5, view.getCountAllocatedResponsibilities());
+		int countParts = ModularizationPartitionerTest.countParts(partitioner.partition());
+		assertEquals(countParts, proposal.getModules().size());
+		assertTrue(proposal.getCost() > 0);
+		assertTrue(proposal.getInitialCost() > 0);
+	}
+
+	// It partitions the responsibilities, and returns the part of each one in the order 
+	// they were added to the structure (which may not be the order of the partitioner)
+	private int[] partition(ModularizationPartitioner partitioner) {
+		int[] parts = partitioner.partition();
+		int[] partition = new int[responsibilities.size()];
+		for (int i = 0; i < responsibilities.size(); i++) 
+			partition[i] = parts[partitioner.getResponsibilities().indexOf(responsibilities.get(i))];
+		return (partition);
+	}
+
+	private void addResponsibilities(int count) {
+		for (int i = 0; i < count; i++)
+			this.addResponsibility("R"+i);
+	}
+
+	private ArchEResponsibilityVO addResponsibility(String name) {
+		ArchEResponsibilityVO responsibility = new ArchEResponsibilityVO(version);
+		responsibility.setName(name);
+		structure.addResponsibility(responsibility);
+		if (name.startsWith("R"))
+			responsibilities.add(responsibility);
+		return (responsibility);
+	}
+
+	private void addDependency(int parent, int child, double outgoing, double incoming) {
+		ArchEResponsibilityDependencyRelationVO dependency = new ArchEResponsibilityDependencyRelationVO(version);
+		dependency.setParent(responsibilities.get(parent));
+		dependency.setChild(responsibilities.get(child));
+		structure.addRelation(dependency);
+		structure.setParameter(dependency, ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_OUTGOING, outgoing);
+		structure.setParameter(dependency, ModifChangeImpactReasoningFramework.PARAMETER_PROBABILITY_INCOMING, incoming);
+		if (parent != child) { // The partitioner ignores the dependencies of a responsibility on itself
+			edges.add(new int[] { parent, child });
+			weights.add(outgoing + incoming);
+		}
+	}
+
+	// It computes the modularity from the list of dependencies: the fraction of the weight
+	// within the parts minus the fraction expected if the dependencies were placed at random
+	private double computeModularity(int[] partition) {
+		
+		double total = 0.0;
+		for (int k = 0; k < weights.size(); k++)
+			total = total + weights.get(k);
+		if (total == 0)
+			return (0.0);
+		
+		int countParts = ModularizationPartitionerTest.countParts(partition);
+		double[] internal = new double[countParts];
+		double[] degrees = new double[countParts];
+		int[] edge = null;
+		for (int k = 0; k < edges.size(); k++) {
+			edge = edges.get(k);
+			degrees[partition[edge[0]]] = degrees[partition[edge[0]]] + weights.get(k);
+			degrees[partition[edge[1]]] = degrees[partition[edge[1]]] + weights.get(k);
+			if (partition[edge[0]] == partition[edge[1]])
+				internal[partition[edge[0]]] = internal[partition[edge[0]]] + weights.get(k);
+		}
+		double modularity = 0.0;
+		for (int c = 0; c < countParts; c++)
+			modularity = modularity + internal[c] / total - (degrees[c] / (2 * total)) * (degrees[c] / (2 * total));
+		return (modularity);
+	}
+
+	// It checks that the parts are numbered from 0 to (number of parts - 1), and returns that number
+	private static int countParts(int[] partition) {
+		int countParts = 0;
+		for (int i = 0; i < partition.length; i++)
+			countParts = Math.max(countParts, partition[i] + 1);
+		boolean[] used = new boolean[countParts];
+		for (int i = 0; i < partition.length; i++) {
+			assertTrue(partition[i] >= 0);
+			used[partition[i]] = true;
+		}
+		for (int c = 0; c < countParts; c++)
+			assertTrue("part "+c+" is empty", used[c]);
+		return (countParts);
+	}
+
+}
@@ -0,0 +1,238 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * It checks that the results of a ModuleDependencyGraph, updated incrementally as
+ * the dependencies and modules are added to the view, are the same as those of a 
+ * graph computed from scratch, and as those of a breadth-first search over the view
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import arche.modifChangeImpact.hibernate.ArchECoreArchitecture;
+import arche.modifChangeImpact.hibernate.vo.ArchEModuleVO;
+import arche.modifChangeImpact.hibernate.vo.ArchEVersionVO;
+
+import junit.framework.TestCase;
+
+public class ModuleDependencyGraphTest extends TestCase {
+
+	private static final int TRIALS = 40;
+
+	private ArchEVersionVO version;
+	private ArchECoreArchitecture architecture;
+
+	protected void setUp() throws Exception {
+		version = new ArchEVersionVO();
+		version.setId(1);
+		version.setMaxFactID(1);
+		architecture = new ArchECoreArchitecture(version);
+	}
+
+	public void testIncrementalAdditions() {
+		
+		Random random = new Random(7);
+		for (int t = 0; t < TRIALS; t++) {
+			ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+			List<ArchEModuleVO> modules = new ArrayList<ArchEModuleVO>();
+			ModuleDependencyGraph graph = view.getDependencyGraph();
+			int n = 2 + random.nextInt(40);
+			for (int step = 0; step < 3 * n; step++) {
+				// The results are computed before each change, so that the change is applied 
+				// to them incrementally (instead of computing them again)
+				graph.getCountComponents();
+				if (!modules.isEmpty())
+					graph.getFanIn(modules.get(0));
+				if ((modules.size() < n) && (random.nextInt(3) == 0))
+					modules.add(this.defineModule(view, "M"+step));
+				else if (modules.size() >= 2)
+					view.setModuleDependency(modules.get(random.nextInt(modules.size())), 
+							modules.get(random.nextInt(modules.size())), true);
+				ModuleDependencyGraphTest.assertSameResults(view, graph, modules);
+			}
+		}
+	}
+
+	public void testRemovalsAndCompaction() {
+		
+		Random random = new Random(11);
+		for (int t = 0; t < TRIALS; t++) {
+			ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+			List<ArchEModuleVO> modules = new ArrayList<ArchEModuleVO>();
+			int n = ModuleADLWrapper.MIN_COMPACTION_SLOTS + 10 + random.nextInt(40);
+			for (int i = 0; i < n; i++) 
+				modules.add(this.defineModule(view, "M"+i));
+			ModuleDependencyGraph graph = view.getDependencyGraph();
+			for (int k = 0; k < n; k++)
+				view.setModuleDependency(modules.get(random.nextInt(n)), modules.get(random.nextInt(n)), true);
+			ModuleDependencyGraphTest.assertSameResults(view, graph, modules);
+			
+			// Most of the modules are removed (leaving tombstones), and some dependencies are 
+			// deleted, before the view is compacted and more modules are added again
+			int i = 0;
+			while (modules.size() > n / 4) {
+				i = random.nextInt(modules.size());
+				if (random.nextBoolean())
+					view.setModuleDependency(modules.get(i), modules.get(random.nextInt(modules.size())), false);
+				else {
+					assertTrue(view.removeModule(modules.get(i)));
+					modules.remove(i);
+				}
+				if (random.nextInt(4) == 0)
+					ModuleDependencyGraphTest.assertSameResults(view, graph, modules);
+			}
+			assertTrue(view.compact());
+			assertEquals(modules.size(), view.getCountModuleSlots());
+			ModuleDependencyGraphTest.assertSameResults(view, graph, modules);
+			for (int k = 0; k < 10; k++) {
+				modules.add(this.defineModule(view, "N"+k));
+				view.setModuleDependency(modules.get(modules.size() - 1), modules.get(random.nextInt(modules.size())), true);
+				ModuleDependencyGraphTest.assertSameResults(view, graph, modules);
+			}
+		}
+	}
+
+	public void testCyclicComponents() {
+		
+		ModuleADLWrapper view = new ModuleADLWrapper(architecture);
+		ArchEModuleVO a = this.defineModule(view, "A");
+		ArchEModuleVO b = this.defineModule(view, "B");
+		ArchEModuleVO c = this.defineModule(view, "C");
+		ModuleDependencyGraph graph = view.getDependencyGraph();
+		assertEquals(3, graph.getCountComponents());
+		assertTrue(graph.getCyclicComponents().isEmpty());
+		
+		view.setModuleDependency(a, b, true);
+		assertEquals(2, graph.getCountComponents());
+		assertTrue(graph.isReachable(b, a)); // The dependencies are bidirectional
+		assertFalse(graph.isReachable(a, c));
+		assertEquals(1, graph.getCyclicComponents().size());
+		assertEquals(1, graph.getFanIn(a));
+		assertEquals(0, graph.getFanIn(c));
+	}
+
+	private ArchEModuleVO defineModule(ModuleADLWrapper view, String name) {
+		ArchEModuleVO module = new ArchEModuleVO(version);
+		module.setName(name);
+		assertTrue(view.defineModule(module));
+		return (module);
+	}
+
+	// It compares the results of the graph with those of a new graph (computed from scratch), 
+	// and with the components found by a breadth-first search over the dependencies of the view
+	private static void assertSameResults(ModuleADLWrapper view, ModuleDependencyGraph graph, List<ArchEModuleVO> modules) {
+		
+		HashMap<ArchEModuleVO,Integer> components = new HashMap<ArchEModuleVO,Integer>();
+		int countComponents = 0;
+		ArchEModuleVO module = null;
+		ArchEModuleVO other = null;
+		LinkedList<ArchEModuleVO> queue = new LinkedList<ArchEModuleVO>();
+		for (Iterator<ArchEModuleVO> it = modules.iterator(); it.hasNext();) {
+			module = it.next();
+			if (components.containsKey(module))
+				continue;
+			components.put(module, countComponents);
+			queue.add(module);
+			while (!queue.isEmpty()) {
+				module = queue.removeFirst();
+				for (Iterator<ArchEModuleVO> itOthers = modules.iterator(); itOthers.hasNext();) {
+					other = itOthers.next();
+					if ((other != module) && view.hasDependency(module, other) && !components.containsKey(other)) {
+						components.put(other, countComponents);
+						queue.add(other);
+					}
+				}
+			}
+			countComponents++;
+		}
+		
+		ModuleDependencyGraph recomputed = new ModuleDependencyGraph(view);
+		assertEquals("components", countComponents, graph.getCountComponents());
+		assertEquals("recomputed components", recomputed.getCountComponents(), graph.getCountComponents());
+		int countModules = 0;
+		for (Iterator<List<ArchEModuleVO>> it = graph.getStronglyConnectedComponents().iterator(); it.hasNext();)
+			countModules = countModules + it.next().size();
+		assertEquals("modules in components", modules.size(), countModules);
+		
+		int degree = 0;
+		HashSet<ArchEModuleVO> reachable = null;
+		for (Iterator<ArchEModuleVO> it = modules.iterator(); it.hasNext();) {
+			module = it.next();
+			degree = 0;
+			for (Iterator<ArchEModuleVO> itOthers = modules.iterator(); itOthers.hasNext();) {
+				other = itOthers.next();
+				if ((other != module) && view.hasDependency(module, other))
+					degree++;
+				assertEquals("reachable", components.get(module).equals(components.get(other)), graph.isReachable(module, other));
+				assertEquals("same component", recomputed.areInSameComponent(module, other), graph.areInSameComponent(module, other));
+			}
+			assertEquals("fan-in", degree, graph.getFanIn(module));
+			assertEquals("fan-out", degree, graph.getFanOut(module));
+			assertEquals("recomputed fan-in", recomputed.getFanIn(module), graph.getFanIn(module));
+			
+			// The closure of the module is its component (without the module itself)
+			reachable = new HashSet<ArchEModuleVO>(graph.getReachableModules(module));
+			assertEquals("closure", new HashSet<ArchEModuleVO>(recomputed.getReachableModules(module)), reachable);
+			for (Iterator<ArchEModuleVO> itOthers = modules.iterator(); itOthers.hasNext();) {
+				other = itOthers.next();
+				assertEquals("closure of "+module.getName(), (other != module) && components.get(module).equals(components.get(other)), 
+						reachable.contains(other));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * ArchE
+ * Copyright (c) 2012 Carnegie Mellon University.
+ * All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following acknowledgments and disclaimers.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. All advertising materials for third-party software mentioning features or
+ * use of this software must display the following disclaimer:
+ *
+ * “Neither Carnegie Mellon University nor its Software Engineering Institute
+ * have reviewed or endorsed this software”
+ *
+ * 4. The names “Carnegie Mellon University,” and/or “Software Engineering
+ * Institute" shall not be used to endorse or promote products derived from
+ * this software without prior written permission. For written permission,
+ * please contact permission@sei.cmu.edu.
+ *
+ * 5. Redistributions of any form whatsoever must retain the following
+ * acknowledgment:
+ *
+ * Copyright 2012 Carnegie Mellon University.
+ *
+ * This material is based upon work funded and supported by the United States
+ * Department of Defense under Contract No. FA8721-05-C-0003 with Carnegie
+ * Mellon University for the operation of the Software Engineering Institute, a
+ * federally funded research and development center.
+ *
+ * NO WARRANTY
+ *
+ * THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING INSTITUTE MATERIAL
+ * IS FURNISHED ON AN “AS-IS” BASIS. CARNEGIE MELLON UNIVERSITY MAKES NO
+ * WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED, AS TO ANY MATTER
+ * INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR PURPOSE OR
+ * MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF THE MATERIAL.
+ * CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF ANY KIND WITH
+ * RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT INFRINGEMENT.
+ */
+
+package arche.modifChangeImpact;
+
+/**
+ * It checks the fronts computed by ParetoTacticRanking against a brute-force sort,
+ * which peels the non-dominated candidates off the list one front at a time (in 
+ * O(n^2) time per front)
+ * 
+ * @author Andres Diaz-Pace
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ParetoTacticRankingTest extends TestCase {
+
+	private static final int TRIALS = 300;
+
+	public void testFrontsMatchBruteForceSort() {
+		
+		Random random = new Random(3);
+		List<TacticCandidate> candidates = null;
+		for (int t = 0; t < TRIALS; t++) {
+			// The costs are taken from a small range, so that there are many ties
+			candidates = new ArrayList<TacticCandidate>();
+			int n = 1 + random.nextInt(60);
+			for (int i = 0; i < n; i++) 
+				candidates.add(ParetoTacticRankingTest.createCandidate(random.nextInt(6), random.nextInt(6)));
+			
+			ParetoTacticRankingTest.assertSameFronts(ParetoTacticRankingTest.computeFrontsByBruteForce(candidates), 
+					ParetoTacticRanking.computeFronts(candidates));
+		}
+	}
+
+	public void testFrontsWithUnknownCosts() {
+		
+		Random random = new Random(7);
+		List<TacticCandidate> candidates = null;
+		List<TacticCandidate> known = null;
+		TacticCandidate candidate = null;
+		for (int t = 0; t < TRIALS; t++) {
+			candidates = new ArrayList<TacticCandidate>();
+			known = new ArrayList<TacticCandidate>();
+			int n = 1 + random.nextInt(40);
+			for (int i = 0; i < n; i++) {
+				if (random.nextInt(4) == 0) // The tactic wasn't applied
+					candidate = ParetoTacticRankingTest.createCandidate(Double.MAX_VALUE, random.nextInt(6));
+				else {
+					candidate = ParetoTacticRankingTest.createCandidate(random.nextInt(6), random.nextInt(6));
+					known.add(candidate);
+				}
+				candidates.add(candidate);
+			}
+			
+			// The candidates with unknown costs are left out, without changing the other fronts
+			ParetoTacticRankingTest.assertSameFronts(ParetoTacticRankingTest.computeFrontsByBruteForce(known), 
+					ParetoTacticRanking.computeFronts(candidates));
+		}
+	}
+
+	public void testUnknownCostsAreRankedLast() {
+		
+		ParetoTacticRanking ranking = new ParetoTacticRanking();
+		TacticCandidate dominated = ParetoTacticRankingTest.createCandidate(5.0, 5.0);
+		TacticCandidate unknownHigh = ParetoTacticRankingTest.createCandidate(Double.MAX_VALUE, 9.0);
+		TacticCandidate best = ParetoTacticRankingTest.createCandidate(1.0, 1.0);
+		TacticCandidate unknownLow = ParetoTacticRankingTest.createCandidate(Double.MAX_VALUE, 0.5);
+		ranking.addCandidate(dominated);
+		ranking.addCandidate(unknownHigh);
+		ranking.addCandidate(best);
+		ranking.addCandidate(unknownLow);
+		
+		assertEquals(2, ranking.getFronts().size());
+		assertEquals(1, ranking.getParetoFront().size());
+		assertSame(best, ranking.getParetoFront().get(0));
+		
+		List<TacticCandidate> ranked = ranking.getRankedCandidates();
+		assertEquals(4, ranked.size());
+		assertSame(best, ranked.get(0));
+		assertSame(dominated, ranked.get(1));
+		assertSame(unknownLow, ranked.get(2)); // The unranked candidates come by their resulting costs
+		assertSame(unknownHigh, ranked.get(3));
+	}
+
+	public void testEqualCandidatesShareTheirFront() {
+		
+		TacticCandidate c1 = ParetoTacticRankingTest.createCandidate(2.0, 3.0);
+		TacticCandidate c2 = ParetoTacticRankingTest.createCandidate(2.0, 3.0);
+		assertFalse(ParetoTacticRanking.dominates(c1, c2));
+		assertFalse(ParetoTacticRanking.dominates(c2, c1));
+		
+		List<TacticCandidate> candidates = new ArrayList<TacticCandidate>();
+		candidates.add(c1);
+		candidates.add(c2);
+		candidates.add(ParetoTacticRankingTest.createCandidate(2.0, 4.0)); // Dominated by both
+		List<List<TacticCandidate>> fronts = ParetoTacticRanking.computeFronts(candidates);
+		assertEquals(2, fronts.size());
+		assertEquals(2, fronts.get(0).size());
+		assertEquals(1, fronts.get(1).size());
+	}
+
+	public void testEmptyRanking() {
+		ParetoTacticRanking ranking = new ParetoTacticRanking();
+		assertTrue(ranking.getFronts().isEmpty());
+		assertTrue(ranking.getParetoFront().isEmpty());
+		assertTrue(ranking.getRankedCandidates().isEmpty());
+	}
+
+	private static TacticCandidate createCandidate(double costOfTransformation, double resultingCost) {
+		TacticCandidate candidate = new TacticCandidate("tactic", null, 10.0);
+		candidate.setCostOfTransformation(costOfTransformation);
+		candidate.setResultingCost(resultingCost);
+		return (candidate);
+	}
+
+	// It removes the candidates not dominated by any of the remaining candidates, 
+	// one front at a time
+	private static List<List<TacticCandidate>> computeFrontsByBruteForce(List<TacticCandidate> candidates) {
+		
+		List<List<TacticCandidate>> fronts = new ArrayList<List<TacticCandidate>>();
+		List<TacticCandidate> remaining = new ArrayList<TacticCandidate>(candidates);
+		List<TacticCandidate> front = null;
+		TacticCandidate candidate = null;
+		boolean dominated = false;
+		while (!remaining.isEmpty()) {
+			front = new ArrayList<TacticCandidate>();
+			for (Iterator<TacticCandidate> it = remaining.iterator(); it.hasNext();) {
+				candidate = it.next();
+				dominated = false;
+				for (Iterator<TacticCandidate> itOthers = remaining.iterator(); itOthers.hasNext() && !dominated;)
+					dominated = ParetoTacticRanking.dominates(itOthers.next(), candidate);
+				if (!dominated)
+					front.add(candidate);
+			}
+			remaining.removeAll(front);
+			fronts.add(front);
+		}
+		return (fronts);
+	}
+
+	// The fronts must have the same candidates, although not necessarily in the same order
+	private static void assertSameFronts(List<List<TacticCandidate>> expected, List<List<TacticCandidate>> actual) {
+		
+		assertEquals("fronts", expected.size(), actual.size());
+		HashMap<TacticCandidate,Integer> ranks = new HashMap<TacticCandidate,Integer>();
+		for (int k = 0; k < expected.size(); k++) {
+			for (Iterator<TacticCandidate> it = expected.get(k).iterator(); it.hasNext();)
+				ranks.put(it.next(), k);
+		}
+		TacticCandidate candidate = null;
+		TacticCandidate previous = null;
+		for (int k = 0; k < actual.size(); k++) {
+			assertEquals("size of front "+k, expected.get(k).size(), actual.get(k).size());
+			previous = null;
+			for (Iterator<TacticCandidate> it = actual.get(k).iterator(); it.hasNext();) {
+				candidate = it.next();
+				assertEquals("front of "+candidate, ranks.get(candidate), Integer.valueOf(k));
+				// The candidates of a front are in ascending order of their costs of transformation
+				if (previous != null)
+					assertTrue(previous.getCostOfTransformation() <= candidate.getCostOfTransformation());
+				previous = candidate;
+			}
+		}
+	}
+
+}